@@ -0,0 +1,291 @@
+package jetbrains.buildServer.investigationsAutoAssigner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import jetbrains.buildServer.BuildProblemData;
+import jetbrains.buildServer.BuildProblemTypes;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.InvestigationsManager;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ProjectHierarchyIndex;
+import jetbrains.buildServer.responsibility.BuildProblemResponsibilityEntry;
+import jetbrains.buildServer.responsibility.ResponsibilityEntry;
+import jetbrains.buildServer.responsibility.ResponsibilityFacadeEx;
+import jetbrains.buildServer.responsibility.TestNameResponsibilityEntry;
+import jetbrains.buildServer.serverSide.*;
+import jetbrains.buildServer.serverSide.audit.AuditLogBuilder;
+import jetbrains.buildServer.serverSide.audit.AuditLogProvider;
+import jetbrains.buildServer.serverSide.problems.BuildProblem;
+import jetbrains.buildServer.tests.TestName;
+import jetbrains.buildServer.users.SUser;
+import jetbrains.buildServer.users.UserModelEx;
+import jetbrains.buildServer.users.impl.UserEx;
+import jetbrains.buildServer.vcs.SVcsModification;
+import jetbrains.buildServer.vcs.SelectPrevBuildPolicy;
+import jetbrains.buildServer.vcs.VcsFileModification;
+import org.jetbrains.annotations.NotNull;
+import org.mockito.Mockito;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * In-memory failed build for benchmarks. The build has the given number of failed tests, changed files
+ * and investigations of each failed test and build problem in the past. Every second failure mentions one
+ * of the changed files, the changes are made by two different committers and the default responsible user is set.
+ * Mocks are stub-only, so they don't record invocations and don't grow while a benchmark runs.
+ */
+public class SyntheticBuild {
+  public static final String PROJECT_ID = "Benchmark_Project";
+  public static final String DEFAULT_RESPONSIBLE = "default.user";
+  private static final int CHANGES_COUNT = 4;
+  private static final int MODULES_COUNT = 10;
+  private static final String STACK_TRACE_TAIL =
+    "\n\tat org.junit.Assert.fail(Assert.java:88)" +
+    "\n\tat org.junit.Assert.assertTrue(Assert.java:41)" +
+    "\n\tat sun.reflect.NativeMethodAccessorImpl.invoke0(Native Method)" +
+    "\n\tat sun.reflect.NativeMethodAccessorImpl.invoke(NativeMethodAccessorImpl.java:62)" +
+    "\n\tat sun.reflect.DelegatingMethodAccessorImpl.invoke(DelegatingMethodAccessorImpl.java:43)" +
+    "\n\tat java.lang.reflect.Method.invoke(Method.java:498)" +
+    "\n\tat org.junit.runners.model.FrameworkMethod$1.runReflectiveCall(FrameworkMethod.java:50)" +
+    "\n\tat org.junit.internal.runners.model.ReflectiveCallable.run(ReflectiveCallable.java:12)" +
+    "\n\tat org.junit.runners.model.FrameworkMethod.invokeExplosively(FrameworkMethod.java:47)" +
+    "\n\tat org.junit.internal.runners.statements.InvokeMethod.evaluate(InvokeMethod.java:17)" +
+    "\n\tat org.junit.runners.ParentRunner.runLeaf(ParentRunner.java:325)" +
+    "\n\tat org.junit.runners.BlockJUnit4ClassRunner.runChild(BlockJUnit4ClassRunner.java:78)";
+
+  private final BuildEx myBuild;
+  private final SProject myProject;
+  private final List<STestRun> myTestRuns = new ArrayList<>();
+  private final List<BuildProblem> myBuildProblems = new ArrayList<>();
+  private final List<SVcsModification> myChanges = new ArrayList<>();
+  private final List<String> myChangedFiles = new ArrayList<>();
+  private final List<UserEx> myUsers = new ArrayList<>();
+  private final UserModelEx myUserModel;
+
+  /**
+   * @param failures     number of failed tests, there are ten times less build problems but at least one.
+   * @param changedFiles number of files changed since the previous build.
+   * @param historyDepth number of past investigations of every failed test and build problem.
+   */
+  public SyntheticBuild(final int failures, final int changedFiles, final int historyDepth) {
+    this(failures, changedFiles, historyDepth, new File(System.getProperty("java.io.tmpdir")));
+  }
+
+  public SyntheticBuild(final int failures, final int changedFiles, final int historyDepth, @NotNull final File artifactsDirectory) {
+    Date queuedDate = new Date(System.currentTimeMillis() - 60_000);
+
+    myUserModel = stub(UserModelEx.class);
+    for (long userId = 1; userId <= 3; userId++) {
+      UserEx user = stub(UserEx.class);
+      when(user.getId()).thenReturn(userId);
+      when(user.getUsername()).thenReturn(userId == 3 ? DEFAULT_RESPONSIBLE : "committer" + userId);
+      when(myUserModel.findUserById(userId)).thenReturn(user);
+      myUsers.add(user);
+    }
+    when(myUserModel.findUserAccount(null, DEFAULT_RESPONSIBLE)).thenReturn(myUsers.get(2));
+
+    SProject rootProject = stub(SProject.class);
+    when(rootProject.getProjectId()).thenReturn("_Root");
+    myProject = stub(SProject.class);
+    when(myProject.getProjectId()).thenReturn(PROJECT_ID);
+    when(myProject.getParentProject()).thenReturn(rootProject);
+    SProject otherProject = stub(SProject.class);
+    when(otherProject.getProjectId()).thenReturn("Other_Project");
+
+    createChanges(changedFiles);
+
+    BuildPromotionEx buildPromotion = stub(BuildPromotionEx.class);
+    BuildPromotionEx previousPromotion = stub(BuildPromotionEx.class);
+    when(buildPromotion.getId()).thenReturn(2L);
+    when(buildPromotion.getPreviousBuildPromotion(SelectPrevBuildPolicy.SINCE_LAST_BUILD)).thenReturn(previousPromotion);
+    List<ChangeDescriptor> detectedChanges = new ArrayList<>();
+    for (SVcsModification change : myChanges) {
+      ChangeDescriptor descriptor = stub(ChangeDescriptor.class);
+      when(descriptor.getRelatedVcsChange()).thenReturn(change);
+      detectedChanges.add(descriptor);
+    }
+    when(buildPromotion.getDetectedChanges(SelectPrevBuildPolicy.SINCE_LAST_BUILD, false)).thenReturn(detectedChanges);
+
+    for (int i = 0; i < failures; i++) {
+      myTestRuns.add(createTestRun(i, historyDepth, otherProject));
+    }
+
+    int buildProblemsCount = Math.max(1, failures / 10);
+    List<BuildProblem> previousProblems = new ArrayList<>();
+    for (int i = 0; i < buildProblemsCount; i++) {
+      myBuildProblems.add(createBuildProblem(i, buildPromotion, historyDepth, otherProject));
+    }
+    for (int i = 0; i < historyDepth; i++) {
+      BuildProblem previousProblem = stub(BuildProblem.class);
+      when(previousProblem.getId()).thenReturn(1_000_000 + i);
+      previousProblems.add(previousProblem);
+    }
+    when(previousPromotion.getBuildProblems()).thenReturn(previousProblems);
+
+    SBuildFeatureDescriptor feature = stub(SBuildFeatureDescriptor.class);
+    when(feature.getParameters()).thenReturn(Collections.singletonMap(Constants.DEFAULT_RESPONSIBLE, DEFAULT_RESPONSIBLE));
+
+    Map<String, String> ownParameters = new HashMap<>();
+    ownParameters.put(Constants.MAX_TESTS_PER_BUILD_NUMBER, "-1");
+
+    myBuild = stub(BuildEx.class);
+    when(myBuild.getBuildId()).thenReturn(239L);
+    when(myBuild.getProjectId()).thenReturn(PROJECT_ID);
+    when(myBuild.getQueuedDate()).thenReturn(queuedDate);
+    when(myBuild.getBuildOwnParameters()).thenReturn(ownParameters);
+    when(myBuild.getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE)).thenReturn(Collections.singletonList(feature));
+    when(myBuild.getChanges(SelectPrevBuildPolicy.SINCE_LAST_BUILD, true)).thenReturn(myChanges);
+    when(myBuild.getBuildPromotion()).thenReturn(buildPromotion);
+    when(myBuild.getBuildProblems()).thenReturn(myBuildProblems);
+    when(myBuild.getArtifactsDirectory()).thenReturn(artifactsDirectory);
+    for (STestRun testRun : myTestRuns) {
+      when(testRun.getBuild()).thenReturn(myBuild);
+    }
+  }
+
+  private void createChanges(final int changedFiles) {
+    List<List<VcsFileModification>> files = new ArrayList<>();
+    for (int i = 0; i < CHANGES_COUNT; i++) {
+      files.add(new ArrayList<>());
+    }
+    for (int i = 0; i < changedFiles; i++) {
+      String path = "src/main/java/org/example/module" + (i % MODULES_COUNT) + "/Component" + i + ".java";
+      VcsFileModification file = stub(VcsFileModification.class);
+      when(file.getRelativeFileName()).thenReturn(path);
+      files.get(i % CHANGES_COUNT).add(file);
+      myChangedFiles.add(path);
+    }
+
+    for (int i = 0; i < CHANGES_COUNT; i++) {
+      SVcsModification change = stub(SVcsModification.class);
+      when(change.getId()).thenReturn(100L + i);
+      when(change.getChanges()).thenReturn(files.get(i));
+      when(change.getCommitters()).thenReturn(Collections.<SUser>singletonList(myUsers.get(i % 2)));
+      myChanges.add(change);
+    }
+  }
+
+  @NotNull
+  private STestRun createTestRun(final int index, final int historyDepth, @NotNull final SProject otherProject) {
+    STest test = stub(STest.class);
+    when(test.getTestNameId()).thenReturn(10_000L + index);
+    when(test.getName()).thenReturn(new TestName("org.example.tests.Suite" + (index % 50) + ".testCase" + index));
+    List<TestNameResponsibilityEntry> history = new ArrayList<>();
+    for (int i = 0; i < historyDepth; i++) {
+      history.add(createHistoryEntry(TestNameResponsibilityEntry.class, otherProject));
+    }
+    when(test.getAllResponsibilities()).thenReturn(history);
+
+    STestRun testRun = stub(STestRun.class);
+    when(testRun.getTestRunId()).thenReturn(index + 1);
+    when(testRun.getOrderId()).thenReturn(index);
+    when(testRun.isNewFailure()).thenReturn(true);
+    when(testRun.getTest()).thenReturn(test);
+    when(testRun.getFullText()).thenReturn(getProblemText(index) + STACK_TRACE_TAIL);
+    return testRun;
+  }
+
+  @NotNull
+  private BuildProblem createBuildProblem(final int index,
+                                          @NotNull final BuildPromotionEx buildPromotion,
+                                          final int historyDepth,
+                                          @NotNull final SProject otherProject) {
+    String type = index % 2 == 0 ? BuildProblemTypes.TC_COMPILATION_ERROR_TYPE : BuildProblemTypes.TC_EXIT_CODE_TYPE;
+    String description = getProblemText(index);
+    List<BuildProblemResponsibilityEntry> history = new ArrayList<>();
+    for (int i = 0; i < historyDepth; i++) {
+      history.add(createHistoryEntry(BuildProblemResponsibilityEntry.class, otherProject));
+    }
+
+    BuildProblem problem = stub(BuildProblem.class);
+    when(problem.getId()).thenReturn(index + 1);
+    when(problem.getProjectId()).thenReturn(PROJECT_ID);
+    when(problem.getBuildPromotion()).thenReturn(buildPromotion);
+    when(problem.getBuildProblemData()).thenReturn(BuildProblemData.createBuildProblem("problem" + index, type, description));
+    when(problem.getBuildProblemDescription()).thenReturn(description);
+    when(problem.getAllResponsibilities()).thenReturn(history);
+    return problem;
+  }
+
+  /**
+   * @return investigation fixed in another project after the build was queued, so all of them are checked.
+   */
+  @NotNull
+  private static <T extends ResponsibilityEntry> T createHistoryEntry(@NotNull final Class<T> type,
+                                                                      @NotNull final SProject project) {
+    T entry = stub(type);
+    when(entry.getState()).thenReturn(ResponsibilityEntry.State.FIXED);
+    when(entry.getTimestamp()).thenReturn(new Date());
+    when(entry.getProject()).thenReturn(project);
+    return entry;
+  }
+
+  @NotNull
+  private String getProblemText(final int index) {
+    if (index % 2 != 0 || myChangedFiles.isEmpty()) {
+      return "java.lang.AssertionError: expected:<" + index + "> but was:<" + (index + 1) + ">";
+    }
+
+    String path = myChangedFiles.get(index % myChangedFiles.size());
+    String className = path.substring("src/main/java/".length(), path.length() - ".java".length()).replace('/', '.');
+    String fileName = path.substring(path.lastIndexOf('/') + 1);
+    return "java.lang.IllegalStateException: unexpected state" +
+           "\n\tat " + className + ".process(" + fileName + ":42)";
+  }
+
+  @NotNull
+  public static <T> T stub(@NotNull final Class<T> type) {
+    return Mockito.mock(type, Mockito.withSettings().stubOnly());
+  }
+
+  /**
+   * @return investigations manager which checks the history of the synthetic failures and finds nothing in the audit.
+   */
+  @NotNull
+  public static InvestigationsManager createInvestigationsManager() {
+    AuditLogProvider auditLogProvider = stub(AuditLogProvider.class);
+    when(auditLogProvider.getBuilder()).thenAnswer(invocation -> stub(AuditLogBuilder.class));
+    return new InvestigationsManager(auditLogProvider,
+                                     stub(ResponsibilityFacadeEx.class),
+                                     new ProjectHierarchyIndex(stub(BuildServerListenerEventDispatcher.class)));
+  }
+
+  @NotNull
+  public BuildEx getBuild() {
+    return myBuild;
+  }
+
+  @NotNull
+  public SProject getProject() {
+    return myProject;
+  }
+
+  @NotNull
+  public List<STestRun> getTestRuns() {
+    return myTestRuns;
+  }
+
+  @NotNull
+  public List<BuildProblem> getBuildProblems() {
+    return myBuildProblems;
+  }
+
+  @NotNull
+  public List<SVcsModification> getChanges() {
+    return myChanges;
+  }
+
+  @NotNull
+  public List<UserEx> getCommitters() {
+    return myUsers.subList(0, 2);
+  }
+
+  @NotNull
+  public UserModelEx getUserModel() {
+    return myUserModel;
+  }
+}
@@ -0,0 +1,119 @@
+package jetbrains.buildServer.investigationsAutoAssigner.persistent;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import jetbrains.buildServer.investigationsAutoAssigner.SyntheticBuild;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
+import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
+import jetbrains.buildServer.serverSide.STestRun;
+import jetbrains.buildServer.serverSide.ServerSettings;
+import jetbrains.buildServer.util.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Saving of suggestions for all failed tests of a build and reading of the suggestion of every test back,
+ * as it is done when the test details are shown. The suggestions are stored in the artifacts of the build
+ * in a temporary directory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AssignerArtifactDaoBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class WriteState extends DaoState {
+    private HeuristicResult myHeuristicResult;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+      init(true);
+      myHeuristicResult = createHeuristicResult(myBuild);
+    }
+
+    /**
+     * Every write starts with an empty file as for a build which is processed for the first time.
+     */
+    @Setup(Level.Invocation)
+    public void clearResults() throws IOException {
+      Files.write(myResultsFilePath.get(myBuild.getBuild()), new byte[0]);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class ReadState extends DaoState {
+    @Param({"true", "false"})
+    public boolean indexCache;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+      init(indexCache);
+      myDao.appendHeuristicsResult(myBuild.getBuild(), myBuild.getTestRuns(), createHeuristicResult(myBuild));
+    }
+  }
+
+  public abstract static class DaoState {
+    @Param({"10", "100", "1000"})
+    public int failures;
+
+    SyntheticBuild myBuild;
+    AssignerResultsFilePath myResultsFilePath;
+    AssignerArtifactDao myDao;
+    private File myArtifactsDirectory;
+
+    void init(boolean indexCache) throws IOException {
+      myArtifactsDirectory = Files.createTempDirectory("investigationsAutoAssignerBenchmark").toFile();
+      Files.createDirectory(myArtifactsDirectory.toPath().resolve(Constants.TEAMCITY_DIRECTORY));
+      myBuild = new SyntheticBuild(failures, 0, 0, myArtifactsDirectory);
+
+      ServerSettings serverSettings = SyntheticBuild.stub(ServerSettings.class);
+      when(serverSettings.getServerUUID()).thenReturn(UUID.randomUUID().toString());
+      myResultsFilePath = new AssignerResultsFilePath();
+      myDao = new AssignerArtifactDao(myBuild.getUserModel(),
+                                      new SuggestionsDao(serverSettings),
+                                      myResultsFilePath,
+                                      SyntheticBuild.stub(StatisticsReporter.class),
+                                      new SuggestionsIndexCache(indexCache ? CustomParameters.getSuggestionsCacheSize() : 0));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      FileUtil.delete(myArtifactsDirectory);
+    }
+  }
+
+  @NotNull
+  private static HeuristicResult createHeuristicResult(@NotNull SyntheticBuild build) {
+    HeuristicResult result = new HeuristicResult();
+    int index = 0;
+    for (STestRun testRun : build.getTestRuns()) {
+      result.addResponsibility(testRun, new Responsibility(build.getCommitters().get(index++ % 2),
+                                                           "changed the suspicious file \"%s\" which probably broke the build",
+                                                           "src/main/java/org/example/Component" + index + ".java"));
+    }
+    return result;
+  }
+
+  @Benchmark
+  public void appendHeuristicsResult(WriteState state) {
+    state.myDao.appendHeuristicsResult(state.myBuild.getBuild(), state.myBuild.getTestRuns(), state.myHeuristicResult);
+  }
+
+  @Benchmark
+  public void get(ReadState state, Blackhole blackhole) {
+    for (STestRun testRun : state.myBuild.getTestRuns()) {
+      blackhole.consume(state.myDao.get(state.myBuild.getBuild(), testRun));
+    }
+  }
+}
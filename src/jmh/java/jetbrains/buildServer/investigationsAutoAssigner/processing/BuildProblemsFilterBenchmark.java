@@ -0,0 +1,41 @@
+package jetbrains.buildServer.investigationsAutoAssigner.processing;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import jetbrains.buildServer.investigationsAutoAssigner.SyntheticBuild;
+import jetbrains.buildServer.investigationsAutoAssigner.common.FailedBuildInfo;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.BuildProblemUtils;
+import jetbrains.buildServer.serverSide.problems.BuildProblem;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Filtering of all build problems of a build which is processed for the first time. The previous build
+ * has as many problems as the history depth, so checking whether the problems are new depends on it as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuildProblemsFilterBenchmark {
+  @Param({"10", "100", "1000"})
+  public int failures;
+
+  @Param({"0", "20"})
+  public int historyDepth;
+
+  private SyntheticBuild myBuild;
+  private BuildProblemsFilter myBuildProblemsFilter;
+
+  @Setup
+  public void setUp() {
+    myBuild = new SyntheticBuild(failures, 0, historyDepth);
+    myBuildProblemsFilter = new BuildProblemsFilter(SyntheticBuild.createInvestigationsManager(), new BuildProblemUtils());
+  }
+
+  @Benchmark
+  public List<BuildProblem> apply() {
+    return myBuildProblemsFilter.apply(new FailedBuildInfo(myBuild.getBuild()), myBuild.getProject(), myBuild.getBuildProblems());
+  }
+}
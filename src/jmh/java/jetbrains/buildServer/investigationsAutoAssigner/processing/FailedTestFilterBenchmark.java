@@ -0,0 +1,41 @@
+package jetbrains.buildServer.investigationsAutoAssigner.processing;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import jetbrains.buildServer.investigationsAutoAssigner.SyntheticBuild;
+import jetbrains.buildServer.investigationsAutoAssigner.common.FailedBuildInfo;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.FlakyTestDetector;
+import jetbrains.buildServer.serverSide.STestRun;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Filtering of all failed tests of a build which is processed for the first time.
+ * Every test has the given number of past investigations, none of them make the test not applicable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FailedTestFilterBenchmark {
+  @Param({"10", "100", "1000"})
+  public int failures;
+
+  @Param({"0", "20"})
+  public int historyDepth;
+
+  private SyntheticBuild myBuild;
+  private FailedTestFilter myFailedTestFilter;
+
+  @Setup
+  public void setUp() {
+    myBuild = new SyntheticBuild(failures, 0, historyDepth);
+    myFailedTestFilter = new FailedTestFilter(new FlakyTestDetector(), SyntheticBuild.createInvestigationsManager());
+  }
+
+  @Benchmark
+  public List<STestRun> apply() {
+    return myFailedTestFilter.apply(new FailedBuildInfo(myBuild.getBuild()), myBuild.getProject(), myBuild.getTestRuns());
+  }
+}
@@ -0,0 +1,69 @@
+package jetbrains.buildServer.investigationsAutoAssigner.processing;
+
+import com.intellij.openapi.util.Pair;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import jetbrains.buildServer.investigationsAutoAssigner.SyntheticBuild;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ProblemTextExtractor;
+import jetbrains.buildServer.serverSide.STestRun;
+import jetbrains.buildServer.users.User;
+import jetbrains.buildServer.vcs.SVcsModification;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Search of the changed files mentioned in the texts of all failed tests of a build.
+ * The search by every change is compared with the matcher created once for all changes of the build.
+ * Patterns of the changed files are cached as on a server which processes builds with the same changes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModificationAnalyzerBenchmark {
+  @Param({"10", "100"})
+  public int failures;
+
+  @Param({"10", "100", "1000"})
+  public int changedFiles;
+
+  private final Set<String> myUsersToIgnore = Collections.emptySet();
+  private final List<String> myProblemTexts = new ArrayList<>();
+  private List<SVcsModification> myChanges;
+  private ModificationAnalyzerFactory myModificationAnalyzerFactory;
+
+  @Setup
+  public void setUp() {
+    SyntheticBuild build = new SyntheticBuild(failures, changedFiles, 0);
+    ProblemTextExtractor problemTextExtractor = new ProblemTextExtractor();
+    for (STestRun testRun : build.getTestRuns()) {
+      myProblemTexts.add(problemTextExtractor.getBuildProblemText(testRun));
+    }
+    myChanges = build.getChanges();
+    myModificationAnalyzerFactory = new ModificationAnalyzerFactory();
+  }
+
+  @Benchmark
+  public void findProblematicFileByChange(Blackhole blackhole) {
+    for (String problemText : myProblemTexts) {
+      for (SVcsModification change : myChanges) {
+        Pair<User, String> problematicFile =
+          myModificationAnalyzerFactory.getInstance(change).findProblematicFile(problemText, myUsersToIgnore);
+        blackhole.consume(problematicFile);
+      }
+    }
+  }
+
+  @Benchmark
+  public void findBrokenFilesByMatcher(Blackhole blackhole) {
+    BrokenFileMatcher brokenFileMatcher = myModificationAnalyzerFactory.createBrokenFileMatcher(myChanges);
+    for (String problemText : myProblemTexts) {
+      blackhole.consume(brokenFileMatcher.findBrokenFiles(problemText));
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package jetbrains.buildServer.investigationsAutoAssigner.processing;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import jetbrains.buildServer.investigationsAutoAssigner.SyntheticBuild;
+import jetbrains.buildServer.investigationsAutoAssigner.common.BuildSnapshot;
+import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
+import jetbrains.buildServer.investigationsAutoAssigner.heuristics.BrokenFileHeuristic;
+import jetbrains.buildServer.investigationsAutoAssigner.heuristics.DefaultUserHeuristic;
+import jetbrains.buildServer.investigationsAutoAssigner.heuristics.OneCommitterHeuristic;
+import jetbrains.buildServer.investigationsAutoAssigner.heuristics.PreviousResponsibleHeuristic;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PreviousResponsibleCache;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ProblemTextExtractor;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * All heuristics in the production order for one failed build. The changes are made by two committers,
+ * so the one committer heuristic is not applicable, the broken file heuristic finds every second failure
+ * and the rest is assigned to the default user. Caches of the heuristics are warm as on a server which
+ * processes the same failing tests again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponsibleUserFinderBenchmark {
+  @Param({"10", "100", "1000"})
+  public int failures;
+
+  @Param({"10", "1000"})
+  public int changedFiles;
+
+  @Param({"0", "20"})
+  public int historyDepth;
+
+  private SyntheticBuild myBuild;
+  private ResponsibleUserFinder myResponsibleUserFinder;
+
+  @Setup
+  public void setUp() {
+    myBuild = new SyntheticBuild(failures, changedFiles, historyDepth);
+    ModificationAnalyzerFactory modificationAnalyzerFactory = new ModificationAnalyzerFactory();
+    myResponsibleUserFinder = new ResponsibleUserFinder(
+      Arrays.asList(new OneCommitterHeuristic(modificationAnalyzerFactory),
+                    new BrokenFileHeuristic(new ProblemTextExtractor(), modificationAnalyzerFactory),
+                    new PreviousResponsibleHeuristic(SyntheticBuild.createInvestigationsManager(), new PreviousResponsibleCache()),
+                    new DefaultUserHeuristic(myBuild.getUserModel())),
+      new CustomParameters());
+  }
+
+  @Benchmark
+  public HeuristicResult findResponsibleUser() {
+    return myResponsibleUserFinder.findResponsibleUser(new BuildSnapshot(myBuild.getBuild()),
+                                                       myBuild.getProject(),
+                                                       myBuild.getBuildProblems(),
+                                                       myBuild.getTestRuns());
+  }
+}
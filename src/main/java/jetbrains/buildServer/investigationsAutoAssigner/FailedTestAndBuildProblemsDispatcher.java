@@ -4,20 +4,27 @@ package jetbrains.buildServer.investigationsAutoAssigner;
 
 import com.intellij.openapi.diagnostic.Logger;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.RejectedExecutionException;
 import jetbrains.buildServer.BuildProblemData;
+import jetbrains.buildServer.investigationsAutoAssigner.common.BuildProcessingSession;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.investigationsAutoAssigner.common.FailedBuildInfo;
+import jetbrains.buildServer.investigationsAutoAssigner.persistent.DelayedAssignmentsJournal;
 import jetbrains.buildServer.investigationsAutoAssigner.persistent.StatisticsReporter;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.DelayedAssignmentsProcessor;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.FailedTestAndBuildProblemsProcessor;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.AggregationLogger;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.OrderedTaskExecutor;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PreviousResponsibleCache;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ProcessingMetrics;
 import jetbrains.buildServer.responsibility.ResponsibilityEntry;
 import jetbrains.buildServer.serverSide.*;
 import jetbrains.buildServer.serverSide.problems.BuildProblemInfo;
@@ -40,12 +47,22 @@ public class FailedTestAndBuildProblemsDispatcher {
   private final StatisticsReporter myStatisticsReporter;
   private final CustomParameters myCustomParameters;
   @NotNull
-  private final Set<Long> myFailedBuilds = ConcurrentHashMap.newKeySet();
+  private final ConcurrentHashMap<Long, BuildProcessingSession> myFailedBuilds = new ConcurrentHashMap<>();
+  @NotNull
+  private final DelayedAssignmentsJournal myDelayedAssignments;
+  @NotNull
+  private final Set<Long> myDebouncedFailedBuilds = ConcurrentHashMap.newKeySet();
   @NotNull
-  private final ConcurrentHashMap<String, Long> myDelayedAssignments = new ConcurrentHashMap<>();
+  private final Set<Long> myQueuedFailedBuilds = ConcurrentHashMap.newKeySet();
+  @NotNull
+  private final ConcurrentHashMap<Long, Optional<BuildProcessingSession>> myPostponedFinishedBuilds = new ConcurrentHashMap<>();
   @NotNull
   private final ScheduledExecutorService myExecutor;
+  @NotNull
+  private final OrderedTaskExecutor myWorkers;
   private final BuildsManager myBuildsManager;
+  @NotNull
+  private final PreviousResponsibleCache myPreviousResponsibleCache;
 
   public FailedTestAndBuildProblemsDispatcher(@NotNull final BuildServerListenerEventDispatcher buildServerListenerEventDispatcher,
                                               @NotNull final FailedTestAndBuildProblemsProcessor processor,
@@ -54,7 +71,9 @@ public class FailedTestAndBuildProblemsDispatcher {
                                               @NotNull final StatisticsReporter statisticsReporter,
                                               @NotNull final CustomParameters customParameters,
                                               @NotNull final BuildsManager buildsManager,
-                                              @NotNull final ServerResponsibility serverResponsibility) {
+                                              @NotNull final ServerResponsibility serverResponsibility,
+                                              @NotNull final DelayedAssignmentsJournal delayedAssignmentsJournal,
+                                              @NotNull final PreviousResponsibleCache previousResponsibleCache) {
     myProcessor = processor;
     myDelayedAssignmentsProcessor = delayedAssignmentsProcessor;
     myAggregationLogger = aggregationLogger;
@@ -62,11 +81,18 @@ public class FailedTestAndBuildProblemsDispatcher {
     myCustomParameters = customParameters;
     myBuildsManager = buildsManager;
     myServerResponsibility = serverResponsibility;
+    myDelayedAssignments = delayedAssignmentsJournal;
+    myPreviousResponsibleCache = previousResponsibleCache;
+    myWorkers = new OrderedTaskExecutor(Constants.BUILD_FEATURE_TYPE + " worker",
+                                        CustomParameters.getProcessingThreadsCount(),
+                                        CustomParameters.getProcessingQueueCapacity(),
+                                        CustomParameters.getProcessingMaxPendingTasks());
     myExecutor = ExecutorsFactory.newFixedScheduledDaemonExecutor(Constants.BUILD_FEATURE_TYPE, 1);
     myExecutor.scheduleWithFixedDelay(this::processBrokenBuildsOneThread,
                                       CustomParameters.getProcessingDelayInSeconds(),
                                       CustomParameters.getProcessingDelayInSeconds(),
                                       TimeUnit.SECONDS);
+    registerGauges();
 
     buildServerListenerEventDispatcher.addListener(new BuildServerAdapter() {
       @Override
@@ -75,11 +101,15 @@ public class FailedTestAndBuildProblemsDispatcher {
                                        @NotNull List<BuildProblemData> after) {
         if (!canSendNotifications()) return;
 
-        if (myFailedBuilds.contains(sBuild.getBuildId()) || shouldIgnore(sBuild)) {
-          return;
+        long buildId = sBuild.getBuildId();
+        if (!myFailedBuilds.containsKey(buildId)) {
+          if (shouldIgnore(sBuild)) {
+            return;
+          }
+          myFailedBuilds.putIfAbsent(buildId, new BuildProcessingSession());
         }
 
-        myFailedBuilds.add(sBuild.getBuildId());
+        scheduleDebouncedProcessing(buildId);
       }
 
       @Override
@@ -89,21 +119,18 @@ public class FailedTestAndBuildProblemsDispatcher {
 
       @Override
       public void buildFinished(@NotNull SRunningBuild build) {
-        if (shouldIgnore(build) || !canSendNotifications()) {
-          myFailedBuilds.remove(build.getBuildId());
-          return;
+        boolean shouldIgnore = shouldIgnore(build);
+        if (shouldIgnore) {
+          ProcessingMetrics.increment(ProcessingMetrics.IGNORED_BUILDS);
         }
 
-        try {
-          scheduleDelayedAssignmentProcessing(build);
-
-          if (myFailedBuilds.remove(build.getBuildId())) {
-            scheduleFinishedBuildProcessing(build);
-          }
-        } catch (RejectedExecutionException e) {
-          LOGGER.infoAndDebugDetails("Could not schedule automatic assignment investigations for the finishing build " + build, e);
+        if (shouldIgnore || !canSendNotifications()) {
           myFailedBuilds.remove(build.getBuildId());
+          return;
         }
+
+        BuildProcessingSession session = myFailedBuilds.remove(build.getBuildId());
+        scheduleFinishedBuildProcessing(build.getBuildId(), getOrderingKey(build), session);
       }
 
       @Override
@@ -111,11 +138,17 @@ public class FailedTestAndBuildProblemsDispatcher {
                                      @NotNull final Collection<TestName> testNames,
                                      @NotNull final ResponsibilityEntry entry,
                                      final boolean isUserAction) {
+        myPreviousResponsibleCache.invalidate(project);
         if (isUserAction && shouldBeReportedAsWrong(entry)) {
-          myStatisticsReporter.reportWrongInvestigation(testNames.size());
+          myStatisticsReporter.reportWrongInvestigation(testNames.size(), project.getProjectId());
         }
       }
 
+      @Override
+      public void projectRemoved(@NotNull final SProject project) {
+        myPreviousResponsibleCache.removeProject(project);
+      }
+
       private boolean shouldBeReportedAsWrong(@Nullable final ResponsibilityEntry entry) {
         return entry != null &&
                entry.getReporterUser() != null &&
@@ -129,41 +162,129 @@ public class FailedTestAndBuildProblemsDispatcher {
                                      @NotNull final Collection<BuildProblemInfo> buildProblems,
                                      @Nullable final ResponsibilityEntry entry) {
         if (shouldBeReportedAsWrong(entry)) {
-          myStatisticsReporter.reportWrongInvestigation(buildProblems.size());
+          myStatisticsReporter.reportWrongInvestigation(buildProblems.size(), project.getProjectId());
         }
       }
 
       @Override
       public void serverShutdown() {
         ThreadUtil.shutdownGracefully(myExecutor, "Investigator-Auto-Assigner Daemon");
+        myWorkers.shutdown();
+        unregisterGauges();
       }
     });
   }
 
-  private void scheduleFinishedBuildProcessing(@NotNull SRunningBuild build) {
-    long buildId = build.getBuildId();
-    myExecutor.execute(() -> {
+  private void registerGauges() {
+    ProcessingMetrics.registerGauge(ProcessingMetrics.FAILED_BUILDS, myFailedBuilds::size);
+    ProcessingMetrics.registerGauge(ProcessingMetrics.POSTPONED_FINISHED_BUILDS, myPostponedFinishedBuilds::size);
+    ProcessingMetrics.registerGauge(ProcessingMetrics.DELAYED_ASSIGNMENTS, myDelayedAssignments::size);
+    ProcessingMetrics.registerGauge(ProcessingMetrics.PENDING_TASKS, myWorkers::getPendingTasksCount);
+    ProcessingMetrics.registerGauge(ProcessingMetrics.ACTIVE_WORKERS, myWorkers::getActiveCount);
+    ProcessingMetrics.registerCounter(ProcessingMetrics.PREVIOUS_RESPONSIBLE_CACHE_HITS, myPreviousResponsibleCache::getHitCount);
+    ProcessingMetrics.registerCounter(ProcessingMetrics.PREVIOUS_RESPONSIBLE_CACHE_MISSES, myPreviousResponsibleCache::getMissCount);
+  }
+
+  private static void unregisterGauges() {
+    ProcessingMetrics.unregisterGauge(ProcessingMetrics.FAILED_BUILDS);
+    ProcessingMetrics.unregisterGauge(ProcessingMetrics.POSTPONED_FINISHED_BUILDS);
+    ProcessingMetrics.unregisterGauge(ProcessingMetrics.DELAYED_ASSIGNMENTS);
+    ProcessingMetrics.unregisterGauge(ProcessingMetrics.PENDING_TASKS);
+    ProcessingMetrics.unregisterGauge(ProcessingMetrics.ACTIVE_WORKERS);
+    ProcessingMetrics.unregisterCounter(ProcessingMetrics.PREVIOUS_RESPONSIBLE_CACHE_HITS);
+    ProcessingMetrics.unregisterCounter(ProcessingMetrics.PREVIOUS_RESPONSIBLE_CACHE_MISSES);
+  }
+
+  /*
+    Tasks of builds from the same build configuration are executed one by one, so the processing of a build and
+    the delayed assignments of its build configuration keep their order. Different build configurations are
+    processed in parallel.
+   */
+  @NotNull
+  private static String getOrderingKey(@NotNull SBuild build) {
+    SBuildType buildType = build.getBuildType();
+    return buildType != null ? buildType.getInternalId() : String.valueOf(build.getBuildId());
+  }
+
+  /*
+    Build problems of a running build usually change in bursts, so the processing pass is started after a short
+    delay and all events received meanwhile are coalesced into it.
+   */
+  private void scheduleDebouncedProcessing(long buildId) {
+    if (!myDebouncedFailedBuilds.add(buildId)) {
+      return;
+    }
+
+    try {
+      myExecutor.schedule(() -> {
+        myDebouncedFailedBuilds.remove(buildId);
+        if (!myFailedBuilds.containsKey(buildId)) return;
+        SBuild build = myBuildsManager.findBuildInstanceById(buildId);
+        if (build != null) {
+          scheduleRunningBuildProcessing(build);
+        }
+      }, CustomParameters.getProcessingDebounceDelayInSeconds(), TimeUnit.SECONDS);
+    } catch (RejectedExecutionException e) {
+      ProcessingMetrics.increment(ProcessingMetrics.REJECTED_TASKS);
+      myDebouncedFailedBuilds.remove(buildId);
+    }
+  }
+
+  private void scheduleFinishedBuildProcessing(long buildId,
+                                               @NotNull String orderingKey,
+                                               @Nullable BuildProcessingSession session) {
+    boolean isAccepted = myWorkers.trySubmit(orderingKey, () -> {
       // can't pass the running build right to the scheduled task to avoid its leaking, see https://youtrack.jetbrains.com/issue/TW-90428
       SBuild currentBuild = myBuildsManager.findBuildInstanceById(buildId);
       if (currentBuild == null) return;
-      processFinishedBuild(new FailedBuildInfo(currentBuild));
+      processDelayedAssignmentsOneThread(currentBuild);
+      if (session != null) {
+        processFinishedBuild(new FailedBuildInfo(currentBuild, session));
+        recordAssignmentLag(currentBuild);
+      }
     });
+
+    if (!isAccepted) {
+      ProcessingMetrics.increment(ProcessingMetrics.REJECTED_TASKS);
+      LOGGER.info("Processing queue of investigations auto-assigner is full. Finished build #" + buildId +
+                  " will be processed with the next scheduled task.");
+      myPostponedFinishedBuilds.put(buildId, Optional.ofNullable(session));
+    }
   }
 
-  private void scheduleDelayedAssignmentProcessing(@NotNull SRunningBuild build) {
+  private void scheduleRunningBuildProcessing(@NotNull SBuild build) {
     long buildId = build.getBuildId();
+    if (!myQueuedFailedBuilds.add(buildId)) {
+      // the previous pass for this build is still in the queue
+      return;
+    }
 
-    myExecutor.execute(() -> {
-      // can't pass the running build right to the scheduled task to avoid its leaking, see https://youtrack.jetbrains.com/issue/TW-90428
+    boolean isAccepted = myWorkers.trySubmit(getOrderingKey(build), () -> {
+      myQueuedFailedBuilds.remove(buildId);
+      // the build could finish while the task was in the queue, then it is processed as a finished one
+      BuildProcessingSession session = myFailedBuilds.get(buildId);
+      if (session == null) return;
       SBuild currentBuild = myBuildsManager.findBuildInstanceById(buildId);
       if (currentBuild == null) return;
-      processDelayedAssignmentsOneThread(currentBuild);
+      processRunningBuild(new FailedBuildInfo(currentBuild, session));
     });
+
+    if (!isAccepted) {
+      ProcessingMetrics.increment(ProcessingMetrics.REJECTED_TASKS);
+      myQueuedFailedBuilds.remove(buildId);
+    }
+  }
+
+  private static void recordAssignmentLag(@NotNull SBuild build) {
+    Date finishDate = build.getFinishDate();
+    if (finishDate != null) {
+      ProcessingMetrics.recordAssignmentLag(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - finishDate.getTime()));
+    }
   }
 
   private void processBrokenBuildsOneThread() {
-    String description = String.format("Investigations auto-assigner: processing %s builds in background",
-                                       myFailedBuilds.size());
+    String description = String.format("Investigations auto-assigner: scheduling processing of %s builds",
+                                       myFailedBuilds.size() + myPostponedFinishedBuilds.size());
     NamedThreadFactory.executeWithNewThreadName(description, this::processBrokenBuilds);
   }
 
@@ -171,11 +292,11 @@ public class FailedTestAndBuildProblemsDispatcher {
     @Nullable
     SBuildType buildType = nextBuild.getBuildType();
     if (buildType != null) {
-      Long delayedAssignmentsBuildId = myDelayedAssignments.get(buildType.getInternalId());
-      if (delayedAssignmentsBuildId == null) return;
-      if (delayedAssignmentsBuildId == nextBuild.getBuildId()) return;
+      DelayedAssignmentsJournal.Entry delayedAssignments = myDelayedAssignments.get(buildType.getInternalId());
+      if (delayedAssignments == null) return;
+      if (delayedAssignments.getBuildId() == nextBuild.getBuildId()) return;
 
-      SBuild delayedAssignmentsBuild = myBuildsManager.findBuildInstanceById(delayedAssignmentsBuildId);
+      SBuild delayedAssignmentsBuild = myBuildsManager.findBuildInstanceById(delayedAssignments.getBuildId());
       if (delayedAssignmentsBuild == null) {
         myDelayedAssignments.remove(buildType.getInternalId());
         return;
@@ -183,11 +304,19 @@ public class FailedTestAndBuildProblemsDispatcher {
 
       if (nextBuild.getBuildPromotion().isLaterThan(delayedAssignmentsBuild.getBuildPromotion())) {
         myDelayedAssignments.remove(buildType.getInternalId());
-        processDelayedAssignments(new FailedBuildInfo(delayedAssignmentsBuild), nextBuild);
+        processDelayedAssignments(restoreFailedBuildInfo(delayedAssignmentsBuild, delayedAssignments), nextBuild);
       }
     }
   }
 
+  @NotNull
+  private static FailedBuildInfo restoreFailedBuildInfo(@NotNull SBuild build,
+                                                        @NotNull DelayedAssignmentsJournal.Entry delayedAssignments) {
+    FailedBuildInfo failedBuildInfo = new FailedBuildInfo(build);
+    failedBuildInfo.addHeuristicsResult(delayedAssignments.getHeuristicResult());
+    return failedBuildInfo;
+  }
+
   private void processDelayedAssignments(@NotNull final FailedBuildInfo delayedAssignmentsBuildInfo, @NotNull SBuild nextBuild) {
     String description = String.format("Investigations auto-assigner: processing delayed assignments for build %s" +
                                        " in background", delayedAssignmentsBuildInfo.getBuild().getBuildId());
@@ -195,6 +324,12 @@ public class FailedTestAndBuildProblemsDispatcher {
       description, () -> myDelayedAssignmentsProcessor.processBuild(delayedAssignmentsBuildInfo, nextBuild));
   }
 
+  private void processRunningBuild(@NotNull final FailedBuildInfo failedBuildInfo) {
+    String description = String.format("Investigations auto-assigner: processing running build %s in background",
+                                       failedBuildInfo.getBuild().getBuildId());
+    NamedThreadFactory.executeWithNewThreadName(description, () -> this.processBrokenBuild(failedBuildInfo));
+  }
+
   private void processFinishedBuild(@NotNull final FailedBuildInfo failedBuildInfo) {
     String description = String.format("Investigations auto-assigner: processing finished build %s in background",
                                        failedBuildInfo.getBuild().getBuildId());
@@ -207,9 +342,9 @@ public class FailedTestAndBuildProblemsDispatcher {
       putIntoDelayAssignments(failedBuildInfo);
     }
 
-    if (!failedBuildInfo.getHeuristicsResult().isEmpty() && myCustomParameters.isBuildFeatureEnabled(failedBuildInfo.getBuild())) {
+    if (!failedBuildInfo.getHeuristicsResult().isEmpty() && failedBuildInfo.getSettings().isFeatureEnabled()) {
       int numberOfChanges = failedBuildInfo.getBuild().getContainingChanges().size();
-      myStatisticsReporter.reportProcessedBuildWithChanges(numberOfChanges);
+      myStatisticsReporter.reportProcessedBuildWithChanges(numberOfChanges, failedBuildInfo.getBuild().getProjectId());
     }
 
     myAggregationLogger.logResults(failedBuildInfo);
@@ -222,35 +357,47 @@ public class FailedTestAndBuildProblemsDispatcher {
       return;
     }
 
-    Long previouslyAddedBuildId = myDelayedAssignments.get(buildType.getInternalId());
-    SBuild previouslyAddedBuild = previouslyAddedBuildId == null ? null : myBuildsManager.findBuildInstanceById(previouslyAddedBuildId);
+    DelayedAssignmentsJournal.Entry previouslyAdded = myDelayedAssignments.get(buildType.getInternalId());
+    SBuild previouslyAddedBuild = previouslyAdded == null ? null : myBuildsManager.findBuildInstanceById(previouslyAdded.getBuildId());
     if (previouslyAddedBuild == null) {
-      myDelayedAssignments.put(buildType.getInternalId(), currentFailedBuildInfo.getBuildId());
+      myDelayedAssignments.put(buildType.getInternalId(), currentFailedBuildInfo.getBuildId(), currentFailedBuildInfo.getHeuristicsResult());
       return;
     }
 
     BuildPromotion currentBuildPromotion = currentFailedBuildInfo.getBuild().getBuildPromotion();
     BuildPromotion previouslyAddedPromotion = previouslyAddedBuild.getBuildPromotion();
     if (currentBuildPromotion.isLaterThan(previouslyAddedPromotion)) {
-      processOlderAndDelayNew(buildType, new FailedBuildInfo(previouslyAddedBuild), currentFailedBuildInfo);
+      processOlderAndDelayNew(buildType, restoreFailedBuildInfo(previouslyAddedBuild, previouslyAdded), currentFailedBuildInfo);
     } else {
-      processOlderAndDelayNew(buildType, currentFailedBuildInfo, new FailedBuildInfo(previouslyAddedBuild));
+      processOlderAndDelayNew(buildType, currentFailedBuildInfo, restoreFailedBuildInfo(previouslyAddedBuild, previouslyAdded));
     }
   }
 
   private void processOlderAndDelayNew(@NotNull SBuildType buildType, @NotNull FailedBuildInfo older, @NotNull FailedBuildInfo newer) {
     processDelayedAssignments(older, newer.getBuild());
-    myDelayedAssignments.put(buildType.getInternalId(), newer.getBuildId());
+    myDelayedAssignments.put(buildType.getInternalId(), newer.getBuildId(), newer.getHeuristicsResult());
   }
 
   private void processBrokenBuilds() {
     if (!canSendNotifications()) {
       myFailedBuilds.clear();
+      myPostponedFinishedBuilds.clear();
       return;
     }
 
-    for (SBuild build: myBuildsManager.findBuildInstances(myFailedBuilds)) {
-      processBrokenBuild(new FailedBuildInfo(build));
+    myDelayedAssignments.compactIfNeeded();
+
+    for (Long buildId : myPostponedFinishedBuilds.keySet()) {
+      Optional<BuildProcessingSession> session = myPostponedFinishedBuilds.remove(buildId);
+      SBuild build = myBuildsManager.findBuildInstanceById(buildId);
+      if (session != null && build != null) {
+        scheduleFinishedBuildProcessing(buildId, getOrderingKey(build), session.orElse(null));
+      }
+    }
+
+    // fallback for failures which don't change build problems, e.g. new failed tests of a build with failed tests
+    for (SBuild build: myBuildsManager.findBuildInstances(myFailedBuilds.keySet())) {
+      scheduleRunningBuildProcessing(build);
     }
   }
 
@@ -258,7 +405,7 @@ public class FailedTestAndBuildProblemsDispatcher {
     return myServerResponsibility.canSendNotifications();
   }
 
-  private synchronized void processBrokenBuild(final FailedBuildInfo failedBuildInfo) {
+  private void processBrokenBuild(final FailedBuildInfo failedBuildInfo) {
     myProcessor.processBuild(failedBuildInfo);
   }
 
@@ -283,6 +430,6 @@ public class FailedTestAndBuildProblemsDispatcher {
   @TestOnly
   @NotNull
   public Set<Long> getRememberedFailedBuilds() {
-    return myFailedBuilds;
+    return myFailedBuilds.keySet();
   }
 }
\ No newline at end of file
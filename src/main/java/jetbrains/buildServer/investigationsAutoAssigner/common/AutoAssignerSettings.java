@@ -0,0 +1,73 @@
+package jetbrains.buildServer.investigationsAutoAssigner.common;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Parameters of the build feature and of the build which are used during the processing of the build.
+ * They are read once per build as they cannot change after the build has started.
+ */
+public final class AutoAssignerSettings {
+  private final boolean myFeatureEnabled;
+  @Nullable private final String myDefaultResponsible;
+  @NotNull private final Set<String> myUsersToIgnore;
+  @NotNull private final Set<String> myBuildProblemTypesToIgnore;
+  private final boolean myDelayAssignments;
+  private final int myMaxTestsPerBuild;
+
+  public AutoAssignerSettings(final boolean featureEnabled,
+                              @Nullable final String defaultResponsible,
+                              @NotNull final Set<String> usersToIgnore,
+                              @NotNull final Set<String> buildProblemTypesToIgnore,
+                              final boolean delayAssignments,
+                              final int maxTestsPerBuild) {
+    myFeatureEnabled = featureEnabled;
+    myDefaultResponsible = defaultResponsible;
+    myUsersToIgnore = Collections.unmodifiableSet(new HashSet<>(usersToIgnore));
+    myBuildProblemTypesToIgnore = Collections.unmodifiableSet(new HashSet<>(buildProblemTypesToIgnore));
+    myDelayAssignments = delayAssignments;
+    myMaxTestsPerBuild = maxTestsPerBuild;
+  }
+
+  public boolean isFeatureEnabled() {
+    return myFeatureEnabled;
+  }
+
+  @Nullable
+  public String getDefaultResponsible() {
+    return myDefaultResponsible;
+  }
+
+  @NotNull
+  public Set<String> getUsersToIgnore() {
+    return myUsersToIgnore;
+  }
+
+  @NotNull
+  public Set<String> getBuildProblemTypesToIgnore() {
+    return myBuildProblemTypesToIgnore;
+  }
+
+  public boolean shouldDelayAssignments() {
+    return myDelayAssignments;
+  }
+
+  public int getMaxTestsPerBuild() {
+    return myMaxTestsPerBuild;
+  }
+
+  @Override
+  public String toString() {
+    return "AutoAssignerSettings{" +
+           "featureEnabled=" + myFeatureEnabled +
+           ", defaultResponsible=" + myDefaultResponsible +
+           ", usersToIgnore=" + myUsersToIgnore +
+           ", buildProblemTypesToIgnore=" + myBuildProblemTypesToIgnore +
+           ", delayAssignments=" + myDelayAssignments +
+           ", maxTestsPerBuild=" + myMaxTestsPerBuild +
+           '}';
+  }
+}
@@ -0,0 +1,64 @@
+package jetbrains.buildServer.investigationsAutoAssigner.common;
+
+import jetbrains.buildServer.investigationsAutoAssigner.processing.BrokenFileMatcher;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.IntHashSet;
+import jetbrains.buildServer.serverSide.SBuild;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * State of the processing of a build which is kept between processing passes of the running build,
+ * so every pass handles only failed tests and build problems which appeared since the previous one.
+ * Doesn't keep the build itself to avoid leaking of running builds.
+ * The session lives while the build is processed, so the settings of the build and the matcher of the files
+ * changed in the build are created once per build.
+ */
+public class BuildProcessingSession {
+  private final IntHashSet myProcessedTests = new IntHashSet();
+  private final IntHashSet myProcessedBuildProblems = new IntHashSet();
+  private final HeuristicResult myHeuristicResult = new HeuristicResult();
+  private int myProcessedCount = 0;
+  private AutoAssignerSettings mySettings;
+  private BrokenFileMatcher myBrokenFileMatcher;
+
+  @NotNull
+  IntHashSet getProcessedTests() {
+    return myProcessedTests;
+  }
+
+  @NotNull
+  IntHashSet getProcessedBuildProblems() {
+    return myProcessedBuildProblems;
+  }
+
+  @NotNull
+  HeuristicResult getHeuristicResult() {
+    return myHeuristicResult;
+  }
+
+  @NotNull
+  AutoAssignerSettings getSettings(@NotNull final SBuild build) {
+    if (mySettings == null) {
+      mySettings = CustomParameters.readSettings(build);
+    }
+    return mySettings;
+  }
+
+  @Nullable
+  BrokenFileMatcher getBrokenFileMatcher() {
+    return myBrokenFileMatcher;
+  }
+
+  void setBrokenFileMatcher(@NotNull final BrokenFileMatcher brokenFileMatcher) {
+    myBrokenFileMatcher = brokenFileMatcher;
+  }
+
+  int getProcessedCount() {
+    return myProcessedCount;
+  }
+
+  void increaseProcessedCount(final int delta) {
+    myProcessedCount += delta;
+  }
+}
@@ -0,0 +1,195 @@
+package jetbrains.buildServer.investigationsAutoAssigner.common;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import jetbrains.buildServer.investigationsAutoAssigner.processing.BrokenFileMatcher;
+import jetbrains.buildServer.investigationsAutoAssigner.processing.ModificationAnalyzerFactory;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.IntHashSet;
+import jetbrains.buildServer.serverSide.*;
+import jetbrains.buildServer.serverSide.problems.BuildProblem;
+import jetbrains.buildServer.users.User;
+import jetbrains.buildServer.vcs.SVcsModification;
+import jetbrains.buildServer.vcs.SelectPrevBuildPolicy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Data of the build which is shared by filters and heuristics during one processing pass.
+ * Every value is requested from the TeamCity model on first use only. Not thread-safe.
+ */
+public class BuildSnapshot {
+  private final SBuild myBuild;
+  @Nullable private final BuildProcessingSession mySession;
+  private AutoAssignerSettings mySettings;
+  private List<SVcsModification> myChanges;
+  private List<SVcsModification> myDetectedChanges;
+  private Set<Long> myCommitterIds;
+  private List<BuildProblem> myBuildProblems;
+  private boolean myPreviousFinishedLoaded = false;
+  private SBuild myPreviousFinished;
+  private Integer myCompilationErrorsCount;
+  private Integer myPreviousCompilationErrorsCount;
+  private Map<Long, IntHashSet> myPreviousProblemIds;
+  private BrokenFileMatcher myBrokenFileMatcher;
+
+  public BuildSnapshot(@NotNull final SBuild build) {
+    myBuild = build;
+    mySession = null;
+  }
+
+  /**
+   * Creates the snapshot for a pass of the processing session, values which don't change while the build runs
+   * are kept in the session.
+   */
+  public BuildSnapshot(@NotNull final SBuild build, @NotNull final BuildProcessingSession session) {
+    myBuild = build;
+    mySession = session;
+  }
+
+  @NotNull
+  public SBuild getBuild() {
+    return myBuild;
+  }
+
+  @NotNull
+  public AutoAssignerSettings getSettings() {
+    if (mySettings == null) {
+      mySettings = mySession != null ? mySession.getSettings(myBuild) : CustomParameters.readSettings(myBuild);
+    }
+    return mySettings;
+  }
+
+  @NotNull
+  public List<SVcsModification> getChanges() {
+    if (myChanges == null) {
+      myChanges = myBuild.getChanges(SelectPrevBuildPolicy.SINCE_LAST_BUILD, true);
+    }
+    return myChanges;
+  }
+
+  /**
+   * @return VCS changes of changes detected for the build promotion since the last build.
+   */
+  @NotNull
+  public List<SVcsModification> getDetectedChanges() {
+    if (myDetectedChanges == null) {
+      BuildPromotion buildPromotion = myBuild.getBuildPromotion();
+      if (buildPromotion instanceof BuildPromotionEx) {
+        myDetectedChanges = ((BuildPromotionEx)buildPromotion).getDetectedChanges(SelectPrevBuildPolicy.SINCE_LAST_BUILD, false)
+                                                               .stream()
+                                                               .map(ChangeDescriptor::getRelatedVcsChange)
+                                                               .filter(Objects::nonNull)
+                                                               .collect(Collectors.toList());
+      } else {
+        myDetectedChanges = Collections.emptyList();
+      }
+    }
+    return myDetectedChanges;
+  }
+
+  /**
+   * @return matcher of the files of {@link #getDetectedChanges()}, which is created once per build
+   * when the snapshot belongs to a processing session.
+   */
+  @NotNull
+  public BrokenFileMatcher getBrokenFileMatcher(@NotNull final ModificationAnalyzerFactory modificationAnalyzerFactory) {
+    if (myBrokenFileMatcher == null && mySession != null) {
+      myBrokenFileMatcher = mySession.getBrokenFileMatcher();
+    }
+
+    if (myBrokenFileMatcher == null) {
+      myBrokenFileMatcher = modificationAnalyzerFactory.createBrokenFileMatcher(getDetectedChanges());
+      if (mySession != null) {
+        mySession.setBrokenFileMatcher(myBrokenFileMatcher);
+      }
+    }
+    return myBrokenFileMatcher;
+  }
+
+  @NotNull
+  public Set<Long> getCommitterIds() {
+    if (myCommitterIds == null) {
+      myCommitterIds = myBuild.getCommitters(SelectPrevBuildPolicy.SINCE_LAST_BUILD)
+                              .getUsers()
+                              .stream()
+                              .map(User::getId)
+                              .collect(Collectors.toSet());
+    }
+    return myCommitterIds;
+  }
+
+  @NotNull
+  public List<BuildProblem> getBuildProblems() {
+    if (myBuildProblems == null) {
+      myBuildProblems = ((BuildEx)myBuild).getBuildProblems();
+    }
+    return myBuildProblems;
+  }
+
+  /**
+   * @return ids of build problems of the build promotion previous to the given one, which is the promotion
+   * of the build or of one of its dependencies. The ids are loaded once per promotion.
+   */
+  @NotNull
+  public IntHashSet getPreviousProblemIds(@NotNull final BuildPromotion buildPromotion) {
+    if (myPreviousProblemIds == null) {
+      myPreviousProblemIds = new HashMap<>();
+    }
+    return myPreviousProblemIds.computeIfAbsent(buildPromotion.getId(), id -> loadPreviousProblemIds(buildPromotion));
+  }
+
+  @NotNull
+  private static IntHashSet loadPreviousProblemIds(@NotNull final BuildPromotion buildPromotion) {
+    BuildPromotionEx previous =
+      (BuildPromotionEx)buildPromotion.getPreviousBuildPromotion(SelectPrevBuildPolicy.SINCE_LAST_BUILD);
+    if (previous == null) {
+      return new IntHashSet(0);
+    }
+
+    List<BuildProblem> previousProblems = previous.getBuildProblems();
+    IntHashSet result = new IntHashSet(previousProblems.size());
+    for (BuildProblem problem : previousProblems) {
+      result.add(problem.getId());
+    }
+    return result;
+  }
+
+  @Nullable
+  public SBuild getPreviousFinished() {
+    if (!myPreviousFinishedLoaded) {
+      myPreviousFinished = myBuild.getPreviousFinished();
+      myPreviousFinishedLoaded = true;
+    }
+    return myPreviousFinished;
+  }
+
+  public boolean hasCompilationErrors() {
+    if (myCompilationErrorsCount == null) {
+      myCompilationErrorsCount = getCompilationErrorsCount(myBuild);
+    }
+    return myCompilationErrorsCount > 0;
+  }
+
+  public boolean previousFinishedHasCompilationErrors() {
+    SBuild previous = getPreviousFinished();
+    if (previous == null) {
+      return false;
+    }
+
+    if (myPreviousCompilationErrorsCount == null) {
+      myPreviousCompilationErrorsCount = getCompilationErrorsCount(previous);
+    }
+    return myPreviousCompilationErrorsCount > 0;
+  }
+
+  private static int getCompilationErrorsCount(@NotNull final SBuild build) {
+    return build.getBuildStatistics(new BuildStatisticsOptions(BuildStatisticsOptions.COMPILATION_ERRORS, 0))
+                .getCompilationErrorsCount();
+  }
+}
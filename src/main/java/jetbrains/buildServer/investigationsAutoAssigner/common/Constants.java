@@ -26,9 +26,25 @@ public class Constants {
 
   // Server internal properties
   public static final String PROCESSING_DELAY_IN_SECONDS = "teamcity.investigationsAutoAssigner.scheduledTaskInterval.seconds";
+  public static final String PROCESSING_DEBOUNCE_DELAY_IN_SECONDS = "teamcity.investigationsAutoAssigner.processingDebounceDelay.seconds";
+  public static final String PROCESSING_THREADS_COUNT = "teamcity.investigationsAutoAssigner.processingThreads.count";
+  public static final String PROCESSING_QUEUE_CAPACITY = "teamcity.investigationsAutoAssigner.processingQueue.capacity";
+  public static final String PROCESSING_MAX_PENDING_TASKS = "teamcity.investigationsAutoAssigner.processingQueue.maxPendingTasks";
+  public static final String AUDIT_LOOKUP_PERIOD_IN_DAYS = "teamcity.investigationsAutoAssigner.auditLookup.period.days";
+  public static final String AUDIT_LOOKUP_PAGE_SIZE = "teamcity.investigationsAutoAssigner.auditLookup.pageSize";
+  public static final String AUDIT_LOOKUP_MAX_ACTIONS = "teamcity.investigationsAutoAssigner.auditLookup.maxActions";
+  public static final String PREVIOUS_RESPONSIBLE_CACHE_SIZE = "teamcity.investigationsAutoAssigner.previousResponsibleCache.size";
+  public static final String PREVIOUS_RESPONSIBLE_CACHE_TTL_IN_SECONDS = "teamcity.investigationsAutoAssigner.previousResponsibleCache.ttl.seconds";
+  public static final String FILE_PATTERNS_CACHE_SIZE_IN_MB = "teamcity.investigationsAutoAssigner.filePatternsCache.size.mb";
+  public static final String FLAKY_TESTS_CACHE_SIZE = "teamcity.investigationsAutoAssigner.flakyTestsCache.size";
+  public static final String FLAKY_TESTS_CACHE_TTL_IN_SECONDS = "teamcity.investigationsAutoAssigner.flakyTestsCache.ttl.seconds";
+  public static final String SUGGESTIONS_CACHE_SIZE = "teamcity.investigationsAutoAssigner.suggestionsCache.size";
+  public static final String SUGGESTIONS_COMPRESSION_ENABLED = "teamcity.investigationsAutoAssigner.suggestions.compressionEnabled";
 
   // Server internal properties (debug use only)
   public static final String STATISTICS_ENABLED = "teamcity.investigationsAutoAssigner.statisticsEnabled";
+  public static final String STATISTICS_TIME_SERIES_MAX_SIZE = "teamcity.investigationsAutoAssigner.statistics.timeSeries.maxSize";
+  public static final String PROCESSING_METRICS_ENABLED = "teamcity.investigationsAutoAssigner.processingMetrics.enabled";
 
   public static final String MAX_COMPILE_ERRORS_TO_PROCESS = "teamcity.investigationsAutoAssigner.maxCompileErrorsToProcess";
 
@@ -54,6 +70,8 @@ public class Constants {
   public static final String ARTIFACT_FILENAME = "suggestions.json";
   public static final String STATISTICS_FILE_NAME = "statistics.json";
   public static final String STATISTICS_FILE_VERSION = "1.6";
+  public static final String STATISTICS_TIME_SERIES_FILE_NAME = "statisticsTimeSeries.json";
+  public static final String DELAYED_ASSIGNMENTS_FILE_NAME = "delayedAssignments.jsonl";
   public static final String ASSIGN_DESCRIPTION_PREFIX = "Investigation was automatically assigned to";
   public static final String ASSIGNEE_FILTERED_LITERAL = "-";
   public static final String ASSIGNEE_FILTERED_DESCRIPTION_PREFIX = "This failed test was filtered by investigation auto assigner because it ";
@@ -1,11 +1,6 @@
-
-
 package jetbrains.buildServer.investigationsAutoAssigner.common;
 
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
-import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
 import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.STestRun;
 import jetbrains.buildServer.serverSide.problems.BuildProblem;
@@ -14,15 +9,16 @@ import org.jetbrains.annotations.NotNull;
 public class FailedBuildInfo {
 
   private final SBuild myBuild;
-  private final int myThreshold;
-  private final Set<Integer> myProcessedTests = new HashSet<>();
-  private final Set<Integer> myProcessedBuildProblems = new HashSet<>();
-  private final HeuristicResult myHeuristicResult = new HeuristicResult();
-  private int myProcessedCount = 0;
+  private final BuildProcessingSession mySession;
+  private BuildSnapshot myBuildSnapshot;
 
   public FailedBuildInfo(@NotNull final SBuild build) {
+    this(build, new BuildProcessingSession());
+  }
+
+  public FailedBuildInfo(@NotNull final SBuild build, @NotNull final BuildProcessingSession session) {
     myBuild = build;
-    myThreshold = CustomParameters.getMaxTestsPerBuildThreshold(build);
+    mySession = session;
   }
 
   @NotNull
@@ -34,36 +30,60 @@ public class FailedBuildInfo {
     return myBuild.getBuildId();
   }
 
+  /**
+   * @return data of the build loaded during the current processing pass.
+   */
+  @NotNull
+  public BuildSnapshot getBuildSnapshot() {
+    if (myBuildSnapshot == null) {
+      myBuildSnapshot = new BuildSnapshot(myBuild, mySession);
+    }
+    return myBuildSnapshot;
+  }
+
+  /**
+   * @return settings of the build which are read once and kept in the processing session.
+   */
+  @NotNull
+  public AutoAssignerSettings getSettings() {
+    return mySession.getSettings(myBuild);
+  }
+
+  @NotNull
+  public BuildProcessingSession getSession() {
+    return mySession;
+  }
+
   public void addProcessedTestRuns(@NotNull Collection<STestRun> tests) {
     for (STestRun testRun : tests) {
-      myProcessedTests.add(testRun.getTestRunId());
+      mySession.getProcessedTests().add(testRun.getTestRunId());
     }
   }
 
   public void addProcessedBuildProblems(@NotNull Collection<BuildProblem> buildProblems) {
     for (BuildProblem buildProblem : buildProblems) {
-      myProcessedBuildProblems.add(buildProblem.getId());
+      mySession.getProcessedBuildProblems().add(buildProblem.getId());
     }
   }
 
   public boolean checkNotProcessed(STestRun sTestRun) {
-    return !myProcessedTests.contains(sTestRun.getTestRunId());
+    return !mySession.getProcessedTests().contains(sTestRun.getTestRunId());
   }
 
   public boolean checkNotProcessed(final BuildProblem buildProblem) {
-    return !myProcessedBuildProblems.contains(buildProblem.getId());
+    return !mySession.getProcessedBuildProblems().contains(buildProblem.getId());
   }
 
   public void addHeuristicsResult(final HeuristicResult heuristicsResult) {
-    myHeuristicResult.merge(heuristicsResult);
+    mySession.getHeuristicResult().merge(heuristicsResult);
   }
 
   public HeuristicResult getHeuristicsResult() {
-    return myHeuristicResult;
+    return mySession.getHeuristicResult();
   }
 
   public boolean shouldDelayAssignments() {
-    return CustomParameters.shouldDelayAssignments(myBuild);
+    return getSettings().shouldDelayAssignments();
   }
 
   public boolean isOverProcessedProblemsThreshold() {
@@ -71,10 +91,10 @@ public class FailedBuildInfo {
   }
 
   public int getLimitToProcess() {
-    return myThreshold - myProcessedCount;
+    return getSettings().getMaxTestsPerBuild() - mySession.getProcessedCount();
   }
 
   public void increaseProcessedNumber(final int numberOfProcessedProblems) {
-    myProcessedCount += numberOfProcessedProblems;
+    mySession.increaseProcessedCount(numberOfProcessedProblems);
   }
-}
\ No newline at end of file
+}
@@ -2,28 +2,48 @@
 
 package jetbrains.buildServer.investigationsAutoAssigner.common;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
+import jetbrains.buildServer.investigationsAutoAssigner.utils.IntObjectHashMap;
 import jetbrains.buildServer.serverSide.STestRun;
 import jetbrains.buildServer.serverSide.problems.BuildProblem;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+/**
+ * Responsibilities found for test runs and build problems. Equal responsibilities are interned, so the result
+ * keeps one instance per distinct responsible user and reason, and a reference to it per test run or problem.
+ */
 public class HeuristicResult {
-  private final Map<Integer, Responsibility> testRunToResponsibility = new HashMap<>();
-  private final Map<Integer, Responsibility> buildProblemToResponsibility = new HashMap<>();
+  private final IntObjectHashMap<Responsibility> testRunToResponsibility = new IntObjectHashMap<>();
+  private final IntObjectHashMap<Responsibility> buildProblemToResponsibility = new IntObjectHashMap<>();
+  private final Map<Responsibility.InternKey, Responsibility> myInterned = new HashMap<>();
+  private Responsibility myLastInterned;
+  // keys are interned responsibilities, so they are compared by reference
+  private final Map<Responsibility, String> myHeuristicIds = new IdentityHashMap<>();
 
   public void addResponsibility(@NotNull final STestRun testRun, @NotNull final Responsibility responsibility) {
-    testRunToResponsibility.putIfAbsent(testRun.getTestRunId(), responsibility);
+    addTestRunResponsibility(testRun.getTestRunId(), responsibility);
   }
 
   public void addResponsibility(@NotNull final BuildProblem problem, @NotNull final Responsibility responsibility) {
-    buildProblemToResponsibility.putIfAbsent(problem.getId(), responsibility);
+    addBuildProblemResponsibility(problem.getId(), responsibility);
+  }
+
+  public void addTestRunResponsibility(final int testRunId, @NotNull final Responsibility responsibility) {
+    if (testRunToResponsibility.get(testRunId) == null) {
+      testRunToResponsibility.put(testRunId, intern(responsibility));
+    }
+  }
+
+  public void addBuildProblemResponsibility(final int buildProblemId, @NotNull final Responsibility responsibility) {
+    if (buildProblemToResponsibility.get(buildProblemId) == null) {
+      buildProblemToResponsibility.put(buildProblemId, intern(responsibility));
+    }
   }
 
   @Nullable
@@ -37,8 +57,47 @@ public class HeuristicResult {
   }
 
   public void merge(@NotNull final HeuristicResult other) {
-    testRunToResponsibility.putAll(other.testRunToResponsibility);
-    buildProblemToResponsibility.putAll(other.buildProblemToResponsibility);
+    other.testRunToResponsibility.forEach((id, responsibility) -> testRunToResponsibility.put(id, intern(responsibility)));
+    other.buildProblemToResponsibility.forEach((id, responsibility) -> buildProblemToResponsibility.put(id, intern(responsibility)));
+    other.myHeuristicIds.forEach((responsibility, heuristicId) -> myHeuristicIds.putIfAbsent(intern(responsibility), heuristicId));
+  }
+
+  /**
+   * Merges the result of the heuristic and remembers that its responsibilities were found by the heuristic.
+   */
+  public void merge(@NotNull final HeuristicResult other, @NotNull final String heuristicId) {
+    merge(other);
+    for (Responsibility responsibility : other.myInterned.values()) {
+      myHeuristicIds.putIfAbsent(intern(responsibility), heuristicId);
+    }
+  }
+
+  /**
+   * @return id of the heuristic which found the responsibility or null if it is unknown,
+   * e.g. for results restored from disk.
+   */
+  @Nullable
+  public String getHeuristicId(@NotNull final Responsibility responsibility) {
+    return myHeuristicIds.get(responsibility);
+  }
+
+  /**
+   * @return number of distinct responsibilities kept by the result.
+   */
+  int getDistinctResponsibilitiesCount() {
+    return myInterned.size();
+  }
+
+  @NotNull
+  private Responsibility intern(@NotNull final Responsibility responsibility) {
+    // heuristics usually add the same instance for many test runs in a row
+    if (responsibility == myLastInterned) {
+      return responsibility;
+    }
+
+    Responsibility interned = myInterned.computeIfAbsent(responsibility.getInternKey(), key -> responsibility);
+    myLastInterned = interned;
+    return interned;
   }
 
   public boolean isEmpty() {
@@ -46,16 +105,31 @@ public class HeuristicResult {
   }
 
   public List<Responsibility> getAllResponsibilities() {
-    return Stream.concat(testRunToResponsibility.values().stream(),
-                         buildProblemToResponsibility.values().stream())
-                 .collect(Collectors.toList());
+    List<Responsibility> result = new ArrayList<>(testRunToResponsibility.size() + buildProblemToResponsibility.size());
+    result.addAll(testRunToResponsibility.values());
+    result.addAll(buildProblemToResponsibility.values());
+    return result;
+  }
+
+  public void forEachTestRunResponsibility(@NotNull final IntObjectHashMap.EntryConsumer<Responsibility> action) {
+    testRunToResponsibility.forEach(action);
+  }
+
+  public void forEachBuildProblemResponsibility(@NotNull final IntObjectHashMap.EntryConsumer<Responsibility> action) {
+    buildProblemToResponsibility.forEach(action);
   }
 
+  /**
+   * @return a copy of responsibilities by test run ids, prefer {@link #forEachTestRunResponsibility} where possible.
+   */
   public Map<Integer, Responsibility> getTestRunResponsibilities() {
-    return Collections.unmodifiableMap(testRunToResponsibility);
+    return Collections.unmodifiableMap(testRunToResponsibility.toMap());
   }
 
+  /**
+   * @return a copy of responsibilities by build problem ids, prefer {@link #forEachBuildProblemResponsibility} where possible.
+   */
   public Map<Integer, Responsibility> getBuildProblemResponsibilities() {
-    return Collections.unmodifiableMap(buildProblemToResponsibility);
+    return Collections.unmodifiableMap(buildProblemToResponsibility.toMap());
   }
 }
\ No newline at end of file
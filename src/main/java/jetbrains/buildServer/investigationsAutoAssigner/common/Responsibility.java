@@ -1,22 +1,34 @@
-
-
-package jetbrains.buildServer.investigationsAutoAssigner.common;
-
 package jetbrains.buildServer.investigationsAutoAssigner.common;
 
+import java.util.Arrays;
 import java.util.Objects;
 import jetbrains.buildServer.users.User;
 import org.jetbrains.annotations.NotNull;
 
+/**
+ * Suggested responsible user with the reason. The description can be given as a format with arguments,
+ * then it is rendered on first use only, as most descriptions are never shown.
+ */
 public class Responsibility {
+  private static final Object[] NO_ARGS = new Object[0];
   private final User user;
-  private final String description;
+  private final String descriptionFormat;
+  private final Object[] descriptionArgs;
+  private String description;
 
   public Responsibility(@NotNull User user, @NotNull String description) {
     this.user = user;
+    this.descriptionFormat = description;
+    this.descriptionArgs = NO_ARGS;
     this.description = description;
   }
 
+  public Responsibility(@NotNull User user, @NotNull String descriptionFormat, @NotNull Object... descriptionArgs) {
+    this.user = user;
+    this.descriptionFormat = descriptionFormat;
+    this.descriptionArgs = descriptionArgs;
+  }
+
   @NotNull
   public User getUser() {
     return user;
@@ -24,6 +36,9 @@ public class Responsibility {
 
   @NotNull
   public String getDescription() {
+    if (description == null) {
+      description = String.format(descriptionFormat, descriptionArgs);
+    }
     return description;
   }
 
@@ -31,20 +46,66 @@ public class Responsibility {
     return String.format("%s %s who %s (initial build: %s).",
                          Constants.ASSIGN_DESCRIPTION_PREFIX,
                          user.getDescriptiveName(),
-                         description,
+                         getDescription(),
                          linkToBuild);
   }
 
+  /**
+   * @return key which is the same for responsibilities with the same user and description source,
+   * it is computed without rendering of the description.
+   */
+  @NotNull
+  InternKey getInternKey() {
+    return new InternKey(getClass(), user.getId(), descriptionFormat, descriptionArgs);
+  }
+
   @Override
   public boolean equals(final Object o) {
     if (this == o) return true;
     if (o == null || getClass() != o.getClass()) return false;
     Responsibility that = (Responsibility) o;
-    return user.getId() == that.user.getId() && Objects.equals(description, that.description);
+    return user.getId() == that.user.getId() && Objects.equals(getDescription(), that.getDescription());
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(user.getId(), description);
+    return Objects.hash(user.getId(), getDescription());
+  }
+
+  static final class InternKey {
+    private final Class<?> myType;
+    private final long myUserId;
+    private final String myDescriptionFormat;
+    private final Object[] myDescriptionArgs;
+    private final int myHashCode;
+
+    private InternKey(@NotNull final Class<?> type,
+                      final long userId,
+                      @NotNull final String descriptionFormat,
+                      @NotNull final Object[] descriptionArgs) {
+      myType = type;
+      myUserId = userId;
+      myDescriptionFormat = descriptionFormat;
+      myDescriptionArgs = descriptionArgs;
+      myHashCode = 31 * (31 * (31 * type.hashCode() + Long.hashCode(userId)) + descriptionFormat.hashCode()) +
+                   Arrays.hashCode(descriptionArgs);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) return true;
+      if (!(o instanceof InternKey)) return false;
+      InternKey that = (InternKey)o;
+      return myHashCode == that.myHashCode &&
+             myUserId == that.myUserId &&
+             myType == that.myType &&
+             myDescriptionFormat.equals(that.myDescriptionFormat) &&
+             Arrays.equals(myDescriptionArgs, that.myDescriptionArgs);
+    }
+
+    @Override
+    public int hashCode() {
+      return myHashCode;
+    }
   }
-}
\ No newline at end of file
+}
@@ -1,38 +1,43 @@
-
-
-package jetbrains.buildServer.investigationsAutoAssigner.heuristics;
-
 package jetbrains.buildServer.investigationsAutoAssigner.heuristics;
 
 import com.intellij.openapi.diagnostic.Logger;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import jetbrains.buildServer.investigationsAutoAssigner.common.BuildSnapshot;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
+import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicNotApplicableException;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
+import jetbrains.buildServer.investigationsAutoAssigner.processing.BrokenFileMatcher;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.BuildProblemsFilter;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.HeuristicContext;
-import jetbrains.buildServer.investigationsAutoAssigner.utils.InvestigationsManager;
+import jetbrains.buildServer.investigationsAutoAssigner.processing.ModificationAnalyzerFactory;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ProblemTextExtractor;
+import jetbrains.buildServer.log.LogUtil;
 import jetbrains.buildServer.serverSide.SBuild;
-import jetbrains.buildServer.serverSide.SProject;
-import jetbrains.buildServer.serverSide.STest;
 import jetbrains.buildServer.serverSide.STestRun;
 import jetbrains.buildServer.serverSide.problems.BuildProblem;
 import jetbrains.buildServer.users.User;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-public class PreviousResponsibleHeuristic implements Heuristic {
+public class BrokenFileHeuristic implements Heuristic {
 
   private static final Logger LOGGER = Constants.LOGGER;
-  private final InvestigationsManager investigationsManager;
+  private final ProblemTextExtractor myProblemTextExtractor;
+  private final ModificationAnalyzerFactory myModificationAnalyzerFactory;
 
-  public PreviousResponsibleHeuristic(@NotNull InvestigationsManager investigationsManager) {
-    this.investigationsManager = investigationsManager;
+  public BrokenFileHeuristic(@NotNull ProblemTextExtractor problemTextExtractor,
+                             @NotNull ModificationAnalyzerFactory modificationAnalyzerFactory) {
+    myProblemTextExtractor = problemTextExtractor;
+    myModificationAnalyzerFactory = modificationAnalyzerFactory;
   }
 
-  @NotNull
   @Override
+  @NotNull
   public String getId() {
-    return "PreviousResponsible";
+    return "BrokenFile";
   }
 
   @NotNull
@@ -40,60 +45,69 @@ public class PreviousResponsibleHeuristic implements Heuristic {
   public HeuristicResult findResponsibleUser(@NotNull HeuristicContext context) {
     HeuristicResult result = new HeuristicResult();
     SBuild build = context.getBuild();
-    SProject project = context.getProject();
 
-    HashMap<Long, User> testIdToResponsible = investigationsManager.findInAudit(context.getTestRuns(), project);
-    processTestRuns(context, project, build, testIdToResponsible, result);
-    processBuildProblems(context, project, build, result);
+    List<BuildProblem> supportedProblems = new ArrayList<>();
+    for (BuildProblem problem : context.getBuildProblems()) {
+      if (BuildProblemsFilter.supportedEverywhereTypes.contains(problem.getBuildProblemData().getType())) {
+        supportedProblems.add(problem);
+      }
+    }
+    if (context.getTestRuns().isEmpty() && supportedProblems.isEmpty()) return result;
 
-    return result;
-  }
+    BuildSnapshot buildSnapshot = context.getBuildSnapshot();
+    if (buildSnapshot.getDetectedChanges().isEmpty()) return result;
 
-  private void processTestRuns(HeuristicContext context, SProject project, SBuild build,
-                               HashMap<Long, User> auditMap, HeuristicResult result) {
-    for (STestRun testRun : context.getTestRuns()) {
-      STest test = testRun.getTest();
+    BrokenFileMatcher brokenFileMatcher = buildSnapshot.getBrokenFileMatcher(myModificationAnalyzerFactory);
 
-      User user = investigationsManager.findPreviousResponsible(project, build, test);
-      if (user == null) {
-        user = auditMap.get(test.getTestNameId());
+    for (STestRun testRun : context.getTestRuns()) {
+      String problemText = myProblemTextExtractor.getBuildProblemText(testRun);
+      Responsibility responsibility = findResponsibility(brokenFileMatcher, build, problemText, context.getUsersToIgnore());
+      if (responsibility != null) {
+        result.addResponsibility(testRun, responsibility);
       }
+    }
 
-      if (!isValidUser(user, context)) continue;
-
-      String description = String.format("was previously responsible for the test %s", test.getName());
-      result.addResponsibility(testRun, new Responsibility(user, description));
+    for (BuildProblem problem : supportedProblems) {
+      String problemText = myProblemTextExtractor.getBuildProblemText(problem, build);
+      Responsibility responsibility = findResponsibility(brokenFileMatcher, build, problemText, context.getUsersToIgnore());
+      if (responsibility != null) {
+        result.addResponsibility(problem, responsibility);
+      }
     }
+
+    return result;
   }
 
-  private void processBuildProblems(HeuristicContext context, SProject project, SBuild build, HeuristicResult result) {
-    for (BuildProblem problem : context.getBuildProblems()) {
-      String type = problem.getBuildProblemData().getType();
-      if (!BuildProblemsFilter.supportedEverywhereTypes.contains(type)) continue;
+  @Nullable
+  private Responsibility findResponsibility(@NotNull BrokenFileMatcher brokenFileMatcher,
+                                            @NotNull SBuild build,
+                                            @NotNull String problemText,
+                                            @NotNull Set<String> usersToIgnore) {
+    User responsible = null;
+    String brokenFile = null;
+    for (BrokenFileMatcher.Match match : brokenFileMatcher.findBrokenFiles(problemText)) {
+      try {
+        User probable = myModificationAnalyzerFactory.getInstance(match.getChange()).getOnlyCommitter(usersToIgnore);
+        if (probable == null) continue;
+        ensureSameUsers(responsible, probable);
+        responsible = probable;
+        brokenFile = match.getFilePath();
+      } catch (HeuristicNotApplicableException ex) {
+        LOGGER.debug("Heuristic \"BrokenFile\" is ignored as "
+                     + ex.getMessage() + ". Build: "
+                     + LogUtil.describe(build));
+        return null;
+      }
+    }
 
-      User user = investigationsManager.findPreviousResponsible(project, build, problem);
-      if (!isValidUser(user, context)) continue;
+    if (responsible == null) return null;
 
-      String description = String.format("was previously responsible for the problem %s", type);
-      result.addResponsibility(problem, new Responsibility(user, description));
-    }
+    return new Responsibility(responsible, "changed the suspicious file \"%s\" which probably broke the build", brokenFile);
   }
 
-  private boolean isValidUser(User user, HeuristicContext context) {
-    if (user == null) return false;
-    String username = user.getUsername();
-    long userId = user.getId();
-
-    if (context.getUsersToIgnore().contains(username)) {
-      LOGGER.debug(String.format("Build %s: PreviousResponsibleHeuristic skipped user '%s' (ignored).",
-                                 context.getBuild().getBuildId(), username));
-      return false;
-    }
-    if (!context.getCommitersIds().contains(userId)) {
-      LOGGER.debug(String.format("Build %s: PreviousResponsibleHeuristic skipped user '%s' (not a committer).",
-                                 context.getBuild().getBuildId(), username));
-      return false;
+  private void ensureSameUsers(@Nullable User existing, @Nullable User next) {
+    if (existing != null && next != null && !existing.equals(next)) {
+      throw new HeuristicNotApplicableException("there are more than one TeamCity user");
     }
-    return true;
   }
 }
@@ -1,6 +1,3 @@
-
-
-// DefaultUserHeuristic.java
 package jetbrains.buildServer.investigationsAutoAssigner.heuristics;
 
 import com.intellij.openapi.diagnostic.Logger;
@@ -9,7 +6,6 @@ import jetbrains.buildServer.investigationsAutoAssigner.common.DefaultUserRespon
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.HeuristicContext;
-import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
 import jetbrains.buildServer.log.LogUtil;
 import jetbrains.buildServer.serverSide.BuildTypeEx;
 import jetbrains.buildServer.serverSide.SBuild;
@@ -42,7 +38,7 @@ public class DefaultUserHeuristic implements Heuristic {
   public HeuristicResult findResponsibleUser(@NotNull HeuristicContext context) {
     HeuristicResult result = new HeuristicResult();
     SBuild build = context.getBuild();
-    String username = CustomParameters.getDefaultResponsible(build);
+    String username = context.getBuildSnapshot().getSettings().getDefaultResponsible();
 
     if (StringUtil.isEmpty(username)) return result;
 
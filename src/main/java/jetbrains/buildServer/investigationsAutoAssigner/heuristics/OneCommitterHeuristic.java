@@ -3,6 +3,7 @@
 package jetbrains.buildServer.investigationsAutoAssigner.heuristics;
 
 import com.intellij.openapi.diagnostic.Logger;
+import jetbrains.buildServer.investigationsAutoAssigner.common.BuildSnapshot;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicNotApplicableException;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
@@ -11,11 +12,9 @@ import jetbrains.buildServer.investigationsAutoAssigner.processing.BuildProblems
 import jetbrains.buildServer.investigationsAutoAssigner.processing.HeuristicContext;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.ModificationAnalyzerFactory;
 import jetbrains.buildServer.log.LogUtil;
-import jetbrains.buildServer.serverSide.BuildStatisticsOptions;
 import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.users.User;
 import jetbrains.buildServer.vcs.SVcsModification;
-import jetbrains.buildServer.vcs.SelectPrevBuildPolicy;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -40,7 +39,7 @@ public class OneCommitterHeuristic implements Heuristic {
     SBuild build = context.getBuild();
 
     User responsible = getOnlyCommitter(build, context);
-    if (responsible == null || isCompilationErrorFixed(build)) return result;
+    if (responsible == null || isCompilationErrorFixed(context.getBuildSnapshot())) return result;
 
     Responsibility responsibility = new Responsibility(responsible, "was the only committer to the build");
 
@@ -57,7 +56,7 @@ public class OneCommitterHeuristic implements Heuristic {
   @Nullable
   private User getOnlyCommitter(SBuild build, HeuristicContext context) {
     User responsible = null;
-    for (SVcsModification change : build.getChanges(SelectPrevBuildPolicy.SINCE_LAST_BUILD, true)) {
+    for (SVcsModification change : context.getBuildSnapshot().getChanges()) {
       try {
         User probable = modificationAnalyzerFactory.getInstance(change).getOnlyCommitter(context.getUsersToIgnore());
         if (probable == null) continue;
@@ -73,14 +72,10 @@ public class OneCommitterHeuristic implements Heuristic {
     return responsible;
   }
 
-  private boolean isCompilationErrorFixed(@NotNull SBuild build) {
-    SBuild previous = build.getPreviousFinished();
-    return previous != null && !hasCompilationErrors(build) && hasCompilationErrors(previous);
-  }
-
-  private boolean hasCompilationErrors(@NotNull SBuild build) {
-    return build.getBuildStatistics(new BuildStatisticsOptions(BuildStatisticsOptions.COMPILATION_ERRORS, 0))
-                .getCompilationErrorsCount() > 0;
+  private boolean isCompilationErrorFixed(@NotNull BuildSnapshot buildSnapshot) {
+    return buildSnapshot.getPreviousFinished() != null &&
+           !buildSnapshot.hasCompilationErrors() &&
+           buildSnapshot.previousFinishedHasCompilationErrors();
   }
 
   private void ensureSameUsers(@Nullable User existing, @Nullable User next) {
@@ -3,13 +3,17 @@
 package jetbrains.buildServer.investigationsAutoAssigner.heuristics;
 
 import com.intellij.openapi.diagnostic.Logger;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.BuildProblemsFilter;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.HeuristicContext;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.InvestigationsManager;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PreviousResponsibleCache;
 import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.SProject;
 import jetbrains.buildServer.serverSide.STest;
@@ -22,9 +26,12 @@ public class PreviousResponsibleHeuristic implements Heuristic {
 
   private static final Logger LOGGER = Constants.LOGGER;
   private final InvestigationsManager myInvestigationsManager;
+  private final PreviousResponsibleCache myPreviousResponsibleCache;
 
-  public PreviousResponsibleHeuristic(@NotNull InvestigationsManager investigationsManager) {
+  public PreviousResponsibleHeuristic(@NotNull InvestigationsManager investigationsManager,
+                                      @NotNull PreviousResponsibleCache previousResponsibleCache) {
     myInvestigationsManager = investigationsManager;
+    myPreviousResponsibleCache = previousResponsibleCache;
   }
 
   @NotNull
@@ -38,44 +45,94 @@ public class PreviousResponsibleHeuristic implements Heuristic {
     HeuristicResult result = new HeuristicResult();
     SBuild sBuild = heuristicContext.getBuild();
     SProject sProject = heuristicContext.getProject();
-    Iterable<STestRun> sTestRuns = heuristicContext.getTestRuns();
+    String projectId = sProject.getProjectId();
+    long cacheGeneration = myPreviousResponsibleCache.getGeneration(projectId);
 
-    HashMap<Long, User> testId2Responsible = myInvestigationsManager.findInAudit(sTestRuns, sProject);
+    Map<Long, User> testId2Responsible = new HashMap<>();
+    List<STestRun> notCachedTestRuns = new ArrayList<>();
     for (STestRun sTestRun : heuristicContext.getTestRuns()) {
-      STest sTest = sTestRun.getTest();
+      long testNameId = sTestRun.getTest().getTestNameId();
+      PreviousResponsibleCache.Lookup cached = myPreviousResponsibleCache.get(testNameId, projectId);
+      if (cached.isCached()) {
+        if (cached.getUser() != null) {
+          testId2Responsible.put(testNameId, cached.getUser());
+        }
+      } else {
+        notCachedTestRuns.add(sTestRun);
+      }
+    }
 
+    List<STestRun> testRunsToFindInAudit = new ArrayList<>();
+    for (STestRun sTestRun : notCachedTestRuns) {
+      STest sTest = sTestRun.getTest();
       User responsibleUser = myInvestigationsManager.findPreviousResponsible(sProject, sBuild, sTest);
+      if (responsibleUser != null) {
+        testId2Responsible.put(sTest.getTestNameId(), responsibleUser);
+      } else {
+        testRunsToFindInAudit.add(sTestRun);
+      }
+    }
 
-      if (responsibleUser == null) {
-        responsibleUser = testId2Responsible.get(sTest.getTestNameId());
+    if (!testRunsToFindInAudit.isEmpty()) {
+      HashMap<Long, User> auditResult = myInvestigationsManager.findInAudit(testRunsToFindInAudit, sProject);
+      for (STestRun sTestRun : testRunsToFindInAudit) {
+        long testNameId = sTestRun.getTest().getTestNameId();
+        User responsibleUser = auditResult.get(testNameId);
+        if (responsibleUser != null) {
+          testId2Responsible.put(testNameId, responsibleUser);
+        }
       }
+    }
+
+    for (STestRun sTestRun : notCachedTestRuns) {
+      long testNameId = sTestRun.getTest().getTestNameId();
+      myPreviousResponsibleCache.put(testNameId, projectId, testId2Responsible.get(testNameId), cacheGeneration);
+    }
+
+    for (STestRun sTestRun : heuristicContext.getTestRuns()) {
+      STest sTest = sTestRun.getTest();
+      User responsibleUser = testId2Responsible.get(sTest.getTestNameId());
 
       if (shouldSkip(responsibleUser, heuristicContext)) {
         continue;
       }
 
       if (responsibleUser != null) {
-        String description = String.format("was previously responsible for the test %s", sTest.getName());
-
-        result.addResponsibility(sTestRun, new Responsibility(responsibleUser, description));
+        result.addResponsibility(sTestRun, new Responsibility(responsibleUser, "was previously responsible for the test %s",
+                                                              sTest.getName()));
       }
     }
 
+    List<BuildProblem> supportedProblems = new ArrayList<>();
     for (BuildProblem buildProblem : heuristicContext.getBuildProblems()) {
-      String buildProblemType = buildProblem.getBuildProblemData().getType();
-      if (!BuildProblemsFilter.supportedEverywhereTypes.contains(buildProblemType)) {
-        continue;
+      if (BuildProblemsFilter.supportedEverywhereTypes.contains(buildProblem.getBuildProblemData().getType())) {
+        supportedProblems.add(buildProblem);
       }
+    }
 
+    Map<BuildProblem, User> problem2Responsible = new HashMap<>();
+    List<BuildProblem> problemsToFindInAudit = new ArrayList<>();
+    for (BuildProblem buildProblem : supportedProblems) {
       User responsibleUser = myInvestigationsManager.findPreviousResponsible(sProject, sBuild, buildProblem);
+      if (responsibleUser != null) {
+        problem2Responsible.put(buildProblem, responsibleUser);
+      } else {
+        problemsToFindInAudit.add(buildProblem);
+      }
+    }
+    problem2Responsible.putAll(myInvestigationsManager.findInAudit(problemsToFindInAudit));
+
+    for (BuildProblem buildProblem : supportedProblems) {
+      User responsibleUser = problem2Responsible.get(buildProblem);
 
       if (shouldSkip(responsibleUser, heuristicContext)) {
         continue;
       }
 
       if (responsibleUser != null) {
-        String description = String.format("was previously responsible for the problem %s`", buildProblemType);
-        result.addResponsibility(buildProblem, new Responsibility(responsibleUser, description));
+        String buildProblemType = buildProblem.getBuildProblemData().getType();
+        result.addResponsibility(buildProblem, new Responsibility(responsibleUser, "was previously responsible for the problem %s`",
+                                                                  buildProblemType));
       }
     }
 
@@ -1,14 +1,10 @@
-
-
-package jetbrains.buildServer.investigationsAutoAssigner.persistent;
-
-// Optimized AssignerArtifactDao.java
 package jetbrains.buildServer.investigationsAutoAssigner.persistent;
 
+import com.google.gson.JsonParseException;
 import com.intellij.openapi.diagnostic.Logger;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -16,6 +12,7 @@ import java.util.stream.Collectors;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.Utils;
 import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.STestRun;
@@ -33,15 +30,26 @@ public class AssignerArtifactDao {
   private final SuggestionsDao suggestionsDao;
   private final AssignerResultsFilePath resultsFilePathResolver;
   private final StatisticsReporter statisticsReporter;
+  private final SuggestionsIndexCache suggestionsIndexCache;
 
   public AssignerArtifactDao(@NotNull UserModelEx userModel,
                              @NotNull SuggestionsDao suggestionsDao,
                              @NotNull AssignerResultsFilePath resultsFilePath,
                              @NotNull StatisticsReporter statisticsReporter) {
+    this(userModel, suggestionsDao, resultsFilePath, statisticsReporter,
+         new SuggestionsIndexCache(CustomParameters.getSuggestionsCacheSize()));
+  }
+
+  AssignerArtifactDao(@NotNull UserModelEx userModel,
+                      @NotNull SuggestionsDao suggestionsDao,
+                      @NotNull AssignerResultsFilePath resultsFilePath,
+                      @NotNull StatisticsReporter statisticsReporter,
+                      @NotNull SuggestionsIndexCache suggestionsIndexCache) {
     this.userModel = userModel;
     this.suggestionsDao = suggestionsDao;
     this.resultsFilePathResolver = resultsFilePath;
     this.statisticsReporter = statisticsReporter;
+    this.suggestionsIndexCache = suggestionsIndexCache;
   }
 
   public void appendHeuristicsResult(@NotNull SBuild build,
@@ -79,15 +87,20 @@ public class AssignerArtifactDao {
                   ? resultsFilePathResolver.getIfExist(firstFailedBuild, testRun)
                   : resultsFilePathResolver.getIfExist(testRun.getBuild(), testRun);
 
-      List<ResponsibilityPersistentInfo> suggestions = suggestionsDao.read(path);
-      return suggestions.stream()
-                        .filter(info -> info.testNameId.equals(String.valueOf(testRun.getTest().getTestNameId())))
-                        .map(info -> resolveResponsibility(testRun, info))
-                        .filter(Optional::isPresent)
-                        .map(Optional::get)
-                        .findFirst()
-                        .orElse(null);
-    } catch (IOException e) {
+      if (path == null) return null;
+
+      List<ResponsibilityPersistentInfo> matched =
+        suggestionsIndexCache.get(path, () -> suggestionsDao.stream(path)).find(testRun.getTest().getTestNameId());
+
+      // suggestions are appended, so the latest one is at the end
+      for (int i = matched.size() - 1; i >= 0; i--) {
+        Optional<Responsibility> responsibility = resolveResponsibility(testRun, matched.get(i));
+        if (responsibility.isPresent()) {
+          return responsibility.get();
+        }
+      }
+      return null;
+    } catch (IOException | UncheckedIOException | JsonParseException e) {
       LOGGER.warn(Utils.getLogPrefix(testRun) + " Error reading suggestions file", e);
       return null;
     }
@@ -97,15 +110,13 @@ public class AssignerArtifactDao {
     if (entries.isEmpty()) return;
 
     try {
-      statisticsReporter.reportSavedSuggestions(entries.size());
+      statisticsReporter.reportSavedSuggestions(entries.size(), build.getProjectId());
       Path path = resultsFilePathResolver.get(build);
 
-      List<ResponsibilityPersistentInfo> existing = suggestionsDao.read(path);
-      if (existing.isEmpty()) statisticsReporter.reportBuildWithSuggestions();
+      if (suggestionsDao.isEmpty(path)) statisticsReporter.reportBuildWithSuggestions(build.getProjectId());
 
-      entries.addAll(existing);
-      LOGGER.debug(String.format("Build id:%s :: Merged %d responsibilities", build.getBuildId(), entries.size()));
-      suggestionsDao.write(path, entries);
+      LOGGER.debug(String.format("Build id:%s :: Appending %d responsibilities", build.getBuildId(), entries.size()));
+      suggestionsDao.append(path, entries);
     } catch (IOException ex) {
       LOGGER.warn(String.format("Build id:%s :: Error persisting suggestions", build.getBuildId()), ex);
     }
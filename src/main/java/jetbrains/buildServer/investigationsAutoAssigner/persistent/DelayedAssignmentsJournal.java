@@ -0,0 +1,282 @@
+package jetbrains.buildServer.investigationsAutoAssigner.persistent;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.intellij.openapi.diagnostic.Logger;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
+import jetbrains.buildServer.investigationsAutoAssigner.common.DefaultUserResponsibility;
+import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
+import jetbrains.buildServer.serverSide.ServerPaths;
+import jetbrains.buildServer.users.User;
+import jetbrains.buildServer.users.UserModelEx;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Pending delayed ("assign on second failure") assignments, one per build configuration.
+ * Every change is appended to a line-delimited journal in the plugin data directory, which is replayed on startup
+ * and rewritten from the current state when it accumulates too many outdated records.
+ */
+public class DelayedAssignmentsJournal {
+  private static final Logger LOGGER = Constants.LOGGER;
+  private static final int MIN_RECORDS_TO_COMPACT = 100;
+
+  private final Path myPluginDataDirectory;
+  private final Path myJournalPath;
+  private final UserModelEx myUserModel;
+  private final Gson myGson = new Gson();
+  private final Map<String, JournalRecord> myEntries = new HashMap<>();
+  private int myRecordsInJournal = 0;
+  private boolean myJournalDamaged = false;
+
+  public DelayedAssignmentsJournal(@NotNull final ServerPaths serverPaths, @NotNull final UserModelEx userModel) {
+    this(Paths.get(serverPaths.getPluginDataDirectory().getPath()), userModel);
+  }
+
+  DelayedAssignmentsJournal(@NotNull final Path pluginDataDir, @NotNull final UserModelEx userModel) {
+    myPluginDataDirectory = pluginDataDir.resolve(Constants.PLUGIN_DATA_DIR);
+    myJournalPath = myPluginDataDirectory.resolve(Constants.DELAYED_ASSIGNMENTS_FILE_NAME);
+    myUserModel = userModel;
+    replay();
+  }
+
+  @Nullable
+  public synchronized Entry get(@NotNull final String buildTypeId) {
+    JournalRecord record = myEntries.get(buildTypeId);
+    return record == null ? null : new Entry(record);
+  }
+
+  public synchronized void put(@NotNull final String buildTypeId,
+                               final long buildId,
+                               @NotNull final HeuristicResult heuristicResult) {
+    JournalRecord record = new JournalRecord(buildTypeId, buildId, false);
+    heuristicResult.forEachTestRunResponsibility(
+      (testRunId, responsibility) -> record.testRuns.add(toPersistent(testRunId, responsibility)));
+    heuristicResult.forEachBuildProblemResponsibility(
+      (problemId, responsibility) -> record.buildProblems.add(toPersistent(problemId, responsibility)));
+
+    myEntries.put(buildTypeId, record);
+    append(record);
+  }
+
+  public synchronized void remove(@NotNull final String buildTypeId) {
+    if (myEntries.remove(buildTypeId) != null) {
+      append(new JournalRecord(buildTypeId, 0, true));
+    }
+  }
+
+  public synchronized int size() {
+    return myEntries.size();
+  }
+
+  public synchronized void compactIfNeeded() {
+    if (myRecordsInJournal > Math.max(MIN_RECORDS_TO_COMPACT, 2 * myEntries.size())) {
+      compact();
+    }
+  }
+
+  private void replay() {
+    if (!Files.exists(myJournalPath)) {
+      return;
+    }
+
+    try (BufferedReader reader = Files.newBufferedReader(myJournalPath, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.trim().isEmpty()) {
+          continue;
+        }
+
+        myRecordsInJournal++;
+        JournalRecord record = parse(line);
+        if (record == null || record.buildTypeId == null) {
+          myJournalDamaged = true;
+          continue;
+        }
+
+        if (record.removed) {
+          myEntries.remove(record.buildTypeId);
+        } else {
+          myEntries.put(record.buildTypeId, record);
+        }
+      }
+      if (!endsWithNewLine()) {
+        myJournalDamaged = true;
+      }
+    } catch (IOException e) {
+      LOGGER.warnAndDebugDetails("Error reading delayed assignments from " + myJournalPath, e);
+    }
+
+    // the last record could be written partially if the server was stopped in the middle of the write,
+    // the journal is rewritten so the next record is not appended to the same line
+    if (myJournalDamaged) {
+      compact();
+    } else {
+      compactIfNeeded();
+    }
+  }
+
+  private boolean endsWithNewLine() throws IOException {
+    try (SeekableByteChannel channel = Files.newByteChannel(myJournalPath)) {
+      long size = channel.size();
+      if (size == 0) {
+        return true;
+      }
+
+      ByteBuffer lastByte = ByteBuffer.allocate(1);
+      channel.position(size - 1);
+      channel.read(lastByte);
+      return lastByte.get(0) == '\n';
+    }
+  }
+
+  @Nullable
+  private JournalRecord parse(@NotNull final String line) {
+    try {
+      return myGson.fromJson(line, JournalRecord.class);
+    } catch (JsonParseException e) {
+      LOGGER.debug("Skipping malformed record of delayed assignments journal: " + line);
+      return null;
+    }
+  }
+
+  private void append(@NotNull final JournalRecord record) {
+    try {
+      ensurePluginDirExists();
+      try (BufferedWriter writer = Files.newBufferedWriter(myJournalPath, StandardCharsets.UTF_8,
+                                                           StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+        if (myJournalDamaged) {
+          // the journal could not be rewritten, start a new line after the partially written record
+          writer.newLine();
+          myJournalDamaged = false;
+        }
+        writer.write(myGson.toJson(record));
+        writer.newLine();
+      }
+      myRecordsInJournal++;
+    } catch (IOException e) {
+      LOGGER.warnAndDebugDetails("Error writing delayed assignments to " + myJournalPath, e);
+    }
+  }
+
+  private void compact() {
+    Path tempPath = myPluginDataDirectory.resolve(Constants.DELAYED_ASSIGNMENTS_FILE_NAME + ".tmp");
+    try {
+      ensurePluginDirExists();
+      try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+        for (JournalRecord record : myEntries.values()) {
+          writer.write(myGson.toJson(record));
+          writer.newLine();
+        }
+      }
+      PersistentFiles.moveReplacing(tempPath, myJournalPath);
+      myRecordsInJournal = myEntries.size();
+      myJournalDamaged = false;
+    } catch (IOException e) {
+      LOGGER.warnAndDebugDetails("Error compacting delayed assignments journal " + myJournalPath, e);
+    }
+  }
+
+  private void ensurePluginDirExists() throws IOException {
+    if (!Files.exists(myPluginDataDirectory)) {
+      Files.createDirectories(myPluginDataDirectory);
+    }
+  }
+
+  @NotNull
+  private static PersistedResponsibility toPersistent(final int id, @NotNull final Responsibility responsibility) {
+    return new PersistedResponsibility(id,
+                                       responsibility.getUser().getId(),
+                                       responsibility.getDescription(),
+                                       responsibility instanceof DefaultUserResponsibility);
+  }
+
+  @Nullable
+  private Responsibility fromPersistent(@NotNull final PersistedResponsibility persisted) {
+    User user = myUserModel.findUserById(persisted.userId);
+    if (user == null) {
+      return null;
+    }
+
+    return persisted.isDefault
+           ? new DefaultUserResponsibility(user)
+           : new Responsibility(user, persisted.description);
+  }
+
+  public class Entry {
+    private final JournalRecord myRecord;
+
+    private Entry(@NotNull final JournalRecord record) {
+      myRecord = record;
+    }
+
+    public long getBuildId() {
+      return myRecord.buildId;
+    }
+
+    /**
+     * Users are resolved on demand, so replaying of the journal doesn't touch the user model.
+     */
+    @NotNull
+    public HeuristicResult getHeuristicResult() {
+      HeuristicResult result = new HeuristicResult();
+      for (PersistedResponsibility persisted : myRecord.testRuns) {
+        Responsibility responsibility = fromPersistent(persisted);
+        if (responsibility != null) {
+          result.addTestRunResponsibility(persisted.id, responsibility);
+        }
+      }
+
+      for (PersistedResponsibility persisted : myRecord.buildProblems) {
+        Responsibility responsibility = fromPersistent(persisted);
+        if (responsibility != null) {
+          result.addBuildProblemResponsibility(persisted.id, responsibility);
+        }
+      }
+      return result;
+    }
+  }
+
+  private static class JournalRecord {
+    String buildTypeId;
+    long buildId;
+    boolean removed;
+    List<PersistedResponsibility> testRuns = new ArrayList<>();
+    List<PersistedResponsibility> buildProblems = new ArrayList<>();
+
+    JournalRecord(String buildTypeId, long buildId, boolean removed) {
+      this.buildTypeId = buildTypeId;
+      this.buildId = buildId;
+      this.removed = removed;
+    }
+  }
+
+  private static class PersistedResponsibility {
+    int id;
+    long userId;
+    String description;
+    boolean isDefault;
+
+    PersistedResponsibility(int id, long userId, String description, boolean isDefault) {
+      this.id = id;
+      this.userId = userId;
+      this.description = description;
+      this.isDefault = isDefault;
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package jetbrains.buildServer.investigationsAutoAssigner.persistent;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * File operations shared by the data of the plugin stored on disk.
+ */
+final class PersistentFiles {
+  private PersistentFiles() {
+  }
+
+  /**
+   * Replaces the target with the source atomically when the file system supports it,
+   * otherwise the file is replaced with a plain move.
+   */
+  static void moveReplacing(@NotNull Path source, @NotNull Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
@@ -9,22 +9,22 @@ import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 class Statistics implements Cloneable {
 
   private final String version;
-  private final Map<StatisticsValuesEnum, Integer> values;
+  private final Map<StatisticsValuesEnum, Long> values;
 
   public String getVersion() {
     return version;
   }
 
-  int get(StatisticsValuesEnum statisticsKey) {
-    return values.getOrDefault(statisticsKey, 0);
+  long get(StatisticsValuesEnum statisticsKey) {
+    return values.getOrDefault(statisticsKey, 0L);
   }
 
   void increment(StatisticsValuesEnum statisticsKey) {
     increase(statisticsKey, 1);
   }
 
-  void increase(StatisticsValuesEnum statisticsKey, int delta) {
-    int previousValue = values.getOrDefault(statisticsKey, 0);
+  void increase(StatisticsValuesEnum statisticsKey, long delta) {
+    long previousValue = values.getOrDefault(statisticsKey, 0L);
     values.put(statisticsKey, previousValue + delta);
   }
 
@@ -33,7 +33,7 @@ class Statistics implements Cloneable {
     values = new HashMap<>();
   }
 
-  private Statistics(String version, Map<StatisticsValuesEnum, Integer> values) {
+  private Statistics(String version, Map<StatisticsValuesEnum, Long> values) {
     this.version = version;
     this.values = new HashMap<>(values);
   }
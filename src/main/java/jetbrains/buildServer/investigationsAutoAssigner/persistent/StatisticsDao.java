@@ -15,8 +15,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 
 public class StatisticsDao {
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
 
   private final Path statisticsPath;
+  private final Path timeSeriesPath;
   private final Path pluginDataDirectory;
   private final Gson gson;
   private Statistics statisticsOnDisk;
@@ -25,11 +27,12 @@ public class StatisticsDao {
     this.gson = new Gson();
     this.pluginDataDirectory = pluginDataDir.resolve(Constants.PLUGIN_DATA_DIR);
     this.statisticsPath = pluginDataDirectory.resolve(Constants.STATISTICS_FILE_NAME);
+    this.timeSeriesPath = pluginDataDirectory.resolve(Constants.STATISTICS_TIME_SERIES_FILE_NAME);
     this.statisticsOnDisk = new Statistics();
   }
 
   @NotNull
-  public Statistics read() {
+  public synchronized Statistics read() {
     if (!Files.exists(statisticsPath)) {
       statisticsOnDisk = new Statistics();
       return statisticsOnDisk.clone();
@@ -57,20 +60,53 @@ public class StatisticsDao {
     return stats != null && Constants.STATISTICS_FILE_VERSION.equals(stats.getVersion());
   }
 
-  public void write(@NotNull Statistics newStats) {
+  public synchronized void write(@NotNull Statistics newStats) {
     if (statisticsOnDisk.equals(newStats)) return;
 
     try {
-      ensurePluginDirExists();
-      try (BufferedWriter writer = Files.newBufferedWriter(statisticsPath)) {
-        gson.toJson(newStats, writer);
-      }
+      writeAtomically(statisticsPath, newStats);
       statisticsOnDisk = newStats;
     } catch (IOException e) {
       throw new RuntimeException("Error writing statistics to disk", e);
     }
   }
 
+  /**
+   * Adds the time series saved on disk to the given statistics, the series older than a week are skipped.
+   */
+  public synchronized void readTimeSeries(@NotNull TimeSeriesStatistics timeSeries) {
+    if (!Files.exists(timeSeriesPath)) return;
+
+    try (BufferedReader reader = Files.newBufferedReader(timeSeriesPath)) {
+      TimeSeriesStatistics.Data data = gson.fromJson(reader, TimeSeriesStatistics.Data.class);
+      if (data != null) {
+        timeSeries.load(data);
+      }
+    } catch (IOException | JsonParseException e) {
+      Constants.LOGGER.warn("Error reading statistics time series from disk, they are reset", e);
+    }
+  }
+
+  public synchronized void writeTimeSeries(@NotNull TimeSeriesStatistics timeSeries) {
+    try {
+      writeAtomically(timeSeriesPath, timeSeries.toData());
+    } catch (IOException e) {
+      throw new RuntimeException("Error writing statistics time series to disk", e);
+    }
+  }
+
+  /**
+   * Writes to a temporary file and renames it, so the file is never seen partially written.
+   */
+  private void writeAtomically(@NotNull Path path, @NotNull Object content) throws IOException {
+    ensurePluginDirExists();
+    Path tempPath = path.resolveSibling(path.getFileName() + TEMP_FILE_SUFFIX);
+    try (BufferedWriter writer = Files.newBufferedWriter(tempPath)) {
+      gson.toJson(content, writer);
+    }
+    PersistentFiles.moveReplacing(tempPath, path);
+  }
+
   private void ensurePluginDirExists() throws IOException {
     if (!Files.exists(pluginDataDirectory)) {
       Files.createDirectories(pluginDataDirectory);
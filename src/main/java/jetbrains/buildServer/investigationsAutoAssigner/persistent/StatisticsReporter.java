@@ -2,7 +2,9 @@
 
 package jetbrains.buildServer.investigationsAutoAssigner.persistent;
 
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.investigationsAutoAssigner.common.DefaultUserResponsibility;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
@@ -10,15 +12,35 @@ import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
 import jetbrains.buildServer.serverSide.TeamCityProperties;
 import jetbrains.buildServer.serverSide.executors.ExecutorServices;
 import jetbrains.buildServer.util.StringUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+/**
+ * Counts plugin usage. Reports come from web request threads, processing threads and the dispatcher,
+ * so every value is a separate {@link LongAdder} and reporting never takes a lock. The counters are added
+ * to the statistics read at start and saved by a background task, which takes a snapshot of the sums
+ * and writes it only when it has changed. Values reported for a project are also counted in {@link TimeSeriesStatistics}
+ * to show the recent trends.
+ */
 public class StatisticsReporter {
+  private static final StatisticsValuesEnum[] VALUES = StatisticsValuesEnum.values();
   private final StatisticsDao myStatisticsDao;
-  private Statistics myStatistics;
+  private final Statistics myInitialStatistics;
+  private final LongAdder[] myCounters;
+  private final TimeSeriesStatistics myTimeSeries;
+  // is accessed by the saving task only
+  private long mySavedTimeSeriesModifications;
 
   public StatisticsReporter(StatisticsDaoFactory statisticsDaoFactory,
                             ExecutorServices executorServices) {
     myStatisticsDao = statisticsDaoFactory.get();
-    myStatistics = myStatisticsDao.read();
+    myInitialStatistics = myStatisticsDao.read();
+    myCounters = new LongAdder[VALUES.length];
+    for (int i = 0; i < myCounters.length; i++) {
+      myCounters[i] = new LongAdder();
+    }
+    myTimeSeries = new TimeSeriesStatistics(CustomParameters.getStatisticsTimeSeriesMaxSize());
+    myStatisticsDao.readTimeSeries(myTimeSeries);
     StatisticsReporter instance = this;
     int delayInSeconds = CustomParameters.getProcessingDelayInSeconds();
     executorServices
@@ -26,45 +48,91 @@ public class StatisticsReporter {
       .scheduleWithFixedDelay(instance::saveDataOnDisk, delayInSeconds, delayInSeconds, TimeUnit.SECONDS);
   }
 
-  public synchronized void reportShownButton() {
-    myStatistics.increment(StatisticsValuesEnum.shownButtonsCount);
+  public void reportShownButton() {
+    increase(StatisticsValuesEnum.shownButtonsCount, 1);
   }
 
-  public synchronized void reportClickedButton() {
-    myStatistics.increment(StatisticsValuesEnum.clickedButtonsCount);
+  public void reportClickedButton() {
+    increase(StatisticsValuesEnum.clickedButtonsCount, 1);
   }
 
-  public synchronized void reportAssignedInvestigations(int count, Responsibility responsibility) {
+  public void reportAssignedInvestigations(int count,
+                                           @NotNull Responsibility responsibility,
+                                           @Nullable String projectId,
+                                           @Nullable String heuristicId) {
     if (responsibility instanceof DefaultUserResponsibility) {
-      myStatistics.increase(StatisticsValuesEnum.defaultInvestigationsCount, count);
+      increase(StatisticsValuesEnum.defaultInvestigationsCount, count, projectId, heuristicId);
     }
-    myStatistics.increase(StatisticsValuesEnum.assignedInvestigationsCount, count);
+    increase(StatisticsValuesEnum.assignedInvestigationsCount, count, projectId, heuristicId);
+  }
+
+  public void reportWrongInvestigation(int count, @Nullable String projectId) {
+    increase(StatisticsValuesEnum.wrongInvestigationsCount, count, projectId, null);
   }
 
-  public synchronized void reportWrongInvestigation(int count) {
-    myStatistics.increase(StatisticsValuesEnum.wrongInvestigationsCount, count);
+  void reportSavedSuggestions(final int count, @Nullable String projectId) {
+    increase(StatisticsValuesEnum.savedSuggestionsCount, count, projectId, null);
   }
 
-  synchronized void reportSavedSuggestions(final int count) {
-    myStatistics.increase(StatisticsValuesEnum.savedSuggestionsCount, count);
+  void reportBuildWithSuggestions(@Nullable String projectId) {
+    increase(StatisticsValuesEnum.buildWithSuggestionsCount, 1, projectId, null);
   }
 
-  synchronized void reportBuildWithSuggestions() {
-    myStatistics.increment(StatisticsValuesEnum.buildWithSuggestionsCount);
+  public void reportProcessedBuildWithChanges(final int numberOfChanges, @Nullable String projectId) {
+    increase(StatisticsValuesEnum.processedBuildsCount, 1, projectId, null);
+    increase(StatisticsValuesEnum.changesInBuildsCount, numberOfChanges, projectId, null);
   }
 
-  public synchronized void reportProcessedBuildWithChanges(final int numberOfChanges) {
-    myStatistics.increment(StatisticsValuesEnum.processedBuildsCount);
-    myStatistics.increase(StatisticsValuesEnum.changesInBuildsCount, numberOfChanges);
+  private void increase(StatisticsValuesEnum statisticsKey, long delta) {
+    myCounters[statisticsKey.ordinal()].add(delta);
+  }
+
+  private void increase(StatisticsValuesEnum statisticsKey,
+                        long delta,
+                        @Nullable String projectId,
+                        @Nullable String heuristicId) {
+    increase(statisticsKey, delta);
+    if (projectId != null) {
+      myTimeSeries.increase(projectId, heuristicId, statisticsKey, delta);
+    }
+  }
+
+  @NotNull
+  TimeSeriesStatistics getTimeSeries() {
+    return myTimeSeries;
+  }
+
+  /**
+   * @return a copy of the current values, reports made while the copy is taken may be counted in the next one.
+   */
+  @NotNull
+  Statistics getSnapshot() {
+    Statistics snapshot = myInitialStatistics.clone();
+    for (StatisticsValuesEnum value : VALUES) {
+      snapshot.increase(value, myCounters[value.ordinal()].sum());
+    }
+    return snapshot;
   }
 
   private void saveDataOnDisk() {
     if (StringUtil.isTrue(TeamCityProperties.getProperty(Constants.STATISTICS_ENABLED, "false"))) {
-      myStatisticsDao.write(myStatistics);
+      flush();
+    }
+  }
+
+  void flush() {
+    myStatisticsDao.write(getSnapshot());
+
+    long timeSeriesModifications = myTimeSeries.getModificationsCount();
+    if (timeSeriesModifications != mySavedTimeSeriesModifications) {
+      myTimeSeries.compact();
+      myStatisticsDao.writeTimeSeries(myTimeSeries);
+      mySavedTimeSeriesModifications = timeSeriesModifications;
     }
   }
 
-  public synchronized String generateReport() {
+  public String generateReport() {
+    Statistics statistics = getSnapshot();
     return String.format("Short statistics of plugin usage:\n\n" +
                          "%s investigations assigned;\n" +
                          "%s of them were wrong;\n" +
@@ -75,14 +143,33 @@ public class StatisticsReporter {
                          "%s suggestions total;\n" +
                          "with %s changes\n" +
                          "in %s builds.\n",
-                         myStatistics.get(StatisticsValuesEnum.assignedInvestigationsCount),
-                         myStatistics.get(StatisticsValuesEnum.wrongInvestigationsCount),
-                         myStatistics.get(StatisticsValuesEnum.defaultInvestigationsCount),
-                         myStatistics.get(StatisticsValuesEnum.shownButtonsCount),
-                         myStatistics.get(StatisticsValuesEnum.clickedButtonsCount),
-                         myStatistics.get(StatisticsValuesEnum.buildWithSuggestionsCount),
-                         myStatistics.get(StatisticsValuesEnum.savedSuggestionsCount),
-                         myStatistics.get(StatisticsValuesEnum.changesInBuildsCount),
-                         myStatistics.get(StatisticsValuesEnum.processedBuildsCount));
+                         statistics.get(StatisticsValuesEnum.assignedInvestigationsCount),
+                         statistics.get(StatisticsValuesEnum.wrongInvestigationsCount),
+                         statistics.get(StatisticsValuesEnum.defaultInvestigationsCount),
+                         statistics.get(StatisticsValuesEnum.shownButtonsCount),
+                         statistics.get(StatisticsValuesEnum.clickedButtonsCount),
+                         statistics.get(StatisticsValuesEnum.buildWithSuggestionsCount),
+                         statistics.get(StatisticsValuesEnum.savedSuggestionsCount),
+                         statistics.get(StatisticsValuesEnum.changesInBuildsCount),
+                         statistics.get(StatisticsValuesEnum.processedBuildsCount)) +
+           generateRecentReport();
+  }
+
+  @NotNull
+  private String generateRecentReport() {
+    int hours = 24;
+    StringBuilder report = new StringBuilder();
+    report.append(String.format("\nLast %s hours:\n" +
+                                "%s investigations assigned;\n" +
+                                "%s of them were wrong;\n" +
+                                "%s builds processed.\n",
+                                hours,
+                                myTimeSeries.getHoursSum(StatisticsValuesEnum.assignedInvestigationsCount, null, null, hours),
+                                myTimeSeries.getHoursSum(StatisticsValuesEnum.wrongInvestigationsCount, null, null, hours),
+                                myTimeSeries.getHoursSum(StatisticsValuesEnum.processedBuildsCount, null, null, hours)));
+    Map<String, Long> byHeuristic =
+      myTimeSeries.getHoursSumByHeuristic(StatisticsValuesEnum.assignedInvestigationsCount, hours);
+    byHeuristic.forEach((heuristicId, count) -> report.append(String.format("%s assigned by %s;\n", count, heuristicId)));
+    return report.toString();
   }
 }
\ No newline at end of file
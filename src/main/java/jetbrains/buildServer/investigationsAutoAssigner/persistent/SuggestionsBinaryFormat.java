@@ -0,0 +1,457 @@
+package jetbrains.buildServer.investigationsAutoAssigner.persistent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Binary layout of the suggestions file:
+ * <pre>
+ *   file   := magic version:varint serverUUID:string block*
+ *   block  := PLAIN length:varint payload | DEFLATED length:varint compressedLength:varint deflate(payload)
+ *   payload:= count:varint string* count:varint record*
+ *   record := flags:byte testNameId investigatorId reason:ref
+ * </pre>
+ * Numeric ids are stored as zigzag varints, other ids and reasons are references to the string table of the block,
+ * so a reason shared by many tests of one processing pass is stored once. Every append adds a self-contained block,
+ * the file is never read to append to it.
+ */
+final class SuggestionsBinaryFormat {
+  static final int VERSION = 3;
+  private static final byte[] MAGIC = {'T', 'C', 'A', 'A'};
+  private static final int BLOCK_PLAIN = 0;
+  private static final int BLOCK_DEFLATED = 1;
+  private static final int MIN_PAYLOAD_SIZE_TO_COMPRESS = 512;
+  // protects from allocating huge buffers while reading a corrupted file
+  private static final int MAX_BLOCK_SIZE = 64 * 1024 * 1024;
+  private static final int NUMERIC_TEST_NAME_ID = 1;
+  private static final int NUMERIC_INVESTIGATOR_ID = 2;
+
+  private SuggestionsBinaryFormat() {
+  }
+
+  static int getMagicLength() {
+    return MAGIC.length;
+  }
+
+  static boolean isMagic(@NotNull byte[] bytes, int length) {
+    if (length < MAGIC.length) return false;
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (bytes[i] != MAGIC[i]) return false;
+    }
+    return true;
+  }
+
+  static void writeHeader(@NotNull OutputStream out, @NotNull String serverUUID) throws IOException {
+    ByteArrayOutputStream header = new ByteArrayOutputStream();
+    header.write(MAGIC);
+    writeVarLong(header, VERSION);
+    writeString(header, serverUUID);
+    header.writeTo(out);
+  }
+
+  static int getHeaderLength(@NotNull String serverUUID) throws IOException {
+    ByteArrayOutputStream header = new ByteArrayOutputStream();
+    writeHeader(header, serverUUID);
+    return header.size();
+  }
+
+  /**
+   * Reads the header after the magic bytes.
+   * @return server UUID or null if the file was written by a newer version of the plugin.
+   */
+  @Nullable
+  static String readServerUUID(@NotNull InputStream in) throws IOException {
+    long version = readVarLong(in);
+    if (version != VERSION) {
+      Constants.LOGGER.warn("Unsupported version of the suggestions file: " + version);
+      return null;
+    }
+    return readString(in);
+  }
+
+  /**
+   * Writes the suggestions as one block with a single write call, so a concurrent reader sees at most
+   * an incomplete last block.
+   */
+  static void writeBlock(@NotNull OutputStream out,
+                         @NotNull List<ResponsibilityPersistentInfo> suggestions,
+                         boolean compress) throws IOException {
+    byte[] payload = encodePayload(suggestions);
+    ByteArrayOutputStream block = new ByteArrayOutputStream(payload.length + 16);
+
+    byte[] compressed = compress && payload.length >= MIN_PAYLOAD_SIZE_TO_COMPRESS ? deflate(payload) : null;
+    if (compressed != null && compressed.length < payload.length) {
+      block.write(BLOCK_DEFLATED);
+      writeVarLong(block, payload.length);
+      writeVarLong(block, compressed.length);
+      block.write(compressed);
+    } else {
+      block.write(BLOCK_PLAIN);
+      writeVarLong(block, payload.length);
+      block.write(payload);
+    }
+    block.writeTo(out);
+  }
+
+  /**
+   * @return suggestions of the next block or null if there are no more blocks.
+   * @throws EOFException if the last block is incomplete.
+   */
+  @Nullable
+  static List<ResponsibilityPersistentInfo> readBlock(@NotNull InputStream in) throws IOException {
+    int kind = in.read();
+    if (kind == -1) return null;
+
+    int length = readLength(in);
+    byte[] payload;
+    if (kind == BLOCK_PLAIN) {
+      payload = readFully(in, length);
+    } else if (kind == BLOCK_DEFLATED) {
+      payload = inflate(readFully(in, readLength(in)), length);
+    } else {
+      throw new IOException("Unknown block type: " + kind);
+    }
+
+    return decodePayload(payload);
+  }
+
+  /**
+   * Skips the blocks checking only their framing, the payloads are not decoded.
+   * @return total length of the complete blocks. The scan stops at an incomplete or malformed block,
+   * it and everything after it are not counted.
+   */
+  static long skipCompleteBlocks(@NotNull InputStream in) throws IOException {
+    CountingInputStream counting = new CountingInputStream(in);
+    long completeLength = 0;
+    try {
+      int kind;
+      while ((kind = counting.read()) != -1) {
+        if (kind != BLOCK_PLAIN && kind != BLOCK_DEFLATED) break;
+
+        long length = readVarLong(counting);
+        if (kind == BLOCK_DEFLATED) {
+          length = readVarLong(counting);
+        }
+        if (length < 0 || length > MAX_BLOCK_SIZE || !skipFully(counting, length)) break;
+
+        completeLength = counting.getCount();
+      }
+    } catch (EOFException e) {
+      // the last block is incomplete
+    }
+    return completeLength;
+  }
+
+  /**
+   * Iterates over the suggestions block by block. An incomplete block at the end of the file, e.g. after
+   * the server was stopped in the middle of writing, is skipped.
+   */
+  @NotNull
+  static Iterator<ResponsibilityPersistentInfo> iterator(@NotNull InputStream in) {
+    return new Iterator<ResponsibilityPersistentInfo>() {
+      private Iterator<ResponsibilityPersistentInfo> myBlock = Collections.emptyIterator();
+      private boolean myFinished;
+
+      @Override
+      public boolean hasNext() {
+        while (!myBlock.hasNext() && !myFinished) {
+          List<ResponsibilityPersistentInfo> next = nextBlock();
+          if (next == null) {
+            myFinished = true;
+          } else {
+            myBlock = next.iterator();
+          }
+        }
+        return myBlock.hasNext();
+      }
+
+      @Override
+      public ResponsibilityPersistentInfo next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return myBlock.next();
+      }
+
+      @Nullable
+      private List<ResponsibilityPersistentInfo> nextBlock() {
+        try {
+          return readBlock(in);
+        } catch (EOFException e) {
+          Constants.LOGGER.warn("Incomplete block at the end of the suggestions file is skipped");
+          return null;
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    };
+  }
+
+  @NotNull
+  private static byte[] encodePayload(@NotNull List<ResponsibilityPersistentInfo> suggestions) throws IOException {
+    Map<String, Integer> strings = new LinkedHashMap<>();
+    for (ResponsibilityPersistentInfo suggestion : suggestions) {
+      if (!isNumeric(suggestion.testNameId)) addString(strings, suggestion.testNameId);
+      if (!isNumeric(suggestion.investigatorId)) addString(strings, suggestion.investigatorId);
+      addString(strings, suggestion.reason);
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeVarLong(out, strings.size());
+    for (String string : strings.keySet()) {
+      writeString(out, string);
+    }
+
+    writeVarLong(out, suggestions.size());
+    for (ResponsibilityPersistentInfo suggestion : suggestions) {
+      boolean numericTestNameId = isNumeric(suggestion.testNameId);
+      boolean numericInvestigatorId = isNumeric(suggestion.investigatorId);
+      out.write((numericTestNameId ? NUMERIC_TEST_NAME_ID : 0) | (numericInvestigatorId ? NUMERIC_INVESTIGATOR_ID : 0));
+      writeId(out, strings, suggestion.testNameId, numericTestNameId);
+      writeId(out, strings, suggestion.investigatorId, numericInvestigatorId);
+      writeStringRef(out, strings, suggestion.reason);
+    }
+    return out.toByteArray();
+  }
+
+  @NotNull
+  private static List<ResponsibilityPersistentInfo> decodePayload(@NotNull byte[] payload) throws IOException {
+    InputStream in = new ByteArrayInputStream(payload);
+    int stringsCount = readLength(in);
+    String[] strings = new String[stringsCount];
+    for (int i = 0; i < stringsCount; i++) {
+      strings[i] = readString(in);
+    }
+
+    int recordsCount = readLength(in);
+    List<ResponsibilityPersistentInfo> result = new ArrayList<>(recordsCount);
+    for (int i = 0; i < recordsCount; i++) {
+      int flags = readByte(in);
+      String testNameId = readId(in, strings, (flags & NUMERIC_TEST_NAME_ID) != 0);
+      String investigatorId = readId(in, strings, (flags & NUMERIC_INVESTIGATOR_ID) != 0);
+      String reason = readStringRef(in, strings);
+      result.add(new ResponsibilityPersistentInfo(testNameId, investigatorId, reason));
+    }
+    return result;
+  }
+
+  private static boolean isNumeric(@Nullable String value) {
+    if (value == null || value.isEmpty() || value.length() > 20) return false;
+    char first = value.charAt(0);
+    if (first != '-' && (first < '0' || first > '9')) return false;
+    try {
+      // "007" is not numeric as it can't be restored from the number
+      return Long.toString(Long.parseLong(value)).equals(value);
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  private static void addString(@NotNull Map<String, Integer> strings, @Nullable String value) {
+    if (value != null) {
+      strings.putIfAbsent(value, strings.size());
+    }
+  }
+
+  private static void writeId(@NotNull OutputStream out,
+                              @NotNull Map<String, Integer> strings,
+                              @Nullable String id,
+                              boolean numeric) throws IOException {
+    if (numeric) {
+      long value = Long.parseLong(id);
+      writeVarLong(out, (value << 1) ^ (value >> 63));
+    } else {
+      writeStringRef(out, strings, id);
+    }
+  }
+
+  @Nullable
+  private static String readId(@NotNull InputStream in, @NotNull String[] strings, boolean numeric) throws IOException {
+    if (numeric) {
+      long zigzag = readVarLong(in);
+      return Long.toString((zigzag >>> 1) ^ -(zigzag & 1));
+    }
+    return readStringRef(in, strings);
+  }
+
+  /**
+   * References are shifted by one, zero stands for null.
+   */
+  private static void writeStringRef(@NotNull OutputStream out,
+                                     @NotNull Map<String, Integer> strings,
+                                     @Nullable String value) throws IOException {
+    writeVarLong(out, value == null ? 0 : strings.get(value) + 1);
+  }
+
+  @Nullable
+  private static String readStringRef(@NotNull InputStream in, @NotNull String[] strings) throws IOException {
+    long ref = readVarLong(in);
+    if (ref == 0) return null;
+    if (ref > strings.length) throw new IOException("Invalid string reference: " + ref);
+    return strings[(int)ref - 1];
+  }
+
+  private static void writeString(@NotNull OutputStream out, @NotNull String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarLong(out, bytes.length);
+    out.write(bytes);
+  }
+
+  @NotNull
+  private static String readString(@NotNull InputStream in) throws IOException {
+    return new String(readFully(in, readLength(in)), StandardCharsets.UTF_8);
+  }
+
+  private static void writeVarLong(@NotNull OutputStream out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int)((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int)value);
+  }
+
+  private static long readVarLong(@NotNull InputStream in) throws IOException {
+    long result = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = readByte(in);
+      result |= (long)(b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+    throw new IOException("Malformed varint");
+  }
+
+  private static int readLength(@NotNull InputStream in) throws IOException {
+    long length = readVarLong(in);
+    if (length < 0 || length > MAX_BLOCK_SIZE) {
+      throw new IOException("Invalid length: " + length);
+    }
+    return (int)length;
+  }
+
+  private static int readByte(@NotNull InputStream in) throws IOException {
+    int b = in.read();
+    if (b == -1) throw new EOFException();
+    return b;
+  }
+
+  @NotNull
+  private static byte[] readFully(@NotNull InputStream in, int length) throws IOException {
+    byte[] bytes = new byte[length];
+    new DataInputStream(in).readFully(bytes);
+    return bytes;
+  }
+
+  private static boolean skipFully(@NotNull InputStream in, long length) throws IOException {
+    long remaining = length;
+    while (remaining > 0) {
+      long skipped = in.skip(remaining);
+      if (skipped <= 0) {
+        if (in.read() == -1) return false;
+        skipped = 1;
+      }
+      remaining -= skipped;
+    }
+    return true;
+  }
+
+  @NotNull
+  private static byte[] deflate(@NotNull byte[] data) {
+    Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    try {
+      deflater.setInput(data);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+      byte[] buffer = new byte[4096];
+      while (!deflater.finished()) {
+        out.write(buffer, 0, deflater.deflate(buffer));
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  @NotNull
+  private static byte[] inflate(@NotNull byte[] data, int length) throws IOException {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(data);
+      byte[] result = new byte[length];
+      int inflated = 0;
+      while (inflated < length && !inflater.finished()) {
+        int count = inflater.inflate(result, inflated, length - inflated);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        inflated += count;
+      }
+      if (inflated != length) {
+        throw new IOException("Corrupted compressed block");
+      }
+      return result;
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupted compressed block", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private static class CountingInputStream extends FilterInputStream {
+    private long myCount;
+
+    CountingInputStream(@NotNull InputStream in) {
+      super(in);
+    }
+
+    long getCount() {
+      return myCount;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) myCount++;
+      return b;
+    }
+
+    @Override
+    public int read(@NotNull byte[] b, int off, int len) throws IOException {
+      int count = super.read(b, off, len);
+      if (count > 0) myCount += count;
+      return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      myCount += skipped;
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+  }
+}
@@ -1,77 +1,269 @@
-
-
 package jetbrains.buildServer.investigationsAutoAssigner.persistent;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.intellij.openapi.diagnostic.Logger;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
 import jetbrains.buildServer.serverSide.ServerSettings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+/**
+ * Suggestions are written in the compact binary format described in {@link SuggestionsBinaryFormat}:
+ * every append adds a block to the end of the file without reading it.
+ * Files written by the previous versions of the plugin are still read: a single JSON object with the list
+ * of suggestions, and a JSON header line followed by one JSON record per line. Such files are converted
+ * to the binary format on the first append.
+ * The artifact keeps its {@link Constants#ARTIFACT_FILENAME} name despite the binary content, so suggestions of
+ * builds processed by the previous versions are found at the same path; the format is detected by the content.
+ */
 public class SuggestionsDao {
+  private static final int LINES_FORMAT_VERSION = 2;
   private final Logger logger = Constants.LOGGER;
   private final ServerSettings serverSettings;
   private final Gson gson;
+  private final boolean compressionEnabled;
 
   public SuggestionsDao(@NotNull final ServerSettings settings) {
+    this(settings, CustomParameters.isSuggestionsCompressionEnabled());
+  }
+
+  SuggestionsDao(@NotNull final ServerSettings settings, boolean compressionEnabled) {
     this.serverSettings = settings;
     this.gson = new Gson();
+    this.compressionEnabled = compressionEnabled;
   }
 
+  /**
+   * Replaces the content of the file with the given suggestions.
+   */
   public void write(@NotNull Path resultsFilePath, @NotNull List<ResponsibilityPersistentInfo> suggestions) throws IOException {
-    ArtifactContent content = new ArtifactContent(serverSettings.getServerUUID(), suggestions);
-    try (BufferedWriter writer = Files.newBufferedWriter(resultsFilePath, StandardCharsets.UTF_8)) {
-      gson.toJson(content, writer);
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(resultsFilePath))) {
+      SuggestionsBinaryFormat.writeHeader(out, serverSettings.getServerUUID());
+      if (!suggestions.isEmpty()) {
+        SuggestionsBinaryFormat.writeBlock(out, suggestions, compressionEnabled);
+      }
     }
   }
 
+  /**
+   * Adds the suggestions to the end of the file, only the new records are written.
+   * An incomplete block left by an interrupted write is cut off first, otherwise it would swallow the new block.
+   */
+  public void append(@NotNull Path resultsFilePath, @NotNull List<ResponsibilityPersistentInfo> suggestions) throws IOException {
+    if (suggestions.isEmpty()) return;
+
+    if (isEmpty(resultsFilePath)) {
+      write(resultsFilePath, suggestions);
+      return;
+    }
+
+    long completeLength = getCompleteLength(resultsFilePath);
+    if (completeLength < 0) {
+      List<ResponsibilityPersistentInfo> existing = read(resultsFilePath);
+      write(resultsFilePath, existing);
+    } else if (completeLength < Files.size(resultsFilePath)) {
+      logger.warn("Incomplete block at the end of the suggestions file is removed: " + resultsFilePath);
+      try (FileChannel channel = FileChannel.open(resultsFilePath, StandardOpenOption.WRITE)) {
+        channel.truncate(completeLength);
+      }
+    }
+
+    try (OutputStream out = Files.newOutputStream(resultsFilePath, StandardOpenOption.APPEND)) {
+      SuggestionsBinaryFormat.writeBlock(out, suggestions, compressionEnabled);
+    }
+  }
+
+  public boolean isEmpty(@Nullable Path resultsFilePath) throws IOException {
+    return resultsFilePath == null || !Files.exists(resultsFilePath) || Files.size(resultsFilePath) == 0;
+  }
+
   @NotNull
   public List<ResponsibilityPersistentInfo> read(@Nullable Path resultsFilePath) throws IOException {
-    if (resultsFilePath == null || !Files.exists(resultsFilePath) || Files.size(resultsFilePath) == 0) {
+    try (Stream<ResponsibilityPersistentInfo> suggestions = stream(resultsFilePath)) {
+      return suggestions.collect(Collectors.toList());
+    } catch (UncheckedIOException | JsonParseException e) {
+      logger.warn("Failed to read suggestions from file: " + resultsFilePath, e);
       return Collections.emptyList();
     }
+  }
 
-    try (BufferedReader reader = Files.newBufferedReader(resultsFilePath)) {
-      return Optional.ofNullable(gson.fromJson(reader, ArtifactContent.class))
-                     .filter(this::isValidContent)
-                     .map(content -> content.suggestions)
-                     .orElse(Collections.emptyList());
-    } catch (Exception e) {
+  /**
+   * Reads suggestions one by one in the order they were written. The stream should be closed after use.
+   */
+  @NotNull
+  public Stream<ResponsibilityPersistentInfo> stream(@Nullable Path resultsFilePath) throws IOException {
+    if (isEmpty(resultsFilePath)) {
+      return Stream.empty();
+    }
+
+    InputStream in = new BufferedInputStream(Files.newInputStream(resultsFilePath));
+    try {
+      if (skipMagic(in)) {
+        String serverUUID = readServerUUID(in);
+        if (!isValidServer(serverUUID)) {
+          in.close();
+          return Stream.empty();
+        }
+
+        Spliterator<ResponsibilityPersistentInfo> spliterator =
+          Spliterators.spliteratorUnknownSize(SuggestionsBinaryFormat.iterator(in),
+                                              Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(() -> closeQuietly(in));
+      }
+
+      BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+      Header header = parseHeader(reader.readLine());
+      if (header == null) {
+        reader.close();
+        return readLegacy(resultsFilePath).stream();
+      }
+
+      if (!isValidServer(header.serverUUID)) {
+        reader.close();
+        return Stream.empty();
+      }
+
+      return reader.lines()
+                   .filter(line -> !line.isEmpty())
+                   .map(line -> gson.fromJson(line, ResponsibilityPersistentInfo.class))
+                   .filter(Objects::nonNull)
+                   .onClose(() -> closeQuietly(reader));
+    } catch (IOException | RuntimeException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Skips the magic bytes of the binary format.
+   * @return false if the file is in one of the JSON formats, the stream is reset to its beginning in this case.
+   */
+  private boolean skipMagic(@NotNull InputStream in) throws IOException {
+    byte[] magic = new byte[SuggestionsBinaryFormat.getMagicLength()];
+    in.mark(magic.length);
+    int read = 0;
+    int count;
+    while (read < magic.length && (count = in.read(magic, read, magic.length - read)) != -1) {
+      read += count;
+    }
+
+    if (SuggestionsBinaryFormat.isMagic(magic, read)) {
+      return true;
+    }
+    in.reset();
+    return false;
+  }
+
+  /**
+   * @return length of the header and the complete blocks of the file or -1 if the file isn't in the binary format
+   * of this server.
+   */
+  private long getCompleteLength(@NotNull Path resultsFilePath) throws IOException {
+    String serverUUID = serverSettings.getServerUUID();
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(resultsFilePath))) {
+      if (!skipMagic(in) || !serverUUID.equals(readServerUUID(in))) {
+        return -1;
+      }
+      return SuggestionsBinaryFormat.getHeaderLength(serverUUID) + SuggestionsBinaryFormat.skipCompleteBlocks(in);
+    }
+  }
+
+  @Nullable
+  private String readServerUUID(@NotNull InputStream in) throws IOException {
+    try {
+      return SuggestionsBinaryFormat.readServerUUID(in);
+    } catch (EOFException e) {
+      logger.warn("Suggestions file has an incomplete header");
+      return null;
+    }
+  }
+
+  /**
+   * @return header of the file or null if the file is a single JSON object.
+   */
+  @Nullable
+  private Header parseHeader(@Nullable String firstLine) {
+    if (firstLine == null) return null;
+    try {
+      Header header = gson.fromJson(firstLine, Header.class);
+      return header != null && header.version != null && header.version == LINES_FORMAT_VERSION ? header : null;
+    } catch (JsonParseException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Reads a single JSON object file. The records are returned in the order they were written like in other formats.
+   */
+  @NotNull
+  private List<ResponsibilityPersistentInfo> readLegacy(@NotNull Path resultsFilePath) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(resultsFilePath, StandardCharsets.UTF_8)) {
+      LegacyContent content = gson.fromJson(reader, LegacyContent.class);
+      if (content == null || content.suggestions == null || !isValidServer(content.serverUUID)) {
+        return Collections.emptyList();
+      }
+      // new suggestions were put before the existing ones
+      Collections.reverse(content.suggestions);
+      return content.suggestions;
+    } catch (JsonParseException e) {
       logger.warn("Failed to read suggestions from file: " + resultsFilePath, e);
       return Collections.emptyList();
     }
   }
 
-  private boolean isValidContent(@NotNull ArtifactContent content) {
-    if (content.suggestions == null || content.serverUUID == null) {
+  private boolean isValidServer(@Nullable String serverUUID) {
+    if (serverUUID == null) {
       return false;
     }
 
-    if (!serverSettings.getServerUUID().equals(content.serverUUID)) {
-      logger.warn("Server UUID mismatch: expected " + serverSettings.getServerUUID() + ", got " + content.serverUUID);
+    if (!serverSettings.getServerUUID().equals(serverUUID)) {
+      logger.warn("Server UUID mismatch: expected " + serverSettings.getServerUUID() + ", got " + serverUUID);
       return false;
     }
 
     return true;
   }
 
-  private static class ArtifactContent {
+  private void closeQuietly(@NotNull AutoCloseable closeable) {
+    try {
+      closeable.close();
+    } catch (Exception e) {
+      logger.debug("Failed to close suggestions file", e);
+    }
+  }
+
+  private static class Header {
     String serverUUID;
-    List<ResponsibilityPersistentInfo> suggestions;
+    // is absent in the single object files
+    Integer version;
+  }
 
-    ArtifactContent(String serverUUID, List<ResponsibilityPersistentInfo> suggestions) {
-      this.serverUUID = serverUUID;
-      this.suggestions = suggestions;
-    }
+  private static class LegacyContent {
+    String serverUUID;
+    List<ResponsibilityPersistentInfo> suggestions;
   }
 }
@@ -0,0 +1,138 @@
+package jetbrains.buildServer.investigationsAutoAssigner.persistent;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Keeps suggestions of recently viewed builds indexed by test name id, so showing details of a test
+ * doesn't parse the whole suggestions file of the build again.
+ * The cache is bounded by the number of files, the least recently used ones are evicted first.
+ * An index is rebuilt when the size or the modification time of its file changes, as suggestions are
+ * appended to the file while the build is running.
+ */
+class SuggestionsIndexCache {
+  private final int myMaxSize;
+  private final Map<Path, SuggestionsIndex> myCache;
+
+  SuggestionsIndexCache(final int maxSize) {
+    myMaxSize = maxSize;
+    myCache = new LinkedHashMap<Path, SuggestionsIndex>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Path, SuggestionsIndex> eldest) {
+        return size() > myMaxSize;
+      }
+    };
+  }
+
+  @NotNull
+  SuggestionsIndex get(@NotNull final Path path, @NotNull final SuggestionsLoader loader) throws IOException {
+    if (myMaxSize <= 0) {
+      return SuggestionsIndex.load(null, loader);
+    }
+
+    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    FileVersion version = new FileVersion(attributes.size(), attributes.lastModifiedTime());
+    synchronized (myCache) {
+      SuggestionsIndex index = myCache.get(path);
+      if (index != null && version.equals(index.myVersion)) {
+        return index;
+      }
+    }
+
+    // the file is read outside of the lock, concurrent requests for the same file may load it twice
+    SuggestionsIndex index = SuggestionsIndex.load(version, loader);
+    synchronized (myCache) {
+      myCache.put(path, index);
+    }
+    return index;
+  }
+
+  int size() {
+    synchronized (myCache) {
+      return myCache.size();
+    }
+  }
+
+  @FunctionalInterface
+  interface SuggestionsLoader {
+    @NotNull
+    Stream<ResponsibilityPersistentInfo> load() throws IOException;
+  }
+
+  static final class SuggestionsIndex {
+    private final FileVersion myVersion;
+    private final Map<Long, List<ResponsibilityPersistentInfo>> mySuggestions;
+
+    private SuggestionsIndex(@Nullable final FileVersion version, @NotNull final Map<Long, List<ResponsibilityPersistentInfo>> suggestions) {
+      myVersion = version;
+      mySuggestions = suggestions;
+    }
+
+    @NotNull
+    static SuggestionsIndex load(@Nullable final FileVersion version, @NotNull final SuggestionsLoader loader) throws IOException {
+      Map<Long, List<ResponsibilityPersistentInfo>> suggestions = new HashMap<>();
+      try (Stream<ResponsibilityPersistentInfo> stream = loader.load()) {
+        stream.forEach(info -> {
+          Long testNameId = parseTestNameId(info);
+          if (testNameId != null) {
+            suggestions.computeIfAbsent(testNameId, id -> new ArrayList<>(1)).add(info);
+          }
+        });
+      }
+      return new SuggestionsIndex(version, suggestions);
+    }
+
+    /**
+     * @return suggestions for the test in the order they were written.
+     */
+    @NotNull
+    List<ResponsibilityPersistentInfo> find(final long testNameId) {
+      return mySuggestions.getOrDefault(testNameId, Collections.emptyList());
+    }
+
+    @Nullable
+    private static Long parseTestNameId(@NotNull final ResponsibilityPersistentInfo info) {
+      if (info.testNameId == null) return null;
+      try {
+        return Long.parseLong(info.testNameId);
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+  }
+
+  private static final class FileVersion {
+    private final long mySize;
+    private final FileTime myLastModified;
+
+    private FileVersion(final long size, @NotNull final FileTime lastModified) {
+      mySize = size;
+      myLastModified = lastModified;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) return true;
+      if (!(o instanceof FileVersion)) return false;
+      FileVersion that = (FileVersion)o;
+      return mySize == that.mySize && myLastModified.equals(that.myLastModified);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Long.hashCode(mySize) + myLastModified.hashCode();
+    }
+  }
+}
@@ -0,0 +1,322 @@
+package jetbrains.buildServer.investigationsAutoAssigner.persistent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Rolling statistics by project and heuristic. Every series keeps fixed-size rings of per-minute buckets
+ * for the last hour and per-hour buckets for the last week, and the number of series is limited, so the memory
+ * and the file taken by the statistics don't grow with time. Values reported after the limit is reached
+ * are counted in the series of the {@link #OTHER_PROJECTS} project.
+ */
+class TimeSeriesStatistics {
+  static final int MINUTES = 60;
+  static final int HOURS = 7 * 24;
+  static final String NO_HEURISTIC = "";
+  static final String OTHER_PROJECTS = "_Other";
+  static final String VERSION = "1";
+  private final int myMaxSeries;
+  private final LongSupplier myClock;
+  private final Map<SeriesKey, Series> mySeries = new ConcurrentHashMap<>();
+  private final LongAdder myModificationsCount = new LongAdder();
+
+  TimeSeriesStatistics(final int maxSeries) {
+    this(maxSeries, System::currentTimeMillis);
+  }
+
+  TimeSeriesStatistics(final int maxSeries, @NotNull final LongSupplier clock) {
+    myMaxSeries = maxSeries;
+    myClock = clock;
+  }
+
+  void increase(@NotNull String projectId,
+                @Nullable String heuristicId,
+                @NotNull StatisticsValuesEnum value,
+                long delta) {
+    if (delta == 0 || myMaxSeries <= 0) return;
+
+    SeriesKey key = new SeriesKey(projectId, heuristicId != null ? heuristicId : NO_HEURISTIC, value);
+    // a series removed by a concurrent compaction doesn't accept values, they are added to a new series then
+    Series series = getOrCreateSeries(key);
+    while (!series.add(currentMinute(), delta)) {
+      mySeries.remove(series.myKey, series);
+      series = getOrCreateSeries(key);
+    }
+    myModificationsCount.increment();
+  }
+
+  @NotNull
+  private Series getOrCreateSeries(@NotNull SeriesKey key) {
+    Series series = mySeries.get(key);
+    if (series != null) return series;
+
+    if (mySeries.size() >= myMaxSeries) {
+      key = new SeriesKey(OTHER_PROJECTS, key.heuristicId, key.value);
+    }
+    return mySeries.computeIfAbsent(key, Series::new);
+  }
+
+  /**
+   * @param projectId   project to count or null for all projects
+   * @param heuristicId heuristic to count or null for all heuristics
+   * @return sum of the values for the last given number of minutes, not more than an hour
+   */
+  long getMinutesSum(@NotNull StatisticsValuesEnum value,
+                     @Nullable String projectId,
+                     @Nullable String heuristicId,
+                     int minutes) {
+    long now = currentMinute();
+    long sum = 0;
+    for (Map.Entry<SeriesKey, Series> entry : mySeries.entrySet()) {
+      if (entry.getKey().matches(value, projectId, heuristicId)) {
+        sum += entry.getValue().sumMinutes(now, Math.min(minutes, MINUTES));
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * @return sum of the values for the last given number of hours including the current one, not more than a week
+   */
+  long getHoursSum(@NotNull StatisticsValuesEnum value,
+                   @Nullable String projectId,
+                   @Nullable String heuristicId,
+                   int hours) {
+    long now = currentMinute() / MINUTES;
+    long sum = 0;
+    for (Map.Entry<SeriesKey, Series> entry : mySeries.entrySet()) {
+      if (entry.getKey().matches(value, projectId, heuristicId)) {
+        sum += entry.getValue().sumHours(now, Math.min(hours, HOURS));
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * @return sums of the values for the last given number of hours by heuristic, values without a heuristic are skipped
+   */
+  @NotNull
+  Map<String, Long> getHoursSumByHeuristic(@NotNull StatisticsValuesEnum value, int hours) {
+    long now = currentMinute() / MINUTES;
+    Map<String, Long> result = new TreeMap<>();
+    for (Map.Entry<SeriesKey, Series> entry : mySeries.entrySet()) {
+      SeriesKey key = entry.getKey();
+      if (key.value == value && !NO_HEURISTIC.equals(key.heuristicId)) {
+        result.merge(key.heuristicId, entry.getValue().sumHours(now, Math.min(hours, HOURS)), Long::sum);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Removes the series without values for the last week.
+   */
+  void compact() {
+    long nowHour = currentMinute() / MINUTES;
+    for (Series series : mySeries.values()) {
+      if (series.markRemovedIfExpired(nowHour)) {
+        mySeries.remove(series.myKey, series);
+      }
+    }
+  }
+
+  int getSeriesCount() {
+    return mySeries.size();
+  }
+
+  /**
+   * @return number of changes, it is used to find out whether the statistics should be saved.
+   */
+  long getModificationsCount() {
+    return myModificationsCount.sum();
+  }
+
+  @NotNull
+  Data toData() {
+    long now = currentMinute();
+    Data data = new Data();
+    data.version = VERSION;
+    data.savedAtMinute = now;
+    data.series = new ArrayList<>(mySeries.size());
+    mySeries.forEach((key, series) -> {
+      SeriesData seriesData = new SeriesData();
+      seriesData.projectId = key.projectId;
+      seriesData.heuristicId = key.heuristicId;
+      seriesData.value = key.value;
+      series.copyTo(now, seriesData);
+      data.series.add(seriesData);
+    });
+    return data;
+  }
+
+  void load(@NotNull Data data) {
+    if (!VERSION.equals(data.version) || data.series == null) return;
+
+    for (SeriesData seriesData : data.series) {
+      if (seriesData.projectId == null || seriesData.value == null || mySeries.size() >= myMaxSeries) continue;
+      String heuristicId = seriesData.heuristicId != null ? seriesData.heuristicId : NO_HEURISTIC;
+      Series series = mySeries.computeIfAbsent(new SeriesKey(seriesData.projectId, heuristicId, seriesData.value),
+                                               Series::new);
+      series.addFrom(data.savedAtMinute, seriesData);
+    }
+  }
+
+  private long currentMinute() {
+    return TimeUnit.MILLISECONDS.toMinutes(myClock.getAsLong());
+  }
+
+  /**
+   * Serialized form of the statistics. Counts are ordered from the oldest to the latest bucket,
+   * the latest one is the bucket of {@link #savedAtMinute}.
+   */
+  static class Data {
+    String version;
+    long savedAtMinute;
+    List<SeriesData> series;
+  }
+
+  static class SeriesData {
+    String projectId;
+    String heuristicId;
+    StatisticsValuesEnum value;
+    long[] minutes;
+    long[] hours;
+  }
+
+  private static final class SeriesKey {
+    private final String projectId;
+    private final String heuristicId;
+    private final StatisticsValuesEnum value;
+    private final int hash;
+
+    private SeriesKey(@NotNull String projectId, @NotNull String heuristicId, @NotNull StatisticsValuesEnum value) {
+      this.projectId = projectId;
+      this.heuristicId = heuristicId;
+      this.value = value;
+      this.hash = Objects.hash(projectId, heuristicId, value);
+    }
+
+    private boolean matches(@NotNull StatisticsValuesEnum value, @Nullable String projectId, @Nullable String heuristicId) {
+      return this.value == value &&
+             (projectId == null || projectId.equals(this.projectId)) &&
+             (heuristicId == null || heuristicId.equals(this.heuristicId));
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) return true;
+      if (!(o instanceof SeriesKey)) return false;
+      SeriesKey that = (SeriesKey)o;
+      return value == that.value && projectId.equals(that.projectId) && heuristicId.equals(that.heuristicId);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * A bucket is reused when its time comes again, so it keeps the time it was last used for along with the count.
+   * A series is marked as removed under its lock, so no value can be added to it once compaction decided to drop it.
+   */
+  private static final class Series {
+    private final SeriesKey myKey;
+    private final long[] myMinuteStamps = new long[MINUTES];
+    private final long[] myMinuteCounts = new long[MINUTES];
+    private final long[] myHourStamps = new long[HOURS];
+    private final long[] myHourCounts = new long[HOURS];
+    private boolean myRemoved = false;
+
+    private Series(@NotNull SeriesKey key) {
+      myKey = key;
+    }
+
+    /**
+     * @return false if the series was removed, the value is not added then.
+     */
+    private synchronized boolean add(long minute, long delta) {
+      if (myRemoved) return false;
+
+      addToBucket(myMinuteStamps, myMinuteCounts, minute, delta);
+      addToBucket(myHourStamps, myHourCounts, minute / MINUTES, delta);
+      return true;
+    }
+
+    private synchronized long sumMinutes(long nowMinute, int minutes) {
+      return sum(myMinuteStamps, myMinuteCounts, nowMinute, minutes);
+    }
+
+    private synchronized long sumHours(long nowHour, int hours) {
+      return sum(myHourStamps, myHourCounts, nowHour, hours);
+    }
+
+    private synchronized boolean markRemovedIfExpired(long nowHour) {
+      if (sum(myHourStamps, myHourCounts, nowHour, HOURS) == 0) {
+        myRemoved = true;
+      }
+      return myRemoved;
+    }
+
+    private synchronized void copyTo(long nowMinute, @NotNull SeriesData data) {
+      data.minutes = copy(myMinuteStamps, myMinuteCounts, nowMinute);
+      data.hours = copy(myHourStamps, myHourCounts, nowMinute / MINUTES);
+    }
+
+    private synchronized void addFrom(long savedAtMinute, @NotNull SeriesData data) {
+      if (data.minutes != null) {
+        for (int i = 0; i < data.minutes.length; i++) {
+          addToBucket(myMinuteStamps, myMinuteCounts, savedAtMinute - data.minutes.length + 1 + i, data.minutes[i]);
+        }
+      }
+      if (data.hours != null) {
+        long savedAtHour = savedAtMinute / MINUTES;
+        for (int i = 0; i < data.hours.length; i++) {
+          addToBucket(myHourStamps, myHourCounts, savedAtHour - data.hours.length + 1 + i, data.hours[i]);
+        }
+      }
+    }
+
+    private static void addToBucket(@NotNull long[] stamps, @NotNull long[] counts, long time, long delta) {
+      if (delta == 0 || time < 0) return;
+      int index = (int)(time % stamps.length);
+      if (stamps[index] != time) {
+        if (stamps[index] > time) return; // the bucket is already taken by a later time
+        stamps[index] = time;
+        counts[index] = 0;
+      }
+      counts[index] += delta;
+    }
+
+    private static long sum(@NotNull long[] stamps, @NotNull long[] counts, long now, int period) {
+      long sum = 0;
+      for (int i = 0; i < stamps.length; i++) {
+        if (stamps[i] <= now && stamps[i] > now - period) {
+          sum += counts[i];
+        }
+      }
+      return sum;
+    }
+
+    @NotNull
+    private static long[] copy(@NotNull long[] stamps, @NotNull long[] counts, long now) {
+      long[] result = new long[stamps.length];
+      for (int i = 0; i < stamps.length; i++) {
+        long age = now - stamps[i];
+        if (age >= 0 && age < stamps.length) {
+          result[stamps.length - 1 - (int)age] = counts[i];
+        }
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,189 @@
+package jetbrains.buildServer.investigationsAutoAssigner.processing;
+
+import java.util.*;
+import jetbrains.buildServer.vcs.SVcsModification;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Finds files of the given changes mentioned in a problem text.
+ * Patterns of all changed files (see {@link ModificationAnalyzerFactory#getPatterns(String)}) are compiled into
+ * an Aho-Corasick automaton once, so every problem text is scanned in a single pass regardless of the number of files.
+ * The matcher is immutable after creation and is kept for the whole processing of a build.
+ */
+public class BrokenFileMatcher {
+  private final List<SVcsModification> myChanges;
+  private final List<PatternOwner> myPatternOwners = new ArrayList<>();
+  private final Node myRoot = new Node();
+
+  BrokenFileMatcher(@NotNull final List<SVcsModification> changes,
+                    @NotNull final List<List<FilePatternsCache.FilePatterns>> filePatterns) {
+    myChanges = changes;
+    for (int changeIndex = 0; changeIndex < changes.size(); changeIndex++) {
+      List<FilePatternsCache.FilePatterns> files = filePatterns.get(changeIndex);
+      for (int fileIndex = 0; fileIndex < files.size(); fileIndex++) {
+        FilePatternsCache.FilePatterns file = files.get(fileIndex);
+        for (String pattern : file.getPatterns()) {
+          addPattern(pattern, new PatternOwner(changeIndex, fileIndex, file.getFilePath()));
+        }
+      }
+    }
+    buildFailureLinks();
+  }
+
+  /**
+   * @return for every change with a file mentioned in the text, the first such file of the change.
+   * Matches are ordered as the changes.
+   */
+  @NotNull
+  public List<Match> findBrokenFiles(@NotNull final String problemText) {
+    if (myPatternOwners.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    PatternOwner[] firstFileOfChange = new PatternOwner[myChanges.size()];
+    Node state = myRoot;
+    for (int i = 0; i < problemText.length(); i++) {
+      char c = problemText.charAt(i);
+      Node next;
+      while ((next = state.getChild(c)) == null && state != myRoot) {
+        state = state.myFailure;
+      }
+      state = next != null ? next : myRoot;
+
+      for (Node output = state.myOwnPatterns.length == 0 ? state.myOutput : state;
+           output != null;
+           output = output.myOutput) {
+        for (int patternId : output.myOwnPatterns) {
+          PatternOwner owner = myPatternOwners.get(patternId);
+          PatternOwner current = firstFileOfChange[owner.myChangeIndex];
+          if (current == null || owner.myFileIndex < current.myFileIndex) {
+            firstFileOfChange[owner.myChangeIndex] = owner;
+          }
+        }
+      }
+    }
+
+    List<Match> result = new ArrayList<>();
+    for (PatternOwner owner : firstFileOfChange) {
+      if (owner != null) {
+        result.add(new Match(myChanges.get(owner.myChangeIndex), owner.myFilePath));
+      }
+    }
+    return result;
+  }
+
+  private void addPattern(@NotNull final String pattern, @NotNull final PatternOwner owner) {
+    Node node = myRoot;
+    for (int i = 0; i < pattern.length(); i++) {
+      node = node.getOrAddChild(pattern.charAt(i));
+    }
+    node.addPattern(myPatternOwners.size());
+    myPatternOwners.add(owner);
+  }
+
+  private void buildFailureLinks() {
+    Deque<Node> queue = new ArrayDeque<>();
+    for (Node child : myRoot.myChildren) {
+      child.myFailure = myRoot;
+      queue.add(child);
+    }
+
+    while (!queue.isEmpty()) {
+      Node node = queue.poll();
+      for (int i = 0; i < node.myKeys.length; i++) {
+        char c = node.myKeys[i];
+        Node child = node.myChildren[i];
+
+        Node failure = node.myFailure;
+        Node failureChild;
+        while ((failureChild = failure.getChild(c)) == null && failure != myRoot) {
+          failure = failure.myFailure;
+        }
+        child.myFailure = failureChild != null && failureChild != child ? failureChild : myRoot;
+        child.myOutput = child.myFailure.myOwnPatterns.length == 0 ? child.myFailure.myOutput : child.myFailure;
+        queue.add(child);
+      }
+    }
+  }
+
+  public static class Match {
+    private final SVcsModification myChange;
+    private final String myFilePath;
+
+    public Match(@NotNull final SVcsModification change, @NotNull final String filePath) {
+      myChange = change;
+      myFilePath = filePath;
+    }
+
+    @NotNull
+    public SVcsModification getChange() {
+      return myChange;
+    }
+
+    @NotNull
+    public String getFilePath() {
+      return myFilePath;
+    }
+  }
+
+  private static class PatternOwner {
+    private final int myChangeIndex;
+    private final int myFileIndex;
+    private final String myFilePath;
+
+    private PatternOwner(final int changeIndex, final int fileIndex, @NotNull final String filePath) {
+      myChangeIndex = changeIndex;
+      myFileIndex = fileIndex;
+      myFilePath = filePath;
+    }
+  }
+
+  private static class Node {
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final int[] NO_PATTERNS = new int[0];
+
+    // children are kept in arrays sorted by their characters, most nodes have a single child
+    private char[] myKeys = NO_KEYS;
+    private Node[] myChildren = NO_CHILDREN;
+    private int[] myOwnPatterns = NO_PATTERNS;
+    private Node myFailure;
+    // the nearest node on the failure chain which ends a pattern
+    private Node myOutput;
+
+    @Nullable
+    private Node getChild(final char c) {
+      int index = Arrays.binarySearch(myKeys, c);
+      return index >= 0 ? myChildren[index] : null;
+    }
+
+    @NotNull
+    private Node getOrAddChild(final char c) {
+      int index = Arrays.binarySearch(myKeys, c);
+      if (index >= 0) {
+        return myChildren[index];
+      }
+
+      int insertionPoint = -index - 1;
+      char[] keys = new char[myKeys.length + 1];
+      Node[] children = new Node[myChildren.length + 1];
+      System.arraycopy(myKeys, 0, keys, 0, insertionPoint);
+      System.arraycopy(myChildren, 0, children, 0, insertionPoint);
+      System.arraycopy(myKeys, insertionPoint, keys, insertionPoint + 1, myKeys.length - insertionPoint);
+      System.arraycopy(myChildren, insertionPoint, children, insertionPoint + 1, myChildren.length - insertionPoint);
+
+      Node child = new Node();
+      keys[insertionPoint] = c;
+      children[insertionPoint] = child;
+      myKeys = keys;
+      myChildren = children;
+      return child;
+    }
+
+    private void addPattern(final int patternId) {
+      myOwnPatterns = Arrays.copyOf(myOwnPatterns, myOwnPatterns.length + 1);
+      myOwnPatterns[myOwnPatterns.length - 1] = patternId;
+    }
+  }
+}
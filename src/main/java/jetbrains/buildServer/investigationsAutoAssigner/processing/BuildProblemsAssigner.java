@@ -78,7 +78,8 @@ public class BuildProblemsAssigner implements BaseAssigner {
             responsibility.getAssignDescription(linkToBuild), getRemoveMethod(sBuild.getBuildType()))
         );
 
-        myStatisticsReporter.reportAssignedInvestigations(buildProblemList.size(), responsibility);
+        myStatisticsReporter.reportAssignedInvestigations(buildProblemList.size(), responsibility, sProject.getProjectId(),
+                                                          heuristicsResult.getHeuristicId(responsibility));
       }
     }
   }
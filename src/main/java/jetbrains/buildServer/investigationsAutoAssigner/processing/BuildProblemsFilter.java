@@ -6,16 +6,17 @@ import com.intellij.openapi.diagnostic.Logger;
 import java.util.*;
 import java.util.stream.Collectors;
 import jetbrains.buildServer.BuildProblemTypes;
+import jetbrains.buildServer.investigationsAutoAssigner.common.BuildSnapshot;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.investigationsAutoAssigner.common.FailedBuildInfo;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.BuildProblemUtils;
-import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.InvestigationsManager;
 import jetbrains.buildServer.messages.ErrorData;
 import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.SProject;
 import jetbrains.buildServer.serverSide.problems.BuildProblem;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -28,28 +29,26 @@ public class BuildProblemsFilter {
     new HashSet<>(Arrays.asList(ErrorData.SNAPSHOT_DEPENDENCY_ERROR_BUILD_PROCEEDS_TYPE,
                                 ErrorData.SNAPSHOT_DEPENDENCY_ERROR_TYPE)));
   private final BuildProblemUtils myBuildProblemUtils;
-  private final CustomParameters myCustomParameters;
   private final InvestigationsManager myInvestigationsManager;
 
   public BuildProblemsFilter(@NotNull final InvestigationsManager investigationsManager,
-                             @NotNull final BuildProblemUtils buildProblemUtils,
-                             @NotNull final CustomParameters customParameters) {
+                             @NotNull final BuildProblemUtils buildProblemUtils) {
     myInvestigationsManager = investigationsManager;
     myBuildProblemUtils = buildProblemUtils;
-    myCustomParameters = customParameters;
   }
 
   List<BuildProblem> apply(final FailedBuildInfo failedBuildInfo,
                            final SProject sProject,
                            final List<BuildProblem> buildProblems) {
     SBuild sBuild = failedBuildInfo.getBuild();
+    BuildSnapshot buildSnapshot = failedBuildInfo.getBuildSnapshot();
     if (LOGGER.isDebugEnabled()) {
       LOGGER.debug(String.format("Filtering of build problems for build id:%s started", sBuild.getBuildId()));
     }
 
     List<BuildProblem> filteredBuildProblems = buildProblems.stream()
                                                             .filter(failedBuildInfo::checkNotProcessed)
-                                                            .filter(problem -> isApplicable(sProject, sBuild, problem))
+                                                            .filter(problem -> isApplicable(sProject, sBuild, buildSnapshot, problem))
                                                             .limit(failedBuildInfo.getLimitToProcess())
                                                             .collect(Collectors.toList());
 
@@ -64,33 +63,66 @@ public class BuildProblemsFilter {
                                         final SProject sProject,
                                         final List<BuildProblem> allBuildProblems) {
     SBuild sBuild = failedBuildInfo.getBuild();
+    BuildSnapshot buildSnapshot = failedBuildInfo.getBuildSnapshot();
     if (LOGGER.isDebugEnabled()) {
       LOGGER.debug(String.format("Filtering before assign of build problems for build id:%s started", sBuild.getBuildId()));
     }
 
     return allBuildProblems.stream()
-                           .filter(buildProblem -> isApplicable(sProject, sBuild, buildProblem))
+                           .filter(buildProblem -> isApplicable(sProject, sBuild, buildSnapshot, buildProblem))
                            .collect(Collectors.toList());
   }
 
+  /**
+   * Cheap version of {@link #getStillApplicable} for problems which were filtered during the same processing pass:
+   * only mutes and investigations are checked again as the rest of the checked state cannot change in between.
+   */
+  List<BuildProblem> revalidate(final FailedBuildInfo failedBuildInfo,
+                                final SProject sProject,
+                                final List<BuildProblem> buildProblems) {
+    SBuild sBuild = failedBuildInfo.getBuild();
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug(String.format("Revalidation before assign of build problems for build id:%s started", sBuild.getBuildId()));
+    }
+
+    return buildProblems.stream()
+                        .filter(problem -> {
+                          String reason = null;
+                          if (problem.isMuted()) {
+                            reason = "is muted";
+                          } else if (myInvestigationsManager.checkUnderInvestigation(sProject, sBuild, problem)) {
+                            reason = "is already under an investigation";
+                          }
+                          return reportApplicability(sBuild, problem, reason);
+                        })
+                        .collect(Collectors.toList());
+  }
+
   private boolean isApplicable(@NotNull final SProject project,
                                @NotNull final SBuild sBuild,
+                               @NotNull final BuildSnapshot buildSnapshot,
                                @NotNull final BuildProblem problem) {
     String reason = null;
     String buildProblemType = problem.getBuildProblemData().getType();
 
     if (problem.isMuted()) {
       reason = "is muted";
-    } else if (!myBuildProblemUtils.isNew(problem)) {
+    } else if (!myBuildProblemUtils.isNew(problem, buildSnapshot)) {
       reason = "occurs not for the first time";
     } else if (myInvestigationsManager.checkUnderInvestigation(project, sBuild, problem)) {
       reason = "is already under an investigation";
     } else if (BuildProblemTypes.TC_FAILED_TESTS_TYPE.equals(problem.getBuildProblemData().getType())) {
       reason = "has unsupported failed tests build problem type";
-    } else if (myCustomParameters.getBuildProblemTypesToIgnore(sBuild).contains(buildProblemType)) {
+    } else if (buildSnapshot.getSettings().getBuildProblemTypesToIgnore().contains(buildProblemType)) {
       reason = "is among build problem types to ignore";
     }
 
+    return reportApplicability(sBuild, problem, reason);
+  }
+
+  private boolean reportApplicability(@NotNull final SBuild sBuild,
+                                      @NotNull final BuildProblem problem,
+                                      @Nullable final String reason) {
     boolean isApplicable = reason == null;
     if (LOGGER.isDebugEnabled()) {
       LOGGER.debug(String.format("Build problem id:%s:%s is %s.%s",
@@ -10,6 +10,7 @@ import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.investigationsAutoAssigner.common.FailedBuildInfo;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.AggregationLogger;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ProcessingMetrics;
 import jetbrains.buildServer.serverSide.BuildEx;
 import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.SProject;
@@ -59,12 +60,13 @@ public class DelayedAssignmentsProcessor extends BaseProcessor {
                           .collect(Collectors.toList());
 
     List<BuildProblem> applicableProblems =
-      ((BuildEx)sBuild).getBuildProblems()
-                       .stream()
-                       .filter(buildProblem -> heuristicsResult.getResponsibility(buildProblem) != null &&
-                                               nextBuildProblemIdentities.contains(buildProblem.getBuildProblemData().getIdentity()) &&
-                                               BuildProblemTypes.TC_EXIT_CODE_TYPE.equals(buildProblem.getBuildProblemData().getType()))
-                       .collect(Collectors.toList());
+      failedBuildInfo.getBuildSnapshot()
+                     .getBuildProblems()
+                     .stream()
+                     .filter(buildProblem -> heuristicsResult.getResponsibility(buildProblem) != null &&
+                                             nextBuildProblemIdentities.contains(buildProblem.getBuildProblemData().getIdentity()) &&
+                                             BuildProblemTypes.TC_EXIT_CODE_TYPE.equals(buildProblem.getBuildProblemData().getType()))
+                     .collect(Collectors.toList());
 
     logProblemsNumber(sBuild, applicableFailedTests, applicableProblems);
     List<STestRun> testsForAssign = myFailedTestFilter.getStillApplicable(failedBuildInfo, sProject, applicableFailedTests);
@@ -72,8 +74,13 @@ public class DelayedAssignmentsProcessor extends BaseProcessor {
       myBuildProblemsFilter.getStillApplicable(failedBuildInfo, sProject, applicableProblems);
     logChangedProblemsNumber(sBuild, applicableFailedTests, testsForAssign, applicableProblems, problemsForAssign);
 
+    long start = ProcessingMetrics.start();
     myFailedTestAssigner.assign(heuristicsResult, sProject, sBuild, testsForAssign);
+    ProcessingMetrics.stop(ProcessingMetrics.ASSIGN_FAILED_TESTS, start);
+
+    start = ProcessingMetrics.start();
     myBuildProblemsAssigner.assign(heuristicsResult, sProject, sBuild, problemsForAssign);
+    ProcessingMetrics.stop(ProcessingMetrics.ASSIGN_BUILD_PROBLEMS, start);
 
     myAggregationLogger.logDelayedResults(sBuild, nextBuild, heuristicsResult, testsForAssign, problemsForAssign);
   }
@@ -8,11 +8,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import jetbrains.buildServer.BuildProblemTypes;
+import jetbrains.buildServer.investigationsAutoAssigner.common.AutoAssignerSettings;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.investigationsAutoAssigner.common.FailedBuildInfo;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
 import jetbrains.buildServer.investigationsAutoAssigner.persistent.AssignerArtifactDao;
-import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ProblemsStateTracker;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ProcessingMetrics;
 import jetbrains.buildServer.serverSide.*;
 import jetbrains.buildServer.serverSide.problems.BuildProblem;
 import org.jetbrains.annotations.NotNull;
@@ -27,8 +29,8 @@ public class FailedTestAndBuildProblemsProcessor extends BaseProcessor {
   private final FailedTestAssigner myFailedTestAssigner;
   private final BuildProblemsAssigner myBuildProblemsAssigner;
   @NotNull private final AssignerArtifactDao myAssignerArtifactDao;
-  private final CustomParameters myCustomParameters;
   @NotNull private final ResponsibleUserFinder myResponsibleUserFinder;
+  @NotNull private final ProblemsStateTracker myProblemsStateTracker;
 
 
   public FailedTestAndBuildProblemsProcessor(@NotNull final ResponsibleUserFinder responsibleUserFinder,
@@ -37,14 +39,14 @@ public class FailedTestAndBuildProblemsProcessor extends BaseProcessor {
                                              @NotNull final BuildProblemsFilter buildProblemsFilter,
                                              @NotNull final BuildProblemsAssigner buildProblemsAssigner,
                                              @NotNull final AssignerArtifactDao assignerArtifactDao,
-                                             @NotNull final CustomParameters customParameters) {
+                                             @NotNull final ProblemsStateTracker problemsStateTracker) {
     myResponsibleUserFinder = responsibleUserFinder;
     myFailedTestFilter = failedTestFilter;
     myFailedTestAssigner = failedTestAssigner;
     myBuildProblemsFilter = buildProblemsFilter;
     myBuildProblemsAssigner = buildProblemsAssigner;
     myAssignerArtifactDao = assignerArtifactDao;
-    myCustomParameters = customParameters;
+    myProblemsStateTracker = problemsStateTracker;
   }
 
   public void processBuild(final FailedBuildInfo failedBuildInfo) {
@@ -61,50 +63,75 @@ public class FailedTestAndBuildProblemsProcessor extends BaseProcessor {
       return;
     }
 
+    long stateVersion = myProblemsStateTracker.getVersion();
     Map<Long, String> notApplicableTestsDescription = new HashMap<>();
-    List<BuildProblem> allBuildProblems = ((BuildEx)sBuild).getBuildProblems();
+    long start = ProcessingMetrics.start();
+    List<BuildProblem> allBuildProblems = failedBuildInfo.getBuildSnapshot().getBuildProblems();
+    ProcessingMetrics.stop(ProcessingMetrics.FETCH_BUILD_PROBLEMS, start);
+
+    start = ProcessingMetrics.start();
     List<STestRun> allFailedTests = requestBrokenTestsWithStats(sBuild);
+    ProcessingMetrics.stop(ProcessingMetrics.FETCH_FAILED_TESTS, start);
+
+    start = ProcessingMetrics.start();
     List<BuildProblem> applicableProblems = myBuildProblemsFilter.apply(failedBuildInfo, sProject, allBuildProblems);
+    ProcessingMetrics.stop(ProcessingMetrics.FILTER_BUILD_PROBLEMS, start);
+
+    start = ProcessingMetrics.start();
     List<STestRun> applicableFailedTests = myFailedTestFilter.apply(failedBuildInfo, sProject, allFailedTests, notApplicableTestsDescription);
+    ProcessingMetrics.stop(ProcessingMetrics.FILTER_FAILED_TESTS, start);
     logProblemsNumber(sBuild, applicableFailedTests, applicableProblems);
 
     HeuristicResult heuristicsResult =
-      myResponsibleUserFinder.findResponsibleUser(sBuild, sProject, applicableProblems, applicableFailedTests);
+      myResponsibleUserFinder.findResponsibleUser(failedBuildInfo.getBuildSnapshot(), sProject, applicableProblems, applicableFailedTests);
 
-    List<STestRun> testsForAssign = myFailedTestFilter.getStillApplicable(failedBuildInfo, sProject, applicableFailedTests, notApplicableTestsDescription);
-    List<BuildProblem> problemsForAssign =
-      myBuildProblemsFilter.getStillApplicable(failedBuildInfo, sProject, applicableProblems);
+    List<STestRun> testsForAssign = applicableFailedTests;
+    List<BuildProblem> problemsForAssign = applicableProblems;
+    if (myProblemsStateTracker.hasChangedSince(stateVersion, sProject)) {
+      testsForAssign = myFailedTestFilter.revalidate(failedBuildInfo, sProject, applicableFailedTests, notApplicableTestsDescription);
+      problemsForAssign = myBuildProblemsFilter.revalidate(failedBuildInfo, sProject, applicableProblems);
+    }
     logChangedProblemsNumber(sBuild, applicableFailedTests, testsForAssign, applicableProblems, problemsForAssign);
 
+    start = ProcessingMetrics.start();
     myAssignerArtifactDao.appendHeuristicsResult(sBuild, testsForAssign, heuristicsResult);
     if (TeamCityProperties.getBoolean(SHOULD_PERSIST_FILTERED_TESTS_DESCRIPTION)) {
       myAssignerArtifactDao.appendNotApplicableTestsDescription(sBuild, notApplicableTestsDescription);
     }
+    ProcessingMetrics.stop(ProcessingMetrics.PERSIST_SUGGESTIONS, start);
 
     if (heuristicsResult.isEmpty()) {
       return;
     }
 
-    if (myCustomParameters.isBuildFeatureEnabled(sBuild) && !failedBuildInfo.shouldDelayAssignments()) {
+    AutoAssignerSettings settings = failedBuildInfo.getSettings();
+    if (settings.isFeatureEnabled() && !settings.shouldDelayAssignments()) {
+      start = ProcessingMetrics.start();
       myFailedTestAssigner.assign(heuristicsResult, sProject, sBuild, testsForAssign);
+      ProcessingMetrics.stop(ProcessingMetrics.ASSIGN_FAILED_TESTS, start);
+
+      start = ProcessingMetrics.start();
       myBuildProblemsAssigner.assign(heuristicsResult, sProject, sBuild, problemsForAssign);
+      ProcessingMetrics.stop(ProcessingMetrics.ASSIGN_BUILD_PROBLEMS, start);
       failedBuildInfo.addHeuristicsResult(heuristicsResult);
 
       return;
     }
 
-    if (!myCustomParameters.isBuildFeatureEnabled(sBuild)) {
+    if (!settings.isFeatureEnabled()) {
       if (LOGGER.isDebugEnabled()) {
         LOGGER.debug(String.format("Build id:%s. Found investigations but build feature is not configured.",
                                    sBuild.getBuildId()));
       }
-    } else if (failedBuildInfo.shouldDelayAssignments()) {
+    } else if (settings.shouldDelayAssignments()) {
       List<BuildProblem> forcedAssignInstantlyProblems =
         problemsForAssign.stream()
                          .filter(x -> !BuildProblemTypes.TC_EXIT_CODE_TYPE.equals(x.getBuildProblemData().getType()))
                          .collect(Collectors.toList());
       if (!forcedAssignInstantlyProblems.isEmpty()) {
+        start = ProcessingMetrics.start();
         myBuildProblemsAssigner.assign(heuristicsResult, sProject, sBuild, forcedAssignInstantlyProblems);
+        ProcessingMetrics.stop(ProcessingMetrics.ASSIGN_BUILD_PROBLEMS, start);
       }
 
       LOGGER.debug(String.format("Build id:%s. Found investigations but assignments should be delayed.",
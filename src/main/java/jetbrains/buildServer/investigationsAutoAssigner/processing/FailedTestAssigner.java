@@ -79,7 +79,8 @@ public class FailedTestAssigner implements BaseAssigner {
             responsibility.getAssignDescription(linkToBuild), getRemoveMethod(sBuild.getBuildType()))
         );
 
-        myStatisticsReporter.reportAssignedInvestigations(testNameList.size(), responsibility);
+        myStatisticsReporter.reportAssignedInvestigations(testNameList.size(), responsibility, sProject.getProjectId(),
+                                                          heuristicsResult.getHeuristicId(responsibility));
       }
     }
   }
@@ -3,10 +3,13 @@
 package jetbrains.buildServer.investigationsAutoAssigner.processing;
 
 import com.intellij.openapi.diagnostic.Logger;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.investigationsAutoAssigner.common.FailedBuildInfo;
@@ -16,6 +19,7 @@ import jetbrains.buildServer.investigationsAutoAssigner.utils.Utils;
 import jetbrains.buildServer.serverSide.*;
 import jetbrains.buildServer.tests.TestName;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -48,12 +52,34 @@ public class FailedTestFilter {
       LOGGER.debug(String.format("Filtering of failed tests for build id:%s started", sBuild.getBuildId()));
     }
 
-    List<STestRun> filteredTestRuns = testRuns.stream()
-                                              .sorted(Comparator.comparingInt(STestRun::getOrderId))
-                                              .filter(failedBuildInfo::checkNotProcessed)
-                                              .filter(testRun -> isApplicable(sProject, sBuild, testRun, notApplicableTestDescription))
-                                              .limit(failedBuildInfo.getLimitToProcess())
-                                              .collect(Collectors.toList());
+    List<STestRun> notProcessedTestRuns = testRuns.stream()
+                                                  .filter(failedBuildInfo::checkNotProcessed)
+                                                  .sorted(Comparator.comparingInt(STestRun::getOrderId))
+                                                  .collect(Collectors.toList());
+
+    // investigations and flakiness are requested by chunks of the tests which passed the cheap checks,
+    // so no more tests are requested than are needed to reach the limit
+    int limit = failedBuildInfo.getLimitToProcess();
+    List<STestRun> filteredTestRuns = new ArrayList<>();
+    List<STestRun> candidates = new ArrayList<>();
+    Iterator<STestRun> iterator = notProcessedTestRuns.iterator();
+    while (filteredTestRuns.size() < limit && iterator.hasNext()) {
+      STestRun testRun = iterator.next();
+      if (passesCheapChecks(testRun, notApplicableTestDescription)) {
+        candidates.add(testRun);
+      }
+
+      if (!candidates.isEmpty() && (candidates.size() >= limit - filteredTestRuns.size() || !iterator.hasNext())) {
+        KnownTests knownTests = findKnownTests(sProject, sBuild, candidates);
+        for (STestRun candidate : candidates) {
+          if (filteredTestRuns.size() >= limit) break;
+          if (isApplicable(candidate, knownTests, notApplicableTestDescription)) {
+            filteredTestRuns.add(candidate);
+          }
+        }
+        candidates.clear();
+      }
+    }
 
     failedBuildInfo.addProcessedTestRuns(testRuns);
     failedBuildInfo.increaseProcessedNumber(filteredTestRuns.size());
@@ -75,32 +101,106 @@ public class FailedTestFilter {
     if (LOGGER.isDebugEnabled()) {
       LOGGER.debug(String.format("Filtering before assign of failed tests for build id:%s started", sBuild.getBuildId()));
     }
+    KnownTests knownTests = findKnownTests(sProject, sBuild, testRuns);
     return testRuns.stream()
-                   .filter(testRun -> isApplicable(sProject, sBuild, testRun, notApplicableTestDescription))
+                   .filter(testRun -> isApplicable(testRun, knownTests, notApplicableTestDescription))
                    .collect(Collectors.toList());
   }
 
-  private boolean isApplicable(@NotNull final SProject project,
-                               @NotNull final SBuild sBuild,
-                               @NotNull final STestRun testRun,
-                               @NotNull final Map<Long, String> notApplicableTestDescription) {
-    String reason = null;
+  /**
+   * Cheap version of {@link #getStillApplicable} for tests which were filtered during the same processing pass:
+   * only mutes and investigations are checked again as the rest of the checked state cannot change in between.
+   */
+  List<STestRun> revalidate(@NotNull final FailedBuildInfo failedBuildInfo,
+                            @NotNull final SProject sProject,
+                            @NotNull final List<STestRun> testRuns,
+                            @NotNull final Map<Long, String> notApplicableTestDescription) {
+    SBuild sBuild = failedBuildInfo.getBuild();
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug(String.format("Revalidation before assign of failed tests for build id:%s started", sBuild.getBuildId()));
+    }
+    List<STest> tests = testRuns.stream()
+                                .filter(testRun -> !testRun.isMuted())
+                                .map(STestRun::getTest)
+                                .collect(Collectors.toList());
+    Set<Long> underInvestigation = myInvestigationsManager.findUnderInvestigation(sProject, sBuild, tests);
+    return testRuns.stream()
+                   .filter(testRun -> {
+                     String reason = null;
+                     if (testRun.isMuted()) {
+                       reason = "was muted";
+                     } else if (underInvestigation.contains(testRun.getTest().getTestNameId())) {
+                       reason = "was already under an investigation";
+                     }
+                     return reportApplicability(testRun, reason, notApplicableTestDescription);
+                   })
+                   .collect(Collectors.toList());
+  }
 
-    final STest test = testRun.getTest();
+  /**
+   * Finds out which of the tests are under investigation and which are flaky for all tests at once
+   * instead of one request per test. Tests which are not applicable anyway are not requested,
+   * {@link #apply} passes no more tests than are left to reach the limit of tests to process.
+   */
+  @NotNull
+  private KnownTests findKnownTests(@NotNull final SProject project,
+                                    @NotNull final SBuild sBuild,
+                                    @NotNull final List<STestRun> testRuns) {
+    List<STest> tests = testRuns.stream()
+                                .filter(testRun -> getNotApplicableStateReason(testRun) == null)
+                                .map(STestRun::getTest)
+                                .collect(Collectors.toList());
+    Set<Long> underInvestigation = myInvestigationsManager.findUnderInvestigation(project, sBuild, tests);
+    Set<Long> flaky = myFlakyTestDetector.findFlaky(tests.stream()
+                                                         .map(STest::getTestNameId)
+                                                         .filter(testNameId -> !underInvestigation.contains(testNameId))
+                                                         .collect(Collectors.toList()));
+    return new KnownTests(underInvestigation, flaky);
+  }
+
+  /**
+   * Checks only the state of the test run, the test runs which don't pass are reported as not applicable.
+   */
+  private boolean passesCheapChecks(@NotNull final STestRun testRun,
+                                    @NotNull final Map<Long, String> notApplicableTestDescription) {
+    String reason = getNotApplicableStateReason(testRun);
+    return reason == null || reportApplicability(testRun, reason, notApplicableTestDescription);
+  }
+
+  @Nullable
+  private static String getNotApplicableStateReason(@NotNull final STestRun testRun) {
     if (testRun.isMuted()) {
-      reason = "was muted";
+      return "was muted";
     } else if (testRun.isFixed()) {
-      reason = "was fixed";
+      return "was fixed";
     } else if (!testRun.isNewFailure()) {
-      reason = "occurred not for the first time";
-    } else if (myInvestigationsManager.checkUnderInvestigation(project, sBuild, test)) {
-      reason = "was already under an investigation";
-    } else if (myFlakyTestDetector.isFlaky(test.getTestNameId())) {
-      reason = "was marked as flaky";
-    } else if (myIgnoreSetupMethods && isSetUpOrTearDown(testRun.getTest().getName())) {
-      reason = "is not a test but rather setUp or tearDown";
+      return "occurred not for the first time";
+    }
+    return null;
+  }
+
+  private boolean isApplicable(@NotNull final STestRun testRun,
+                               @NotNull final KnownTests knownTests,
+                               @NotNull final Map<Long, String> notApplicableTestDescription) {
+    String reason = getNotApplicableStateReason(testRun);
+
+    final STest test = testRun.getTest();
+    if (reason == null) {
+      if (knownTests.myUnderInvestigation.contains(test.getTestNameId())) {
+        reason = "was already under an investigation";
+      } else if (knownTests.myFlaky.contains(test.getTestNameId())) {
+        reason = "was marked as flaky";
+      } else if (myIgnoreSetupMethods && isSetUpOrTearDown(testRun.getTest().getName())) {
+        reason = "is not a test but rather setUp or tearDown";
+      }
     }
 
+    return reportApplicability(testRun, reason, notApplicableTestDescription);
+  }
+
+  private boolean reportApplicability(@NotNull final STestRun testRun,
+                                      @Nullable final String reason,
+                                      @NotNull final Map<Long, String> notApplicableTestDescription) {
     boolean isApplicable = reason == null;
     if (LOGGER.isDebugEnabled()) {
       LOGGER.debug(String.format("%s Test problem is %s.%s",
@@ -119,4 +219,14 @@ public class FailedTestFilter {
     final String methodName = testName.getTestMethodName().toLowerCase();
     return methodName.contains("setup") || methodName.contains("teardown");
   }
+
+  private static class KnownTests {
+    private final Set<Long> myUnderInvestigation;
+    private final Set<Long> myFlaky;
+
+    private KnownTests(@NotNull final Set<Long> underInvestigation, @NotNull final Set<Long> flaky) {
+      myUnderInvestigation = underInvestigation;
+      myFlaky = flaky;
+    }
+  }
 }
\ No newline at end of file
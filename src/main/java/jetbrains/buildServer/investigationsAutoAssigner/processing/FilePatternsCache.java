@@ -0,0 +1,139 @@
+package jetbrains.buildServer.investigationsAutoAssigner.processing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import jetbrains.buildServer.vcs.SVcsModification;
+import jetbrains.buildServer.vcs.VcsFileModification;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Patterns of changed files per VCS modification. The same modification belongs to many builds,
+ * so the patterns are computed once and shared until the modification is evicted.
+ * The size of the cache is limited by the estimated memory taken by the stored strings,
+ * the least recently used modifications are evicted first.
+ */
+class FilePatternsCache {
+  // approximate size of a String object with its char array header and of a reference to it
+  private static final int STRING_OVERHEAD_BYTES = 48;
+  private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+  private final long myMaxSizeInBytes;
+  private final Function<String, List<String>> myPatternsProvider;
+  private final LinkedHashMap<Long, Entry> myCache = new LinkedHashMap<>(16, 0.75f, true);
+  private long mySizeInBytes = 0;
+
+  FilePatternsCache(final long maxSizeInBytes, @NotNull final Function<String, List<String>> patternsProvider) {
+    myMaxSizeInBytes = maxSizeInBytes;
+    myPatternsProvider = patternsProvider;
+  }
+
+  @NotNull
+  List<FilePatterns> getPatterns(@NotNull final SVcsModification vcsChange) {
+    // ids of personal changes don't identify the changes uniquely
+    if (myMaxSizeInBytes <= 0 || vcsChange.isPersonal()) {
+      return computePatterns(vcsChange);
+    }
+
+    long id = vcsChange.getId();
+    synchronized (myCache) {
+      Entry entry = myCache.get(id);
+      if (entry != null) {
+        return entry.myFiles;
+      }
+    }
+
+    List<FilePatterns> files = computePatterns(vcsChange);
+    Entry entry = new Entry(files);
+    synchronized (myCache) {
+      Entry previous = myCache.put(id, entry);
+      if (previous != null) {
+        mySizeInBytes -= previous.mySizeInBytes;
+      }
+      mySizeInBytes += entry.mySizeInBytes;
+      evictIfNeeded();
+    }
+    return files;
+  }
+
+  long getSizeInBytes() {
+    synchronized (myCache) {
+      return mySizeInBytes;
+    }
+  }
+
+  int getSize() {
+    synchronized (myCache) {
+      return myCache.size();
+    }
+  }
+
+  private void evictIfNeeded() {
+    Iterator<Entry> iterator = myCache.values().iterator();
+    while (mySizeInBytes > myMaxSizeInBytes && iterator.hasNext()) {
+      mySizeInBytes -= iterator.next().mySizeInBytes;
+      iterator.remove();
+    }
+  }
+
+  @NotNull
+  private List<FilePatterns> computePatterns(@NotNull final SVcsModification vcsChange) {
+    List<VcsFileModification> modifications = vcsChange.getChanges();
+    if (modifications.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    List<FilePatterns> result = new ArrayList<>(modifications.size());
+    for (VcsFileModification modification : modifications) {
+      String filePath = modification.getRelativeFileName();
+      result.add(new FilePatterns(filePath, myPatternsProvider.apply(filePath)));
+    }
+    return result;
+  }
+
+  static class FilePatterns {
+    private final String myFilePath;
+    private final String[] myPatterns;
+
+    private FilePatterns(@NotNull final String filePath, @NotNull final List<String> patterns) {
+      myFilePath = filePath;
+      myPatterns = patterns.toArray(new String[0]);
+    }
+
+    @NotNull
+    String getFilePath() {
+      return myFilePath;
+    }
+
+    @NotNull
+    String[] getPatterns() {
+      return myPatterns;
+    }
+
+    private long estimateSizeInBytes() {
+      long size = STRING_OVERHEAD_BYTES + 2L * myFilePath.length();
+      for (String pattern : myPatterns) {
+        size += STRING_OVERHEAD_BYTES + 2L * pattern.length();
+      }
+      return size;
+    }
+  }
+
+  private static class Entry {
+    private final List<FilePatterns> myFiles;
+    private final long mySizeInBytes;
+
+    private Entry(@NotNull final List<FilePatterns> files) {
+      myFiles = Collections.unmodifiableList(files);
+      long size = ENTRY_OVERHEAD_BYTES;
+      for (FilePatterns file : files) {
+        size += file.estimateSizeInBytes();
+      }
+      mySizeInBytes = size;
+    }
+  }
+}
@@ -1,32 +1,35 @@
-
-
 package jetbrains.buildServer.investigationsAutoAssigner.processing;
 
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
+import jetbrains.buildServer.investigationsAutoAssigner.common.BuildSnapshot;
 import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.SProject;
 import jetbrains.buildServer.serverSide.STestRun;
 import jetbrains.buildServer.serverSide.problems.BuildProblem;
-import jetbrains.buildServer.users.User;
-import jetbrains.buildServer.vcs.SelectPrevBuildPolicy;
 import org.jetbrains.annotations.NotNull;
 
 public final class HeuristicContext {
   private final SProject mySProject;
   private final List<BuildProblem> myBuildProblems;
   private final List<STestRun> mySTestRuns;
-  private final SBuild mySBuild;
+  private final BuildSnapshot myBuildSnapshot;
   private final Set<String> myUsersToIgnore;
-  private Set<Long> myCommitersIds = null;
 
   public HeuristicContext(SBuild sBuild,
                           SProject sProject,
                           List<BuildProblem> buildProblems,
                           List<STestRun> sTestRuns,
                           @NotNull Set<String> usernameBlackList) {
-    mySBuild = sBuild;
+    this(new BuildSnapshot(sBuild), sProject, buildProblems, sTestRuns, usernameBlackList);
+  }
+
+  public HeuristicContext(@NotNull BuildSnapshot buildSnapshot,
+                          SProject sProject,
+                          List<BuildProblem> buildProblems,
+                          List<STestRun> sTestRuns,
+                          @NotNull Set<String> usernameBlackList) {
+    myBuildSnapshot = buildSnapshot;
     mySProject = sProject;
     myBuildProblems = buildProblems;
     mySTestRuns = sTestRuns;
@@ -35,7 +38,15 @@ public final class HeuristicContext {
 
   @NotNull
   public SBuild getBuild() {
-    return mySBuild;
+    return myBuildSnapshot.getBuild();
+  }
+
+  /**
+   * @return data of the build shared by all heuristics of the processing pass.
+   */
+  @NotNull
+  public BuildSnapshot getBuildSnapshot() {
+    return myBuildSnapshot;
   }
 
   @NotNull
@@ -58,18 +69,6 @@ public final class HeuristicContext {
 
   @NotNull
   public Set<Long> getCommitersIds() {
-    if (myCommitersIds == null) {
-      myCommitersIds = calculateCommitersIds(mySBuild);
-    }
-
-    return myCommitersIds;
-  }
-
-  private static Set<Long> calculateCommitersIds(SBuild sBuild) {
-    return sBuild.getCommitters(SelectPrevBuildPolicy.SINCE_LAST_BUILD)
-                 .getUsers()
-                 .stream()
-                 .map(User::getId)
-                 .collect(Collectors.toSet());
+    return myBuildSnapshot.getCommitterIds();
   }
-}
\ No newline at end of file
+}
@@ -7,11 +7,11 @@ import java.io.File;
 import java.util.*;
 import java.util.stream.Collectors;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicNotApplicableException;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
 import jetbrains.buildServer.users.SUser;
 import jetbrains.buildServer.users.User;
 import jetbrains.buildServer.util.FileUtil;
 import jetbrains.buildServer.vcs.SVcsModification;
-import jetbrains.buildServer.vcs.VcsFileModification;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -26,22 +26,42 @@ import static com.intellij.openapi.util.text.StringUtil.join;
  */
 public class ModificationAnalyzerFactory {
   private static final int TOO_SMALL_PATTERN_THRESHOLD = 15;
+  private final FilePatternsCache myFilePatternsCache;
+
+  public ModificationAnalyzerFactory() {
+    myFilePatternsCache = new FilePatternsCache(CustomParameters.getFilePatternsCacheSizeInBytes(),
+                                                ModificationAnalyzerFactory::getPatterns);
+  }
 
   public ModificationAnalyzer getInstance(SVcsModification vcsChange) {
-    return new ModificationAnalyzer(vcsChange);
+    return new ModificationAnalyzer(vcsChange, myFilePatternsCache);
+  }
+
+  /**
+   * @return matcher of files of the changes, which should be created once and then used for all problems of the build.
+   */
+  @NotNull
+  public BrokenFileMatcher createBrokenFileMatcher(@NotNull List<SVcsModification> vcsChanges) {
+    List<List<FilePatternsCache.FilePatterns>> filePatterns = new ArrayList<>(vcsChanges.size());
+    for (SVcsModification vcsChange : vcsChanges) {
+      filePatterns.add(myFilePatternsCache.getPatterns(vcsChange));
+    }
+    return new BrokenFileMatcher(vcsChanges, filePatterns);
   }
 
   public static class ModificationAnalyzer {
     private final SVcsModification myVcsChange;
+    private final FilePatternsCache myFilePatternsCache;
 
-    private ModificationAnalyzer(@NotNull SVcsModification vcsChange) {
+    private ModificationAnalyzer(@NotNull SVcsModification vcsChange, @NotNull FilePatternsCache filePatternsCache) {
       myVcsChange = vcsChange;
+      myFilePatternsCache = filePatternsCache;
     }
 
     @Nullable
     public Pair<User, String> findProblematicFile(String problemText, Set<String> usersToIgnore)
       throws HeuristicNotApplicableException {
-      String filePath = findBrokenFile(myVcsChange, problemText);
+      String filePath = findBrokenFile(problemText);
       if (filePath == null) {
         return null;
       }
@@ -78,19 +98,18 @@ public class ModificationAnalyzerFactory {
 
       return filteredCommitters.get(0);
     }
-  }
 
-  @Nullable
-  private static String findBrokenFile(@NotNull final SVcsModification vcsChange, @NotNull final String problemText) {
-    for (VcsFileModification modification : vcsChange.getChanges()) {
-      final String filePath = modification.getRelativeFileName();
-      for (String pattern : getPatterns(filePath)) {
-        if (problemText.contains(pattern)) {
-          return filePath;
+    @Nullable
+    private String findBrokenFile(@NotNull final String problemText) {
+      for (FilePatternsCache.FilePatterns file : myFilePatternsCache.getPatterns(myVcsChange)) {
+        for (String pattern : file.getPatterns()) {
+          if (problemText.contains(pattern)) {
+            return file.getFilePath();
+          }
         }
       }
+      return null;
     }
-    return null;
   }
 
   /**
@@ -101,7 +120,7 @@ public class ModificationAnalyzerFactory {
    * @return various combination of fileName and its parents(up to 2th level) with separators.
    */
   @NotNull
-  private static List<String> getPatterns(@NotNull final String filePath) {
+  static List<String> getPatterns(@NotNull final String filePath) {
     final List<String> parts = new ArrayList<>();
     String withoutExtension = FileUtil.getNameWithoutExtension(new File(filePath));
     if (withoutExtension.isEmpty()) {
@@ -5,9 +5,11 @@ package jetbrains.buildServer.investigationsAutoAssigner.processing;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import jetbrains.buildServer.investigationsAutoAssigner.common.BuildSnapshot;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
 import jetbrains.buildServer.investigationsAutoAssigner.heuristics.Heuristic;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ProcessingMetrics;
 import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.SProject;
 import jetbrains.buildServer.serverSide.STestRun;
@@ -28,21 +30,30 @@ public class ResponsibleUserFinder {
                                       SProject sProject,
                                       List<BuildProblem> buildProblems,
                                       List<STestRun> testRuns) {
+    return findResponsibleUser(new BuildSnapshot(sBuild), sProject, buildProblems, testRuns);
+  }
+
+  HeuristicResult findResponsibleUser(@NotNull BuildSnapshot buildSnapshot,
+                                      SProject sProject,
+                                      List<BuildProblem> buildProblems,
+                                      List<STestRun> testRuns) {
 
     if (buildProblems.isEmpty() && testRuns.isEmpty()) {
       return new HeuristicResult();
     }
 
     HeuristicResult result = new HeuristicResult();
-    Set<String> usernamesBlackList = CustomParameters.getUsersToIgnore(sBuild);
+    Set<String> usernamesBlackList = buildSnapshot.getSettings().getUsersToIgnore();
     for (Heuristic heuristic : myOrderedHeuristics) {
       if (myCustomParameters.isHeuristicsDisabled(heuristic.getId())) {
         continue;
       }
 
       HeuristicContext heuristicContext =
-        new HeuristicContext(sBuild, sProject, buildProblems, testRuns, usernamesBlackList);
+        new HeuristicContext(buildSnapshot, sProject, buildProblems, testRuns, usernamesBlackList);
+      long start = ProcessingMetrics.start();
       HeuristicResult heuristicResult = heuristic.findResponsibleUser(heuristicContext);
+      ProcessingMetrics.stopHeuristic(heuristic.getId(), start);
 
       buildProblems = heuristicContext.getBuildProblems()
                                       .stream()
@@ -54,7 +65,7 @@ public class ResponsibleUserFinder {
                                  .filter(sTestRun -> heuristicResult.getResponsibility(sTestRun) == null)
                                  .collect(Collectors.toList());
 
-      result.merge(heuristicResult);
+      result.merge(heuristicResult, heuristic.getId());
 
       if (buildProblems.isEmpty() && testRuns.isEmpty()) {
         break;
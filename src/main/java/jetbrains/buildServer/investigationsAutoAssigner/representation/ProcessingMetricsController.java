@@ -0,0 +1,121 @@
+package jetbrains.buildServer.investigationsAutoAssigner.representation;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import jetbrains.buildServer.controllers.BaseController;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.LatencyHistogram;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ProcessingMetrics;
+import jetbrains.buildServer.serverSide.SBuildServer;
+import jetbrains.buildServer.serverSide.auth.Permission;
+import jetbrains.buildServer.serverSide.auth.SecurityContext;
+import jetbrains.buildServer.web.openapi.WebControllerManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * Exports the durations of the processing stages, the processing backlog and the lag of assignments
+ * in the Prometheus text format, so they can be scraped along with the server metrics.
+ * Available to the users who can view the server settings.
+ */
+public class ProcessingMetricsController extends BaseController {
+  static final String METRIC_PREFIX = "investigations_auto_assigner_";
+  static final String METRIC_NAME = METRIC_PREFIX + "stage_duration_seconds";
+  static final String ASSIGNMENT_LAG_METRIC_NAME = METRIC_PREFIX + "assignment_lag_seconds";
+  private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+  private final SecurityContext mySecurityContext;
+
+  public ProcessingMetricsController(@NotNull final SBuildServer server,
+                                     @NotNull final WebControllerManager controllerManager,
+                                     @NotNull final SecurityContext securityContext) {
+    super(server);
+    mySecurityContext = securityContext;
+    controllerManager.registerController("/investigationsAutoAssignerMetrics.html", this);
+  }
+
+  @Nullable
+  @Override
+  protected ModelAndView doHandle(@NotNull final HttpServletRequest request,
+                                  @NotNull final HttpServletResponse response) throws IOException {
+    if (!mySecurityContext.getAuthorityHolder().isPermissionGrantedGlobally(Permission.VIEW_SERVER_SETTINGS)) {
+      response.sendError(HttpServletResponse.SC_FORBIDDEN);
+      return null;
+    }
+
+    response.setContentType("text/plain; version=0.0.4; charset=UTF-8");
+    response.getWriter().write(format(ProcessingMetrics.getSnapshots(),
+                                      ProcessingMetrics.getGauges(),
+                                      ProcessingMetrics.getCounters(),
+                                      ProcessingMetrics.getAssignmentLag()));
+    return null;
+  }
+
+  @NotNull
+  static String format(@NotNull Map<String, LatencyHistogram.Snapshot> snapshots,
+                       @NotNull Map<String, Long> gauges,
+                       @NotNull Map<String, Long> counters,
+                       @NotNull LatencyHistogram.Snapshot assignmentLag) {
+    StringBuilder result = new StringBuilder();
+    gauges.forEach((name, value) -> {
+      String metricName = METRIC_PREFIX + toSnakeCase(name);
+      result.append("# TYPE ").append(metricName).append(" gauge\n");
+      result.append(metricName).append(' ').append(value).append('\n');
+    });
+    counters.forEach((name, value) -> {
+      String metricName = METRIC_PREFIX + toSnakeCase(name) + "_total";
+      result.append("# TYPE ").append(metricName).append(" counter\n");
+      result.append(metricName).append(' ').append(value).append('\n');
+    });
+
+    result.append("# TYPE ").append(ASSIGNMENT_LAG_METRIC_NAME).append(" summary\n");
+    appendSummary(result, ASSIGNMENT_LAG_METRIC_NAME, "", assignmentLag);
+
+    result.append("# TYPE ").append(METRIC_NAME).append(" summary\n");
+    snapshots.forEach((stage, snapshot) -> appendSummary(result, METRIC_NAME, "stage=\"" + stage + "\"", snapshot));
+    return result.toString();
+  }
+
+  private static void appendSummary(@NotNull StringBuilder result,
+                                    @NotNull String metricName,
+                                    @NotNull String labels,
+                                    @NotNull LatencyHistogram.Snapshot snapshot) {
+    String separator = labels.isEmpty() ? "" : ",";
+    for (double quantile : QUANTILES) {
+      result.append(metricName).append('{').append(labels).append(separator).append("quantile=\"").append(quantile).append("\"} ")
+            .append(toSeconds(snapshot.getPercentileNanos(quantile))).append('\n');
+    }
+    result.append(metricName).append("_sum");
+    appendLabels(result, labels);
+    result.append(' ').append(toSeconds(snapshot.getTotalNanos())).append('\n');
+    result.append(metricName).append("_count");
+    appendLabels(result, labels);
+    result.append(' ').append(snapshot.getCount()).append('\n');
+  }
+
+  private static void appendLabels(@NotNull StringBuilder result, @NotNull String labels) {
+    if (!labels.isEmpty()) {
+      result.append('{').append(labels).append('}');
+    }
+  }
+
+  @NotNull
+  private static String toSnakeCase(@NotNull String name) {
+    StringBuilder result = new StringBuilder(name.length() + 4);
+    for (char c : name.toCharArray()) {
+      if (Character.isUpperCase(c)) {
+        result.append('_').append(Character.toLowerCase(c));
+      } else {
+        result.append(c);
+      }
+    }
+    return result.toString();
+  }
+
+  @NotNull
+  private static String toSeconds(long nanos) {
+    return String.format(Locale.ROOT, "%.6f", nanos / 1e9);
+  }
+}
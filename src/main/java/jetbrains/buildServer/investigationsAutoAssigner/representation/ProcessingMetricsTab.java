@@ -0,0 +1,92 @@
+package jetbrains.buildServer.investigationsAutoAssigner.representation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.LatencyHistogram;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ProcessingMetrics;
+import jetbrains.buildServer.web.openapi.PagePlaces;
+import jetbrains.buildServer.web.openapi.PlaceId;
+import jetbrains.buildServer.web.openapi.PluginDescriptor;
+import jetbrains.buildServer.web.openapi.SimpleCustomTab;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Tab of the Diagnostics page with the processing backlog, the lag of assignments and the durations
+ * of the processing stages.
+ */
+public class ProcessingMetricsTab extends SimpleCustomTab {
+
+  public ProcessingMetricsTab(@NotNull final PagePlaces pagePlaces,
+                              @NotNull final PluginDescriptor descriptor) {
+    super(pagePlaces,
+          PlaceId.ADMIN_SERVER_DIAGNOSTIC_TAB,
+          Constants.BUILD_FEATURE_TYPE,
+          descriptor.getPluginResourcesPath("processingMetrics.jsp"),
+          Constants.BUILD_FEATURE_DISPLAY_NAME);
+  }
+
+  @Override
+  public void fillModel(@NotNull Map<String, Object> model, @NotNull HttpServletRequest request) {
+    List<StageRow> stages = new ArrayList<>();
+    ProcessingMetrics.getSnapshots().forEach((stage, snapshot) -> stages.add(new StageRow(stage, snapshot)));
+    model.put("metricsEnabled", ProcessingMetrics.isEnabled());
+    model.put("metricsProperty", Constants.PROCESSING_METRICS_ENABLED);
+    model.put("stages", stages);
+    model.put("gauges", ProcessingMetrics.getGauges());
+    model.put("counters", ProcessingMetrics.getCounters());
+    model.put("assignmentLag", new StageRow("assignmentLag", ProcessingMetrics.getAssignmentLag()));
+  }
+
+  public static class StageRow {
+    private final String myName;
+    private final LatencyHistogram.Snapshot mySnapshot;
+
+    StageRow(@NotNull String name, @NotNull LatencyHistogram.Snapshot snapshot) {
+      myName = name;
+      mySnapshot = snapshot;
+    }
+
+    @NotNull
+    public String getName() {
+      return myName;
+    }
+
+    public long getCount() {
+      return mySnapshot.getCount();
+    }
+
+    @NotNull
+    public String getMean() {
+      return toMillis(mySnapshot.getMeanNanos());
+    }
+
+    @NotNull
+    public String getP50() {
+      return toMillis(mySnapshot.getPercentileNanos(0.5));
+    }
+
+    @NotNull
+    public String getP95() {
+      return toMillis(mySnapshot.getPercentileNanos(0.95));
+    }
+
+    @NotNull
+    public String getP99() {
+      return toMillis(mySnapshot.getPercentileNanos(0.99));
+    }
+
+    @NotNull
+    public String getMax() {
+      return toMillis(mySnapshot.getMaxNanos());
+    }
+
+    @NotNull
+    private static String toMillis(long nanos) {
+      return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+  }
+}
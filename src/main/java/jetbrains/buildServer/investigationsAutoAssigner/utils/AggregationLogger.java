@@ -15,14 +15,10 @@ import org.jetbrains.annotations.Nullable;
 
 public class AggregationLogger {
   private static final Logger LOGGER = Constants.AGGREGATION_LOGGER;
-  private final CustomParameters myCustomParameters;
   @NotNull private final WebLinks myWebLinks;
 
-  public AggregationLogger(@NotNull WebLinks webLinks,
-                           @NotNull CustomParameters customParameters) {
+  public AggregationLogger(@NotNull WebLinks webLinks) {
     myWebLinks = webLinks;
-    myCustomParameters = customParameters;
-
   }
 
   public void logResults(FailedBuildInfo failedBuildInfo) {
@@ -34,11 +30,10 @@ public class AggregationLogger {
   }
 
   private boolean shouldLog(FailedBuildInfo failedBuildInfo) {
-    SBuild sBuild = failedBuildInfo.getBuild();
     HeuristicResult heuristicsResult = failedBuildInfo.getHeuristicsResult();
 
     return !heuristicsResult.isEmpty() &&
-           myCustomParameters.isBuildFeatureEnabled(sBuild) &&
+           failedBuildInfo.getSettings().isFeatureEnabled() &&
            !failedBuildInfo.shouldDelayAssignments();
   }
 
@@ -65,7 +60,7 @@ public class AggregationLogger {
     StringBuilder sb = new StringBuilder();
     if (failedBuildInfo.shouldDelayAssignments()) {
       sb.append("New delayed assignment");
-    } else if (myCustomParameters.isBuildFeatureEnabled(sBuild)) {
+    } else if (failedBuildInfo.getSettings().isFeatureEnabled()) {
       sb.append("New assignments");
     } else {
       sb.append("New suggestions");
@@ -1,34 +1,16 @@
-
-
 package jetbrains.buildServer.investigationsAutoAssigner.utils;
 
-import java.util.List;
-import jetbrains.buildServer.serverSide.BuildPromotion;
-import jetbrains.buildServer.serverSide.BuildPromotionEx;
+import jetbrains.buildServer.investigationsAutoAssigner.common.BuildSnapshot;
 import jetbrains.buildServer.serverSide.problems.BuildProblem;
-import jetbrains.buildServer.vcs.SelectPrevBuildPolicy;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
 public class BuildProblemUtils {
 
-  public boolean isNew(@NotNull BuildProblem buildProblem) {
-    BuildPromotion problemsOwner = buildProblem.getBuildPromotion();
-
-    BuildPromotionEx prevBuildPromo =
-      (BuildPromotionEx)problemsOwner.getPreviousBuildPromotion(SelectPrevBuildPolicy.SINCE_LAST_BUILD);
-    List<BuildProblem> prevProblems = prevBuildPromo == null ? null : prevBuildPromo.getBuildProblems();
-
-    return !containsBuildProblem(prevProblems, buildProblem);
-  }
-
-  private boolean containsBuildProblem(@Nullable List<BuildProblem> problems,
-                                              @NotNull BuildProblem buildProblem) {
-    if (problems == null) return false;
-
-    for (BuildProblem problem: problems) {
-      if (buildProblem.getId() == problem.getId()) return true;
-    }
-    return false;
+  /**
+   * @param buildSnapshot snapshot of the build the problem belongs to, it keeps problem ids of previous builds
+   *                      so they are loaded once for all problems of the build.
+   */
+  public boolean isNew(@NotNull BuildProblem buildProblem, @NotNull BuildSnapshot buildSnapshot) {
+    return !buildSnapshot.getPreviousProblemIds(buildProblem.getBuildPromotion()).contains(buildProblem.getId());
   }
-}
\ No newline at end of file
+}
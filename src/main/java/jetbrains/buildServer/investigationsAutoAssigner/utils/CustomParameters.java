@@ -5,6 +5,7 @@ package jetbrains.buildServer.investigationsAutoAssigner.utils;
 import java.util.*;
 import java.util.stream.Collectors;
 import jetbrains.buildServer.BuildProblemTypes;
+import jetbrains.buildServer.investigationsAutoAssigner.common.AutoAssignerSettings;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.SBuildFeatureDescriptor;
@@ -16,27 +17,49 @@ import org.jetbrains.annotations.Nullable;
 public class CustomParameters {
   private final static Integer MINIMAL_PROCESSING_DELAY = 5;
   private final static Integer DEFAULT_PROCESSING_DELAY_IN_SECONDS = 30;
+  private final static Integer DEFAULT_PROCESSING_DEBOUNCE_DELAY_IN_SECONDS = 5;
+  private final static Integer MAX_DEFAULT_PROCESSING_THREADS = 4;
+  private final static Integer DEFAULT_PROCESSING_QUEUE_CAPACITY = 1000;
+  private final static Integer DEFAULT_PROCESSING_MAX_PENDING_TASKS = 10000;
+  private final static Integer DEFAULT_AUDIT_LOOKUP_PERIOD_IN_DAYS = 365;
+  private final static Integer DEFAULT_AUDIT_LOOKUP_PAGE_SIZE = 200;
+  private final static Integer DEFAULT_AUDIT_LOOKUP_MAX_ACTIONS = 5000;
+  private final static Integer DEFAULT_PREVIOUS_RESPONSIBLE_CACHE_SIZE = 10000;
+  private final static Integer DEFAULT_PREVIOUS_RESPONSIBLE_CACHE_TTL_IN_SECONDS = 600;
+  private final static Integer DEFAULT_FILE_PATTERNS_CACHE_SIZE_IN_MB = 16;
+  private final static Integer DEFAULT_FLAKY_TESTS_CACHE_SIZE = 10000;
+  private final static Integer DEFAULT_FLAKY_TESTS_CACHE_TTL_IN_SECONDS = 300;
+  private final static Integer DEFAULT_SUGGESTIONS_CACHE_SIZE = 50;
+  private final static Integer DEFAULT_STATISTICS_TIME_SERIES_MAX_SIZE = 2000;
 
-  @Nullable
-  public static String getDefaultResponsible(final SBuild build) {
-    final SBuildFeatureDescriptor sBuildFeature = getBuildFeatureDescriptor(build);
-    if (sBuildFeature == null) return null;
-    return sBuildFeature.getParameters().get(Constants.DEFAULT_RESPONSIBLE);
+  @NotNull
+  private static Set<String> parseUsersToIgnore(@NotNull final Map<String, String> featureParameters) {
+    String usersToIgnore = featureParameters.get(Constants.USERS_TO_IGNORE);
+    if (usersToIgnore == null) {
+      return Collections.emptySet();
+    }
+
+    return Arrays.stream(usersToIgnore.split("\n")).map(String::trim).collect(Collectors.toSet());
   }
 
+  /**
+   * Reads all the settings of the build at once, the build feature descriptor is requested only one time.
+   */
   @NotNull
-  public static Set<String> getUsersToIgnore(final SBuild build) {
+  public static AutoAssignerSettings readSettings(@NotNull final SBuild build) {
     final SBuildFeatureDescriptor sBuildFeature = getBuildFeatureDescriptor(build);
     if (sBuildFeature == null) {
-      return Collections.emptySet();
+      return new AutoAssignerSettings(false, null, Collections.emptySet(), Collections.emptySet(), false,
+                                      getMaxTestsPerBuildThreshold(build));
     }
 
-    String usersToIgnore = sBuildFeature.getParameters().get(Constants.USERS_TO_IGNORE);
-    if (usersToIgnore == null) {
-      return Collections.emptySet();
-    }
-
-    return Arrays.stream(usersToIgnore.split("\n")).map(String::trim).collect(Collectors.toSet());
+    Map<String, String> featureParameters = sBuildFeature.getParameters();
+    return new AutoAssignerSettings(true,
+                                    featureParameters.get(Constants.DEFAULT_RESPONSIBLE),
+                                    parseUsersToIgnore(featureParameters),
+                                    parseBuildProblemTypesToIgnore(featureParameters),
+                                    StringUtil.isTrue(featureParameters.get(Constants.ASSIGN_ON_SECOND_FAILURE)),
+                                    getMaxTestsPerBuildThreshold(build));
   }
 
   public boolean isDefaultSilentModeEnabled(final SBuild build) {
@@ -68,6 +91,90 @@ public class CustomParameters {
     return value < MINIMAL_PROCESSING_DELAY ? MINIMAL_PROCESSING_DELAY : value;
   }
 
+  public static int getProcessingDebounceDelayInSeconds() {
+    int value = TeamCityProperties.getInteger(Constants.PROCESSING_DEBOUNCE_DELAY_IN_SECONDS,
+                                              DEFAULT_PROCESSING_DEBOUNCE_DELAY_IN_SECONDS);
+    return value < 0 ? 0 : value;
+  }
+
+  public static int getProcessingThreadsCount() {
+    int defaultValue = Math.min(MAX_DEFAULT_PROCESSING_THREADS, Runtime.getRuntime().availableProcessors());
+    int value = TeamCityProperties.getInteger(Constants.PROCESSING_THREADS_COUNT, defaultValue);
+    return value < 1 ? 1 : value;
+  }
+
+  public static int getProcessingQueueCapacity() {
+    int value = TeamCityProperties.getInteger(Constants.PROCESSING_QUEUE_CAPACITY, DEFAULT_PROCESSING_QUEUE_CAPACITY);
+    return value < 1 ? 1 : value;
+  }
+
+  public static int getProcessingMaxPendingTasks() {
+    int value = TeamCityProperties.getInteger(Constants.PROCESSING_MAX_PENDING_TASKS, DEFAULT_PROCESSING_MAX_PENDING_TASKS);
+    return value < 1 ? 1 : value;
+  }
+
+  /**
+   * @return how many days back the audit log is searched for previous investigations, non-positive means no limit.
+   */
+  public static int getAuditLookupPeriodInDays() {
+    return TeamCityProperties.getInteger(Constants.AUDIT_LOOKUP_PERIOD_IN_DAYS, DEFAULT_AUDIT_LOOKUP_PERIOD_IN_DAYS);
+  }
+
+  public static int getAuditLookupPageSize() {
+    int value = TeamCityProperties.getInteger(Constants.AUDIT_LOOKUP_PAGE_SIZE, DEFAULT_AUDIT_LOOKUP_PAGE_SIZE);
+    return value < 1 ? 1 : value;
+  }
+
+  public static int getAuditLookupMaxActions() {
+    int value = TeamCityProperties.getInteger(Constants.AUDIT_LOOKUP_MAX_ACTIONS, DEFAULT_AUDIT_LOOKUP_MAX_ACTIONS);
+    return value < 1 ? 1 : value;
+  }
+
+  /**
+   * @return maximum number of tests in the cache of previous responsible users, non-positive disables the cache.
+   */
+  public static int getPreviousResponsibleCacheSize() {
+    return TeamCityProperties.getInteger(Constants.PREVIOUS_RESPONSIBLE_CACHE_SIZE, DEFAULT_PREVIOUS_RESPONSIBLE_CACHE_SIZE);
+  }
+
+  public static int getPreviousResponsibleCacheTtlInSeconds() {
+    int value = TeamCityProperties.getInteger(Constants.PREVIOUS_RESPONSIBLE_CACHE_TTL_IN_SECONDS,
+                                              DEFAULT_PREVIOUS_RESPONSIBLE_CACHE_TTL_IN_SECONDS);
+    return value < 0 ? 0 : value;
+  }
+
+  /**
+   * @return memory limit for cached patterns of changed files, non-positive disables the cache.
+   */
+  public static long getFilePatternsCacheSizeInBytes() {
+    int sizeInMb = TeamCityProperties.getInteger(Constants.FILE_PATTERNS_CACHE_SIZE_IN_MB, DEFAULT_FILE_PATTERNS_CACHE_SIZE_IN_MB);
+    return sizeInMb * 1024L * 1024L;
+  }
+
+  public static int getFlakyTestsCacheSize() {
+    return TeamCityProperties.getInteger(Constants.FLAKY_TESTS_CACHE_SIZE, DEFAULT_FLAKY_TESTS_CACHE_SIZE);
+  }
+
+  public static int getFlakyTestsCacheTtlInSeconds() {
+    int value = TeamCityProperties.getInteger(Constants.FLAKY_TESTS_CACHE_TTL_IN_SECONDS, DEFAULT_FLAKY_TESTS_CACHE_TTL_IN_SECONDS);
+    return value < 0 ? 0 : value;
+  }
+
+  /**
+   * @return maximum number of builds which indexed suggestions are kept in memory, non-positive disables the cache.
+   */
+  public static int getSuggestionsCacheSize() {
+    return TeamCityProperties.getInteger(Constants.SUGGESTIONS_CACHE_SIZE, DEFAULT_SUGGESTIONS_CACHE_SIZE);
+  }
+
+  public static boolean isSuggestionsCompressionEnabled() {
+    return TeamCityProperties.getBooleanOrTrue(Constants.SUGGESTIONS_COMPRESSION_ENABLED);
+  }
+
+  public static int getStatisticsTimeSeriesMaxSize() {
+    return TeamCityProperties.getInteger(Constants.STATISTICS_TIME_SERIES_MAX_SIZE, DEFAULT_STATISTICS_TIME_SERIES_MAX_SIZE);
+  }
+
   public static int getMaxTestsPerBuildThreshold(SBuild build) {
     @Nullable
     String maxTestsPerBuildNumber = build.getBuildOwnParameters().get(Constants.MAX_TESTS_PER_BUILD_NUMBER);
@@ -83,17 +190,6 @@ public class CustomParameters {
     return parsedValue >= 0 ? parsedValue : Integer.MAX_VALUE;
   }
 
-  public static boolean shouldDelayAssignments(final SBuild sBuild) {
-    final SBuildFeatureDescriptor sBuildFeature = getBuildFeatureDescriptor(sBuild);
-    if (sBuildFeature == null) {
-      return false;
-    }
-
-    @Nullable
-    String shouldDelayAssignments = sBuildFeature.getParameters().get(Constants.ASSIGN_ON_SECOND_FAILURE);
-    return StringUtil.isTrue(shouldDelayAssignments);
-  }
-
   public boolean isBuildFeatureEnabled(@NotNull SBuild sBuild) {
     Collection<SBuildFeatureDescriptor> descriptors = sBuild.getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE);
 
@@ -113,17 +209,12 @@ public class CustomParameters {
   }
 
   @NotNull
-  public List<String> getBuildProblemTypesToIgnore(final SBuild sBuild) {
-    final SBuildFeatureDescriptor sBuildFeature = getBuildFeatureDescriptor(sBuild);
-    if (sBuildFeature == null) {
-      return Collections.emptyList();
-    }
-
-    boolean shouldIgnoreCompilation = "true".equals(sBuildFeature.getParameters().get(Constants.SHOULD_IGNORE_COMPILATION_PROBLEMS));
-    boolean shouldIgnoreExitCode = "true".equals(sBuildFeature.getParameters().get(Constants.SHOULD_IGNORE_EXITCODE_PROBLEMS));
+  private static Set<String> parseBuildProblemTypesToIgnore(@NotNull final Map<String, String> featureParameters) {
+    boolean shouldIgnoreCompilation = "true".equals(featureParameters.get(Constants.SHOULD_IGNORE_COMPILATION_PROBLEMS));
+    boolean shouldIgnoreExitCode = "true".equals(featureParameters.get(Constants.SHOULD_IGNORE_EXITCODE_PROBLEMS));
 
     if (shouldIgnoreExitCode || shouldIgnoreCompilation) {
-      ArrayList<String> result = new ArrayList<>();
+      Set<String> result = new HashSet<>();
       if (shouldIgnoreCompilation) {
         result.add(BuildProblemTypes.TC_COMPILATION_ERROR_TYPE);
       }
@@ -134,7 +225,7 @@ public class CustomParameters {
       return result;
     }
 
-    return Collections.emptyList();
+    return Collections.emptySet();
   }
 
   public boolean  isHeuristicsDisabled(@NotNull final String heuristicId) {
@@ -2,7 +2,11 @@
 
 package jetbrains.buildServer.investigationsAutoAssigner.utils;
 
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 import javax.management.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import static java.lang.String.format;
 import static java.lang.management.ManagementFactory.getPlatformMBeanServer;
@@ -15,8 +19,32 @@ public class FlakyTestDetector {
   /**
    * Whether InstanceNotFoundException has been caught.
    */
-  private boolean instanceNotFound = false;
+  private volatile boolean instanceNotFound = false;
   private final com.intellij.openapi.diagnostic.Logger LOGGER = com.intellij.openapi.diagnostic.Logger.getInstance(FlakyTestDetector.class.getName());
+  private final MBeanServer myMBeanServer;
+  @Nullable private final ObjectName myObjectName;
+  private final int myCacheMaxSize;
+  private final long myCacheTtlMillis;
+  private final Map<Long, CachedValue> myCache;
+
+  public FlakyTestDetector() {
+    this(getPlatformMBeanServer(),
+         CustomParameters.getFlakyTestsCacheSize(),
+         TimeUnit.SECONDS.toMillis(CustomParameters.getFlakyTestsCacheTtlInSeconds()));
+  }
+
+  FlakyTestDetector(@NotNull final MBeanServer mBeanServer, final int cacheMaxSize, final long cacheTtlMillis) {
+    myMBeanServer = mBeanServer;
+    myObjectName = createObjectName();
+    myCacheMaxSize = cacheMaxSize;
+    myCacheTtlMillis = cacheTtlMillis;
+    myCache = new LinkedHashMap<Long, CachedValue>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Long, CachedValue> eldest) {
+        return size() > myCacheMaxSize;
+      }
+    };
+  }
 
   /**
    * If Flaky Test Detector plug-in is not installed, returns false
@@ -25,20 +53,99 @@ public class FlakyTestDetector {
    * @return whether the test specified by testNameId is flaky.
    */
   public boolean isFlaky(final long testNameId) {
-    if (instanceNotFound) return false;
+    return !findFlaky(Collections.singleton(testNameId)).isEmpty();
+  }
+
+  /**
+   * Classifies all the given tests at once, answers known from the previous calls are taken from the cache.
+   * If Flaky Test Detector plug-in is not installed, returns an empty set.
+   *
+   * @param testNameIds the unique name_ids of the tests.
+   * @return name_ids of the flaky tests.
+   */
+  @NotNull
+  public Set<Long> findFlaky(@NotNull final Collection<Long> testNameIds) {
+    if (instanceNotFound || myObjectName == null || testNameIds.isEmpty()) return Collections.emptySet();
+
+    Set<Long> result = new HashSet<>();
+    List<Long> notCached = new ArrayList<>();
+    long now = System.currentTimeMillis();
+    synchronized (myCache) {
+      for (Long testNameId : new LinkedHashSet<>(testNameIds)) {
+        CachedValue value = myCache.get(testNameId);
+        if (value == null || value.myExpirationTime < now) {
+          notCached.add(testNameId);
+        } else if (value.myFlaky) {
+          result.add(testNameId);
+        }
+      }
+    }
+
+    for (Long testNameId : notCached) {
+      Boolean flaky = invokeIsFlaky(testNameId);
+      if (flaky == null) {
+        if (instanceNotFound) break;
+        // the test is considered not flaky this time, the failed request is not cached
+        continue;
+      }
+
+      if (flaky) {
+        result.add(testNameId);
+      }
+      putToCache(testNameId, flaky);
+    }
+
+    return result;
+  }
+
+  /**
+   * @return null when the Flaky Test Detector is not available or failed to answer.
+   */
+  @Nullable
+  private Boolean invokeIsFlaky(final long testNameId) {
+    if (instanceNotFound) return null;
 
-    final MBeanServer mBeanServer = getPlatformMBeanServer();
     try {
-      return (Boolean)mBeanServer.invoke(new ObjectName(OBJECT_NAME),
-                                         "isFlaky",
-                                         new Long[]{testNameId},
-                                         new String[]{"long"});
+      return (Boolean)myMBeanServer.invoke(myObjectName,
+                                           "isFlaky",
+                                           new Long[]{testNameId},
+                                           new String[]{"long"});
     } catch (final InstanceNotFoundException ignored) {
       instanceNotFound = true;
       LOGGER.warn(format("Flaky Test Detector is not available at %s", OBJECT_NAME));
-    } catch (final MBeanException | ReflectionException | MalformedObjectNameException e) {
+      return null;
+    } catch (final MBeanException | ReflectionException e) {
+      LOGGER.warn(e);
+      return null;
+    }
+  }
+
+  private void putToCache(final long testNameId, final boolean flaky) {
+    if (myCacheMaxSize <= 0) return;
+
+    CachedValue value = new CachedValue(flaky, System.currentTimeMillis() + myCacheTtlMillis);
+    synchronized (myCache) {
+      myCache.put(testNameId, value);
+    }
+  }
+
+  @Nullable
+  private ObjectName createObjectName() {
+    try {
+      return new ObjectName(OBJECT_NAME);
+    } catch (MalformedObjectNameException e) {
       LOGGER.warn(e);
+      return null;
+    }
+  }
+
+  private static class CachedValue {
+    private final boolean myFlaky;
+    private final long myExpirationTime;
+
+    private CachedValue(final boolean flaky, final long expirationTime) {
+      myFlaky = flaky;
+      myExpirationTime = expirationTime;
     }
-    return false;
   }
-}
\ No newline at end of file
+}
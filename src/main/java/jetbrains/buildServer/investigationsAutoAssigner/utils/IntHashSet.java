@@ -0,0 +1,121 @@
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Set of primitive ints with open addressing, which doesn't box the values as {@code HashSet<Integer>} does.
+ * Not thread-safe.
+ */
+public class IntHashSet {
+  private static final int FREE = 0;
+  private static final float LOAD_FACTOR = 0.5f;
+
+  private int[] myKeys;
+  private boolean myHasFree = false;
+  private int mySize = 0;
+
+  public IntHashSet() {
+    this(8);
+  }
+
+  public IntHashSet(final int expectedSize) {
+    myKeys = new int[capacityFor(expectedSize)];
+  }
+
+  /**
+   * @return true if the set did not already contain the value.
+   */
+  public boolean add(final int value) {
+    if (value == FREE) {
+      if (myHasFree) return false;
+      myHasFree = true;
+      mySize++;
+      return true;
+    }
+
+    int index = indexOf(myKeys, value);
+    if (myKeys[index] == value) return false;
+
+    myKeys[index] = value;
+    mySize++;
+    if (mySize > myKeys.length * LOAD_FACTOR) {
+      rehash(myKeys.length * 2);
+    }
+    return true;
+  }
+
+  public boolean contains(final int value) {
+    if (value == FREE) return myHasFree;
+    return myKeys[indexOf(myKeys, value)] == value;
+  }
+
+  public int size() {
+    return mySize;
+  }
+
+  public boolean isEmpty() {
+    return mySize == 0;
+  }
+
+  public void forEach(@NotNull final IntConsumer action) {
+    if (myHasFree) action.accept(FREE);
+    for (int key : myKeys) {
+      if (key != FREE) action.accept(key);
+    }
+  }
+
+  @NotNull
+  public int[] toArray() {
+    int[] result = new int[mySize];
+    int i = 0;
+    if (myHasFree) result[i++] = FREE;
+    for (int key : myKeys) {
+      if (key != FREE) result[i++] = key;
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    int[] values = toArray();
+    Arrays.sort(values);
+    return Arrays.toString(values);
+  }
+
+  private void rehash(final int capacity) {
+    int[] oldKeys = myKeys;
+    myKeys = new int[capacity];
+    for (int key : oldKeys) {
+      if (key != FREE) {
+        myKeys[indexOf(myKeys, key)] = key;
+      }
+    }
+  }
+
+  /**
+   * @return index of the value in the table or of the free slot where it should be put.
+   */
+  private static int indexOf(@NotNull final int[] keys, final int value) {
+    int mask = keys.length - 1;
+    int index = mix(value) & mask;
+    while (keys[index] != FREE && keys[index] != value) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+
+  private static int mix(final int value) {
+    int h = value * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private static int capacityFor(final int expectedSize) {
+    int capacity = 8;
+    while (capacity * LOAD_FACTOR < expectedSize) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+}
@@ -0,0 +1,181 @@
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Map with primitive int keys and open addressing, which doesn't box the keys as {@code HashMap<Integer, V>} does.
+ * Null values are not supported. Not thread-safe.
+ */
+public class IntObjectHashMap<V> {
+  private static final int FREE = 0;
+  private static final float LOAD_FACTOR = 0.5f;
+
+  private int[] myKeys;
+  private Object[] myValues;
+  // the value of the FREE key which can't be kept in the table
+  private V myFreeValue;
+  private int mySize = 0;
+
+  public IntObjectHashMap() {
+    this(8);
+  }
+
+  public IntObjectHashMap(final int expectedSize) {
+    int capacity = capacityFor(expectedSize);
+    myKeys = new int[capacity];
+    myValues = new Object[capacity];
+  }
+
+  @Nullable
+  public V get(final int key) {
+    if (key == FREE) return myFreeValue;
+    int index = indexOf(myKeys, key);
+    return myKeys[index] == key ? valueAt(index) : null;
+  }
+
+  public boolean containsKey(final int key) {
+    return get(key) != null;
+  }
+
+  /**
+   * @return the previous value of the key or null if there was none.
+   */
+  @Nullable
+  public V put(final int key, @NotNull final V value) {
+    return put(key, value, true);
+  }
+
+  /**
+   * @return the current value of the key if there is one, otherwise puts the value and returns null.
+   */
+  @Nullable
+  public V putIfAbsent(final int key, @NotNull final V value) {
+    return put(key, value, false);
+  }
+
+  public void putAll(@NotNull final IntObjectHashMap<? extends V> other) {
+    other.forEach(this::put);
+  }
+
+  public int size() {
+    return mySize;
+  }
+
+  public boolean isEmpty() {
+    return mySize == 0;
+  }
+
+  public void forEach(@NotNull final EntryConsumer<? super V> action) {
+    if (myFreeValue != null) action.accept(FREE, myFreeValue);
+    for (int i = 0; i < myKeys.length; i++) {
+      if (myValues[i] != null) action.accept(myKeys[i], valueAt(i));
+    }
+  }
+
+  @NotNull
+  public List<V> values() {
+    List<V> result = new ArrayList<>(mySize);
+    forEach((key, value) -> result.add(value));
+    return result;
+  }
+
+  /**
+   * @return a copy with boxed keys.
+   */
+  @NotNull
+  public Map<Integer, V> toMap() {
+    Map<Integer, V> result = new HashMap<>(mySize * 2);
+    forEach(result::put);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return toMap().toString();
+  }
+
+  @Nullable
+  private V put(final int key, @NotNull final V value, final boolean replace) {
+    if (key == FREE) {
+      V previous = myFreeValue;
+      if (previous == null) {
+        mySize++;
+      }
+      if (previous == null || replace) {
+        myFreeValue = value;
+      }
+      return previous;
+    }
+
+    int index = indexOf(myKeys, key);
+    V previous = valueAt(index);
+    if (previous != null) {
+      if (replace) {
+        myValues[index] = value;
+      }
+      return previous;
+    }
+
+    myKeys[index] = key;
+    myValues[index] = value;
+    mySize++;
+    if (mySize > myKeys.length * LOAD_FACTOR) {
+      rehash(myKeys.length * 2);
+    }
+    return null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private V valueAt(final int index) {
+    return (V)myValues[index];
+  }
+
+  private void rehash(final int capacity) {
+    int[] oldKeys = myKeys;
+    Object[] oldValues = myValues;
+    myKeys = new int[capacity];
+    myValues = new Object[capacity];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldValues[i] != null) {
+        int index = indexOf(myKeys, oldKeys[i]);
+        myKeys[index] = oldKeys[i];
+        myValues[index] = oldValues[i];
+      }
+    }
+  }
+
+  /**
+   * @return index of the key in the table or of the free slot where it should be put.
+   */
+  private static int indexOf(@NotNull final int[] keys, final int key) {
+    int mask = keys.length - 1;
+    int index = mix(key) & mask;
+    while (keys[index] != FREE && keys[index] != key) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+
+  private static int mix(final int value) {
+    int h = value * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private static int capacityFor(final int expectedSize) {
+    int capacity = 8;
+    while (capacity * LOAD_FACTOR < expectedSize) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  @FunctionalInterface
+  public interface EntryConsumer<V> {
+    void accept(int key, V value);
+  }
+}
@@ -2,8 +2,13 @@
 
 package jetbrains.buildServer.investigationsAutoAssigner.utils;
 
+import com.intellij.openapi.diagnostic.Logger;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import jetbrains.buildServer.BuildProject;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.responsibility.BuildProblemResponsibilityEntry;
 import jetbrains.buildServer.responsibility.ResponsibilityEntry;
 import jetbrains.buildServer.responsibility.ResponsibilityFacadeEx;
@@ -19,21 +24,25 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public class InvestigationsManager {
+  private static final Logger LOGGER = Constants.LOGGER;
 
   @NotNull private final AuditLogProvider myAuditLogProvider;
   @NotNull private final ResponsibilityFacadeEx myResponsibilityFacade;
+  @NotNull private final ProjectHierarchyIndex myProjectHierarchyIndex;
 
   public InvestigationsManager(@NotNull final AuditLogProvider auditLogProvider,
-                               @NotNull final ResponsibilityFacadeEx responsibilityFacade) {
+                               @NotNull final ResponsibilityFacadeEx responsibilityFacade,
+                               @NotNull final ProjectHierarchyIndex projectHierarchyIndex) {
     this.myAuditLogProvider = auditLogProvider;
     myResponsibilityFacade = responsibilityFacade;
+    myProjectHierarchyIndex = projectHierarchyIndex;
   }
 
   public boolean checkUnderInvestigation(@NotNull final SProject project,
                                          @NotNull final SBuild sBuild,
                                          @NotNull final BuildProblem problem) {
     for (BuildProblemResponsibilityEntry entry : problem.getAllResponsibilities()) {
-      if (isActiveOrAlreadyFixed(sBuild, entry) && belongsToSameProjectOrParent(entry.getProject(), project)) return true;
+      if (isActiveOrAlreadyFixed(entry, sBuild.getQueuedDate().getTime()) && belongsToSameProjectOrParent(entry.getProject(), project)) return true;
     }
     return false;
   }
@@ -44,53 +53,121 @@ public class InvestigationsManager {
     return getInvestigation(project, sBuild, test) != null;
   }
 
+  /**
+   * Bulk version of {@link #checkUnderInvestigation(SProject, SBuild, STest)} for all failed tests of a build,
+   * the project hierarchy and the queued date of the build are resolved once for all the tests.
+   *
+   * @return name ids of the tests which are under an investigation or were fixed after the build was queued.
+   */
+  @NotNull
+  public Set<Long> findUnderInvestigation(@NotNull final SProject project,
+                                          @NotNull final SBuild sBuild,
+                                          @NotNull final Collection<STest> tests) {
+    Set<Long> result = new HashSet<>();
+    if (tests.isEmpty()) {
+      return result;
+    }
+
+    Set<String> projectIds = myProjectHierarchyIndex.getAncestorOrSelfIds(project);
+    long queuedTime = sBuild.getQueuedDate().getTime();
+    for (STest test : tests) {
+      for (TestNameResponsibilityEntry entry : test.getAllResponsibilities()) {
+        if (isActiveOrAlreadyFixed(entry, queuedTime) && projectIds.contains(entry.getProject().getProjectId())) {
+          result.add(test.getTestNameId());
+          break;
+        }
+      }
+    }
+    return result;
+  }
+
   @Nullable
   public TestNameResponsibilityEntry getInvestigation(@NotNull final SProject project,
                                                       @NotNull final SBuild sBuild,
                                                       @NotNull final STest test) {
     for (TestNameResponsibilityEntry entry : test.getAllResponsibilities()) {
-      if (isActiveOrAlreadyFixed(sBuild, entry) && belongsToSameProjectOrParent(entry.getProject(), project)) return entry;
+      if (isActiveOrAlreadyFixed(entry, sBuild.getQueuedDate().getTime()) && belongsToSameProjectOrParent(entry.getProject(), project)) return entry;
     }
     return null;
   }
 
-  private boolean isActiveOrAlreadyFixed(@NotNull final SBuild sBuild, @NotNull final ResponsibilityEntry entry) {
+  /**
+   * @param queuedTime time when the checked build was queued, in milliseconds.
+   */
+  private static boolean isActiveOrAlreadyFixed(@NotNull final ResponsibilityEntry entry, final long queuedTime) {
     final ResponsibilityEntry.State state = entry.getState();
-    return state.isActive() || (state.isFixed() && createdBeforeBuildQueued(entry, sBuild));
+    return state.isActive() || (state.isFixed() && createdBeforeBuildQueued(entry, queuedTime));
   }
 
-  private static boolean createdBeforeBuildQueued(final ResponsibilityEntry entry, final SBuild sBuild) {
-    return sBuild.getQueuedDate().getTime() - entry.getTimestamp().getTime() <= 0;
+  private static boolean createdBeforeBuildQueued(final ResponsibilityEntry entry, final long queuedTime) {
+    return queuedTime - entry.getTimestamp().getTime() <= 0;
   }
 
   private boolean belongsToSameProjectOrParent(@NotNull final BuildProject parent, @NotNull final BuildProject project) {
-    List<String> projectIds = collectProjectHierarchyIds(project);
-    return projectIds.contains(parent.getProjectId());
+    return myProjectHierarchyIndex.isAncestorOrSelf(parent, project);
   }
 
+  /**
+   * Looks for the previous responsible among investigations of the problem only.
+   * Audit records are checked in bulk by {@link #findInAudit(Collection)}.
+   */
   @Nullable
   public User findPreviousResponsible(@NotNull final SProject project,
                                       @NotNull final SBuild sBuild,
                                       @NotNull final BuildProblem problem) {
-    User responsible = this.findAmongEntries(project, sBuild, problem.getAllResponsibilities());
-    if (responsible == null) {
-      responsible = this.findInAudit(problem);
-    }
-    return responsible;
+    return this.findAmongEntries(project, sBuild, problem.getAllResponsibilities());
   }
 
-  @Nullable
-  private User findInAudit(final BuildProblem buildProblem) {
+  /**
+   * Finds users who marked the problems as fixed using one audit query for all the problems.
+   * Audit actions are read the same way as for tests, see {@link #scanAuditLog(AuditLogBuilder, BooleanSupplier, Consumer)}.
+   *
+   * @return the user from the latest suitable audit action for each problem which has one.
+   */
+  @NotNull
+  public HashMap<BuildProblem, User> findInAudit(@NotNull final Collection<BuildProblem> buildProblems) {
+    HashMap<BuildProblem, User> result = new HashMap<>();
+    if (buildProblems.isEmpty()) {
+      return result;
+    }
+
+    Map<String, List<BuildProblem>> objectIdToProblems = new HashMap<>();
+    for (BuildProblem buildProblem : buildProblems) {
+      objectIdToProblems.computeIfAbsent(BuildProblemAuditId.fromBuildProblem(buildProblem).asString(),
+                                         objectId -> new ArrayList<>())
+                        .add(buildProblem);
+    }
+
     AuditLogBuilder builder = myAuditLogProvider.getBuilder();
-    builder.setObjectId(BuildProblemAuditId.fromBuildProblem(buildProblem).asString());
+    builder.setObjectIds(new HashSet<>(objectIdToProblems.keySet()));
     builder.setActionTypes(ActionType.BUILD_PROBLEM_MARK_AS_FIXED);
     builder.addFilter(new ObjectTypeFilter(ObjectType.BUILD_PROBLEM));
-    AuditLogAction lastAction = builder.findLastAction();
-    if (lastAction == null) {
-      return null;
+    int scannedActions = scanAuditLog(builder, objectIdToProblems::isEmpty, action -> {
+      if (!objectIdToProblems.containsKey(action.getObjectId())) {
+        return;
+      }
+
+      User user = findUser(action);
+      if (user == null) {
+        return;
+      }
+
+      // actions are read newest first, so the first found user is the latest one
+      for (BuildProblem problem : objectIdToProblems.remove(action.getObjectId())) {
+        result.put(problem, user);
+      }
+    });
+
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug(String.format("Scanned %d audit actions to find previous responsible for %d of %d build problems.",
+                                 scannedActions, result.size(), buildProblems.size()));
     }
+    return result;
+  }
 
-    for (ObjectWrapper obj : lastAction.getObjects()) {
+  @Nullable
+  private static User findUser(@NotNull final AuditLogAction action) {
+    for (ObjectWrapper obj : action.getObjects()) {
       Object user = obj.getObject();
       if (user instanceof User) {
         return (User)user;
@@ -114,7 +191,7 @@ public class InvestigationsManager {
       BuildProject entryProject = myResponsibilityFacade.getProject(entry);
       final ResponsibilityEntry.State state = entry.getState();
       if (state.isFixed() &&
-          !createdBeforeBuildQueued(entry, sBuild) &&
+          !createdBeforeBuildQueued(entry, sBuild.getQueuedDate().getTime()) &&
           entryProject != null &&
           belongsToSameProjectOrParent(entryProject, project)) {
         return entry.getResponsibleUser();
@@ -123,47 +200,79 @@ public class InvestigationsManager {
     return null;
   }
 
+  /**
+   * Finds the latest users who were assigned to or fixed the tests in the project or its parents.
+   * Audit actions are read as described in {@link #scanAuditLog(AuditLogBuilder, BooleanSupplier, Consumer)}.
+   */
   @NotNull
   public HashMap<Long, User> findInAudit(@NotNull final Iterable<STestRun> sTestRuns, @NotNull SProject project) {
-    AuditLogBuilder builder = myAuditLogProvider.getBuilder();
-    builder.setActionTypes(ActionType.TEST_MARK_AS_FIXED, ActionType.TEST_INVESTIGATION_ASSIGN);
-    List<String> projectIds = collectProjectHierarchyIds(project);
+    HashMap<Long, User> result = new HashMap<>();
+    Set<String> projectIds = myProjectHierarchyIndex.getAncestorOrSelfIds(project);
+    Set<Long> testNameIds = new HashSet<>();
     Set<String> objectIds = new HashSet<>();
     for (STestRun testRun : sTestRuns) {
+      long testNameId = testRun.getTest().getTestNameId();
+      testNameIds.add(testNameId);
       for (String projectId : projectIds) {
-        objectIds.add(TestId.createOn(testRun.getTest().getTestNameId(), projectId).asString());
+        objectIds.add(TestId.createOn(testNameId, projectId).asString());
       }
     }
-    if (objectIds.isEmpty() && TeamCityProperties.getBooleanOrTrue("teamcity.autoAssigner.skipAuditLookupWithoutTests.enabled")) {
-      return new HashMap<>();
+    if (objectIds.isEmpty()) {
+      return result;
     }
-    builder.setObjectIds(objectIds);
-    List<AuditLogAction> lastActions = builder.getLogActions(-1);
-    HashMap<Long, User> result = new HashMap<>();
-    for (AuditLogAction action : lastActions) {
-      for (ObjectWrapper obj : action.getObjects()) {
-        Object user = obj.getObject();
-        if (!(user instanceof User)) {
-          continue;
-        }
 
-        TestId testId = TestId.fromString(action.getObjectId());
-        if (testId != null) {
-          result.putIfAbsent(testId.getTestNameId(), (User)user);
-          break;
-        }
+    AuditLogBuilder builder = myAuditLogProvider.getBuilder();
+    builder.setActionTypes(ActionType.TEST_MARK_AS_FIXED, ActionType.TEST_INVESTIGATION_ASSIGN);
+    builder.setObjectIds(objectIds);
+    int scannedActions = scanAuditLog(builder, () -> result.size() >= testNameIds.size(), action -> {
+      User user = findUser(action);
+      TestId testId = TestId.fromString(action.getObjectId());
+      if (user != null && testId != null) {
+        result.putIfAbsent(testId.getTestNameId(), user);
       }
+    });
+
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug(String.format("Project %s: scanned %d audit actions to find previous responsible for %d of %d tests.",
+                                 project.getProjectId(), scannedActions, result.size(), testNameIds.size()));
     }
     return result;
   }
 
-  @NotNull
-  private List<String> collectProjectHierarchyIds(@NotNull BuildProject project) {
-    List<String> result = new ArrayList<>();
-    do {
-      result.add(project.getProjectId());
-      project = project.getParentProject();
-    } while (project != null);
-    return result;
+  /**
+   * Reads audit actions newest first page by page within the configured period,
+   * the lookup stops as soon as everything is found or the maximum number of actions is scanned.
+   *
+   * @return the number of scanned actions.
+   */
+  private static int scanAuditLog(@NotNull final AuditLogBuilder builder,
+                                  @NotNull final BooleanSupplier allFound,
+                                  @NotNull final Consumer<AuditLogAction> actionConsumer) {
+    int periodInDays = CustomParameters.getAuditLookupPeriodInDays();
+    if (periodInDays > 0) {
+      builder.setFromDate(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(periodInDays)));
+    }
+
+    int pageSize = CustomParameters.getAuditLookupPageSize();
+    int maxActions = CustomParameters.getAuditLookupMaxActions();
+    int scannedActions = 0;
+    Date toDate = null;
+    while (!allFound.getAsBoolean() && scannedActions < maxActions) {
+      List<AuditLogAction> page = builder.getLogActions(pageSize);
+      scannedActions += page.size();
+      for (AuditLogAction action : page) {
+        actionConsumer.accept(action);
+      }
+
+      if (page.size() < pageSize) {
+        break;
+      }
+
+      // the page bound is inclusive, step over it when the whole page has the same date to avoid reading it again
+      Date oldest = page.get(page.size() - 1).getCreated();
+      toDate = oldest.equals(toDate) ? new Date(oldest.getTime() - 1) : oldest;
+      builder.setToDate(toDate);
+    }
+    return scannedActions;
   }
-}
\ No newline at end of file
+}
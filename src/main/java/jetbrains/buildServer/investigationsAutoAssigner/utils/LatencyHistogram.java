@@ -0,0 +1,96 @@
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Histogram of durations with power-of-two buckets: a duration of n nanoseconds is counted in the bucket
+ * of the highest set bit of n. Recording takes no locks, percentiles are estimated by the upper bound of the bucket.
+ */
+public final class LatencyHistogram {
+  private static final int BUCKETS = 64;
+  private final LongAdder[] myBuckets = new LongAdder[BUCKETS];
+  private final LongAdder myCount = new LongAdder();
+  private final LongAdder myTotalNanos = new LongAdder();
+  private final LongAccumulator myMaxNanos = new LongAccumulator(Long::max, 0);
+
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKETS; i++) {
+      myBuckets[i] = new LongAdder();
+    }
+  }
+
+  public void record(long nanos) {
+    if (nanos < 0) nanos = 0;
+    myBuckets[BUCKETS - Long.numberOfLeadingZeros(nanos)].increment();
+    myCount.increment();
+    myTotalNanos.add(nanos);
+    myMaxNanos.accumulate(nanos);
+  }
+
+  @NotNull
+  public Snapshot getSnapshot() {
+    long[] buckets = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets[i] = myBuckets[i].sum();
+    }
+    return new Snapshot(buckets, myCount.sum(), myTotalNanos.sum(), myMaxNanos.get());
+  }
+
+  public static final class Snapshot {
+    private final long[] myBuckets;
+    private final long myCount;
+    private final long myTotalNanos;
+    private final long myMaxNanos;
+
+    private Snapshot(@NotNull long[] buckets, long count, long totalNanos, long maxNanos) {
+      myBuckets = buckets;
+      myCount = count;
+      myTotalNanos = totalNanos;
+      myMaxNanos = maxNanos;
+    }
+
+    public long getCount() {
+      return myCount;
+    }
+
+    public long getTotalNanos() {
+      return myTotalNanos;
+    }
+
+    public long getMaxNanos() {
+      return myMaxNanos;
+    }
+
+    public long getMeanNanos() {
+      return myCount == 0 ? 0 : myTotalNanos / myCount;
+    }
+
+    /**
+     * @param quantile value from 0 to 1
+     * @return estimation of the duration, not more than the maximal recorded one
+     */
+    public long getPercentileNanos(double quantile) {
+      long total = 0;
+      for (long bucket : myBuckets) {
+        total += bucket;
+      }
+      if (total == 0) return 0;
+
+      long rank = Math.max(1, (long)Math.ceil(quantile * total));
+      long seen = 0;
+      for (int i = 0; i < myBuckets.length; i++) {
+        seen += myBuckets[i];
+        if (seen >= rank) {
+          return Math.min(getUpperBound(i), myMaxNanos);
+        }
+      }
+      return myMaxNanos;
+    }
+
+    private static long getUpperBound(int bucket) {
+      return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+  }
+}
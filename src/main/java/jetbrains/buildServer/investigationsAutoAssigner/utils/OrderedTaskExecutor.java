@@ -0,0 +1,118 @@
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import com.intellij.openapi.diagnostic.Logger;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
+import jetbrains.buildServer.util.NamedDaemonThreadFactory;
+import jetbrains.buildServer.util.ThreadUtil;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Bounded pool of worker threads. Tasks submitted with the same key are executed one by one in the order
+ * of submission, tasks with different keys may be executed in parallel.
+ * The capacity of the queue limits the number of keys waiting for a free worker,
+ * the total number of tasks which are not started yet is limited separately.
+ */
+public class OrderedTaskExecutor {
+  private static final Logger LOGGER = Constants.LOGGER;
+
+  @NotNull private final String myName;
+  @NotNull private final ThreadPoolExecutor myExecutor;
+  @NotNull private final Map<String, Deque<Runnable>> myPendingTasks = new HashMap<>();
+  private final int myMaxPendingTasks;
+  private int myPendingTasksCount = 0;
+
+  public OrderedTaskExecutor(@NotNull final String name,
+                             final int threadsCount,
+                             final int queueCapacity,
+                             final int maxPendingTasks) {
+    myName = name;
+    myMaxPendingTasks = maxPendingTasks;
+    myExecutor = new ThreadPoolExecutor(threadsCount, threadsCount,
+                                        60, TimeUnit.SECONDS,
+                                        new ArrayBlockingQueue<>(queueCapacity),
+                                        new NamedDaemonThreadFactory(name));
+    myExecutor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * @return false when the task was not accepted because too many tasks are pending, all workers are busy
+   * and the queue is full, or the executor was shut down. The caller is responsible for retrying the task later.
+   */
+  public boolean trySubmit(@NotNull final String key, @NotNull final Runnable task) {
+    synchronized (myPendingTasks) {
+      if (myPendingTasksCount >= myMaxPendingTasks) {
+        return false;
+      }
+
+      Deque<Runnable> tasks = myPendingTasks.get(key);
+      if (tasks != null) {
+        tasks.addLast(task);
+        myPendingTasksCount++;
+        return true;
+      }
+
+      tasks = new ArrayDeque<>();
+      tasks.addLast(task);
+      myPendingTasks.put(key, tasks);
+      try {
+        myExecutor.execute(() -> runTasks(key));
+        myPendingTasksCount++;
+        return true;
+      } catch (RejectedExecutionException e) {
+        myPendingTasks.remove(key);
+        return false;
+      }
+    }
+  }
+
+  private void runTasks(@NotNull final String key) {
+    while (true) {
+      Runnable task;
+      synchronized (myPendingTasks) {
+        Deque<Runnable> tasks = myPendingTasks.get(key);
+        task = tasks == null ? null : tasks.pollFirst();
+        if (task == null) {
+          myPendingTasks.remove(key);
+          return;
+        }
+        myPendingTasksCount--;
+      }
+
+      try {
+        task.run();
+      } catch (Throwable t) {
+        LOGGER.warnAndDebugDetails("Unexpected error in " + myName + " while processing task for " + key, t);
+      }
+    }
+  }
+
+  public int getQueueSize() {
+    return myExecutor.getQueue().size();
+  }
+
+  public int getActiveCount() {
+    return myExecutor.getActiveCount();
+  }
+
+  /**
+   * @return number of submitted tasks which are not started yet, including the tasks waiting for the previous task
+   * with the same key.
+   */
+  public int getPendingTasksCount() {
+    synchronized (myPendingTasks) {
+      return myPendingTasksCount;
+    }
+  }
+
+  public void shutdown() {
+    ThreadUtil.shutdownGracefully(myExecutor, myName);
+  }
+}
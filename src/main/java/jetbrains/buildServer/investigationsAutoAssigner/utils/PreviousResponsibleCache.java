@@ -0,0 +1,205 @@
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import jetbrains.buildServer.serverSide.SProject;
+import jetbrains.buildServer.users.User;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
+
+/**
+ * Remembers previous responsible users of tests found by {@link jetbrains.buildServer.investigationsAutoAssigner.heuristics.PreviousResponsibleHeuristic}
+ * for the project of the failed build, including the fact that there is no such user.
+ * The cache is bounded, the least recently used entries are evicted first and every entry expires after the configured time.
+ * Entries of a project and its subprojects are dropped whenever an investigation in the project changes.
+ * A user found while an investigation was changed is not cached: callers read the generation of the project
+ * before the lookup and pass it to {@link #put(long, String, User, long)}. Generations are kept for invalidated
+ * projects until they are removed from the server.
+ */
+public class PreviousResponsibleCache {
+  private final int myMaxSize;
+  private final long myTtlMillis;
+  private final Map<Key, CachedValue> myCache;
+  private final Map<String, Long> myGenerations = new HashMap<>();
+  private final AtomicLong myHits = new AtomicLong();
+  private final AtomicLong myMisses = new AtomicLong();
+
+  public PreviousResponsibleCache() {
+    this(CustomParameters.getPreviousResponsibleCacheSize(),
+         TimeUnit.SECONDS.toMillis(CustomParameters.getPreviousResponsibleCacheTtlInSeconds()));
+  }
+
+  PreviousResponsibleCache(final int maxSize, final long ttlMillis) {
+    myMaxSize = maxSize;
+    myTtlMillis = ttlMillis;
+    myCache = new LinkedHashMap<Key, CachedValue>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Key, CachedValue> eldest) {
+        return size() > myMaxSize;
+      }
+    };
+  }
+
+  @NotNull
+  public Lookup get(final long testNameId, @NotNull final String projectId) {
+    Key key = new Key(testNameId, projectId);
+    synchronized (myCache) {
+      CachedValue value = myCache.get(key);
+      if (value != null && value.myExpirationTime < System.currentTimeMillis()) {
+        myCache.remove(key);
+        value = null;
+      }
+
+      if (value == null) {
+        myMisses.incrementAndGet();
+        return Lookup.NOT_CACHED;
+      }
+
+      myHits.incrementAndGet();
+      return new Lookup(true, value.myUser);
+    }
+  }
+
+  /**
+   * @return the number of invalidations of the project, it should be read before looking for the users to cache.
+   */
+  public long getGeneration(@NotNull final String projectId) {
+    synchronized (myCache) {
+      return myGenerations.getOrDefault(projectId, 0L);
+    }
+  }
+
+  /**
+   * Caches the user unless the project was invalidated after the given generation was read.
+   */
+  public void put(final long testNameId, @NotNull final String projectId, @Nullable final User user, final long generation) {
+    if (myMaxSize <= 0) {
+      return;
+    }
+
+    CachedValue value = new CachedValue(user, System.currentTimeMillis() + myTtlMillis);
+    synchronized (myCache) {
+      if (myGenerations.getOrDefault(projectId, 0L) == generation) {
+        myCache.put(new Key(testNameId, projectId), value);
+      }
+    }
+  }
+
+  public void invalidate(@NotNull final SProject project) {
+    Set<String> projectIds = getProjectAndSubprojectIds(project);
+    synchronized (myCache) {
+      for (String projectId : projectIds) {
+        myGenerations.merge(projectId, 1L, Long::sum);
+      }
+      myCache.keySet().removeIf(key -> projectIds.contains(key.myProjectId));
+    }
+  }
+
+  /**
+   * Drops everything kept for the removed project and its subprojects, their tests are not looked up anymore.
+   */
+  public void removeProject(@NotNull final SProject project) {
+    Set<String> projectIds = getProjectAndSubprojectIds(project);
+    synchronized (myCache) {
+      myGenerations.keySet().removeAll(projectIds);
+      myCache.keySet().removeIf(key -> projectIds.contains(key.myProjectId));
+    }
+  }
+
+  public long getHitCount() {
+    return myHits.get();
+  }
+
+  public long getMissCount() {
+    return myMisses.get();
+  }
+
+  @TestOnly
+  int size() {
+    synchronized (myCache) {
+      return myCache.size();
+    }
+  }
+
+  @TestOnly
+  int getGenerationsCount() {
+    synchronized (myCache) {
+      return myGenerations.size();
+    }
+  }
+
+  @NotNull
+  private static Set<String> getProjectAndSubprojectIds(@NotNull final SProject project) {
+    Set<String> projectIds = new HashSet<>();
+    projectIds.add(project.getProjectId());
+    for (SProject subProject : project.getProjects()) {
+      projectIds.add(subProject.getProjectId());
+    }
+    return projectIds;
+  }
+
+  /**
+   * Result of {@link #get(long, String)}: either nothing is cached for the test, or the cached previous responsible
+   * which is null when it is known that the test has no previous responsible.
+   */
+  public static final class Lookup {
+    private static final Lookup NOT_CACHED = new Lookup(false, null);
+
+    private final boolean myCached;
+    @Nullable private final User myUser;
+
+    private Lookup(final boolean cached, @Nullable final User user) {
+      myCached = cached;
+      myUser = user;
+    }
+
+    public boolean isCached() {
+      return myCached;
+    }
+
+    @Nullable
+    public User getUser() {
+      return myUser;
+    }
+  }
+
+  private static class Key {
+    private final long myTestNameId;
+    private final String myProjectId;
+
+    private Key(final long testNameId, @NotNull final String projectId) {
+      myTestNameId = testNameId;
+      myProjectId = projectId;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      Key key = (Key)o;
+      return myTestNameId == key.myTestNameId && myProjectId.equals(key.myProjectId);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(myTestNameId, myProjectId);
+    }
+  }
+
+  private static class CachedValue {
+    @Nullable private final User myUser;
+    private final long myExpirationTime;
+
+    private CachedValue(@Nullable final User user, final long expirationTime) {
+      myUser = user;
+      myExpirationTime = expirationTime;
+    }
+  }
+}
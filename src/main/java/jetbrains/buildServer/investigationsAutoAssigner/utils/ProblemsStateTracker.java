@@ -0,0 +1,97 @@
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import jetbrains.buildServer.responsibility.ResponsibilityEntry;
+import jetbrains.buildServer.serverSide.BuildServerAdapter;
+import jetbrains.buildServer.serverSide.BuildServerListenerEventDispatcher;
+import jetbrains.buildServer.serverSide.SProject;
+import jetbrains.buildServer.serverSide.mute.MuteInfo;
+import jetbrains.buildServer.serverSide.problems.BuildProblemInfo;
+import jetbrains.buildServer.tests.TestName;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Tracks changes of the state of tests and build problems which can make them not applicable after filtering:
+ * new investigations and mutes. Every change gets the next version number which is remembered for its project,
+ * so a processing pass can find out whether anything relevant for its project changed since the pass started.
+ */
+public class ProblemsStateTracker {
+  private final AtomicLong myVersion = new AtomicLong();
+  private final Map<String, Long> myLastChangeVersions = new ConcurrentHashMap<>();
+  // version of the last change which scope is unknown, such change affects all the projects
+  private volatile long myLastGlobalChangeVersion = 0;
+  private final ProjectHierarchyIndex myProjectHierarchyIndex;
+
+  public ProblemsStateTracker(@NotNull final BuildServerListenerEventDispatcher buildServerListenerEventDispatcher,
+                              @NotNull final ProjectHierarchyIndex projectHierarchyIndex) {
+    this(projectHierarchyIndex);
+    buildServerListenerEventDispatcher.addListener(new BuildServerAdapter() {
+      @Override
+      public void responsibleChanged(@NotNull final SProject project,
+                                     @NotNull final Collection<TestName> testNames,
+                                     @NotNull final ResponsibilityEntry entry,
+                                     final boolean isUserAction) {
+        onChanged(project);
+      }
+
+      @Override
+      public void responsibleChanged(@NotNull final SProject project,
+                                     @NotNull final Collection<BuildProblemInfo> buildProblems,
+                                     @Nullable final ResponsibilityEntry entry) {
+        onChanged(project);
+      }
+
+      @Override
+      public void testsMuted(@NotNull final MuteInfo muteInfo) {
+        onChanged(muteInfo.getProject());
+      }
+
+      @Override
+      public void buildProblemsMuted(@NotNull final MuteInfo muteInfo) {
+        onChanged(muteInfo.getProject());
+      }
+    });
+  }
+
+  ProblemsStateTracker(@NotNull final ProjectHierarchyIndex projectHierarchyIndex) {
+    myProjectHierarchyIndex = projectHierarchyIndex;
+  }
+
+  /**
+   * @return the version to pass to {@link #hasChangedSince(long, SProject)} later.
+   */
+  public long getVersion() {
+    return myVersion.get();
+  }
+
+  /**
+   * @return whether tests or build problems of the project or its parents were muted or got investigations
+   * after the version was taken.
+   */
+  public boolean hasChangedSince(final long version, @NotNull final SProject project) {
+    if (myLastGlobalChangeVersion > version) {
+      return true;
+    }
+
+    for (String projectId : myProjectHierarchyIndex.getAncestorOrSelfIds(project)) {
+      Long lastChange = myLastChangeVersions.get(projectId);
+      if (lastChange != null && lastChange > version) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  void onChanged(@Nullable final SProject project) {
+    if (project == null) {
+      myLastGlobalChangeVersion = myVersion.incrementAndGet();
+      return;
+    }
+
+    myLastChangeVersions.put(project.getProjectId(), myVersion.incrementAndGet());
+  }
+}
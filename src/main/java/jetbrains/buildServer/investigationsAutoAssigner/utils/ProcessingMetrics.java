@@ -0,0 +1,167 @@
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
+import jetbrains.buildServer.serverSide.TeamCityProperties;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Durations of the stages of build processing. Measuring is switched on by the
+ * {@link Constants#PROCESSING_METRICS_ENABLED} internal property which is read once, when it is off
+ * {@link #start()} and {@link #stop(String, long)} only check a flag and neither the clock is read nor
+ * any object is allocated.
+ * <p>
+ * Gauges and counters of the processing backlog and the lag of assignments are always collected: gauges are
+ * computed only when they are requested, and counters and the lag are updated once per build at most.
+ */
+public final class ProcessingMetrics {
+  public static final String FETCH_BUILD_PROBLEMS = "fetchBuildProblems";
+  public static final String FETCH_FAILED_TESTS = "fetchFailedTests";
+  public static final String FILTER_BUILD_PROBLEMS = "filterBuildProblems";
+  public static final String FILTER_FAILED_TESTS = "filterFailedTests";
+  public static final String HEURISTIC_PREFIX = "heuristic.";
+  public static final String PERSIST_SUGGESTIONS = "persistSuggestions";
+  public static final String ASSIGN_FAILED_TESTS = "assignFailedTests";
+  public static final String ASSIGN_BUILD_PROBLEMS = "assignBuildProblems";
+  public static final String FAILED_BUILDS = "failedBuilds";
+  public static final String POSTPONED_FINISHED_BUILDS = "postponedFinishedBuilds";
+  public static final String DELAYED_ASSIGNMENTS = "delayedAssignments";
+  public static final String PENDING_TASKS = "pendingTasks";
+  public static final String ACTIVE_WORKERS = "activeWorkers";
+  public static final String PREVIOUS_RESPONSIBLE_CACHE_HITS = "previousResponsibleCacheHits";
+  public static final String PREVIOUS_RESPONSIBLE_CACHE_MISSES = "previousResponsibleCacheMisses";
+  public static final String REJECTED_TASKS = "rejectedTasks";
+  public static final String IGNORED_BUILDS = "ignoredBuilds";
+  private static final long NOT_MEASURED = Long.MIN_VALUE;
+  private static final Map<String, LatencyHistogram> ourHistograms = new ConcurrentHashMap<>();
+  private static final Map<String, LongSupplier> ourGauges = new ConcurrentHashMap<>();
+  private static final Map<String, LongAdder> ourCounters = new ConcurrentHashMap<>();
+  private static final Map<String, LongSupplier> ourRegisteredCounters = new ConcurrentHashMap<>();
+  private static volatile LatencyHistogram ourAssignmentLag = new LatencyHistogram();
+  private static volatile boolean ourEnabled = TeamCityProperties.getBoolean(Constants.PROCESSING_METRICS_ENABLED);
+
+  private ProcessingMetrics() {
+  }
+
+  public static boolean isEnabled() {
+    return ourEnabled;
+  }
+
+  /**
+   * @return start time to pass to {@link #stop(String, long)}
+   */
+  public static long start() {
+    return ourEnabled ? System.nanoTime() : NOT_MEASURED;
+  }
+
+  public static void stop(@NotNull String stage, long start) {
+    if (start == NOT_MEASURED) return;
+    record(stage, System.nanoTime() - start);
+  }
+
+  /**
+   * Same as {@link #stop(String, long)} for a heuristic, the name of the stage is built only when measuring is on.
+   */
+  public static void stopHeuristic(@NotNull String heuristicId, long start) {
+    if (start == NOT_MEASURED) return;
+    record(HEURISTIC_PREFIX + heuristicId, System.nanoTime() - start);
+  }
+
+  /**
+   * @return snapshots of the histograms sorted by the name of the stage
+   */
+  @NotNull
+  public static Map<String, LatencyHistogram.Snapshot> getSnapshots() {
+    Map<String, LatencyHistogram.Snapshot> result = new TreeMap<>();
+    ourHistograms.forEach((stage, histogram) -> result.put(stage, histogram.getSnapshot()));
+    return result;
+  }
+
+  /**
+   * Registers a gauge computed when the metrics are requested, a gauge with the same name is replaced.
+   */
+  public static void registerGauge(@NotNull String name, @NotNull LongSupplier gauge) {
+    ourGauges.put(name, gauge);
+  }
+
+  public static void unregisterGauge(@NotNull String name) {
+    ourGauges.remove(name);
+  }
+
+  /**
+   * Registers a counter kept by another component, its value should only grow. A counter with the same name is replaced.
+   */
+  public static void registerCounter(@NotNull String name, @NotNull LongSupplier counter) {
+    ourRegisteredCounters.put(name, counter);
+  }
+
+  public static void unregisterCounter(@NotNull String name) {
+    ourRegisteredCounters.remove(name);
+  }
+
+  public static void increment(@NotNull String counter) {
+    LongAdder adder = ourCounters.get(counter);
+    if (adder == null) {
+      adder = ourCounters.computeIfAbsent(counter, key -> new LongAdder());
+    }
+    adder.increment();
+  }
+
+  /**
+   * Records time from the finish of a build to the end of its processing, when the investigations are assigned.
+   */
+  public static void recordAssignmentLag(long nanos) {
+    ourAssignmentLag.record(nanos);
+  }
+
+  /**
+   * @return current values of the gauges sorted by name, a gauge which fails to compute its value is skipped
+   */
+  @NotNull
+  public static Map<String, Long> getGauges() {
+    Map<String, Long> result = new TreeMap<>();
+    ourGauges.forEach((name, gauge) -> {
+      try {
+        result.put(name, gauge.getAsLong());
+      } catch (RuntimeException e) {
+        Constants.LOGGER.debug("Failed to compute the value of " + name, e);
+      }
+    });
+    return result;
+  }
+
+  @NotNull
+  public static Map<String, Long> getCounters() {
+    Map<String, Long> result = new TreeMap<>();
+    ourCounters.forEach((name, counter) -> result.put(name, counter.sum()));
+    ourRegisteredCounters.forEach((name, counter) -> result.put(name, counter.getAsLong()));
+    return result;
+  }
+
+  @NotNull
+  public static LatencyHistogram.Snapshot getAssignmentLag() {
+    return ourAssignmentLag.getSnapshot();
+  }
+
+  static void setEnabled(boolean enabled) {
+    ourEnabled = enabled;
+  }
+
+  static void reset() {
+    ourHistograms.clear();
+    ourCounters.clear();
+    ourAssignmentLag = new LatencyHistogram();
+  }
+
+  private static void record(@NotNull String stage, long nanos) {
+    LatencyHistogram histogram = ourHistograms.get(stage);
+    if (histogram == null) {
+      histogram = ourHistograms.computeIfAbsent(stage, key -> new LatencyHistogram());
+    }
+    histogram.record(nanos);
+  }
+}
@@ -0,0 +1,93 @@
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import jetbrains.buildServer.BuildProject;
+import jetbrains.buildServer.serverSide.BuildServerAdapter;
+import jetbrains.buildServer.serverSide.BuildServerListenerEventDispatcher;
+import jetbrains.buildServer.serverSide.SProject;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Keeps ids of every project together with ids of all its parents, so the check whether a project is
+ * the same as or a parent of another one does not walk the hierarchy each time.
+ * The index is dropped whenever the project structure changes. Every entry keeps the version of the structure
+ * it was computed for, so an entry computed concurrently with a change is never returned.
+ */
+public class ProjectHierarchyIndex {
+  private final Map<String, VersionedIds> myAncestorOrSelfIds = new ConcurrentHashMap<>();
+  private final AtomicLong myVersion = new AtomicLong();
+
+  public ProjectHierarchyIndex(@NotNull final BuildServerListenerEventDispatcher buildServerListenerEventDispatcher) {
+    buildServerListenerEventDispatcher.addListener(new BuildServerAdapter() {
+      @Override
+      public void projectMoved(@NotNull final SProject project, @NotNull final SProject originalParentProject) {
+        invalidate();
+      }
+
+      @Override
+      public void projectRemoved(@NotNull final SProject project) {
+        invalidate();
+      }
+
+      @Override
+      public void projectRestored(@NotNull final String projectId) {
+        invalidate();
+      }
+
+      @Override
+      public void projectsLoaded() {
+        invalidate();
+      }
+    });
+  }
+
+  ProjectHierarchyIndex() {
+  }
+
+  /**
+   * @return whether the first project is the same as the second one or one of its parents.
+   */
+  public boolean isAncestorOrSelf(@NotNull final BuildProject ancestor, @NotNull final BuildProject project) {
+    return getAncestorOrSelfIds(project).contains(ancestor.getProjectId());
+  }
+
+  /**
+   * @return unmodifiable set of ids of the project and all its parents.
+   */
+  @NotNull
+  public Set<String> getAncestorOrSelfIds(@NotNull final BuildProject project) {
+    long version = myVersion.get();
+    VersionedIds cached = myAncestorOrSelfIds.get(project.getProjectId());
+    if (cached != null && cached.myVersion == version) {
+      return cached.myIds;
+    }
+
+    BuildProject parent = project.getParentProject();
+    Set<String> ids = new HashSet<>(parent == null ? Collections.emptySet() : getAncestorOrSelfIds(parent));
+    ids.add(project.getProjectId());
+    Set<String> result = Collections.unmodifiableSet(ids);
+    // if the structure has changed meanwhile, the entry is outdated already and is ignored by the next lookup
+    myAncestorOrSelfIds.put(project.getProjectId(), new VersionedIds(version, result));
+    return result;
+  }
+
+  public void invalidate() {
+    myVersion.incrementAndGet();
+    myAncestorOrSelfIds.clear();
+  }
+
+  private static class VersionedIds {
+    private final long myVersion;
+    private final Set<String> myIds;
+
+    private VersionedIds(final long version, @NotNull final Set<String> ids) {
+      myVersion = version;
+      myIds = ids;
+    }
+  }
+}
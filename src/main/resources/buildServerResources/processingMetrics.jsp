@@ -0,0 +1,64 @@
+<%-- Referenced from jetbrains.buildServer.investigationsAutoAssigner.representation.ProcessingMetricsTab --%>
+<%@ include file="/include.jsp" %>
+
+<%--@elvariable id="metricsEnabled" type="java.lang.Boolean"--%>
+<%--@elvariable id="metricsProperty" type="java.lang.String"--%>
+<%--@elvariable id="stages" type="java.util.List<jetbrains.buildServer.investigationsAutoAssigner.representation.ProcessingMetricsTab.StageRow>"--%>
+<%--@elvariable id="gauges" type="java.util.Map<java.lang.String, java.lang.Long>"--%>
+<%--@elvariable id="counters" type="java.util.Map<java.lang.String, java.lang.Long>"--%>
+<%--@elvariable id="assignmentLag" type="jetbrains.buildServer.investigationsAutoAssigner.representation.ProcessingMetricsTab.StageRow"--%>
+<p>The values are collected since the server start. They are also available in the Prometheus text format at
+  <a href="<c:url value='/investigationsAutoAssignerMetrics.html'/>">/investigationsAutoAssignerMetrics.html</a>.</p>
+
+<h2>Processing backlog</h2>
+<table class="settings">
+  <c:forEach items="${gauges}" var="gauge">
+    <tr>
+      <th><c:out value="${gauge.key}"/></th>
+      <td>${gauge.value}</td>
+    </tr>
+  </c:forEach>
+  <c:forEach items="${counters}" var="counter">
+    <tr>
+      <th><c:out value="${counter.key}"/> (total)</th>
+      <td>${counter.value}</td>
+    </tr>
+  </c:forEach>
+</table>
+
+<h2>Durations, ms</h2>
+<table class="settings">
+  <tr>
+    <th>Stage</th>
+    <th>Count</th>
+    <th>Mean</th>
+    <th>50%</th>
+    <th>95%</th>
+    <th>99%</th>
+    <th>Max</th>
+  </tr>
+  <c:forEach items="${stages}" var="stage">
+    <tr>
+      <td><c:out value="${stage.name}"/></td>
+      <td>${stage.count}</td>
+      <td>${stage.mean}</td>
+      <td>${stage.p50}</td>
+      <td>${stage.p95}</td>
+      <td>${stage.p99}</td>
+      <td>${stage.max}</td>
+    </tr>
+  </c:forEach>
+  <tr>
+    <td>${assignmentLag.name} (from the build finish)</td>
+    <td>${assignmentLag.count}</td>
+    <td>${assignmentLag.mean}</td>
+    <td>${assignmentLag.p50}</td>
+    <td>${assignmentLag.p95}</td>
+    <td>${assignmentLag.p99}</td>
+    <td>${assignmentLag.max}</td>
+  </tr>
+</table>
+<c:if test="${not metricsEnabled}">
+  <p>Measuring of the processing stages is disabled. Set the <code><c:out value="${metricsProperty}"/>=true</code>
+    internal property and restart the server to enable it.</p>
+</c:if>
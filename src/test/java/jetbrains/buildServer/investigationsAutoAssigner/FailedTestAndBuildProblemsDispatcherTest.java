@@ -4,11 +4,14 @@ package jetbrains.buildServer.investigationsAutoAssigner;
 
 import java.util.Collections;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
+import jetbrains.buildServer.investigationsAutoAssigner.persistent.DelayedAssignmentsJournal;
 import jetbrains.buildServer.investigationsAutoAssigner.persistent.StatisticsReporter;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.DelayedAssignmentsProcessor;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.FailedTestAndBuildProblemsProcessor;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.AggregationLogger;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PreviousResponsibleCache;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ProcessingMetrics;
 import jetbrains.buildServer.parameters.ParametersProvider;
 import jetbrains.buildServer.serverSide.*;
 import jetbrains.buildServer.serverSide.impl.auth.SecurityContextImpl;
@@ -34,6 +37,7 @@ public class FailedTestAndBuildProblemsDispatcherTest {
   private SBuildType mySBuildType;
   private FailedTestAndBuildProblemsDispatcher myDispatcher;
   private BuildsManager myBuildsManager;
+  private FailedTestAndBuildProblemsProcessor myProcessor;
 
   @BeforeMethod
   public void setUp() throws Throwable {
@@ -77,7 +81,7 @@ public class FailedTestAndBuildProblemsDispatcherTest {
 
     //configure event dispatcher
     myBsDispatcher = new BuildServerListenerEventDispatcher(securityContextEx);
-    FailedTestAndBuildProblemsProcessor processor = mock(FailedTestAndBuildProblemsProcessor.class);
+    myProcessor = mock(FailedTestAndBuildProblemsProcessor.class);
     myDelayedAssignmentsProcessor = mock(DelayedAssignmentsProcessor.class);
 
     AggregationLogger aggregationLogger = mock(AggregationLogger.class);
@@ -103,13 +107,15 @@ public class FailedTestAndBuildProblemsDispatcherTest {
 
     myDispatcher =
       new FailedTestAndBuildProblemsDispatcher(myBsDispatcher,
-                                               processor,
+                                               myProcessor,
                                                myDelayedAssignmentsProcessor,
                                                aggregationLogger,
                                                statisticsReporter,
                                                myCustomParameters,
                                                myBuildsManager,
-                                               serverResponsibility);
+                                               serverResponsibility,
+                                               mock(DelayedAssignmentsJournal.class),
+                                               mock(PreviousResponsibleCache.class));
 
   }
 
@@ -148,6 +154,17 @@ public class FailedTestAndBuildProblemsDispatcherTest {
     assertEquals(2, myDispatcher.getRememberedFailedBuilds().size());
   }
 
+  public void Test_BuildProblemsChanged_EventsCoalescedIntoOnePass() {
+    when(myBuild.getBuildType()).thenReturn(mySBuildType);
+    when(myBuildsManager.findBuildInstanceById(239L)).thenReturn(myBuild);
+
+    myBsDispatcher.getMulticaster().buildProblemsChanged(myBuild, Collections.emptyList(), Collections.emptyList());
+    myBsDispatcher.getMulticaster().buildProblemsChanged(myBuild, Collections.emptyList(), Collections.emptyList());
+
+    verify(myProcessor, timeout(15000)).processBuild(any());
+    verify(myProcessor, after(1000).times(1)).processBuild(any());
+  }
+
   public void Test_BuildFinished_PersonalBuildIgnored() {
     when(myRunningBuild.isPersonal()).thenReturn(true);
     myBsDispatcher.getMulticaster().buildFinished(myRunningBuild);
@@ -160,6 +177,23 @@ public class FailedTestAndBuildProblemsDispatcherTest {
     assertTrue(myDispatcher.getRememberedFailedBuilds().isEmpty());
   }
 
+  public void Test_BuildFinished_IgnoredBuildCounted() {
+    when(myRunningBuild.isPersonal()).thenReturn(true);
+    long ignoredBefore = getCounter(ProcessingMetrics.IGNORED_BUILDS);
+
+    myBsDispatcher.getMulticaster().buildFinished(myRunningBuild);
+    assertEquals(ignoredBefore + 1, getCounter(ProcessingMetrics.IGNORED_BUILDS));
+  }
+
+  public void Test_BacklogGauges() {
+    myBsDispatcher.getMulticaster().buildProblemsChanged(myBuild, Collections.emptyList(), Collections.emptyList());
+    myBsDispatcher.getMulticaster()
+                  .buildProblemsChanged(mySecondBuild, Collections.emptyList(), Collections.emptyList());
+
+    assertEquals(Long.valueOf(2), ProcessingMetrics.getGauges().get(ProcessingMetrics.FAILED_BUILDS));
+    assertEquals(Long.valueOf(0), ProcessingMetrics.getGauges().get(ProcessingMetrics.DELAYED_ASSIGNMENTS));
+  }
+
   public void Test_BuildFinished_NormalCase() {
     when(myRunningBuild.isPersonal()).thenReturn(false);
     when(myBranch.isDefaultBranch()).thenReturn(true);
@@ -170,4 +204,8 @@ public class FailedTestAndBuildProblemsDispatcherTest {
     assertTrue(myDispatcher.getRememberedFailedBuilds().isEmpty());
   }
 
-}
\ No newline at end of file
+  private static long getCounter(String name) {
+    Long value = ProcessingMetrics.getCounters().get(name);
+    return value == null ? 0 : value;
+  }
+}
@@ -0,0 +1,81 @@
+package jetbrains.buildServer.investigationsAutoAssigner.common;
+
+import jetbrains.buildServer.users.SUser;
+import org.mockito.Mockito;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.*;
+
+@Test
+public class HeuristicResultTest {
+  private SUser myUser1;
+  private SUser myUser2;
+
+  @BeforeMethod
+  public void setUp() {
+    myUser1 = Mockito.mock(SUser.class);
+    when(myUser1.getId()).thenReturn(1L);
+    myUser2 = Mockito.mock(SUser.class);
+    when(myUser2.getId()).thenReturn(2L);
+  }
+
+  public void testEqualResponsibilitiesAreInterned() {
+    HeuristicResult result = new HeuristicResult();
+    for (int testRunId = 0; testRunId < 100; testRunId++) {
+      result.addTestRunResponsibility(testRunId, new Responsibility(myUser1, "was the only committer to the build"));
+    }
+    result.addBuildProblemResponsibility(1, new Responsibility(myUser1, "was the only committer to the build"));
+    result.addBuildProblemResponsibility(2, new Responsibility(myUser2, "was the only committer to the build"));
+
+    assertEquals(result.getDistinctResponsibilitiesCount(), 2);
+    assertSame(result.getTestRunResponsibilities().get(99), result.getTestRunResponsibilities().get(0));
+    assertSame(result.getBuildProblemResponsibilities().get(1), result.getTestRunResponsibilities().get(0));
+  }
+
+  public void testFirstResponsibilityWins() {
+    HeuristicResult result = new HeuristicResult();
+    result.addTestRunResponsibility(1, new Responsibility(myUser1, "description 1"));
+    result.addTestRunResponsibility(1, new Responsibility(myUser2, "description 2"));
+
+    assertEquals(result.getTestRunResponsibilities().get(1), new Responsibility(myUser1, "description 1"));
+  }
+
+  public void testMergeInternsResponsibilities() {
+    HeuristicResult result = new HeuristicResult();
+    result.addTestRunResponsibility(1, new Responsibility(myUser1, "changed the suspicious file \"%s\"", "a.txt"));
+    HeuristicResult other = new HeuristicResult();
+    other.addTestRunResponsibility(2, new Responsibility(myUser1, "changed the suspicious file \"%s\"", "a.txt"));
+    other.addTestRunResponsibility(3, new Responsibility(myUser1, "changed the suspicious file \"%s\"", "b.txt"));
+
+    result.merge(other);
+
+    assertEquals(result.getDistinctResponsibilitiesCount(), 2);
+    assertSame(result.getTestRunResponsibilities().get(2), result.getTestRunResponsibilities().get(1));
+  }
+
+  public void testHeuristicIdIsKept() {
+    HeuristicResult oneCommitterResult = new HeuristicResult();
+    oneCommitterResult.addTestRunResponsibility(1, new Responsibility(myUser1, "was the only committer to the build"));
+    HeuristicResult brokenFileResult = new HeuristicResult();
+    brokenFileResult.addTestRunResponsibility(2, new Responsibility(myUser2, "changed the suspicious file \"%s\"", "a.txt"));
+    HeuristicResult result = new HeuristicResult();
+
+    result.merge(oneCommitterResult, "OneCommitter");
+    result.merge(brokenFileResult, "BrokenFile");
+    HeuristicResult sessionResult = new HeuristicResult();
+    sessionResult.merge(result);
+
+    assertEquals(sessionResult.getHeuristicId(sessionResult.getTestRunResponsibilities().get(1)), "OneCommitter");
+    assertEquals(sessionResult.getHeuristicId(sessionResult.getTestRunResponsibilities().get(2)), "BrokenFile");
+    assertNull(new HeuristicResult().getHeuristicId(new Responsibility(myUser1, "was the only committer to the build")));
+  }
+
+  public void testDescriptionIsRendered() {
+    Responsibility responsibility = new Responsibility(myUser1, "was previously responsible for the test %s", "Test1");
+
+    assertEquals(responsibility.getDescription(), "was previously responsible for the test Test1");
+    assertEquals(responsibility, new Responsibility(myUser1, "was previously responsible for the test Test1"));
+  }
+}
@@ -2,14 +2,16 @@
 
 package jetbrains.buildServer.investigationsAutoAssigner.heuristics;
 
-import com.intellij.openapi.util.Pair;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import jetbrains.buildServer.BaseTestCase;
+import jetbrains.buildServer.investigationsAutoAssigner.common.BuildProcessingSession;
+import jetbrains.buildServer.investigationsAutoAssigner.common.BuildSnapshot;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicNotApplicableException;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
+import jetbrains.buildServer.investigationsAutoAssigner.processing.BrokenFileMatcher;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.HeuristicContext;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.ModificationAnalyzerFactory;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.ProblemTextExtractor;
@@ -39,6 +41,12 @@ public class BrokenFileHeuristicTest extends BaseTestCase {
   private ProblemTextExtractor myProblemTextExtractor;
   private ModificationAnalyzerFactory.ModificationAnalyzer myFirstVcsChangeWrapped;
   private ModificationAnalyzerFactory.ModificationAnalyzer mySecondVcsChangeWrapped;
+  private BrokenFileMatcher myBrokenFileMatcher;
+  private SVcsModification myFirstVcsChange;
+  private SVcsModification mySecondVcsChange;
+  private ModificationAnalyzerFactory myModificationAnalyzerFactory;
+  private SBuild myBuild;
+  private SProject myProject;
 
   @BeforeMethod
   @Override
@@ -46,26 +54,26 @@ public class BrokenFileHeuristicTest extends BaseTestCase {
     super.setUp();
 
     myProblemTextExtractor = Mockito.mock(ProblemTextExtractor.class);
-    ModificationAnalyzerFactory modificationAnalyzerFactory = Mockito.mock(ModificationAnalyzerFactory.class);
-    myHeuristic = new BrokenFileHeuristic(myProblemTextExtractor, modificationAnalyzerFactory);
+    myModificationAnalyzerFactory = Mockito.mock(ModificationAnalyzerFactory.class);
+    myHeuristic = new BrokenFileHeuristic(myProblemTextExtractor, myModificationAnalyzerFactory);
 
-    SBuild build = Mockito.mock(SBuild.class);
-    SProject project = Mockito.mock(SProject.class);
+    myBuild = Mockito.mock(SBuild.class);
+    myProject = Mockito.mock(SProject.class);
     myUser = Mockito.mock(SUser.class);
     when(myUser.getUsername()).thenReturn("myUser1");
     mySecondUser = Mockito.mock(SUser.class);
     when(mySecondUser.getUsername()).thenReturn("myUser2");
 
     mySTestRun = Mockito.mock(STestRun.class);
-    myHeuristicContext = new HeuristicContext(build, project, Collections.emptyList(),
+    myHeuristicContext = new HeuristicContext(myBuild, myProject, Collections.emptyList(),
                                               Collections.singletonList(mySTestRun), Collections.emptySet());
 
     myBuildPromotion = Mockito.mock(BuildPromotionEx.class);
-    when(build.getBuildPromotion()).thenReturn(myBuildPromotion);
+    when(myBuild.getBuildPromotion()).thenReturn(myBuildPromotion);
 
     when(myProblemTextExtractor.getBuildProblemText(any())).thenReturn("problem includes ./path/to/file");
 
-    setupMockedVcsChanges(modificationAnalyzerFactory);
+    setupMockedVcsChanges(myModificationAnalyzerFactory);
   }
 
   private void setupMockedVcsChanges(ModificationAnalyzerFactory factory) {
@@ -73,6 +81,8 @@ public class BrokenFileHeuristicTest extends BaseTestCase {
     ChangeDescriptor descriptor2 = Mockito.mock(ChangeDescriptor.class);
     SVcsModification vcs1 = Mockito.mock(SVcsModification.class);
     SVcsModification vcs2 = Mockito.mock(SVcsModification.class);
+    myFirstVcsChange = vcs1;
+    mySecondVcsChange = vcs2;
 
     when(descriptor1.getRelatedVcsChange()).thenReturn(vcs1);
     when(descriptor2.getRelatedVcsChange()).thenReturn(vcs2);
@@ -84,6 +94,9 @@ public class BrokenFileHeuristicTest extends BaseTestCase {
 
     when(factory.getInstance(vcs1)).thenReturn(myFirstVcsChangeWrapped);
     when(factory.getInstance(vcs2)).thenReturn(mySecondVcsChangeWrapped);
+
+    myBrokenFileMatcher = Mockito.mock(BrokenFileMatcher.class);
+    when(factory.createBrokenFileMatcher(Arrays.asList(vcs1, vcs2))).thenReturn(myBrokenFileMatcher);
   }
 
   public void testNoDetectedChangesReturnsEmpty() {
@@ -101,7 +114,9 @@ public class BrokenFileHeuristicTest extends BaseTestCase {
   }
 
   public void testHeuristicNotApplicableReturnsEmpty() {
-    when(myFirstVcsChangeWrapped.findProblematicFile(any(), anySet()))
+    when(myBrokenFileMatcher.findBrokenFiles(any()))
+      .thenReturn(Collections.singletonList(new BrokenFileMatcher.Match(myFirstVcsChange, "./path/to/file")));
+    when(myFirstVcsChangeWrapped.getOnlyCommitter(anySet()))
       .thenThrow(new HeuristicNotApplicableException("invalid"));
 
     HeuristicResult result = myHeuristic.findResponsibleUser(myHeuristicContext);
@@ -112,10 +127,10 @@ public class BrokenFileHeuristicTest extends BaseTestCase {
     String filePath = "./path/to/file";
     String problemText = "problem includes " + filePath;
 
-    Pair<User, String> match = Pair.create(myUser, filePath);
     when(myProblemTextExtractor.getBuildProblemText(any())).thenReturn(problemText);
-    when(myFirstVcsChangeWrapped.findProblematicFile(problemText, Collections.emptySet())).thenReturn(match);
-    when(mySecondVcsChangeWrapped.findProblematicFile(problemText, Collections.emptySet())).thenReturn(null);
+    when(myBrokenFileMatcher.findBrokenFiles(problemText))
+      .thenReturn(Collections.singletonList(new BrokenFileMatcher.Match(myFirstVcsChange, filePath)));
+    when(myFirstVcsChangeWrapped.getOnlyCommitter(Collections.emptySet())).thenReturn(myUser);
 
     HeuristicResult result = myHeuristic.findResponsibleUser(myHeuristicContext);
     Responsibility responsibility = result.getResponsibility(mySTestRun);
@@ -128,13 +143,35 @@ public class BrokenFileHeuristicTest extends BaseTestCase {
     String problemText = "problem includes multiple files";
     when(myProblemTextExtractor.getBuildProblemText(any())).thenReturn(problemText);
 
-    Pair<User, String> result1 = Pair.create(myUser, "./fileA");
-    Pair<User, String> result2 = Pair.create(mySecondUser, "./fileB");
-
-    when(myFirstVcsChangeWrapped.findProblematicFile(problemText, Collections.emptySet())).thenReturn(result1);
-    when(mySecondVcsChangeWrapped.findProblematicFile(problemText, Collections.emptySet())).thenReturn(result2);
+    when(myBrokenFileMatcher.findBrokenFiles(problemText))
+      .thenReturn(Arrays.asList(new BrokenFileMatcher.Match(myFirstVcsChange, "./fileA"),
+                                new BrokenFileMatcher.Match(mySecondVcsChange, "./fileB")));
+    when(myFirstVcsChangeWrapped.getOnlyCommitter(Collections.emptySet())).thenReturn(myUser);
+    when(mySecondVcsChangeWrapped.getOnlyCommitter(Collections.emptySet())).thenReturn(mySecondUser);
 
     HeuristicResult result = myHeuristic.findResponsibleUser(myHeuristicContext);
     Assert.assertTrue(result.isEmpty());
   }
+
+  public void testMatcherNotCreatedWithoutFailures() {
+    HeuristicContext context = new HeuristicContext(myBuild, myProject, Collections.emptyList(),
+                                                    Collections.emptyList(), Collections.emptySet());
+
+    HeuristicResult result = myHeuristic.findResponsibleUser(context);
+
+    Assert.assertTrue(result.isEmpty());
+    Mockito.verify(myModificationAnalyzerFactory, Mockito.never()).createBrokenFileMatcher(anyList());
+  }
+
+  public void testMatcherCreatedOncePerBuild() {
+    BuildProcessingSession session = new BuildProcessingSession();
+    for (int pass = 0; pass < 2; pass++) {
+      HeuristicContext context = new HeuristicContext(new BuildSnapshot(myBuild, session), myProject, Collections.emptyList(),
+                                                      Collections.singletonList(mySTestRun), Collections.emptySet());
+      myHeuristic.findResponsibleUser(context);
+    }
+
+    Mockito.verify(myModificationAnalyzerFactory, Mockito.times(1)).createBrokenFileMatcher(anyList());
+    Mockito.verify(myBrokenFileMatcher, Mockito.times(2)).findBrokenFiles(any());
+  }
 }
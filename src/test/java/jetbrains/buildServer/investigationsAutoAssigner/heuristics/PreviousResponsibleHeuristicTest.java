@@ -2,7 +2,9 @@
 
 package jetbrains.buildServer.investigationsAutoAssigner.heuristics;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import jetbrains.buildServer.BaseTestCase;
 import jetbrains.buildServer.BuildProblemData;
@@ -11,6 +13,7 @@ import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
 import jetbrains.buildServer.investigationsAutoAssigner.processing.HeuristicContext;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.InvestigationsManager;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.PreviousResponsibleCache;
 import jetbrains.buildServer.serverSide.*;
 import jetbrains.buildServer.serverSide.problems.BuildProblem;
 import jetbrains.buildServer.users.SUser;
@@ -22,6 +25,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.when;
 
 @Test
@@ -39,6 +43,7 @@ public class PreviousResponsibleHeuristicTest extends BaseTestCase {
   private HeuristicContext myTestHeuristicContext;
   private User myUser2;
   private BuildProblemData myBuildProblemData;
+  private PreviousResponsibleCache myPreviousResponsibleCache;
 
   @BeforeMethod
   @Override
@@ -48,6 +53,7 @@ public class PreviousResponsibleHeuristicTest extends BaseTestCase {
     mySBuild = Mockito.mock(SBuild.class);
     final SBuildType sBuildType = Mockito.mock(jetbrains.buildServer.serverSide.SBuildType.class);
     mySProject = Mockito.mock(SProject.class);
+    when(mySProject.getProjectId()).thenReturn("project1");
     myBuildProblem = Mockito.mock(BuildProblem.class);
     myBuildProblemData = Mockito.mock(BuildProblemData.class);
     myUser = Mockito.mock(SUser.class);
@@ -61,7 +67,8 @@ public class PreviousResponsibleHeuristicTest extends BaseTestCase {
     when(userSetMock.getUsers()).thenReturn(new HashSet<>(Collections.singletonList(myUser)));
     when(mySBuild.getCommitters(any())).thenReturn(userSetMock);
 
-    myHeuristic = new PreviousResponsibleHeuristic(myInvestigationsManager);
+    myPreviousResponsibleCache = new PreviousResponsibleCache();
+    myHeuristic = new PreviousResponsibleHeuristic(myInvestigationsManager, myPreviousResponsibleCache);
     when(myBuildProblem.getBuildProblemData()).thenReturn(myBuildProblemData);
     when(myBuildProblemData.getType()).thenReturn(BuildProblemTypes.TC_COMPILATION_ERROR_TYPE);
     when(mySBuild.getFullName()).thenReturn("Full SBuild Name");
@@ -120,6 +127,31 @@ public class PreviousResponsibleHeuristicTest extends BaseTestCase {
     Assert.assertTrue(result.isEmpty());
   }
 
+  public void TestBuildProblemInfo_ResponsibleFoundInAudit() {
+    BuildProblem secondProblem = Mockito.mock(BuildProblem.class);
+    when(secondProblem.getBuildProblemData()).thenReturn(myBuildProblemData);
+    when(myBuildProblem.getId()).thenReturn(1);
+    when(secondProblem.getId()).thenReturn(2);
+    when(myInvestigationsManager.findPreviousResponsible(mySProject, mySBuild, myBuildProblem)).thenReturn(null);
+    when(myInvestigationsManager.findPreviousResponsible(mySProject, mySBuild, secondProblem)).thenReturn(null);
+    HashMap<BuildProblem, User> auditResult = new HashMap<>();
+    auditResult.put(secondProblem, myUser);
+    when(myInvestigationsManager.findInAudit(Arrays.asList(myBuildProblem, secondProblem))).thenReturn(auditResult);
+    HeuristicContext context = new HeuristicContext(mySBuild,
+                                                    mySProject,
+                                                    Arrays.asList(myBuildProblem, secondProblem),
+                                                    Collections.emptyList(),
+                                                    Collections.emptySet());
+
+    HeuristicResult result = myHeuristic.findResponsibleUser(context);
+
+    Assert.assertNull(result.getResponsibility(myBuildProblem));
+    Responsibility responsibility = result.getResponsibility(secondProblem);
+    assert responsibility != null;
+    Assert.assertEquals(responsibility.getUser(), myUser);
+    Mockito.verify(myInvestigationsManager, Mockito.times(1)).findInAudit(anyCollection());
+  }
+
   public void TestTestProblemInfo_ResponsibleFound() {
     when(myInvestigationsManager.findPreviousResponsible(mySProject, mySBuild, mySTest)).thenReturn(myUser);
 
@@ -140,6 +172,32 @@ public class PreviousResponsibleHeuristicTest extends BaseTestCase {
     Assert.assertTrue(result.isEmpty());
   }
 
+  public void TestTestProblemInfo_ResponsibleCachedBetweenBuilds() {
+    when(myInvestigationsManager.findPreviousResponsible(mySProject, mySBuild, mySTest)).thenReturn(myUser);
+
+    myHeuristic.findResponsibleUser(myTestHeuristicContext);
+    HeuristicResult result = myHeuristic.findResponsibleUser(myTestHeuristicContext);
+
+    Responsibility responsibility = result.getResponsibility(mySTestRun);
+    assert responsibility != null;
+    Assert.assertEquals(responsibility.getUser(), myUser);
+    Mockito.verify(myInvestigationsManager, Mockito.times(1)).findPreviousResponsible(mySProject, mySBuild, mySTest);
+    Assert.assertEquals(myPreviousResponsibleCache.getHitCount(), 1);
+    Assert.assertEquals(myPreviousResponsibleCache.getMissCount(), 1);
+  }
+
+  public void TestTestProblemInfo_ResponsibleNotCachedWhenInvestigationChanged() {
+    when(myInvestigationsManager.findPreviousResponsible(mySProject, mySBuild, mySTest)).thenAnswer(invocation -> {
+      myPreviousResponsibleCache.invalidate(mySProject);
+      return myUser;
+    });
+
+    myHeuristic.findResponsibleUser(myTestHeuristicContext);
+    myHeuristic.findResponsibleUser(myTestHeuristicContext);
+
+    Mockito.verify(myInvestigationsManager, Mockito.times(2)).findPreviousResponsible(mySProject, mySBuild, mySTest);
+  }
+
   public void TestWhiteList() {
     when(myInvestigationsManager.findPreviousResponsible(mySProject, mySBuild, mySTest)).thenReturn(myUser);
     HeuristicContext testHC = new HeuristicContext(mySBuild,
@@ -7,6 +7,7 @@ import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
 import jetbrains.buildServer.investigationsAutoAssigner.persistent.AssignerArtifactDao;
@@ -60,11 +61,13 @@ public class AssignerArtifactDaoTest {
     Mockito.when(myUser.getId()).thenReturn(239L);
     Mockito.when(userModelEx.findUserById(myUser.getId())).thenReturn(myUser);
     Mockito.when(assignerResultsFilePath.get(mySBuild)).thenReturn(myPath);
+    Mockito.when(assignerResultsFilePath.getIfExist(mySBuild, mySTestRun)).thenReturn(myPath);
     mySuggestedDaoChecker = new MySuggestedDaoChecker();
     myAssignerArtifactDaoForTest = new AssignerArtifactDao(userModelEx,
                                                            mySuggestedDaoChecker,
                                                            assignerResultsFilePath,
-                                                           Mockito.mock(StatisticsReporter.class));
+                                                           Mockito.mock(StatisticsReporter.class),
+                                                           new SuggestionsIndexCache(0));
   }
 
   @Test
@@ -121,14 +124,24 @@ public class AssignerArtifactDaoTest {
       .appendHeuristicsResult(mySBuild, Arrays.asList(mySTestRun, mySTestRun2), myHeuristicResult);
 
     Assert.assertEquals(mySuggestedDaoChecker.setResultsFilePath, myPath);
-    Assert.assertEquals(mySuggestedDaoChecker.setInfoToAdd.size(), 2);
+    Assert.assertEquals(mySuggestedDaoChecker.setInfoToAdd.size(), 1);
     Assert.assertEquals(mySuggestedDaoChecker.setInfoToAdd.get(0).investigatorId, String.valueOf(myUser.getId()));
     Assert.assertEquals(mySuggestedDaoChecker.setInfoToAdd.get(0).testNameId, String.valueOf(mySTest.getTestNameId()));
     Assert.assertEquals(mySuggestedDaoChecker.setInfoToAdd.get(0).reason, description);
+  }
+
+  @Test
+  public void testLatestSuggestionWins() {
+    String testNameId = String.valueOf(mySTest.getTestNameId());
+    String investigatorId = String.valueOf(myUser.getId());
+    mySuggestedDaoChecker.mockReadResult(Arrays.asList(new ResponsibilityPersistentInfo(testNameId, investigatorId, "old reason"),
+                                                       new ResponsibilityPersistentInfo("112", investigatorId, "other test"),
+                                                       new ResponsibilityPersistentInfo(testNameId, investigatorId, "new reason")));
+
+    Responsibility result = myAssignerArtifactDaoForTest.get(mySBuild, mySTestRun);
 
-    Assert.assertEquals(mySuggestedDaoChecker.setInfoToAdd.get(1).investigatorId, investigatorId);
-    Assert.assertEquals(mySuggestedDaoChecker.setInfoToAdd.get(1).testNameId, testNameId);
-    Assert.assertEquals(mySuggestedDaoChecker.setInfoToAdd.get(1).reason, reason);
+    Assert.assertNotNull(result);
+    Assert.assertEquals(result.getDescription(), "new reason");
   }
 
   @Test
@@ -176,16 +189,21 @@ public class AssignerArtifactDaoTest {
 
 
     @Override
-    public void write(final Path resultsFilePath, final List<ResponsibilityPersistentInfo> infoToAdd) {
+    public void append(@NotNull final Path resultsFilePath, @NotNull final List<ResponsibilityPersistentInfo> infoToAdd) {
       wasCalled = true;
       setResultsFilePath = resultsFilePath;
       setInfoToAdd = infoToAdd;
     }
 
+    @Override
+    public boolean isEmpty(@Nullable final Path resultsFilePath) {
+      return myReadResult == null || myReadResult.isEmpty();
+    }
+
     @NotNull
     @Override
-    public List<ResponsibilityPersistentInfo> read(@Nullable final Path resultsFilePath) {
-      return myReadResult == null ? Collections.emptyList() : myReadResult;
+    public Stream<ResponsibilityPersistentInfo> stream(@Nullable final Path resultsFilePath) {
+      return myReadResult == null ? Stream.empty() : myReadResult.stream();
     }
 
     void mockReadResult(List<ResponsibilityPersistentInfo> readResult) {
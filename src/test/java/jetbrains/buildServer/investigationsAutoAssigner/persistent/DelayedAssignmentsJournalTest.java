@@ -0,0 +1,123 @@
+package jetbrains.buildServer.investigationsAutoAssigner.persistent;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
+import jetbrains.buildServer.investigationsAutoAssigner.common.DefaultUserResponsibility;
+import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
+import jetbrains.buildServer.users.UserModelEx;
+import jetbrains.buildServer.users.impl.UserEx;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class DelayedAssignmentsJournalTest {
+  private Path myPluginsDataDir;
+  private UserModelEx myUserModel;
+  private UserEx myUser;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    FileSystem fs = Jimfs.newFileSystem(Configuration.unix());
+    myPluginsDataDir = fs.getPath("/some_path");
+    Files.createDirectory(myPluginsDataDir);
+
+    myUserModel = Mockito.mock(UserModelEx.class);
+    myUser = Mockito.mock(UserEx.class);
+    Mockito.when(myUser.getId()).thenReturn(239L);
+    Mockito.when(myUserModel.findUserById(239L)).thenReturn(myUser);
+  }
+
+  @Test
+  public void testEntriesSurviveRestart() {
+    HeuristicResult heuristicResult = new HeuristicResult();
+    heuristicResult.addTestRunResponsibility(1, new Responsibility(myUser, "was the only committer to the build"));
+    heuristicResult.addBuildProblemResponsibility(2, new DefaultUserResponsibility(myUser));
+
+    DelayedAssignmentsJournal journal = new DelayedAssignmentsJournal(myPluginsDataDir, myUserModel);
+    journal.put("bt1", 10L, heuristicResult);
+    journal.put("bt2", 20L, new HeuristicResult());
+    journal.remove("bt2");
+
+    DelayedAssignmentsJournal restored = new DelayedAssignmentsJournal(myPluginsDataDir, myUserModel);
+    Assert.assertEquals(restored.size(), 1);
+    Assert.assertNull(restored.get("bt2"));
+
+    DelayedAssignmentsJournal.Entry entry = restored.get("bt1");
+    Assert.assertNotNull(entry);
+    Assert.assertEquals(entry.getBuildId(), 10L);
+
+    HeuristicResult restoredResult = entry.getHeuristicResult();
+    Assert.assertEquals(restoredResult.getTestRunResponsibilities().get(1),
+                        new Responsibility(myUser, "was the only committer to the build"));
+    Assert.assertTrue(restoredResult.getBuildProblemResponsibilities().get(2) instanceof DefaultUserResponsibility);
+  }
+
+  @Test
+  public void testLaterRecordWins() {
+    DelayedAssignmentsJournal journal = new DelayedAssignmentsJournal(myPluginsDataDir, myUserModel);
+    journal.put("bt1", 10L, new HeuristicResult());
+    journal.put("bt1", 11L, new HeuristicResult());
+
+    DelayedAssignmentsJournal restored = new DelayedAssignmentsJournal(myPluginsDataDir, myUserModel);
+    DelayedAssignmentsJournal.Entry entry = restored.get("bt1");
+    Assert.assertNotNull(entry);
+    Assert.assertEquals(entry.getBuildId(), 11L);
+  }
+
+  @Test
+  public void testPartiallyWrittenRecordIgnored() throws IOException {
+    DelayedAssignmentsJournal journal = new DelayedAssignmentsJournal(myPluginsDataDir, myUserModel);
+    journal.put("bt1", 10L, new HeuristicResult());
+    Files.write(getJournalPath(), "{\"buildTypeId\":\"bt2\",\"buil".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+    DelayedAssignmentsJournal restored = new DelayedAssignmentsJournal(myPluginsDataDir, myUserModel);
+    Assert.assertEquals(restored.size(), 1);
+    Assert.assertNotNull(restored.get("bt1"));
+  }
+
+  @Test
+  public void testRecordAfterPartiallyWrittenRecordSurvivesRestart() throws IOException {
+    DelayedAssignmentsJournal journal = new DelayedAssignmentsJournal(myPluginsDataDir, myUserModel);
+    journal.put("bt1", 10L, new HeuristicResult());
+    Files.write(getJournalPath(), "{\"buildTypeId\":\"bt2\",\"buil".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+    DelayedAssignmentsJournal restored = new DelayedAssignmentsJournal(myPluginsDataDir, myUserModel);
+    restored.put("bt3", 30L, new HeuristicResult());
+
+    DelayedAssignmentsJournal restoredAgain = new DelayedAssignmentsJournal(myPluginsDataDir, myUserModel);
+    Assert.assertEquals(restoredAgain.size(), 2);
+    Assert.assertNotNull(restoredAgain.get("bt1"));
+    DelayedAssignmentsJournal.Entry entry = restoredAgain.get("bt3");
+    Assert.assertNotNull(entry);
+    Assert.assertEquals(entry.getBuildId(), 30L);
+  }
+
+  @Test
+  public void testCompaction() throws IOException {
+    DelayedAssignmentsJournal journal = new DelayedAssignmentsJournal(myPluginsDataDir, myUserModel);
+    for (int i = 0; i < 200; i++) {
+      journal.put("bt1", i, new HeuristicResult());
+    }
+    Assert.assertEquals(Files.readAllLines(getJournalPath()).size(), 200);
+
+    journal.compactIfNeeded();
+
+    Assert.assertEquals(Files.readAllLines(getJournalPath()).size(), 1);
+    DelayedAssignmentsJournal.Entry entry = new DelayedAssignmentsJournal(myPluginsDataDir, myUserModel).get("bt1");
+    Assert.assertNotNull(entry);
+    Assert.assertEquals(entry.getBuildId(), 199L);
+  }
+
+  private Path getJournalPath() {
+    return myPluginsDataDir.resolve(Constants.PLUGIN_DATA_DIR).resolve(Constants.DELAYED_ASSIGNMENTS_FILE_NAME);
+  }
+}
@@ -9,6 +9,8 @@ import java.io.IOException;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Objects;
+import java.util.stream.Stream;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
@@ -133,6 +135,50 @@ public class StatisticsDaoTest {
     Assert.assertTrue(fileContent.contains("\"changesInBuildsCount\":10"));
   }
 
+  @Test
+  public void testWriteReplacesFile() throws IOException {
+    Statistics statistics = new Statistics();
+    statistics.increase(StatisticsValuesEnum.shownButtonsCount, 1);
+    myStatisticsDao.write(statistics);
+    Statistics updatedStatistics = new Statistics();
+    updatedStatistics.increase(StatisticsValuesEnum.shownButtonsCount, 3_000_000_000L);
+    myStatisticsDao.write(updatedStatistics);
+
+    Path assignerDataDir = myPluginsDataDir.resolve(Constants.PLUGIN_DATA_DIR);
+    Path myStatisticsPath = assignerDataDir.resolve(Constants.STATISTICS_FILE_NAME);
+    String fileContent = new String(Files.readAllBytes(myStatisticsPath));
+
+    Assert.assertTrue(fileContent.contains("\"shownButtonsCount\":3000000000"));
+    try (Stream<Path> files = Files.list(assignerDataDir)) {
+      Assert.assertEquals(files.count(), 1);
+    }
+    Assert.assertEquals(new StatisticsDao(myPluginsDataDir).read(), updatedStatistics);
+  }
+
+  @Test
+  public void testWriteAndReadTimeSeries() {
+    TimeSeriesStatistics timeSeries = new TimeSeriesStatistics(100);
+    timeSeries.increase("project1", "OneCommitter", StatisticsValuesEnum.assignedInvestigationsCount, 3);
+    myStatisticsDao.writeTimeSeries(timeSeries);
+
+    TimeSeriesStatistics readTimeSeries = new TimeSeriesStatistics(100);
+    new StatisticsDao(myPluginsDataDir).readTimeSeries(readTimeSeries);
+
+    Assert.assertEquals(readTimeSeries.getHoursSum(StatisticsValuesEnum.assignedInvestigationsCount, "project1", "OneCommitter", 1), 3);
+  }
+
+  @Test
+  public void testReadIncorrectTimeSeries() throws IOException {
+    Path assignerDataDir = myPluginsDataDir.resolve(Constants.PLUGIN_DATA_DIR);
+    Files.createDirectory(assignerDataDir);
+    Files.write(assignerDataDir.resolve(Constants.STATISTICS_TIME_SERIES_FILE_NAME), "UPDATED".getBytes());
+
+    TimeSeriesStatistics timeSeries = new TimeSeriesStatistics(100);
+    myStatisticsDao.readTimeSeries(timeSeries);
+
+    Assert.assertEquals(timeSeries.getSeriesCount(), 0);
+  }
+
   @Test
   public void testWriteNotUpdatedStatistics() throws IOException {
     Path assignerDataDir = myPluginsDataDir.resolve(Constants.PLUGIN_DATA_DIR);
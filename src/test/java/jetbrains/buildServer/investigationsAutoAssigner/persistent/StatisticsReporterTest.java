@@ -2,10 +2,15 @@
 
 package jetbrains.buildServer.investigationsAutoAssigner.persistent;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import jetbrains.buildServer.investigationsAutoAssigner.common.DefaultUserResponsibility;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
 import jetbrains.buildServer.serverSide.executors.ExecutorServices;
 import jetbrains.buildServer.serverSide.impl.executors.CommonExecutorService;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
@@ -46,12 +51,91 @@ public class StatisticsReporterTest {
     myStatisticsReporter.reportShownButton();
     myStatisticsReporter.reportClickedButton();
     myStatisticsReporter.reportClickedButton();
-    myStatisticsReporter.reportAssignedInvestigations(3, Mockito.mock(Responsibility.class));
-    myStatisticsReporter.reportWrongInvestigation(4);
-    Assert.assertEquals(myStatisticsChecker.get(StatisticsValuesEnum.shownButtonsCount), 1);
-    Assert.assertEquals(myStatisticsChecker.get(StatisticsValuesEnum.clickedButtonsCount), 2);
-    Assert.assertEquals(myStatisticsChecker.get(StatisticsValuesEnum.assignedInvestigationsCount), 3);
-    Assert.assertEquals(myStatisticsChecker.get(StatisticsValuesEnum.wrongInvestigationsCount), 4);
+    myStatisticsReporter.reportAssignedInvestigations(3, Mockito.mock(Responsibility.class), "project1", "OneCommitter");
+    myStatisticsReporter.reportWrongInvestigation(4, "project1");
+    Statistics statistics = myStatisticsReporter.getSnapshot();
+    Assert.assertEquals(statistics.get(StatisticsValuesEnum.shownButtonsCount), 1);
+    Assert.assertEquals(statistics.get(StatisticsValuesEnum.clickedButtonsCount), 2);
+    Assert.assertEquals(statistics.get(StatisticsValuesEnum.assignedInvestigationsCount), 3);
+    Assert.assertEquals(statistics.get(StatisticsValuesEnum.wrongInvestigationsCount), 4);
+  }
+
+  @Test
+  public void testReportsAreAddedToInitialStatistics() {
+    myStatisticsChecker.increase(StatisticsValuesEnum.shownButtonsCount, 10);
+    StatisticsDaoFactory statisticsDaoFactory = Mockito.mock(StatisticsDaoFactory.class);
+    when(statisticsDaoFactory.get()).thenReturn(myStatisticsDao);
+    StatisticsReporter statisticsReporter = new StatisticsReporter(statisticsDaoFactory, myExecutorServices);
+
+    statisticsReporter.reportShownButton();
+
+    Assert.assertEquals(statisticsReporter.getSnapshot().get(StatisticsValuesEnum.shownButtonsCount), 11);
+    Assert.assertEquals(myStatisticsChecker.get(StatisticsValuesEnum.shownButtonsCount), 10);
+  }
+
+  @Test
+  public void testConcurrentReports() throws InterruptedException {
+    int threadsCount = 8;
+    int reportsPerThread = 10000;
+    ExecutorService executor = Executors.newFixedThreadPool(threadsCount);
+    CountDownLatch start = new CountDownLatch(1);
+    for (int i = 0; i < threadsCount; i++) {
+      executor.submit(() -> {
+        start.await();
+        for (int j = 0; j < reportsPerThread; j++) {
+          myStatisticsReporter.reportShownButton();
+          myStatisticsReporter.reportProcessedBuildWithChanges(2, "project1");
+        }
+        return null;
+      });
+    }
+
+    start.countDown();
+    executor.shutdown();
+    Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+    Statistics statistics = myStatisticsReporter.getSnapshot();
+    Assert.assertEquals(statistics.get(StatisticsValuesEnum.shownButtonsCount), threadsCount * reportsPerThread);
+    Assert.assertEquals(statistics.get(StatisticsValuesEnum.processedBuildsCount), threadsCount * reportsPerThread);
+    Assert.assertEquals(statistics.get(StatisticsValuesEnum.changesInBuildsCount), 2 * threadsCount * reportsPerThread);
+  }
+
+  @Test
+  public void testRecentReport() {
+    myStatisticsReporter.reportAssignedInvestigations(3, Mockito.mock(Responsibility.class), "project1", "OneCommitter");
+    myStatisticsReporter.reportAssignedInvestigations(4, Mockito.mock(Responsibility.class), "project2", "BrokenFile");
+    myStatisticsReporter.reportWrongInvestigation(1, "project2");
+
+    TimeSeriesStatistics timeSeries = myStatisticsReporter.getTimeSeries();
+    Assert.assertEquals(timeSeries.getMinutesSum(StatisticsValuesEnum.assignedInvestigationsCount, "project2", null, 60), 4);
+    String report = myStatisticsReporter.generateReport();
+    Assert.assertTrue(report.contains("Last 24 hours:\n7 investigations assigned;\n1 of them were wrong;"));
+    Assert.assertTrue(report.contains("4 assigned by BrokenFile;"));
+    Assert.assertTrue(report.contains("3 assigned by OneCommitter;"));
+  }
+
+  @Test
+  public void testFlushWritesTimeSeriesOnlyWhenChanged() {
+    myStatisticsReporter.flush();
+    verify(myStatisticsDao, Mockito.never()).writeTimeSeries(Mockito.any());
+
+    myStatisticsReporter.reportWrongInvestigation(1, "project1");
+    myStatisticsReporter.flush();
+    myStatisticsReporter.flush();
+
+    verify(myStatisticsDao, Mockito.times(1)).writeTimeSeries(myStatisticsReporter.getTimeSeries());
+  }
+
+  @Test
+  public void testFlushWritesSnapshot() {
+    myStatisticsReporter.reportClickedButton();
+
+    myStatisticsReporter.flush();
+
+    ArgumentCaptor<Statistics> written = ArgumentCaptor.forClass(Statistics.class);
+    verify(myStatisticsDao).write(written.capture());
+    Assert.assertEquals(written.getValue().get(StatisticsValuesEnum.clickedButtonsCount), 1);
+    Assert.assertNotSame(written.getValue(), myStatisticsChecker);
   }
 
   @Test
@@ -59,8 +143,8 @@ public class StatisticsReporterTest {
     myStatisticsReporter.reportShownButton();
     myStatisticsReporter.reportClickedButton();
     myStatisticsReporter.reportClickedButton();
-    myStatisticsReporter.reportAssignedInvestigations(3, Mockito.mock(Responsibility.class));
-    myStatisticsReporter.reportWrongInvestigation(4);
+    myStatisticsReporter.reportAssignedInvestigations(3, Mockito.mock(Responsibility.class), "project1", "OneCommitter");
+    myStatisticsReporter.reportWrongInvestigation(4, "project1");
     Assert.assertTrue(myStatisticsReporter.generateReport().contains("1"));
     Assert.assertTrue(myStatisticsReporter.generateReport().contains("2"));
     Assert.assertTrue(myStatisticsReporter.generateReport().contains("3"));
@@ -73,9 +157,9 @@ public class StatisticsReporterTest {
     myStatisticsReporter.reportShownButton();
     myStatisticsReporter.reportClickedButton();
     myStatisticsReporter.reportClickedButton();
-    myStatisticsReporter.reportAssignedInvestigations(3, Mockito.mock(DefaultUserResponsibility.class));
-    myStatisticsReporter.reportAssignedInvestigations(4, Mockito.mock(Responsibility.class));
-    myStatisticsReporter.reportWrongInvestigation(5);
+    myStatisticsReporter.reportAssignedInvestigations(3, Mockito.mock(DefaultUserResponsibility.class), "project1", "DefaultUser");
+    myStatisticsReporter.reportAssignedInvestigations(4, Mockito.mock(Responsibility.class), "project1", "OneCommitter");
+    myStatisticsReporter.reportWrongInvestigation(5, "project1");
     Assert.assertTrue(myStatisticsReporter.generateReport().contains("1 shown suggestion"));
     Assert.assertTrue(myStatisticsReporter.generateReport().contains("2 of assignments from them"));
     Assert.assertTrue(myStatisticsReporter.generateReport().contains("3 of them for default user"));
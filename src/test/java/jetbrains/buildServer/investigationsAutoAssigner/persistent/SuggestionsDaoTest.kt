@@ -2,6 +2,7 @@ package jetbrains.buildServer.investigationsAutoAssigner.persistent
 
 import com.google.common.jimfs.Configuration
 import com.google.common.jimfs.Jimfs
+import com.google.gson.Gson
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants
 import jetbrains.buildServer.serverSide.ServerSettings
 import org.mockito.Mockito.`when`
@@ -34,17 +35,15 @@ class SuggestionsDaoTest {
         `when`(mySettings.serverUUID).thenReturn(myCorrectUUID)
 
 
-        myInstance = SuggestionsDao(mySettings)
+        myInstance = SuggestionsDao(mySettings, true)
     }
 
     @Test
     fun testWriteOneRow() {
-        val resInfo = ResponsibilityPersistentInfo("111", "1", "any reason")
-        myInstance.write(myArtifactsFile, Arrays.asList(resInfo))
-
-        val result = String(Files.readAllBytes(myArtifactsFile))
+        myInstance.write(myArtifactsFile, Arrays.asList(ResponsibilityPersistentInfo("111", "1", "any reason")))
 
-        Assert.assertEquals(result, readGold("SuggestionsDaoTest_TestOneRow_Gold.txt"))
+        assertBinary(myArtifactsFile)
+        assertRows(myInstance.read(myArtifactsFile), ResponsibilityPersistentInfo("111", "1", "any reason"))
     }
 
     @Test
@@ -53,9 +52,146 @@ class SuggestionsDaoTest {
         val resInfo2 = ResponsibilityPersistentInfo("112", "2", "any reason 2")
         myInstance.write(myArtifactsFile, Arrays.asList(resInfo, resInfo2))
 
-        val result = String(Files.readAllBytes(myArtifactsFile))
+        assertBinary(myArtifactsFile)
+        assertRows(myInstance.read(myArtifactsFile), resInfo, resInfo2)
+    }
+
+    @Test
+    fun testWriteIsSmallerThanJson() {
+        val suggestions = (0 until 100).map { ResponsibilityPersistentInfo((-1_000_000L * it).toString(), "1", "any reason") }
+        SuggestionsDao(mySettings, false).write(myArtifactsFile, suggestions)
+
+        Assert.assertTrue(Files.size(myArtifactsFile) * 5 < Gson().toJson(suggestions).length)
+        Assert.assertEquals(countOccurrences(Files.readAllBytes(myArtifactsFile), "any reason"), 1)
+        assertRows(myInstance.read(myArtifactsFile), *suggestions.toTypedArray())
+    }
+
+    @Test
+    fun testWriteNotNumericIds() {
+        val resInfo = ResponsibilityPersistentInfo("007", Constants.ASSIGNEE_FILTERED_LITERAL, "any reason")
+        val resInfo2 = ResponsibilityPersistentInfo("abc", "-2", null)
+        myInstance.write(myArtifactsFile, Arrays.asList(resInfo, resInfo2))
+
+        assertRows(myInstance.read(myArtifactsFile), resInfo, resInfo2)
+    }
+
+    @Test
+    fun testCompression() {
+        val suggestions = (0 until 200).map { ResponsibilityPersistentInfo(it.toString(), "1", "changed the suspicious file \"src/Test$it.java\"") }
+        myInstance.write(myArtifactsFile, suggestions)
+        val compressedSize = Files.size(myArtifactsFile)
+        assertRows(myInstance.read(myArtifactsFile), *suggestions.toTypedArray())
+
+        SuggestionsDao(mySettings, false).write(myArtifactsFile, suggestions)
+
+        Assert.assertTrue(compressedSize < Files.size(myArtifactsFile))
+        assertRows(myInstance.read(myArtifactsFile), *suggestions.toTypedArray())
+    }
+
+    @Test
+    fun testAppendToEmptyFile() {
+        myInstance.append(myArtifactsFile, Arrays.asList(ResponsibilityPersistentInfo("111", "1", "any reason")))
+
+        assertBinary(myArtifactsFile)
+        assertRows(myInstance.read(myArtifactsFile), ResponsibilityPersistentInfo("111", "1", "any reason"))
+    }
+
+    @Test
+    fun testAppendWritesOnlyNewRows() {
+        myInstance.append(myArtifactsFile, Arrays.asList(ResponsibilityPersistentInfo("111", "1", "any reason")))
+        val content = Files.readAllBytes(myArtifactsFile)
+        myInstance.append(myArtifactsFile, Arrays.asList(ResponsibilityPersistentInfo("112", "2", "any reason 2")))
+
+        val result = Files.readAllBytes(myArtifactsFile)
+        Assert.assertEquals(result.copyOf(content.size), content)
+        assertRows(myInstance.read(myArtifactsFile),
+                   ResponsibilityPersistentInfo("111", "1", "any reason"),
+                   ResponsibilityPersistentInfo("112", "2", "any reason 2"))
+    }
+
+    @Test
+    fun testAppendConvertsOldFormat() {
+        Files.write(myArtifactsFile, readGold("SuggestionsDaoTest_TestOneRow_Gold.txt").toByteArray())
+
+        myInstance.append(myArtifactsFile, Arrays.asList(ResponsibilityPersistentInfo("112", "2", "any reason 2")))
+
+        assertBinary(myArtifactsFile)
+        assertRows(myInstance.read(myArtifactsFile),
+                   ResponsibilityPersistentInfo("111", "1", "any reason"),
+                   ResponsibilityPersistentInfo("112", "2", "any reason 2"))
+    }
+
+    @Test
+    fun testAppendConvertsLinesFormat() {
+        Files.write(myArtifactsFile, readGold("SuggestionsDaoTest_TestOneRowLines_Gold.txt").toByteArray())
+
+        myInstance.append(myArtifactsFile, Arrays.asList(ResponsibilityPersistentInfo("112", "2", "any reason 2")))
+
+        assertBinary(myArtifactsFile)
+        assertRows(myInstance.read(myArtifactsFile),
+                   ResponsibilityPersistentInfo("111", "1", "any reason"),
+                   ResponsibilityPersistentInfo("112", "2", "any reason 2"))
+    }
+
+    @Test
+    fun testReadIncompleteLastBlock() {
+        myInstance.append(myArtifactsFile, Arrays.asList(ResponsibilityPersistentInfo("111", "1", "any reason")))
+        myInstance.append(myArtifactsFile, Arrays.asList(ResponsibilityPersistentInfo("112", "2", "any reason 2")))
+        val content = Files.readAllBytes(myArtifactsFile)
+        Files.write(myArtifactsFile, content.copyOf(content.size - 3))
+
+        assertRows(myInstance.read(myArtifactsFile), ResponsibilityPersistentInfo("111", "1", "any reason"))
+    }
+
+    @Test
+    fun testAppendAfterIncompleteLastBlock() {
+        myInstance.append(myArtifactsFile, Arrays.asList(ResponsibilityPersistentInfo("111", "1", "any reason")))
+        myInstance.append(myArtifactsFile, Arrays.asList(ResponsibilityPersistentInfo("112", "2", "any reason 2")))
+        val content = Files.readAllBytes(myArtifactsFile)
+        Files.write(myArtifactsFile, content.copyOf(content.size - 3))
+
+        myInstance.append(myArtifactsFile, Arrays.asList(ResponsibilityPersistentInfo("113", "3", "any reason 3")))
+        myInstance.append(myArtifactsFile, Arrays.asList(ResponsibilityPersistentInfo("114", "4", "any reason 4")))
+
+        assertRows(myInstance.read(myArtifactsFile),
+                   ResponsibilityPersistentInfo("111", "1", "any reason"),
+                   ResponsibilityPersistentInfo("113", "3", "any reason 3"),
+                   ResponsibilityPersistentInfo("114", "4", "any reason 4"))
+    }
+
+    @Test
+    fun testReadBinaryIncorrectUUID() {
+        myInstance.write(myArtifactsFile, Arrays.asList(ResponsibilityPersistentInfo("111", "1", "any reason")))
+        `when`(mySettings.serverUUID).thenReturn(myIncorrectUUID)
+
+        val result = myInstance.read(myArtifactsFile)
 
-        Assert.assertEquals(result, readGold("SuggestionsDaoTest_TestTwoRows_Gold.txt"))
+        Assert.assertEquals(result.size, 0)
+    }
+
+    @Test
+    fun testReadTwoRowsLines() {
+        Files.write(myArtifactsFile, readGold("SuggestionsDaoTest_TestTwoRowsLines_Gold.txt").toByteArray())
+
+        val result = myInstance.read(myArtifactsFile)
+
+        Assert.assertEquals(result.size, 2)
+        Assert.assertEquals(result[0].testNameId, "111")
+        Assert.assertEquals(result[0].investigatorId, "1")
+        Assert.assertEquals(result[0].reason, "any reason")
+        Assert.assertEquals(result[1].testNameId, "112")
+        Assert.assertEquals(result[1].investigatorId, "2")
+        Assert.assertEquals(result[1].reason, "any reason 2")
+    }
+
+    @Test
+    fun testReadLinesIncorrectUUID() {
+        `when`(mySettings.serverUUID).thenReturn(myIncorrectUUID)
+        Files.write(myArtifactsFile, readGold("SuggestionsDaoTest_TestOneRowLines_Gold.txt").toByteArray())
+
+        val result = myInstance.read(myArtifactsFile)
+
+        Assert.assertEquals(result.size, 0)
     }
 
     @Test
@@ -76,13 +212,32 @@ class SuggestionsDaoTest {
 
         val result = myInstance.read(myArtifactsFile)
 
+        // the latest suggestions are at the beginning of the single object files
         Assert.assertEquals(result.size, 2)
-        Assert.assertEquals(result[0].testNameId, "111")
-        Assert.assertEquals(result[0].investigatorId, "1")
-        Assert.assertEquals(result[0].reason, "any reason")
-        Assert.assertEquals(result[1].testNameId, "112")
-        Assert.assertEquals(result[1].investigatorId, "2")
-        Assert.assertEquals(result[1].reason, "any reason 2")
+        Assert.assertEquals(result[0].testNameId, "112")
+        Assert.assertEquals(result[0].investigatorId, "2")
+        Assert.assertEquals(result[0].reason, "any reason 2")
+        Assert.assertEquals(result[1].testNameId, "111")
+        Assert.assertEquals(result[1].investigatorId, "1")
+        Assert.assertEquals(result[1].reason, "any reason")
+    }
+
+    @Test
+    fun testReadSameTestInOldFormatInWriteOrder() {
+        Files.write(myArtifactsFile, ("{\"serverUUID\":\"$myCorrectUUID\",\"suggestions\":[" +
+                                      "{\"testNameId\":\"111\",\"investigatorId\":\"2\",\"reason\":\"later reason\"}," +
+                                      "{\"testNameId\":\"111\",\"investigatorId\":\"1\",\"reason\":\"earlier reason\"}]}").toByteArray())
+
+        assertRows(myInstance.read(myArtifactsFile),
+                   ResponsibilityPersistentInfo("111", "1", "earlier reason"),
+                   ResponsibilityPersistentInfo("111", "2", "later reason"))
+
+        myInstance.append(myArtifactsFile, Arrays.asList(ResponsibilityPersistentInfo("111", "3", "latest reason")))
+
+        assertRows(myInstance.read(myArtifactsFile),
+                   ResponsibilityPersistentInfo("111", "1", "earlier reason"),
+                   ResponsibilityPersistentInfo("111", "2", "later reason"),
+                   ResponsibilityPersistentInfo("111", "3", "latest reason"))
     }
 
     @Test
@@ -115,6 +270,24 @@ class SuggestionsDaoTest {
         Assert.assertTrue(result.isEmpty(), "Expected empty result when file does not exist")
     }
 
+    private fun assertBinary(path: Path) {
+        Assert.assertEquals(String(Files.readAllBytes(path).copyOf(4)), "TCAA")
+    }
+
+    private fun assertRows(actual: List<ResponsibilityPersistentInfo>, vararg expected: ResponsibilityPersistentInfo) {
+        Assert.assertEquals(actual.size, expected.size)
+        for (i in expected.indices) {
+            Assert.assertEquals(actual[i].testNameId, expected[i].testNameId)
+            Assert.assertEquals(actual[i].investigatorId, expected[i].investigatorId)
+            Assert.assertEquals(actual[i].reason, expected[i].reason)
+        }
+    }
+
+    private fun countOccurrences(content: ByteArray, value: String): Int {
+        val text = String(content, Charsets.ISO_8859_1)
+        return text.windowed(value.length).count { it == value }
+    }
+
     private fun readGold(resourceName: String): String {
         val resource = SuggestionsDao::class.java.getResource("/gold/$resourceName")
 
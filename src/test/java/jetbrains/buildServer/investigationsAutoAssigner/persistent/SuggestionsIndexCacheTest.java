@@ -0,0 +1,111 @@
+package jetbrains.buildServer.investigationsAutoAssigner.persistent;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import jetbrains.buildServer.serverSide.ServerSettings;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test
+public class SuggestionsIndexCacheTest {
+  private SuggestionsDao mySuggestionsDao;
+  private FileSystem myFileSystem;
+  private AtomicInteger myLoads;
+
+  @BeforeMethod
+  public void setUp() {
+    ServerSettings serverSettings = Mockito.mock(ServerSettings.class);
+    Mockito.when(serverSettings.getServerUUID()).thenReturn("239-239-239");
+    mySuggestionsDao = new SuggestionsDao(serverSettings);
+    myFileSystem = Jimfs.newFileSystem(Configuration.unix());
+    myLoads = new AtomicInteger();
+  }
+
+  public void testFindsLatestSuggestions() throws IOException {
+    Path path = createFile("build1", new ResponsibilityPersistentInfo("111", "1", "old reason"),
+                           new ResponsibilityPersistentInfo("112", "2", "other test"),
+                           new ResponsibilityPersistentInfo("111", "3", "new reason"));
+    SuggestionsIndexCache cache = new SuggestionsIndexCache(10);
+
+    List<ResponsibilityPersistentInfo> found = get(cache, path).find(111);
+
+    Assert.assertEquals(found.size(), 2);
+    Assert.assertEquals(found.get(1).reason, "new reason");
+    Assert.assertTrue(get(cache, path).find(113).isEmpty());
+  }
+
+  public void testFileIsReadOnce() throws IOException {
+    Path path = createFile("build1", new ResponsibilityPersistentInfo("111", "1", "any reason"));
+    SuggestionsIndexCache cache = new SuggestionsIndexCache(10);
+
+    get(cache, path);
+    get(cache, path);
+
+    Assert.assertEquals(myLoads.get(), 1);
+  }
+
+  public void testIndexIsRebuiltAfterAppend() throws IOException {
+    Path path = createFile("build1", new ResponsibilityPersistentInfo("111", "1", "any reason"));
+    SuggestionsIndexCache cache = new SuggestionsIndexCache(10);
+    Assert.assertTrue(get(cache, path).find(112).isEmpty());
+
+    mySuggestionsDao.append(path, Collections.singletonList(new ResponsibilityPersistentInfo("112", "2", "any reason 2")));
+
+    Assert.assertEquals(get(cache, path).find(112).size(), 1);
+    Assert.assertEquals(myLoads.get(), 2);
+  }
+
+  public void testLeastRecentlyUsedIsEvicted() throws IOException {
+    Path path1 = createFile("build1", new ResponsibilityPersistentInfo("111", "1", "any reason"));
+    Path path2 = createFile("build2", new ResponsibilityPersistentInfo("111", "1", "any reason"));
+    Path path3 = createFile("build3", new ResponsibilityPersistentInfo("111", "1", "any reason"));
+    SuggestionsIndexCache cache = new SuggestionsIndexCache(2);
+
+    get(cache, path1);
+    get(cache, path2);
+    get(cache, path1);
+    get(cache, path3);
+    Assert.assertEquals(cache.size(), 2);
+    Assert.assertEquals(myLoads.get(), 3);
+
+    get(cache, path1);
+    Assert.assertEquals(myLoads.get(), 3);
+    get(cache, path2);
+    Assert.assertEquals(myLoads.get(), 4);
+  }
+
+  public void testDisabledCache() throws IOException {
+    Path path = createFile("build1", new ResponsibilityPersistentInfo("111", "1", "any reason"));
+    SuggestionsIndexCache cache = new SuggestionsIndexCache(0);
+
+    Assert.assertEquals(get(cache, path).find(111).size(), 1);
+    Assert.assertEquals(get(cache, path).find(111).size(), 1);
+
+    Assert.assertEquals(cache.size(), 0);
+    Assert.assertEquals(myLoads.get(), 2);
+  }
+
+  private SuggestionsIndexCache.SuggestionsIndex get(SuggestionsIndexCache cache, Path path) throws IOException {
+    return cache.get(path, () -> {
+      myLoads.incrementAndGet();
+      return mySuggestionsDao.stream(path);
+    });
+  }
+
+  private Path createFile(String name, ResponsibilityPersistentInfo... suggestions) throws IOException {
+    Path path = myFileSystem.getPath("/" + name);
+    Files.createFile(path);
+    mySuggestionsDao.write(path, Arrays.asList(suggestions));
+    return path;
+  }
+}
@@ -0,0 +1,120 @@
+package jetbrains.buildServer.investigationsAutoAssigner.persistent;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test
+public class TimeSeriesStatisticsTest {
+  private AtomicLong myTime;
+  private TimeSeriesStatistics myTimeSeries;
+
+  @BeforeMethod
+  public void setUp() {
+    myTime = new AtomicLong(TimeUnit.DAYS.toMillis(20000));
+    myTimeSeries = new TimeSeriesStatistics(100, myTime::get);
+  }
+
+  public void testSumsByProjectAndHeuristic() {
+    myTimeSeries.increase("project1", "OneCommitter", StatisticsValuesEnum.assignedInvestigationsCount, 2);
+    myTimeSeries.increase("project1", "BrokenFile", StatisticsValuesEnum.assignedInvestigationsCount, 3);
+    myTimeSeries.increase("project2", "OneCommitter", StatisticsValuesEnum.assignedInvestigationsCount, 5);
+    myTimeSeries.increase("project2", null, StatisticsValuesEnum.wrongInvestigationsCount, 1);
+
+    Assert.assertEquals(myTimeSeries.getMinutesSum(StatisticsValuesEnum.assignedInvestigationsCount, null, null, 1), 10);
+    Assert.assertEquals(myTimeSeries.getMinutesSum(StatisticsValuesEnum.assignedInvestigationsCount, "project1", null, 1), 5);
+    Assert.assertEquals(myTimeSeries.getHoursSum(StatisticsValuesEnum.assignedInvestigationsCount, null, "OneCommitter", 1), 7);
+    Assert.assertEquals(myTimeSeries.getHoursSum(StatisticsValuesEnum.wrongInvestigationsCount, "project2", null, 1), 1);
+
+    Map<String, Long> byHeuristic = myTimeSeries.getHoursSumByHeuristic(StatisticsValuesEnum.assignedInvestigationsCount, 24);
+    Assert.assertEquals(byHeuristic.size(), 2);
+    Assert.assertEquals(byHeuristic.get("OneCommitter").longValue(), 7);
+    Assert.assertEquals(byHeuristic.get("BrokenFile").longValue(), 3);
+  }
+
+  public void testOldBucketsAreReused() {
+    myTimeSeries.increase("project1", null, StatisticsValuesEnum.processedBuildsCount, 1);
+    advanceMinutes(30);
+    myTimeSeries.increase("project1", null, StatisticsValuesEnum.processedBuildsCount, 2);
+
+    Assert.assertEquals(myTimeSeries.getMinutesSum(StatisticsValuesEnum.processedBuildsCount, null, null, 60), 3);
+    Assert.assertEquals(myTimeSeries.getMinutesSum(StatisticsValuesEnum.processedBuildsCount, null, null, 10), 2);
+
+    advanceMinutes(60);
+    myTimeSeries.increase("project1", null, StatisticsValuesEnum.processedBuildsCount, 4);
+
+    Assert.assertEquals(myTimeSeries.getMinutesSum(StatisticsValuesEnum.processedBuildsCount, null, null, 60), 4);
+    Assert.assertEquals(myTimeSeries.getHoursSum(StatisticsValuesEnum.processedBuildsCount, null, null, 24), 7);
+
+    advanceMinutes(TimeSeriesStatistics.HOURS * 60);
+    Assert.assertEquals(myTimeSeries.getHoursSum(StatisticsValuesEnum.processedBuildsCount, null, null, TimeSeriesStatistics.HOURS), 0);
+  }
+
+  public void testCompactRemovesExpiredSeries() {
+    myTimeSeries.increase("project1", null, StatisticsValuesEnum.processedBuildsCount, 1);
+    advanceMinutes(TimeSeriesStatistics.HOURS * 60 - 120);
+    myTimeSeries.increase("project2", null, StatisticsValuesEnum.processedBuildsCount, 1);
+
+    myTimeSeries.compact();
+    Assert.assertEquals(myTimeSeries.getSeriesCount(), 2);
+
+    advanceMinutes(180);
+    myTimeSeries.compact();
+    Assert.assertEquals(myTimeSeries.getSeriesCount(), 1);
+    Assert.assertEquals(myTimeSeries.getHoursSum(StatisticsValuesEnum.processedBuildsCount, "project2", null, 24), 1);
+  }
+
+  public void testValueAddedDuringCompactionIsCounted() {
+    // when requested, compaction runs after the series is found by the increase but before the value is added to it
+    AtomicBoolean compactOnClock = new AtomicBoolean();
+    TimeSeriesStatistics[] timeSeries = new TimeSeriesStatistics[1];
+    timeSeries[0] = new TimeSeriesStatistics(100, () -> {
+      if (compactOnClock.compareAndSet(true, false)) {
+        timeSeries[0].compact();
+      }
+      return myTime.get();
+    });
+    timeSeries[0].increase("project1", null, StatisticsValuesEnum.processedBuildsCount, 1);
+    advanceMinutes(TimeSeriesStatistics.HOURS * 60 + 60);
+
+    compactOnClock.set(true);
+    timeSeries[0].increase("project1", null, StatisticsValuesEnum.processedBuildsCount, 1);
+
+    Assert.assertEquals(timeSeries[0].getSeriesCount(), 1);
+    Assert.assertEquals(timeSeries[0].getHoursSum(StatisticsValuesEnum.processedBuildsCount, "project1", null, 1), 1);
+  }
+
+  public void testNumberOfSeriesIsLimited() {
+    TimeSeriesStatistics timeSeries = new TimeSeriesStatistics(2, myTime::get);
+    for (int i = 0; i < 10; i++) {
+      timeSeries.increase("project" + i, null, StatisticsValuesEnum.processedBuildsCount, 1);
+    }
+
+    Assert.assertEquals(timeSeries.getSeriesCount(), 3);
+    Assert.assertEquals(timeSeries.getHoursSum(StatisticsValuesEnum.processedBuildsCount, null, null, 1), 10);
+    Assert.assertEquals(timeSeries.getHoursSum(StatisticsValuesEnum.processedBuildsCount, TimeSeriesStatistics.OTHER_PROJECTS, null, 1), 8);
+  }
+
+  public void testSaveAndLoad() {
+    myTimeSeries.increase("project1", "OneCommitter", StatisticsValuesEnum.assignedInvestigationsCount, 2);
+    advanceMinutes(90);
+    myTimeSeries.increase("project1", "OneCommitter", StatisticsValuesEnum.assignedInvestigationsCount, 3);
+    TimeSeriesStatistics.Data data = myTimeSeries.toData();
+
+    advanceMinutes(20);
+    TimeSeriesStatistics loaded = new TimeSeriesStatistics(100, myTime::get);
+    loaded.load(data);
+
+    Assert.assertEquals(loaded.getMinutesSum(StatisticsValuesEnum.assignedInvestigationsCount, "project1", "OneCommitter", 60), 3);
+    Assert.assertEquals(loaded.getMinutesSum(StatisticsValuesEnum.assignedInvestigationsCount, "project1", "OneCommitter", 10), 0);
+    Assert.assertEquals(loaded.getHoursSum(StatisticsValuesEnum.assignedInvestigationsCount, "project1", "OneCommitter", 24), 5);
+  }
+
+  private void advanceMinutes(long minutes) {
+    myTime.addAndGet(TimeUnit.MINUTES.toMillis(minutes));
+  }
+}
@@ -0,0 +1,96 @@
+package jetbrains.buildServer.investigationsAutoAssigner.processing;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import jetbrains.buildServer.vcs.SVcsModification;
+import jetbrains.buildServer.vcs.VcsFileModification;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.when;
+
+@Test
+public class BrokenFileMatcherTest {
+  private static long ourNextChangeId = 1;
+
+  public void testFileFoundWithAnySeparator() {
+    SVcsModification change = createChange("src/main/java/org/package/SomeClass.java");
+    BrokenFileMatcher matcher = new ModificationAnalyzerFactory().createBrokenFileMatcher(Collections.singletonList(change));
+
+    assertMatches(matcher.findBrokenFiles("at org.package.SomeClass.method(SomeClass.java:10)"),
+                  "src/main/java/org/package/SomeClass.java");
+    assertMatches(matcher.findBrokenFiles("error in org\\package\\SomeClass"), "src/main/java/org/package/SomeClass.java");
+    assertMatches(matcher.findBrokenFiles("error in org/package/AnotherClass"));
+  }
+
+  public void testFirstFileOfEveryChange() {
+    SVcsModification first = createChange("dir1/dir2/FirstFile.java", "dir1/dir2/SecondFile.java");
+    SVcsModification second = createChange("dir3/dir4/ThirdFile.java");
+    SVcsModification third = createChange("dir5/dir6/FourthFile.java");
+    BrokenFileMatcher matcher = new ModificationAnalyzerFactory().createBrokenFileMatcher(Arrays.asList(first, second, third));
+
+    List<BrokenFileMatcher.Match> matches =
+      matcher.findBrokenFiles("dir3.dir4.ThirdFile failed after dir1.dir2.SecondFile and dir1.dir2.FirstFile");
+
+    assertMatches(matches, "dir1/dir2/FirstFile.java", "dir3/dir4/ThirdFile.java");
+    Assert.assertSame(matches.get(0).getChange(), first);
+    Assert.assertSame(matches.get(1).getChange(), second);
+  }
+
+  public void testOverlappingPatterns() {
+    SVcsModification change = createChange("module/impl/ServiceImplementation.java", "module/impl/Service.java");
+    BrokenFileMatcher matcher = new ModificationAnalyzerFactory().createBrokenFileMatcher(Collections.singletonList(change));
+
+    assertMatches(matcher.findBrokenFiles("at module.impl.Service.run"), "module/impl/Service.java");
+    assertMatches(matcher.findBrokenFiles("at module.impl.ServiceImplementation.run"), "module/impl/ServiceImplementation.java");
+  }
+
+  public void testSameResultAsModificationAnalyzer() {
+    SVcsModification change = createChange("build.gradle", ".gitignore", "./path1/path1/path1/filename");
+    BrokenFileMatcher matcher = new ModificationAnalyzerFactory().createBrokenFileMatcher(Collections.singletonList(change));
+
+    for (String text : Arrays.asList("I contain any/other/build/path",
+                                     "I contain ./any/hmbrm/build.gradle",
+                                     "I contain ./path1/path1/path1/filename",
+                                     "I contain nothing")) {
+      String expected = findBrokenFileOneByOne(change, text);
+      List<BrokenFileMatcher.Match> matches = matcher.findBrokenFiles(text);
+      if (expected == null) {
+        assertMatches(matches);
+      } else {
+        assertMatches(matches, expected);
+      }
+    }
+  }
+
+  private static String findBrokenFileOneByOne(SVcsModification change, String text) {
+    for (VcsFileModification modification : change.getChanges()) {
+      for (String pattern : ModificationAnalyzerFactory.getPatterns(modification.getRelativeFileName())) {
+        if (text.contains(pattern)) {
+          return modification.getRelativeFileName();
+        }
+      }
+    }
+    return null;
+  }
+
+  private static void assertMatches(List<BrokenFileMatcher.Match> matches, String... expectedFiles) {
+    Assert.assertEquals(matches.stream().map(BrokenFileMatcher.Match::getFilePath).collect(Collectors.toList()),
+                        Arrays.asList(expectedFiles));
+  }
+
+  private static SVcsModification createChange(String... filePaths) {
+    SVcsModification change = Mockito.mock(SVcsModification.class);
+    when(change.getId()).thenReturn(ourNextChangeId++);
+    List<VcsFileModification> modifications = Arrays.stream(filePaths).map(filePath -> {
+      VcsFileModification modification = Mockito.mock(VcsFileModification.class);
+      when(modification.getRelativeFileName()).thenReturn(filePath);
+      return modification;
+    }).collect(Collectors.toList());
+    when(change.getChanges()).thenReturn(modifications);
+    return change;
+  }
+}
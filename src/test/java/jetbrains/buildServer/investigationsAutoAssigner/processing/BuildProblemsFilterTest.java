@@ -7,9 +7,10 @@ import java.util.Collections;
 import java.util.List;
 import jetbrains.buildServer.BaseTestCase;
 import jetbrains.buildServer.BuildProblemTypes;
+import jetbrains.buildServer.investigationsAutoAssigner.common.BuildSnapshot;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.investigationsAutoAssigner.common.FailedBuildInfo;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.BuildProblemUtils;
-import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
 import jetbrains.buildServer.investigationsAutoAssigner.utils.InvestigationsManager;
 import jetbrains.buildServer.BuildProblemData;
 import jetbrains.buildServer.parameters.ParametersProvider;
@@ -17,6 +18,7 @@ import jetbrains.buildServer.responsibility.BuildProblemResponsibilityEntry;
 import jetbrains.buildServer.responsibility.ResponsibilityEntry;
 import jetbrains.buildServer.serverSide.BuildPromotion;
 import jetbrains.buildServer.serverSide.SBuild;
+import jetbrains.buildServer.serverSide.SBuildFeatureDescriptor;
 import jetbrains.buildServer.serverSide.SProject;
 import jetbrains.buildServer.serverSide.impl.problems.BuildProblemImpl;
 import jetbrains.buildServer.serverSide.problems.BuildProblem;
@@ -25,6 +27,8 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 @Test
@@ -40,7 +44,6 @@ public class BuildProblemsFilterTest extends BaseTestCase {
   private FailedBuildInfo myFailedBuildInfo;
   private List<BuildProblem> myBuildProblemWrapper;
   private BuildProblemUtils myBuildProblemUtils;
-  private CustomParameters myCustomParametersMock;
 
   @BeforeMethod
   @Override
@@ -57,7 +60,6 @@ public class BuildProblemsFilterTest extends BaseTestCase {
     BuildProblemResponsibilityEntry responsibilityEntry2 = Mockito.mock(BuildProblemResponsibilityEntry.class);
     myInvestigationsManager = Mockito.mock(InvestigationsManager.class);
     myBuildProblemUtils = Mockito.mock(BuildProblemUtils.class);
-    myCustomParametersMock = Mockito.mock(CustomParameters.class);
     when(mySBuild.getBuildPromotion()).thenReturn(buildPromotion);
     when(mySBuild.getParametersProvider()).thenReturn(Mockito.mock(ParametersProvider.class));
     when(mySProject.getProjectId()).thenReturn("Project ID");
@@ -69,14 +71,13 @@ public class BuildProblemsFilterTest extends BaseTestCase {
     when(myBuildProblem.getBuildProblemData()).thenReturn(myBuildProblemData);
     when(myBuildProblemData.getType()).thenReturn(BuildProblemTypes.TC_COMPILATION_ERROR_TYPE);
     when(myBuildProblem.isMuted()).thenReturn(false);
-    when(myBuildProblemUtils.isNew(myBuildProblem)).thenReturn(true);
+    when(myBuildProblemUtils.isNew(eq(myBuildProblem), any(BuildSnapshot.class))).thenReturn(true);
     when(myBuildProblem.getAllResponsibilities())
       .thenReturn(Arrays.asList(myResponsibilityEntry, responsibilityEntry2));
     when(myInvestigationsManager.checkUnderInvestigation(mySProject, mySBuild, myBuildProblem)).thenReturn(false);
     when(myInvestigationsManager.checkUnderInvestigation(project2, mySBuild, myBuildProblem)).thenReturn(false);
     myBuildProblemsFilter = new BuildProblemsFilter(myInvestigationsManager,
-                                                    myBuildProblemUtils,
-                                                    myCustomParametersMock);
+                                                    myBuildProblemUtils);
 
     myBuildProblemWrapper = Collections.singletonList(myBuildProblem);
     myFailedBuildInfo = new FailedBuildInfo(mySBuild);
@@ -101,7 +102,7 @@ public class BuildProblemsFilterTest extends BaseTestCase {
   }
 
   public void Test_BuildProblemNotNew() {
-    when(myBuildProblemUtils.isNew(myBuildProblem)).thenReturn(false);
+    when(myBuildProblemUtils.isNew(eq(myBuildProblem), any(BuildSnapshot.class))).thenReturn(false);
 
     List<BuildProblem> applicableBuildProblems =
       myBuildProblemsFilter.apply(myFailedBuildInfo, mySProject, myBuildProblemWrapper);
@@ -110,7 +111,7 @@ public class BuildProblemsFilterTest extends BaseTestCase {
   }
 
   public void Test_BuildProblemIsNew() {
-    when(myBuildProblemUtils.isNew(myBuildProblem)).thenReturn(true);
+    when(myBuildProblemUtils.isNew(eq(myBuildProblem), any(BuildSnapshot.class))).thenReturn(true);
 
     List<BuildProblem> applicableBuildProblems =
       myBuildProblemsFilter.apply(myFailedBuildInfo, mySProject, myBuildProblemWrapper);
@@ -148,8 +149,10 @@ public class BuildProblemsFilterTest extends BaseTestCase {
   }
 
   public void Test_BuildProblemHasIgnoredBuildProblem() {
-    when(myCustomParametersMock.getBuildProblemTypesToIgnore(mySBuild))
-      .thenReturn(Collections.singletonList(BuildProblemTypes.TC_COMPILATION_ERROR_TYPE));
+    SBuildFeatureDescriptor descriptor = Mockito.mock(SBuildFeatureDescriptor.class);
+    when(descriptor.getParameters())
+      .thenReturn(Collections.singletonMap(Constants.SHOULD_IGNORE_COMPILATION_PROBLEMS, "true"));
+    when(mySBuild.getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE)).thenReturn(Collections.singletonList(descriptor));
     when(myBuildProblemData.getType()).thenReturn(BuildProblemTypes.TC_COMPILATION_ERROR_TYPE);
 
     List<BuildProblem> applicableBuildProblems =
@@ -6,12 +6,14 @@ import java.util.Collections;
 import jetbrains.buildServer.BaseTestCase;
 import jetbrains.buildServer.BuildProblemData;
 import jetbrains.buildServer.BuildProblemTypes;
+import jetbrains.buildServer.investigationsAutoAssigner.common.BuildProcessingSession;
+import jetbrains.buildServer.investigationsAutoAssigner.common.BuildSnapshot;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.investigationsAutoAssigner.common.FailedBuildInfo;
 import jetbrains.buildServer.investigationsAutoAssigner.common.HeuristicResult;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Responsibility;
 import jetbrains.buildServer.investigationsAutoAssigner.persistent.AssignerArtifactDao;
-import jetbrains.buildServer.investigationsAutoAssigner.utils.CustomParameters;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.ProblemsStateTracker;
 import jetbrains.buildServer.parameters.ParametersProvider;
 import jetbrains.buildServer.serverSide.*;
 import jetbrains.buildServer.serverSide.impl.problems.BuildProblemImpl;
@@ -25,6 +27,7 @@ import org.testng.annotations.Test;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.when;
 
 @Test
@@ -41,24 +44,27 @@ public class FailedTestAndBuildProblemsProcessorTest extends BaseTestCase {
   private SUser mySUser;
   private BuildProblemsAssigner myBuildProblemsAssigner;
   private BuildProblemsFilter myBuildProblemsFilter;
+  private FailedTestFilter myFailedTestFilter;
+  private ProblemsStateTracker myProblemsStateTracker;
 
   @BeforeMethod
   @Override
   protected void setUp() throws Exception {
     super.setUp();
     myResponsibleUserFinder = Mockito.mock(ResponsibleUserFinder.class);
-    final FailedTestFilter failedTestFilter = Mockito.mock(FailedTestFilter.class);
+    myFailedTestFilter = Mockito.mock(FailedTestFilter.class);
+    myProblemsStateTracker = Mockito.mock(ProblemsStateTracker.class);
     myFailedTestAssigner = Mockito.mock(FailedTestAssigner.class);
     myBuildProblemsFilter = Mockito.mock(BuildProblemsFilter.class);
     myBuildProblemsAssigner = Mockito.mock(BuildProblemsAssigner.class);
     myAssignerArtifactDao = Mockito.mock(AssignerArtifactDao.class);
     myProcessor = new FailedTestAndBuildProblemsProcessor(myResponsibleUserFinder,
-                                                          failedTestFilter,
+                                                          myFailedTestFilter,
                                                           myFailedTestAssigner,
                                                           myBuildProblemsFilter,
                                                           myBuildProblemsAssigner,
                                                           myAssignerArtifactDao,
-                                                          new CustomParameters());
+                                                          myProblemsStateTracker);
 
     //configure tests
     TestName testNameMock = Mockito.mock(TestName.class);
@@ -99,7 +105,7 @@ public class FailedTestAndBuildProblemsProcessorTest extends BaseTestCase {
     myNotEmptyHeuristicResult.addResponsibility(sTestRun, new Responsibility(mySUser, "Failed description"));
 
     //configure finder
-    when(myResponsibleUserFinder.findResponsibleUser(any(), any(), anyList(), anyList())).thenReturn(myNotEmptyHeuristicResult);
+    when(myResponsibleUserFinder.findResponsibleUser(any(BuildSnapshot.class), any(), anyList(), anyList())).thenReturn(myNotEmptyHeuristicResult);
   }
 
   public void TestBuildTypeIsNull() {
@@ -119,7 +125,7 @@ public class FailedTestAndBuildProblemsProcessorTest extends BaseTestCase {
   }
 
   public void TestAssignerHasRightHeuristicsResult() {
-    when(myResponsibleUserFinder.findResponsibleUser(any(), any(), anyList(), anyList()))
+    when(myResponsibleUserFinder.findResponsibleUser(any(BuildSnapshot.class), any(), anyList(), anyList()))
       .thenReturn(myNotEmptyHeuristicResult);
 
     Mockito.doAnswer((Answer<Void>)invocation -> {
@@ -203,6 +209,35 @@ public class FailedTestAndBuildProblemsProcessorTest extends BaseTestCase {
     Mockito.verify(myFailedTestAssigner, Mockito.atLeastOnce()).assign(any(), any(), any(), anyList());
   }
 
+  public void TestNoRevalidationWithoutChanges() {
+    configureBuildFeature(mySBuild, false);
+
+    myProcessor.processBuild(myFailedBuildInfo);
+
+    Mockito.verify(myFailedTestFilter, Mockito.never()).revalidate(any(), any(), anyList(), any());
+    Mockito.verify(myBuildProblemsFilter, Mockito.never()).revalidate(any(), any(), anyList());
+  }
+
+  public void TestRevalidationAfterChanges() {
+    configureBuildFeature(mySBuild, false);
+    when(myProblemsStateTracker.hasChangedSince(anyLong(), any())).thenReturn(true);
+
+    myProcessor.processBuild(myFailedBuildInfo);
+
+    Mockito.verify(myFailedTestFilter).revalidate(any(), any(), anyList(), any());
+    Mockito.verify(myBuildProblemsFilter).revalidate(any(), any(), anyList());
+  }
+
+  public void TestSettingsAreReadOncePerSession() {
+    configureBuildFeature(mySBuild, false);
+    BuildProcessingSession session = new BuildProcessingSession();
+
+    myProcessor.processBuild(new FailedBuildInfo(mySBuild, session));
+    myProcessor.processBuild(new FailedBuildInfo(mySBuild, session));
+
+    Mockito.verify(mySBuild, Mockito.times(1)).getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE);
+  }
+
   private void configureBuildFeature(@NotNull SBuild sBuild, boolean delayedAssignment) {
     SBuildFeatureDescriptor sBuildFeatureDescriptor = Mockito.mock(SBuildFeatureDescriptor.class);
     when(sBuildFeatureDescriptor.getParameters()).thenReturn(Collections.singletonMap(Constants.ASSIGN_ON_SECOND_FAILURE, String.valueOf(delayedAssignment)));
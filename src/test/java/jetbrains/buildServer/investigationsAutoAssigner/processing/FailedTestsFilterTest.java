@@ -4,7 +4,9 @@ package jetbrains.buildServer.investigationsAutoAssigner.processing;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import jetbrains.buildServer.BaseTestCase;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
@@ -19,12 +21,14 @@ import jetbrains.buildServer.serverSide.SProject;
 import jetbrains.buildServer.serverSide.STest;
 import jetbrains.buildServer.serverSide.STestRun;
 import jetbrains.buildServer.tests.TestName;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
-import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 @Test
@@ -66,10 +70,10 @@ public class FailedTestsFilterTest extends BaseTestCase {
     when(mySTest.getAllResponsibilities())
       .thenReturn(Arrays.asList(myTestNameResponsibilityEntry, responsibilityEntry2));
     when(mySTest.getName()).thenReturn(new TestName("some.test.package.Test.method" + Math.random()));
-    when(myFlakyTestDetector.isFlaky(anyLong())).thenReturn(false);
+    when(myFlakyTestDetector.findFlaky(anyCollection())).thenReturn(Collections.emptySet());
     when(myTestNameResponsibilityEntry.getState()).thenReturn(ResponsibilityEntry.State.NONE);
     when(responsibilityEntry2.getState()).thenReturn(ResponsibilityEntry.State.NONE);
-    when(myInvestigationsManager.checkUnderInvestigation(mySProject, mySBuild, mySTest)).thenReturn(false);
+    when(myInvestigationsManager.findUnderInvestigation(eq(mySProject), eq(mySBuild), anyCollection())).thenReturn(Collections.emptySet());
 
     myTestsWrapper = Collections.singletonList(mySTestRun);
     when(mySBuild.getParametersProvider()).thenReturn(Mockito.mock(ParametersProvider.class));
@@ -126,7 +130,8 @@ public class FailedTestsFilterTest extends BaseTestCase {
   }
 
   public void Test_BuildProblemIsUnderInvestigation() {
-    when(myInvestigationsManager.checkUnderInvestigation(mySProject, mySBuild, mySTest)).thenReturn(true);
+    when(mySTest.getTestNameId()).thenReturn(42L);
+    when(myInvestigationsManager.findUnderInvestigation(eq(mySProject), eq(mySBuild), anyCollection())).thenReturn(Collections.singleton(42L));
     when(myTestNameResponsibilityEntry.getProject()).thenReturn(mySProject);
 
     List<STestRun> applicableTestRuns = myFailedTestFilter.apply(myFailedBuildInfo, mySProject, myTestsWrapper);
@@ -135,7 +140,7 @@ public class FailedTestsFilterTest extends BaseTestCase {
   }
 
   public void Test_BuildProblemNotUnderInvestigation() {
-    when(myInvestigationsManager.checkUnderInvestigation(mySProject, mySBuild, mySTest)).thenReturn(false);
+    when(myInvestigationsManager.findUnderInvestigation(eq(mySProject), eq(mySBuild), anyCollection())).thenReturn(Collections.emptySet());
     when(myTestNameResponsibilityEntry.getProject()).thenReturn(mySProject);
 
     List<STestRun> applicableTestRuns = myFailedTestFilter.apply(myFailedBuildInfo, mySProject, myTestsWrapper);
@@ -144,7 +149,8 @@ public class FailedTestsFilterTest extends BaseTestCase {
   }
 
   public void Test_TestIsFlaky() {
-    when(myFlakyTestDetector.isFlaky(anyLong())).thenReturn(true);
+    when(mySTest.getTestNameId()).thenReturn(42L);
+    when(myFlakyTestDetector.findFlaky(anyCollection())).thenReturn(Collections.singleton(42L));
 
     List<STestRun> applicableTestRuns = myFailedTestFilter.apply(myFailedBuildInfo, mySProject, myTestsWrapper);
 
@@ -152,13 +158,60 @@ public class FailedTestsFilterTest extends BaseTestCase {
   }
 
   public void Test_TestNotFlaky() {
-    when(myFlakyTestDetector.isFlaky(anyLong())).thenReturn(false);
+    when(myFlakyTestDetector.findFlaky(anyCollection())).thenReturn(Collections.emptySet());
 
     List<STestRun> applicableTestRuns = myFailedTestFilter.apply(myFailedBuildInfo, mySProject, myTestsWrapper);
 
     Assert.assertEquals(applicableTestRuns.size(), 1);
   }
 
+  public void Test_FlakinessRequestedOnlyForTestsToProcess() {
+    setInternalProperty(Constants.MAX_TESTS_PER_BUILD_NUMBER, "2");
+    List<STestRun> testRuns = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      testRuns.add(createNewFailure(i));
+    }
+    when(myFlakyTestDetector.findFlaky(anyCollection())).thenReturn(Collections.singleton(0L));
+
+    List<STestRun> applicableTestRuns = myFailedTestFilter.apply(myFailedBuildInfo, mySProject, testRuns);
+
+    Assert.assertEquals(applicableTestRuns, Arrays.asList(testRuns.get(1), testRuns.get(2)));
+    ArgumentCaptor<Collection<Long>> captor = ArgumentCaptor.forClass(Collection.class);
+    Mockito.verify(myFlakyTestDetector, Mockito.times(2)).findFlaky(captor.capture());
+    Assert.assertEquals(new ArrayList<>(captor.getAllValues().get(0)), Arrays.asList(0L, 1L));
+    Assert.assertEquals(new ArrayList<>(captor.getAllValues().get(1)), Collections.singletonList(2L));
+  }
+
+  public void Test_InvestigationsRequestedOnlyForTestsToProcess() {
+    setInternalProperty(Constants.MAX_TESTS_PER_BUILD_NUMBER, "2");
+    List<STestRun> testRuns = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      testRuns.add(createNewFailure(i));
+    }
+    when(testRuns.get(1).isMuted()).thenReturn(true);
+
+    List<STestRun> applicableTestRuns = myFailedTestFilter.apply(myFailedBuildInfo, mySProject, testRuns);
+
+    Assert.assertEquals(applicableTestRuns, Arrays.asList(testRuns.get(0), testRuns.get(2)));
+    ArgumentCaptor<Collection<STest>> captor = ArgumentCaptor.forClass(Collection.class);
+    Mockito.verify(myInvestigationsManager, Mockito.times(1)).findUnderInvestigation(eq(mySProject), eq(mySBuild), captor.capture());
+    Assert.assertEquals(captor.getValue().size(), 2);
+  }
+
+  public void Test_RevalidateChecksOnlyMutesAndInvestigations() {
+    when(mySTest.getTestNameId()).thenReturn(42L);
+    when(mySTestRun.isNewFailure()).thenReturn(false);
+
+    Assert.assertEquals(myFailedTestFilter.revalidate(myFailedBuildInfo, mySProject, myTestsWrapper, new HashMap<>()).size(), 1);
+
+    when(myInvestigationsManager.findUnderInvestigation(eq(mySProject), eq(mySBuild), anyCollection())).thenReturn(Collections.singleton(42L));
+    Assert.assertEquals(myFailedTestFilter.revalidate(myFailedBuildInfo, mySProject, myTestsWrapper, new HashMap<>()).size(), 0);
+
+    when(myInvestigationsManager.findUnderInvestigation(eq(mySProject), eq(mySBuild), anyCollection())).thenReturn(Collections.emptySet());
+    when(mySTestRun.isMuted()).thenReturn(true);
+    Assert.assertEquals(myFailedTestFilter.revalidate(myFailedBuildInfo, mySProject, myTestsWrapper, new HashMap<>()).size(), 0);
+  }
+
   public void ignore_setup_and_teardown() {
     STest setup = Mockito.mock(STest.class);
     when(setup.getName()).thenReturn(new TestName("com.package.Test.setUp1"));
@@ -194,4 +247,15 @@ public class FailedTestsFilterTest extends BaseTestCase {
     Assert.assertEquals(applicableTestRuns.get(1), setupTest);
     Assert.assertEquals(applicableTestRuns.get(2), teardownTest);
   }
-}
\ No newline at end of file
+
+  private static STestRun createNewFailure(long testNameId) {
+    STest test = Mockito.mock(STest.class);
+    when(test.getTestNameId()).thenReturn(testNameId);
+    when(test.getName()).thenReturn(new TestName("some.test.package.Test.method" + testNameId));
+    STestRun testRun = Mockito.mock(STestRun.class);
+    when(testRun.getTest()).thenReturn(test);
+    when(testRun.isNewFailure()).thenReturn(true);
+    when(testRun.getOrderId()).thenReturn((int)testNameId);
+    return testRun;
+  }
+}
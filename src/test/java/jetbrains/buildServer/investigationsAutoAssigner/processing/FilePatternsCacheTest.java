@@ -0,0 +1,114 @@
+package jetbrains.buildServer.investigationsAutoAssigner.processing;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import jetbrains.buildServer.vcs.SVcsModification;
+import jetbrains.buildServer.vcs.VcsFileModification;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.when;
+
+@Test
+public class FilePatternsCacheTest {
+  private AtomicInteger myComputations;
+
+  @BeforeMethod
+  public void setUp() {
+    myComputations = new AtomicInteger();
+  }
+
+  public void testPatternsComputedOncePerChange() {
+    FilePatternsCache cache = createCache(1024 * 1024);
+    SVcsModification change = createChange(1, false, "dir1/dir2/SomeFile.java", "dir1/dir2/OtherFile.java");
+
+    List<FilePatternsCache.FilePatterns> first = cache.getPatterns(change);
+    List<FilePatternsCache.FilePatterns> second = cache.getPatterns(change);
+
+    Assert.assertSame(second, first);
+    Assert.assertEquals(myComputations.get(), 2);
+    Assert.assertEquals(first.get(0).getFilePath(), "dir1/dir2/SomeFile.java");
+    Assert.assertEquals(Arrays.asList(first.get(0).getPatterns()),
+                        ModificationAnalyzerFactory.getPatterns("dir1/dir2/SomeFile.java"));
+    Assert.assertEquals(cache.getSize(), 1);
+    Assert.assertTrue(cache.getSizeInBytes() > 0);
+  }
+
+  public void testLeastRecentlyUsedEvictedBySize() {
+    FilePatternsCache probe = createCache(1024 * 1024);
+    probe.getPatterns(createChange(1, false, "dir1/dir2/SomeFile.java"));
+    long entrySize = probe.getSizeInBytes();
+
+    FilePatternsCache cache = createCache(2 * entrySize);
+    SVcsModification first = createChange(1, false, "dir1/dir2/SomeFile.java");
+    SVcsModification second = createChange(2, false, "dir3/dir4/SomeFile.java");
+    SVcsModification third = createChange(3, false, "dir5/dir6/SomeFile.java");
+    cache.getPatterns(first);
+    cache.getPatterns(second);
+    cache.getPatterns(first);
+    cache.getPatterns(third);
+
+    Assert.assertEquals(cache.getSize(), 2);
+    Assert.assertTrue(cache.getSizeInBytes() <= 2 * entrySize);
+
+    myComputations.set(0);
+    cache.getPatterns(first);
+    Assert.assertEquals(myComputations.get(), 0);
+    cache.getPatterns(second);
+    Assert.assertEquals(myComputations.get(), 1);
+  }
+
+  public void testPersonalChangesNotCached() {
+    FilePatternsCache cache = createCache(1024 * 1024);
+    SVcsModification change = createChange(1, true, "dir1/dir2/SomeFile.java");
+
+    cache.getPatterns(change);
+    cache.getPatterns(change);
+
+    Assert.assertEquals(myComputations.get(), 2);
+    Assert.assertEquals(cache.getSize(), 0);
+    Assert.assertEquals(cache.getSizeInBytes(), 0);
+  }
+
+  public void testDisabledCache() {
+    FilePatternsCache cache = createCache(0);
+    SVcsModification change = createChange(1, false, "dir1/dir2/SomeFile.java");
+
+    cache.getPatterns(change);
+    cache.getPatterns(change);
+
+    Assert.assertEquals(myComputations.get(), 2);
+    Assert.assertEquals(cache.getSize(), 0);
+  }
+
+  public void testChangeWithoutFiles() {
+    FilePatternsCache cache = createCache(1024 * 1024);
+
+    Assert.assertEquals(cache.getPatterns(createChange(1, false)), Collections.emptyList());
+  }
+
+  private FilePatternsCache createCache(long maxSizeInBytes) {
+    return new FilePatternsCache(maxSizeInBytes, filePath -> {
+      myComputations.incrementAndGet();
+      return ModificationAnalyzerFactory.getPatterns(filePath);
+    });
+  }
+
+  private static SVcsModification createChange(long id, boolean personal, String... filePaths) {
+    SVcsModification change = Mockito.mock(SVcsModification.class);
+    when(change.getId()).thenReturn(id);
+    when(change.isPersonal()).thenReturn(personal);
+    List<VcsFileModification> modifications = Arrays.stream(filePaths).map(filePath -> {
+      VcsFileModification modification = Mockito.mock(VcsFileModification.class);
+      when(modification.getRelativeFileName()).thenReturn(filePath);
+      return modification;
+    }).collect(Collectors.toList());
+    when(change.getChanges()).thenReturn(modifications);
+    return change;
+  }
+}
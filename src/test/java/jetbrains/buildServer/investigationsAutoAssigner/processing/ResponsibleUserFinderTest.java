@@ -2,6 +2,7 @@
 
 package jetbrains.buildServer.investigationsAutoAssigner.processing;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -108,4 +109,22 @@ public class ResponsibleUserFinderTest extends BaseTestCase {
 
     Mockito.verify(myHeuristic2, Mockito.atLeastOnce()).findResponsibleUser(any());
   }
-}
\ No newline at end of file
+
+  public void Test_FindResponsibleUser_HeuristicsShareBuildSnapshot() {
+    HeuristicResult emptyHeuristicResult = new HeuristicResult();
+    List<HeuristicContext> contexts = new ArrayList<>();
+    when(myHeuristic.findResponsibleUser(any())).thenAnswer(invocation -> {
+      contexts.add(invocation.getArgument(0));
+      return emptyHeuristicResult;
+    });
+    when(myHeuristic2.findResponsibleUser(any())).thenAnswer(invocation -> {
+      contexts.add(invocation.getArgument(0));
+      return emptyHeuristicResult;
+    });
+
+    myUserFinder.findResponsibleUser(mySBuild, mySProject, Collections.emptyList(), myTestWrapper);
+
+    Assert.assertEquals(contexts.size(), 2);
+    Assert.assertSame(contexts.get(0).getBuildSnapshot(), contexts.get(1).getBuildSnapshot());
+  }
+}
@@ -0,0 +1,41 @@
+package jetbrains.buildServer.investigationsAutoAssigner.representation;
+
+import java.util.Collections;
+import jetbrains.buildServer.investigationsAutoAssigner.utils.LatencyHistogram;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class ProcessingMetricsControllerTest {
+
+  public void testFormat() {
+    LatencyHistogram stage = new LatencyHistogram();
+    stage.record(1_000_000);
+    stage.record(3_000_000);
+    LatencyHistogram lag = new LatencyHistogram();
+    lag.record(2_000_000_000L);
+
+    String text = ProcessingMetricsController.format(Collections.singletonMap("heuristic.OneCommitter", stage.getSnapshot()),
+                                                     Collections.singletonMap("pendingTasks", 7L),
+                                                     Collections.singletonMap("rejectedTasks", 2L),
+                                                     lag.getSnapshot());
+
+    Assert.assertTrue(text.contains("# TYPE investigations_auto_assigner_pending_tasks gauge\ninvestigations_auto_assigner_pending_tasks 7\n"), text);
+    Assert.assertTrue(text.contains("# TYPE investigations_auto_assigner_rejected_tasks_total counter\ninvestigations_auto_assigner_rejected_tasks_total 2\n"), text);
+    Assert.assertTrue(text.contains("investigations_auto_assigner_assignment_lag_seconds{quantile=\"0.5\"} 2.000000\n"), text);
+    Assert.assertTrue(text.contains("investigations_auto_assigner_assignment_lag_seconds_count 1\n"), text);
+    Assert.assertTrue(text.contains("investigations_auto_assigner_stage_duration_seconds{stage=\"heuristic.OneCommitter\",quantile=\"0.99\"} 0.003000\n"), text);
+    Assert.assertTrue(text.contains("investigations_auto_assigner_stage_duration_seconds_sum{stage=\"heuristic.OneCommitter\"} 0.004000\n"), text);
+    Assert.assertTrue(text.contains("investigations_auto_assigner_stage_duration_seconds_count{stage=\"heuristic.OneCommitter\"} 2\n"), text);
+  }
+
+  public void testFormatWithoutValues() {
+    LatencyHistogram lag = new LatencyHistogram();
+
+    String text = ProcessingMetricsController.format(Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(),
+                                                     lag.getSnapshot());
+
+    Assert.assertTrue(text.contains("investigations_auto_assigner_assignment_lag_seconds_count 0\n"), text);
+    Assert.assertFalse(text.contains("stage=\""), text);
+  }
+}
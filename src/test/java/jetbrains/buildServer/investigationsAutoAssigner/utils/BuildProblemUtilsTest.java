@@ -0,0 +1,66 @@
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import jetbrains.buildServer.investigationsAutoAssigner.common.BuildSnapshot;
+import jetbrains.buildServer.serverSide.BuildPromotion;
+import jetbrains.buildServer.serverSide.BuildPromotionEx;
+import jetbrains.buildServer.serverSide.SBuild;
+import jetbrains.buildServer.serverSide.problems.BuildProblem;
+import jetbrains.buildServer.vcs.SelectPrevBuildPolicy;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.*;
+
+@Test
+public class BuildProblemUtilsTest {
+  private BuildProblemUtils myBuildProblemUtils;
+  private BuildPromotion myPromotion;
+  private BuildPromotionEx myPreviousPromotion;
+  private BuildSnapshot myBuildSnapshot;
+
+  @BeforeMethod
+  public void setUp() {
+    myBuildProblemUtils = new BuildProblemUtils();
+    myPromotion = Mockito.mock(BuildPromotion.class);
+    when(myPromotion.getId()).thenReturn(10L);
+    myPreviousPromotion = Mockito.mock(BuildPromotionEx.class);
+    when(myPromotion.getPreviousBuildPromotion(SelectPrevBuildPolicy.SINCE_LAST_BUILD)).thenReturn(myPreviousPromotion);
+    myBuildSnapshot = new BuildSnapshot(Mockito.mock(SBuild.class));
+  }
+
+  public void testPreviousProblemsLoadedOnce() {
+    BuildProblem previousProblem1 = createProblem(1, null);
+    BuildProblem previousProblem2 = createProblem(2, null);
+    when(myPreviousPromotion.getBuildProblems()).thenReturn(Arrays.asList(previousProblem1, previousProblem2));
+
+    Assert.assertFalse(myBuildProblemUtils.isNew(createProblem(1, myPromotion), myBuildSnapshot));
+    Assert.assertFalse(myBuildProblemUtils.isNew(createProblem(2, myPromotion), myBuildSnapshot));
+    Assert.assertTrue(myBuildProblemUtils.isNew(createProblem(3, myPromotion), myBuildSnapshot));
+
+    verify(myPromotion, times(1)).getPreviousBuildPromotion(SelectPrevBuildPolicy.SINCE_LAST_BUILD);
+    verify(myPreviousPromotion, times(1)).getBuildProblems();
+  }
+
+  public void testNoPreviousBuild() {
+    when(myPromotion.getPreviousBuildPromotion(SelectPrevBuildPolicy.SINCE_LAST_BUILD)).thenReturn(null);
+
+    Assert.assertTrue(myBuildProblemUtils.isNew(createProblem(1, myPromotion), myBuildSnapshot));
+  }
+
+  public void testNoPreviousProblems() {
+    when(myPreviousPromotion.getBuildProblems()).thenReturn(Collections.emptyList());
+
+    Assert.assertTrue(myBuildProblemUtils.isNew(createProblem(1, myPromotion), myBuildSnapshot));
+  }
+
+  private static BuildProblem createProblem(int id, BuildPromotion promotion) {
+    BuildProblem problem = Mockito.mock(BuildProblem.class);
+    when(problem.getId()).thenReturn(id);
+    when(problem.getBuildPromotion()).thenReturn(promotion);
+    return problem;
+  }
+}
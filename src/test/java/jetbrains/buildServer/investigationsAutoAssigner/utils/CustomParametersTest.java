@@ -7,6 +7,7 @@ import java.util.HashMap;
 import java.util.Map;
 import jetbrains.buildServer.BaseTestCase;
 import jetbrains.buildServer.BuildProblemTypes;
+import jetbrains.buildServer.investigationsAutoAssigner.common.AutoAssignerSettings;
 import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.SBuildFeatureDescriptor;
@@ -17,97 +18,115 @@ import org.testng.annotations.Test;
 @Test
 public class CustomParametersTest extends BaseTestCase {
 
-  private CustomParameters myCustomParameters;
-
   @BeforeMethod
   @Override
   protected void setUp() throws Exception {
-    myCustomParameters = new CustomParameters();
     super.setUp();
   }
 
-  public void getUsersToIgnoreTestNoDescriptor() {
+  public void testReadSettingsUsersToIgnoreNoDescriptor() {
     SBuild sBuildMock = Mockito.mock(SBuild.class);
     Mockito.when(sBuildMock.getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE)).thenReturn(Collections.emptyList());
-    assertSetEquals(CustomParameters.getUsersToIgnore(sBuildMock));
+    assertSetEquals(CustomParameters.readSettings(sBuildMock).getUsersToIgnore());
   }
 
-  public void getUsersToIgnoreTestHasOneInList() {
-    SBuild sBuildMock = Mockito.mock(SBuild.class);
-    SBuildFeatureDescriptor sBuildFeatureDescriptor =
-      Mockito.mock(jetbrains.buildServer.serverSide.SBuildFeatureDescriptor.class);
-    Mockito.when(sBuildMock.getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE))
-           .thenReturn(Collections.singletonList(sBuildFeatureDescriptor));
+  public void testReadSettingsUsersToIgnoreHasOneInList() {
     Map<String, String> params = new HashMap<>();
+    SBuild sBuildMock = createBuildWithFeature(params);
     params.put(Constants.USERS_TO_IGNORE, "username1");
-    Mockito.when(sBuildFeatureDescriptor.getParameters()).thenReturn(params);
-    assertSetEquals(CustomParameters.getUsersToIgnore(sBuildMock), "username1");
+    assertSetEquals(CustomParameters.readSettings(sBuildMock).getUsersToIgnore(), "username1");
 
     params.put(Constants.USERS_TO_IGNORE, "username2 ");
-    assertSetEquals(CustomParameters.getUsersToIgnore(sBuildMock), "username2");
+    assertSetEquals(CustomParameters.readSettings(sBuildMock).getUsersToIgnore(), "username2");
 
     params.put(Constants.USERS_TO_IGNORE, "  username3    ");
-    assertSetEquals(CustomParameters.getUsersToIgnore(sBuildMock), "username3");
+    assertSetEquals(CustomParameters.readSettings(sBuildMock).getUsersToIgnore(), "username3");
   }
 
-  public void getUsersToIgnoreTestHasTwo() {
-    SBuild sBuildMock = Mockito.mock(SBuild.class);
-    SBuildFeatureDescriptor sBuildFeatureDescriptor =
-      Mockito.mock(jetbrains.buildServer.serverSide.SBuildFeatureDescriptor.class);
-    Mockito.when(sBuildMock.getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE))
-           .thenReturn(Collections.singletonList(sBuildFeatureDescriptor));
+  public void testReadSettingsUsersToIgnoreHasTwo() {
     Map<String, String> params = new HashMap<>();
     params.put(Constants.USERS_TO_IGNORE, "username1\nusername2\nusername3");
-    Mockito.when(sBuildFeatureDescriptor.getParameters()).thenReturn(params);
-    assertSetEquals(CustomParameters.getUsersToIgnore(sBuildMock), "username1", "username2", "username3");
+    SBuild sBuildMock = createBuildWithFeature(params);
+    assertSetEquals(CustomParameters.readSettings(sBuildMock).getUsersToIgnore(), "username1", "username2", "username3");
   }
 
-  @Test
-  public void testGetBuildProblemTypesToIgnoreNotSpecified() {
+  public void testReadSettingsBuildProblemTypesToIgnoreNotSpecified() {
     SBuild sBuildMock = Mockito.mock(SBuild.class);
     Mockito.when(sBuildMock.getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE)).thenReturn(Collections.emptyList());
-    assertTrue(myCustomParameters.getBuildProblemTypesToIgnore(sBuildMock).isEmpty());
+    assertTrue(CustomParameters.readSettings(sBuildMock).getBuildProblemTypesToIgnore().isEmpty());
 
-    SBuildFeatureDescriptor sBuildFeatureDescriptor =
-      Mockito.mock(jetbrains.buildServer.serverSide.SBuildFeatureDescriptor.class);
-    Mockito.when(sBuildMock.getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE))
-           .thenReturn(Collections.singletonList(sBuildFeatureDescriptor));
     Map<String, String> params = new HashMap<>();
     params.put(Constants.SHOULD_IGNORE_EXITCODE_PROBLEMS, null);
     params.put(Constants.SHOULD_IGNORE_COMPILATION_PROBLEMS, null);
-    Mockito.when(sBuildFeatureDescriptor.getParameters()).thenReturn(params);
-    assertTrue(myCustomParameters.getBuildProblemTypesToIgnore(sBuildMock).isEmpty());
+    assertTrue(CustomParameters.readSettings(createBuildWithFeature(params)).getBuildProblemTypesToIgnore().isEmpty());
   }
 
-  @Test
-  public void testGetBuildProblemTypesToIgnoreOneSpecified() {
+  public void testReadSettingsBuildProblemTypesToIgnoreOneSpecified() {
+    Map<String, String> params = new HashMap<>();
+    params.put(Constants.SHOULD_IGNORE_EXITCODE_PROBLEMS, "true");
+
+    assertSetEquals(CustomParameters.readSettings(createBuildWithFeature(params)).getBuildProblemTypesToIgnore(),
+                    BuildProblemTypes.TC_EXIT_CODE_TYPE);
+  }
+
+  public void testReadSettingsBuildProblemTypesToIgnoreTwoSpecified() {
+    Map<String, String> params = new HashMap<>();
+    params.put(Constants.SHOULD_IGNORE_EXITCODE_PROBLEMS, "true");
+    params.put(Constants.SHOULD_IGNORE_COMPILATION_PROBLEMS, "true");
+
+    assertSetEquals(CustomParameters.readSettings(createBuildWithFeature(params)).getBuildProblemTypesToIgnore(),
+                    BuildProblemTypes.TC_COMPILATION_ERROR_TYPE,
+                    BuildProblemTypes.TC_EXIT_CODE_TYPE);
+  }
+
+  public void testReadSettingsNoDescriptor() {
     SBuild sBuildMock = Mockito.mock(SBuild.class);
-    SBuildFeatureDescriptor sBuildFeatureDescriptor =
-      Mockito.mock(jetbrains.buildServer.serverSide.SBuildFeatureDescriptor.class);
+    Mockito.when(sBuildMock.getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE)).thenReturn(Collections.emptyList());
+    Mockito.when(sBuildMock.getBuildOwnParameters())
+           .thenReturn(Collections.singletonMap(Constants.MAX_TESTS_PER_BUILD_NUMBER, "7"));
+
+    AutoAssignerSettings settings = CustomParameters.readSettings(sBuildMock);
+
+    assertFalse(settings.isFeatureEnabled());
+    assertNull(settings.getDefaultResponsible());
+    assertTrue(settings.getUsersToIgnore().isEmpty());
+    assertTrue(settings.getBuildProblemTypesToIgnore().isEmpty());
+    assertFalse(settings.shouldDelayAssignments());
+    assertEquals(7, settings.getMaxTestsPerBuild());
+  }
+
+  public void testReadSettings() {
+    SBuild sBuildMock = Mockito.mock(SBuild.class);
+    SBuildFeatureDescriptor sBuildFeatureDescriptor = Mockito.mock(SBuildFeatureDescriptor.class);
     Mockito.when(sBuildMock.getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE))
            .thenReturn(Collections.singletonList(sBuildFeatureDescriptor));
+    Mockito.when(sBuildMock.getBuildOwnParameters())
+           .thenReturn(Collections.singletonMap(Constants.MAX_TESTS_PER_BUILD_NUMBER, "7"));
     Map<String, String> params = new HashMap<>();
+    params.put(Constants.DEFAULT_RESPONSIBLE, "username1");
+    params.put(Constants.USERS_TO_IGNORE, "username2\n username3");
     params.put(Constants.SHOULD_IGNORE_EXITCODE_PROBLEMS, "true");
+    params.put(Constants.ASSIGN_ON_SECOND_FAILURE, "true");
     Mockito.when(sBuildFeatureDescriptor.getParameters()).thenReturn(params);
 
-    assertListEquals(myCustomParameters.getBuildProblemTypesToIgnore(sBuildMock), BuildProblemTypes.TC_EXIT_CODE_TYPE);
+    AutoAssignerSettings settings = CustomParameters.readSettings(sBuildMock);
+    params.put(Constants.DEFAULT_RESPONSIBLE, "username4");
+
+    assertTrue(settings.isFeatureEnabled());
+    assertEquals("username1", settings.getDefaultResponsible());
+    assertSetEquals(settings.getUsersToIgnore(), "username2", "username3");
+    assertSetEquals(settings.getBuildProblemTypesToIgnore(), BuildProblemTypes.TC_EXIT_CODE_TYPE);
+    assertTrue(settings.shouldDelayAssignments());
+    assertEquals(7, settings.getMaxTestsPerBuild());
+    Mockito.verify(sBuildMock, Mockito.times(1)).getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE);
   }
 
-  @Test
-  public void testGetBuildProblemTypesToIgnoreTwoSpecified() {
+  private static SBuild createBuildWithFeature(Map<String, String> params) {
     SBuild sBuildMock = Mockito.mock(SBuild.class);
-    SBuildFeatureDescriptor sBuildFeatureDescriptor =
-      Mockito.mock(jetbrains.buildServer.serverSide.SBuildFeatureDescriptor.class);
+    SBuildFeatureDescriptor sBuildFeatureDescriptor = Mockito.mock(SBuildFeatureDescriptor.class);
     Mockito.when(sBuildMock.getBuildFeaturesOfType(Constants.BUILD_FEATURE_TYPE))
            .thenReturn(Collections.singletonList(sBuildFeatureDescriptor));
-    Map<String, String> params = new HashMap<>();
-    params.put(Constants.SHOULD_IGNORE_EXITCODE_PROBLEMS, "true");
-    params.put(Constants.SHOULD_IGNORE_COMPILATION_PROBLEMS, "true");
-
     Mockito.when(sBuildFeatureDescriptor.getParameters()).thenReturn(params);
-
-    assertListEquals(myCustomParameters.getBuildProblemTypesToIgnore(sBuildMock),
-                     BuildProblemTypes.TC_COMPILATION_ERROR_TYPE,
-                     BuildProblemTypes.TC_EXIT_CODE_TYPE);
+    return sBuildMock;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,77 @@
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@Test
+public class FlakyTestDetectorTest {
+  private MBeanServer myMBeanServer;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    myMBeanServer = Mockito.mock(MBeanServer.class);
+    when(myMBeanServer.invoke(any(ObjectName.class), eq("isFlaky"), any(Object[].class), any(String[].class)))
+      .thenAnswer(invocation -> ((Object[])invocation.getArgument(2))[0].equals(2L));
+  }
+
+  public void testFlakyTestsFoundInBatch() throws Exception {
+    FlakyTestDetector detector = new FlakyTestDetector(myMBeanServer, 10, 60_000);
+
+    Set<Long> flaky = detector.findFlaky(Arrays.asList(1L, 2L, 3L, 2L));
+
+    Assert.assertEquals(flaky, Collections.singleton(2L));
+    verify(myMBeanServer, times(3)).invoke(any(ObjectName.class), eq("isFlaky"), any(Object[].class), any(String[].class));
+  }
+
+  public void testAnswersAreCached() throws Exception {
+    FlakyTestDetector detector = new FlakyTestDetector(myMBeanServer, 10, 60_000);
+    detector.findFlaky(Arrays.asList(1L, 2L));
+
+    Assert.assertEquals(detector.findFlaky(Arrays.asList(1L, 2L)), Collections.singleton(2L));
+    Assert.assertTrue(detector.isFlaky(2L));
+    Assert.assertFalse(detector.isFlaky(1L));
+    verify(myMBeanServer, times(2)).invoke(any(ObjectName.class), eq("isFlaky"), any(Object[].class), any(String[].class));
+  }
+
+  public void testExpiredAnswersAreRequested() throws Exception {
+    FlakyTestDetector detector = new FlakyTestDetector(myMBeanServer, 10, -1);
+    detector.findFlaky(Collections.singletonList(2L));
+
+    Assert.assertTrue(detector.isFlaky(2L));
+    verify(myMBeanServer, times(2)).invoke(any(ObjectName.class), eq("isFlaky"), any(Object[].class), any(String[].class));
+  }
+
+  public void testDetectorNotInstalled() throws Exception {
+    when(myMBeanServer.invoke(any(ObjectName.class), eq("isFlaky"), any(Object[].class), any(String[].class)))
+      .thenThrow(new InstanceNotFoundException());
+    FlakyTestDetector detector = new FlakyTestDetector(myMBeanServer, 10, 60_000);
+
+    Assert.assertEquals(detector.findFlaky(Arrays.asList(1L, 2L, 3L)), Collections.emptySet());
+    Assert.assertFalse(detector.isFlaky(1L));
+    verify(myMBeanServer, times(1)).invoke(any(ObjectName.class), eq("isFlaky"), any(Object[].class), any(String[].class));
+  }
+
+  public void testFailedRequestsAreNotCached() throws Exception {
+    when(myMBeanServer.invoke(any(ObjectName.class), eq("isFlaky"), any(Object[].class), any(String[].class)))
+      .thenThrow(new MBeanException(new Exception("failed")))
+      .thenAnswer(invocation -> ((Object[])invocation.getArgument(2))[0].equals(2L));
+    FlakyTestDetector detector = new FlakyTestDetector(myMBeanServer, 10, 60_000);
+
+    Assert.assertEquals(detector.findFlaky(Arrays.asList(2L, 3L)), Collections.emptySet());
+    Assert.assertTrue(detector.isFlaky(2L));
+    verify(myMBeanServer, times(3)).invoke(any(ObjectName.class), eq("isFlaky"), any(Object[].class), any(String[].class));
+  }
+}
@@ -0,0 +1,52 @@
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class IntHashSetTest {
+
+  public void testAddAndContains() {
+    IntHashSet set = new IntHashSet();
+
+    Assert.assertTrue(set.isEmpty());
+    Assert.assertTrue(set.add(5));
+    Assert.assertFalse(set.add(5));
+    Assert.assertTrue(set.add(0));
+    Assert.assertFalse(set.add(0));
+    Assert.assertTrue(set.add(-7));
+
+    Assert.assertEquals(set.size(), 3);
+    Assert.assertTrue(set.contains(5));
+    Assert.assertTrue(set.contains(0));
+    Assert.assertTrue(set.contains(-7));
+    Assert.assertFalse(set.contains(6));
+
+    int[] values = set.toArray();
+    Arrays.sort(values);
+    Assert.assertEquals(values, new int[]{-7, 0, 5});
+  }
+
+  public void testSameAsHashSet() {
+    Random random = new Random(42);
+    IntHashSet set = new IntHashSet(0);
+    Set<Integer> expected = new HashSet<>();
+    for (int i = 0; i < 10000; i++) {
+      int value = random.nextInt(5000) - 100;
+      Assert.assertEquals(set.add(value), expected.add(value));
+    }
+
+    Assert.assertEquals(set.size(), expected.size());
+    for (int value = -200; value < 5100; value++) {
+      Assert.assertEquals(set.contains(value), expected.contains(value), "value " + value);
+    }
+
+    Set<Integer> iterated = new HashSet<>();
+    set.forEach(iterated::add);
+    Assert.assertEquals(iterated, expected);
+  }
+}
@@ -0,0 +1,69 @@
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class IntObjectHashMapTest {
+
+  public void testPutAndGet() {
+    IntObjectHashMap<String> map = new IntObjectHashMap<>();
+
+    Assert.assertTrue(map.isEmpty());
+    Assert.assertNull(map.put(5, "five"));
+    Assert.assertEquals(map.put(5, "FIVE"), "five");
+    Assert.assertNull(map.putIfAbsent(0, "zero"));
+    Assert.assertEquals(map.putIfAbsent(0, "ZERO"), "zero");
+    Assert.assertNull(map.putIfAbsent(-7, "minus seven"));
+
+    Assert.assertEquals(map.size(), 3);
+    Assert.assertEquals(map.get(5), "FIVE");
+    Assert.assertEquals(map.get(0), "zero");
+    Assert.assertEquals(map.get(-7), "minus seven");
+    Assert.assertNull(map.get(6));
+    Assert.assertFalse(map.containsKey(6));
+  }
+
+  public void testPutAllReplacesValues() {
+    IntObjectHashMap<String> map = new IntObjectHashMap<>();
+    map.put(1, "one");
+    map.put(2, "two");
+    IntObjectHashMap<String> other = new IntObjectHashMap<>();
+    other.put(2, "TWO");
+    other.put(0, "zero");
+
+    map.putAll(other);
+
+    Map<Integer, String> expected = new HashMap<>();
+    expected.put(0, "zero");
+    expected.put(1, "one");
+    expected.put(2, "TWO");
+    Assert.assertEquals(map.toMap(), expected);
+  }
+
+  public void testSameAsHashMap() {
+    Random random = new Random(42);
+    IntObjectHashMap<Integer> map = new IntObjectHashMap<>(0);
+    Map<Integer, Integer> expected = new HashMap<>();
+    for (int i = 0; i < 10000; i++) {
+      int key = random.nextInt(5000) - 100;
+      if (random.nextBoolean()) {
+        Assert.assertEquals(map.put(key, i), expected.put(key, i));
+      } else {
+        Assert.assertEquals(map.putIfAbsent(key, i), expected.putIfAbsent(key, i));
+      }
+    }
+
+    Assert.assertEquals(map.size(), expected.size());
+    for (int key = -200; key < 5100; key++) {
+      Assert.assertEquals(map.get(key), expected.get(key), "key " + key);
+    }
+
+    Map<Integer, Integer> iterated = new HashMap<>();
+    map.forEach(iterated::put);
+    Assert.assertEquals(iterated, expected);
+  }
+}
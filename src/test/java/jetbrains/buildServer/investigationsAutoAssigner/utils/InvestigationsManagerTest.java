@@ -2,9 +2,12 @@
 
 package jetbrains.buildServer.investigationsAutoAssigner.utils;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import jetbrains.buildServer.BaseTestCase;
+import jetbrains.buildServer.investigationsAutoAssigner.common.Constants;
 import jetbrains.buildServer.responsibility.BuildProblemResponsibilityEntry;
 import jetbrains.buildServer.responsibility.ResponsibilityEntry;
 import jetbrains.buildServer.responsibility.TestNameResponsibilityEntry;
@@ -13,9 +16,14 @@ import jetbrains.buildServer.serverSide.SBuild;
 import jetbrains.buildServer.serverSide.SProject;
 import jetbrains.buildServer.serverSide.STest;
 import jetbrains.buildServer.serverSide.STestRun;
+import jetbrains.buildServer.serverSide.audit.AuditLogAction;
 import jetbrains.buildServer.serverSide.audit.AuditLogBuilder;
 import jetbrains.buildServer.serverSide.audit.AuditLogProvider;
+import jetbrains.buildServer.serverSide.audit.ObjectWrapper;
+import jetbrains.buildServer.serverSide.impl.audit.filters.BuildProblemAuditId;
+import jetbrains.buildServer.serverSide.impl.audit.filters.TestId;
 import jetbrains.buildServer.serverSide.impl.problems.BuildProblemImpl;
+import jetbrains.buildServer.serverSide.problems.BuildProblem;
 import jetbrains.buildServer.users.User;
 import org.assertj.core.api.Assertions;
 import org.mockito.Mockito;
@@ -23,6 +31,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.when;
 
 @Test
@@ -41,6 +50,7 @@ public class InvestigationsManagerTest extends BaseTestCase {
   private TestNameResponsibilityEntry myResponsibilityEntry;
   private SBuild mySBuild;
   private User myUser;
+  private AuditLogBuilder myAuditLogBuilder;
 
   @BeforeMethod
   @Override
@@ -71,15 +81,15 @@ public class InvestigationsManagerTest extends BaseTestCase {
     final AuditLogProvider auditLogProvider = Mockito.mock(AuditLogProvider.class);
     final ResponsibilityFacadeImpl responsibilityFacade = Mockito.mock(ResponsibilityFacadeImpl.class);
     when(responsibilityFacade.getProject(any())).thenCallRealMethod();
-    final AuditLogBuilder auditLogBuilder = Mockito.mock(AuditLogBuilder.class);
-    when(auditLogProvider.getBuilder()).thenReturn(auditLogBuilder);
+    myAuditLogBuilder = Mockito.mock(AuditLogBuilder.class);
+    when(auditLogProvider.getBuilder()).thenReturn(myAuditLogBuilder);
     when(myResponsibilityEntry.getTimestamp()).thenReturn(new Date(1000000));
     when(myResponsibilityEntry.getState()).thenReturn(ResponsibilityEntry.State.NONE);
     when(mySTestRun.getTest()).thenReturn(mySTest);
     when(mySTest.getAllResponsibilities()).thenReturn(Collections.singletonList(myResponsibilityEntry));
     when(mySTest.getProjectId()).thenReturn("123");
 
-    myInvestigationsManager = new InvestigationsManager(auditLogProvider, responsibilityFacade);
+    myInvestigationsManager = new InvestigationsManager(auditLogProvider, responsibilityFacade, new ProjectHierarchyIndex());
   }
 
   public void Test_BuildIsUnderInvestigationInSameProject() {
@@ -175,6 +185,32 @@ public class InvestigationsManagerTest extends BaseTestCase {
     Assertions.assertThat(myInvestigationsManager.checkUnderInvestigation(mySProject, mySBuild, sTest)).isFalse();
   }
 
+  public void Test_FindUnderInvestigation() {
+    STest otherProjectTest = Mockito.mock(STest.class);
+    TestNameResponsibilityEntry otherProjectEntry = Mockito.mock(TestNameResponsibilityEntry.class);
+    when(otherProjectEntry.getState()).thenReturn(ResponsibilityEntry.State.TAKEN);
+    when(otherProjectEntry.getProject()).thenReturn(myProject2);
+    when(otherProjectTest.getAllResponsibilities()).thenReturn(Collections.singletonList(otherProjectEntry));
+    when(otherProjectTest.getTestNameId()).thenReturn(2L);
+
+    STest fixedTest = Mockito.mock(STest.class);
+    TestNameResponsibilityEntry fixedEntry = Mockito.mock(TestNameResponsibilityEntry.class);
+    when(fixedEntry.getState()).thenReturn(ResponsibilityEntry.State.FIXED);
+    when(fixedEntry.getProject()).thenReturn(mySProject);
+    when(fixedEntry.getTimestamp()).thenReturn(new Date(3000000));
+    when(fixedTest.getAllResponsibilities()).thenReturn(Collections.singletonList(fixedEntry));
+    when(fixedTest.getTestNameId()).thenReturn(3L);
+
+    SProject parentProject = mySProject.getParentProject();
+    when(myResponsibilityEntry.getState()).thenReturn(ResponsibilityEntry.State.TAKEN);
+    when(myResponsibilityEntry.getProject()).thenReturn(parentProject);
+    when(mySTest.getTestNameId()).thenReturn(1L);
+
+    Assertions.assertThat(myInvestigationsManager.findUnderInvestigation(mySProject, mySBuild,
+                                                                         Arrays.asList(mySTest, otherProjectTest, fixedTest)))
+              .containsExactlyInAnyOrder(1L, 3L);
+  }
+
   public void Test_BuildProblemFindPreviousResponsible_FixedBeforeQueued() {
     when(myBuildProblemResponsibilityEntry.getState()).thenReturn(ResponsibilityEntry.State.FIXED);
     when(myBuildProblemResponsibilityEntry.getResponsibleUser()).thenReturn(myUser);
@@ -216,4 +252,59 @@ public class InvestigationsManagerTest extends BaseTestCase {
 
     Assertions.assertThat(myInvestigationsManager.findPreviousResponsible(mySProject, mySBuild, mySTest)).isNull();
   }
-}
\ No newline at end of file
+
+  public void Test_FindInAudit_StopsWhenAllTestsFound() {
+    setInternalProperty(Constants.AUDIT_LOOKUP_PAGE_SIZE, "1");
+    STest secondTest = Mockito.mock(STest.class);
+    STestRun secondTestRun = Mockito.mock(STestRun.class);
+    when(secondTestRun.getTest()).thenReturn(secondTest);
+    when(mySTest.getTestNameId()).thenReturn(1L);
+    when(secondTest.getTestNameId()).thenReturn(2L);
+    User secondUser = Mockito.mock(User.class);
+
+    AuditLogAction firstAction = createAuditAction(1L, myUser, new Date(2000000));
+    AuditLogAction secondAction = createAuditAction(2L, secondUser, new Date(1000000));
+    when(myAuditLogBuilder.getLogActions(1)).thenReturn(Collections.singletonList(firstAction),
+                                                        Collections.singletonList(secondAction),
+                                                        Collections.singletonList(firstAction));
+
+    HashMap<Long, User> result = myInvestigationsManager.findInAudit(Arrays.asList(mySTestRun, secondTestRun), mySProject);
+
+    Assertions.assertThat(result).containsEntry(1L, myUser).containsEntry(2L, secondUser);
+    Mockito.verify(myAuditLogBuilder, Mockito.times(2)).getLogActions(1);
+  }
+
+  public void Test_FindInAudit_NoTests() {
+    Assertions.assertThat(myInvestigationsManager.findInAudit(Collections.emptyList(), mySProject)).isEmpty();
+    Mockito.verify(myAuditLogBuilder, Mockito.never()).getLogActions(anyInt());
+  }
+
+  public void Test_FindInAuditBuildProblems_StopsWhenAllProblemsFound() {
+    setInternalProperty(Constants.AUDIT_LOOKUP_PAGE_SIZE, "1");
+    AuditLogAction action = createAuditAction(BuildProblemAuditId.fromBuildProblem(myBuildProblem).asString(),
+                                              myUser, new Date(2000000));
+    AuditLogAction olderAction = createAuditAction(BuildProblemAuditId.fromBuildProblem(myBuildProblem).asString(),
+                                                   Mockito.mock(User.class), new Date(1000000));
+    when(myAuditLogBuilder.getLogActions(1)).thenReturn(Collections.singletonList(action),
+                                                        Collections.singletonList(olderAction));
+
+    HashMap<BuildProblem, User> result = myInvestigationsManager.findInAudit(Collections.singletonList(myBuildProblem));
+
+    Assertions.assertThat(result).containsOnly(Assertions.entry(myBuildProblem, myUser));
+    Mockito.verify(myAuditLogBuilder, Mockito.times(1)).getLogActions(1);
+  }
+
+  private AuditLogAction createAuditAction(long testNameId, User user, Date created) {
+    return createAuditAction(TestId.createOn(testNameId, "Project ID").asString(), user, created);
+  }
+
+  private AuditLogAction createAuditAction(String objectId, User user, Date created) {
+    AuditLogAction action = Mockito.mock(AuditLogAction.class);
+    ObjectWrapper userWrapper = Mockito.mock(ObjectWrapper.class);
+    when(userWrapper.getObject()).thenReturn(user);
+    Mockito.doReturn(Collections.singletonList(userWrapper)).when(action).getObjects();
+    when(action.getObjectId()).thenReturn(objectId);
+    when(action.getCreated()).thenReturn(created);
+    return action;
+  }
+}
@@ -0,0 +1,87 @@
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class LatencyHistogramTest {
+
+  public void testEmpty() {
+    LatencyHistogram.Snapshot snapshot = new LatencyHistogram().getSnapshot();
+
+    Assert.assertEquals(snapshot.getCount(), 0);
+    Assert.assertEquals(snapshot.getMeanNanos(), 0);
+    Assert.assertEquals(snapshot.getMaxNanos(), 0);
+    Assert.assertEquals(snapshot.getPercentileNanos(0.99), 0);
+  }
+
+  public void testCountSumAndMax() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(100);
+    histogram.record(300);
+    histogram.record(0);
+    histogram.record(-5);
+
+    LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+    Assert.assertEquals(snapshot.getCount(), 4);
+    Assert.assertEquals(snapshot.getTotalNanos(), 400);
+    Assert.assertEquals(snapshot.getMeanNanos(), 100);
+    Assert.assertEquals(snapshot.getMaxNanos(), 300);
+  }
+
+  public void testPercentilesAreBucketUpperBounds() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 90; i++) {
+      histogram.record(1000);
+    }
+    for (int i = 0; i < 10; i++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+    long median = snapshot.getPercentileNanos(0.5);
+    Assert.assertTrue(median >= 1000 && median < 2000, "median: " + median);
+    long p99 = snapshot.getPercentileNanos(0.99);
+    Assert.assertEquals(p99, TimeUnit.MILLISECONDS.toNanos(50));
+    Assert.assertEquals(snapshot.getPercentileNanos(1), snapshot.getMaxNanos());
+  }
+
+  public void testLargeValues() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(Long.MAX_VALUE);
+
+    LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+    Assert.assertEquals(snapshot.getPercentileNanos(0.5), Long.MAX_VALUE);
+  }
+
+  public void testConcurrentRecords() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 4; thread++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+    Assert.assertEquals(snapshot.getCount(), 40000);
+    Assert.assertEquals(snapshot.getTotalNanos(), 4L * 10000 * 10001 / 2);
+    Assert.assertEquals(snapshot.getMaxNanos(), 10000);
+  }
+}
@@ -0,0 +1,122 @@
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import static org.awaitility.Awaitility.await;
+
+@Test
+public class OrderedTaskExecutorTest {
+  private OrderedTaskExecutor myExecutor;
+
+  @AfterMethod
+  public void tearDown() {
+    if (myExecutor != null) {
+      myExecutor.shutdown();
+    }
+  }
+
+  public void testTasksWithSameKeyKeepOrder() {
+    myExecutor = new OrderedTaskExecutor("test", 4, 10, 100);
+    List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+
+    for (int i = 0; i < 100; i++) {
+      final int taskNumber = i;
+      Assert.assertTrue(myExecutor.trySubmit("key", () -> executed.add(taskNumber)));
+    }
+
+    await().atMost(5, TimeUnit.SECONDS).until(() -> executed.size() == 100);
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(executed.get(i).intValue(), i);
+    }
+  }
+
+  public void testTasksWithDifferentKeysRunInParallel() throws InterruptedException {
+    myExecutor = new OrderedTaskExecutor("test", 2, 10, 100);
+    CountDownLatch bothStarted = new CountDownLatch(2);
+
+    myExecutor.trySubmit("first", () -> {
+      bothStarted.countDown();
+      awaitQuietly(bothStarted);
+    });
+    myExecutor.trySubmit("second", () -> {
+      bothStarted.countDown();
+      awaitQuietly(bothStarted);
+    });
+
+    Assert.assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+  }
+
+  public void testRejectsWhenQueueIsFull() {
+    myExecutor = new OrderedTaskExecutor("test", 1, 1, 100);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(1);
+
+    Assert.assertTrue(myExecutor.trySubmit("first", () -> {
+      started.countDown();
+      awaitQuietly(release);
+    }));
+    awaitQuietly(started);
+    Assert.assertTrue(myExecutor.trySubmit("second", () -> {}));
+    Assert.assertFalse(myExecutor.trySubmit("third", () -> {}));
+    // tasks of the already queued keys are still accepted
+    Assert.assertTrue(myExecutor.trySubmit("second", () -> {}));
+
+    release.countDown();
+    await().atMost(5, TimeUnit.SECONDS).until(() -> myExecutor.trySubmit("third", () -> {}));
+  }
+
+  public void testRejectsWhenTooManyTasksArePending() {
+    myExecutor = new OrderedTaskExecutor("test", 1, 10, 2);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(1);
+
+    Assert.assertTrue(myExecutor.trySubmit("first", () -> {
+      started.countDown();
+      awaitQuietly(release);
+    }));
+    awaitQuietly(started);
+    Assert.assertTrue(myExecutor.trySubmit("first", () -> {}));
+    Assert.assertTrue(myExecutor.trySubmit("first", () -> {}));
+    // the limit applies to the tasks of the already queued keys as well
+    Assert.assertFalse(myExecutor.trySubmit("first", () -> {}));
+    Assert.assertFalse(myExecutor.trySubmit("second", () -> {}));
+
+    release.countDown();
+    await().atMost(5, TimeUnit.SECONDS).until(() -> myExecutor.trySubmit("first", () -> {}));
+  }
+
+  public void testPendingTasksCount() {
+    myExecutor = new OrderedTaskExecutor("test", 1, 10, 100);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(1);
+
+    myExecutor.trySubmit("first", () -> {
+      started.countDown();
+      awaitQuietly(release);
+    });
+    awaitQuietly(started);
+    myExecutor.trySubmit("first", () -> {});
+    myExecutor.trySubmit("second", () -> {});
+    myExecutor.trySubmit("second", () -> {});
+
+    Assert.assertEquals(myExecutor.getPendingTasksCount(), 3);
+    Assert.assertEquals(myExecutor.getActiveCount(), 1);
+
+    release.countDown();
+    await().atMost(5, TimeUnit.SECONDS).until(() -> myExecutor.getPendingTasksCount() == 0);
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException ignored) {
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.Collections;
+import jetbrains.buildServer.serverSide.SProject;
+import jetbrains.buildServer.users.User;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.when;
+
+@Test
+public class PreviousResponsibleCacheTest {
+  private User myUser;
+
+  @BeforeMethod
+  public void setUp() {
+    myUser = Mockito.mock(User.class);
+  }
+
+  public void testCachedUserAndAbsenceOfUser() {
+    PreviousResponsibleCache cache = new PreviousResponsibleCache(10, 60_000);
+    Assert.assertFalse(cache.get(1L, "project").isCached());
+
+    cache.put(1L, "project", myUser, 0);
+    cache.put(2L, "project", null, 0);
+
+    PreviousResponsibleCache.Lookup cachedUser = cache.get(1L, "project");
+    Assert.assertTrue(cachedUser.isCached());
+    Assert.assertEquals(cachedUser.getUser(), myUser);
+    PreviousResponsibleCache.Lookup cachedAbsence = cache.get(2L, "project");
+    Assert.assertTrue(cachedAbsence.isCached());
+    Assert.assertNull(cachedAbsence.getUser());
+    Assert.assertFalse(cache.get(1L, "anotherProject").isCached());
+    Assert.assertEquals(cache.getHitCount(), 2);
+    Assert.assertEquals(cache.getMissCount(), 2);
+  }
+
+  public void testLeastRecentlyUsedEvicted() {
+    PreviousResponsibleCache cache = new PreviousResponsibleCache(2, 60_000);
+    cache.put(1L, "project", myUser, 0);
+    cache.put(2L, "project", myUser, 0);
+    cache.get(1L, "project");
+    cache.put(3L, "project", myUser, 0);
+
+    Assert.assertEquals(cache.size(), 2);
+    Assert.assertTrue(cache.get(1L, "project").isCached());
+    Assert.assertFalse(cache.get(2L, "project").isCached());
+  }
+
+  public void testExpiredEntryIgnored() {
+    PreviousResponsibleCache cache = new PreviousResponsibleCache(10, -1);
+    cache.put(1L, "project", myUser, 0);
+
+    Assert.assertFalse(cache.get(1L, "project").isCached());
+    Assert.assertEquals(cache.size(), 0);
+  }
+
+  public void testInvalidateProjectAndSubprojects() {
+    SProject project = Mockito.mock(SProject.class);
+    SProject subProject = Mockito.mock(SProject.class);
+    when(project.getProjectId()).thenReturn("parent");
+    when(subProject.getProjectId()).thenReturn("child");
+    when(project.getProjects()).thenReturn(Collections.singletonList(subProject));
+
+    PreviousResponsibleCache cache = new PreviousResponsibleCache(10, 60_000);
+    cache.put(1L, "parent", myUser, 0);
+    cache.put(1L, "child", myUser, 0);
+    cache.put(1L, "another", myUser, 0);
+
+    cache.invalidate(project);
+
+    Assert.assertFalse(cache.get(1L, "parent").isCached());
+    Assert.assertFalse(cache.get(1L, "child").isCached());
+    Assert.assertTrue(cache.get(1L, "another").isCached());
+  }
+
+  public void testUserFoundBeforeInvalidationNotCached() {
+    SProject project = Mockito.mock(SProject.class);
+    when(project.getProjectId()).thenReturn("project");
+
+    PreviousResponsibleCache cache = new PreviousResponsibleCache(10, 60_000);
+    long generation = cache.getGeneration("project");
+    cache.invalidate(project);
+    cache.put(1L, "project", myUser, generation);
+
+    Assert.assertFalse(cache.get(1L, "project").isCached());
+
+    cache.put(1L, "project", myUser, cache.getGeneration("project"));
+    Assert.assertTrue(cache.get(1L, "project").isCached());
+  }
+
+  public void testRemovedProjectForgotten() {
+    SProject project = Mockito.mock(SProject.class);
+    SProject subProject = Mockito.mock(SProject.class);
+    when(project.getProjectId()).thenReturn("parent");
+    when(subProject.getProjectId()).thenReturn("child");
+    when(project.getProjects()).thenReturn(Collections.singletonList(subProject));
+
+    PreviousResponsibleCache cache = new PreviousResponsibleCache(10, 60_000);
+    cache.invalidate(project);
+    cache.put(1L, "child", myUser, cache.getGeneration("child"));
+    Assert.assertEquals(cache.getGenerationsCount(), 2);
+
+    cache.removeProject(project);
+
+    Assert.assertEquals(cache.getGenerationsCount(), 0);
+    Assert.assertEquals(cache.size(), 0);
+  }
+}
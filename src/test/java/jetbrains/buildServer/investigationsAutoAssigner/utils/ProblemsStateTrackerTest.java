@@ -0,0 +1,62 @@
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import jetbrains.buildServer.serverSide.SProject;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.when;
+
+@Test
+public class ProblemsStateTrackerTest {
+  private SProject myParent;
+  private SProject myProject;
+  private SProject mySubProject;
+  private ProblemsStateTracker myTracker;
+
+  @BeforeMethod
+  public void setUp() {
+    myParent = createProject("parent", null);
+    myProject = createProject("project", myParent);
+    mySubProject = createProject("subProject", myProject);
+    myTracker = new ProblemsStateTracker(new ProjectHierarchyIndex());
+  }
+
+  public void testNoChanges() {
+    long version = myTracker.getVersion();
+
+    Assert.assertFalse(myTracker.hasChangedSince(version, myProject));
+  }
+
+  public void testChangeInProjectOrParent() {
+    long version = myTracker.getVersion();
+    myTracker.onChanged(myParent);
+
+    Assert.assertTrue(myTracker.hasChangedSince(version, myProject));
+    Assert.assertFalse(myTracker.hasChangedSince(myTracker.getVersion(), myProject));
+  }
+
+  public void testChangeInSubProjectIgnored() {
+    long version = myTracker.getVersion();
+    myTracker.onChanged(mySubProject);
+
+    Assert.assertFalse(myTracker.hasChangedSince(version, myProject));
+    Assert.assertTrue(myTracker.hasChangedSince(version, mySubProject));
+  }
+
+  public void testChangeWithUnknownProject() {
+    long version = myTracker.getVersion();
+    myTracker.onChanged(null);
+
+    Assert.assertTrue(myTracker.hasChangedSince(version, myProject));
+    Assert.assertTrue(myTracker.hasChangedSince(version, mySubProject));
+  }
+
+  private static SProject createProject(String projectId, SProject parent) {
+    SProject project = Mockito.mock(SProject.class);
+    when(project.getProjectId()).thenReturn(projectId);
+    when(project.getParentProject()).thenReturn(parent);
+    return project;
+  }
+}
@@ -0,0 +1,109 @@
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test
+public class ProcessingMetricsTest {
+  private boolean myWasEnabled;
+
+  @BeforeMethod
+  public void setUp() {
+    myWasEnabled = ProcessingMetrics.isEnabled();
+    ProcessingMetrics.reset();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    ProcessingMetrics.setEnabled(myWasEnabled);
+    ProcessingMetrics.reset();
+  }
+
+  public void testNothingIsRecordedWhenDisabled() {
+    ProcessingMetrics.setEnabled(false);
+
+    long start = ProcessingMetrics.start();
+    ProcessingMetrics.stop(ProcessingMetrics.FETCH_FAILED_TESTS, start);
+    ProcessingMetrics.stopHeuristic("OneCommitter", start);
+
+    Assert.assertTrue(ProcessingMetrics.getSnapshots().isEmpty());
+  }
+
+  public void testStagesAreRecorded() {
+    ProcessingMetrics.setEnabled(true);
+
+    for (int i = 0; i < 3; i++) {
+      long start = ProcessingMetrics.start();
+      ProcessingMetrics.stop(ProcessingMetrics.FETCH_FAILED_TESTS, start);
+    }
+    long start = ProcessingMetrics.start();
+    ProcessingMetrics.stopHeuristic("OneCommitter", start);
+
+    Map<String, LatencyHistogram.Snapshot> snapshots = ProcessingMetrics.getSnapshots();
+    Assert.assertEquals(snapshots.size(), 2);
+    Assert.assertEquals(snapshots.get(ProcessingMetrics.FETCH_FAILED_TESTS).getCount(), 3);
+    Assert.assertEquals(snapshots.get(ProcessingMetrics.HEURISTIC_PREFIX + "OneCommitter").getCount(), 1);
+  }
+
+  public void testMeasuringStartedBeforeDisablingIsRecorded() {
+    ProcessingMetrics.setEnabled(true);
+    long start = ProcessingMetrics.start();
+    ProcessingMetrics.setEnabled(false);
+    ProcessingMetrics.stop(ProcessingMetrics.PERSIST_SUGGESTIONS, start);
+
+    Assert.assertEquals(ProcessingMetrics.getSnapshots().get(ProcessingMetrics.PERSIST_SUGGESTIONS).getCount(), 1);
+  }
+
+  public void testGaugesAreComputedOnRequest() {
+    AtomicLong value = new AtomicLong(3);
+    ProcessingMetrics.registerGauge("testGauge", value::get);
+    ProcessingMetrics.registerGauge("failingGauge", () -> {
+      throw new IllegalStateException();
+    });
+    try {
+      Assert.assertEquals(ProcessingMetrics.getGauges().get("testGauge").longValue(), 3);
+      value.set(5);
+      Assert.assertEquals(ProcessingMetrics.getGauges().get("testGauge").longValue(), 5);
+      Assert.assertFalse(ProcessingMetrics.getGauges().containsKey("failingGauge"));
+    } finally {
+      ProcessingMetrics.unregisterGauge("testGauge");
+      ProcessingMetrics.unregisterGauge("failingGauge");
+    }
+
+    Assert.assertFalse(ProcessingMetrics.getGauges().containsKey("testGauge"));
+  }
+
+  public void testRegisteredCountersAreComputedOnRequest() {
+    AtomicLong value = new AtomicLong(3);
+    ProcessingMetrics.registerCounter("testCounter", value::get);
+    try {
+      Assert.assertEquals(ProcessingMetrics.getCounters().get("testCounter").longValue(), 3);
+      value.set(5);
+      Assert.assertEquals(ProcessingMetrics.getCounters().get("testCounter").longValue(), 5);
+      Assert.assertFalse(ProcessingMetrics.getGauges().containsKey("testCounter"));
+    } finally {
+      ProcessingMetrics.unregisterCounter("testCounter");
+    }
+
+    Assert.assertFalse(ProcessingMetrics.getCounters().containsKey("testCounter"));
+  }
+
+  public void testCountersAndLagDoNotDependOnMeasuring() {
+    ProcessingMetrics.setEnabled(false);
+
+    ProcessingMetrics.increment(ProcessingMetrics.IGNORED_BUILDS);
+    ProcessingMetrics.increment(ProcessingMetrics.IGNORED_BUILDS);
+    ProcessingMetrics.increment(ProcessingMetrics.REJECTED_TASKS);
+    ProcessingMetrics.recordAssignmentLag(1000);
+
+    Map<String, Long> counters = ProcessingMetrics.getCounters();
+    Assert.assertEquals(counters.get(ProcessingMetrics.IGNORED_BUILDS).longValue(), 2);
+    Assert.assertEquals(counters.get(ProcessingMetrics.REJECTED_TASKS).longValue(), 1);
+    Assert.assertEquals(ProcessingMetrics.getAssignmentLag().getCount(), 1);
+    Assert.assertEquals(ProcessingMetrics.getAssignmentLag().getMaxNanos(), 1000);
+  }
+}
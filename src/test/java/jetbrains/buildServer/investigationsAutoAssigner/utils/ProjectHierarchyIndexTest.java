@@ -0,0 +1,91 @@
+package jetbrains.buildServer.investigationsAutoAssigner.utils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import jetbrains.buildServer.serverSide.BuildServerListener;
+import jetbrains.buildServer.serverSide.BuildServerListenerEventDispatcher;
+import jetbrains.buildServer.serverSide.SProject;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.*;
+
+@Test
+public class ProjectHierarchyIndexTest {
+  private SProject myRoot;
+  private SProject myParent;
+  private SProject myProject;
+  private SProject myAnotherProject;
+
+  @BeforeMethod
+  public void setUp() {
+    myRoot = createProject("_Root", null);
+    myParent = createProject("parent", myRoot);
+    myProject = createProject("project", myParent);
+    myAnotherProject = createProject("another", myRoot);
+  }
+
+  public void testAncestorOrSelf() {
+    ProjectHierarchyIndex index = new ProjectHierarchyIndex();
+
+    Assert.assertTrue(index.isAncestorOrSelf(myProject, myProject));
+    Assert.assertTrue(index.isAncestorOrSelf(myParent, myProject));
+    Assert.assertTrue(index.isAncestorOrSelf(myRoot, myProject));
+    Assert.assertFalse(index.isAncestorOrSelf(myProject, myParent));
+    Assert.assertFalse(index.isAncestorOrSelf(myAnotherProject, myProject));
+    Assert.assertEquals(index.getAncestorOrSelfIds(myProject), new HashSet<>(Arrays.asList("_Root", "parent", "project")));
+  }
+
+  public void testHierarchyWalkedOnce() {
+    ProjectHierarchyIndex index = new ProjectHierarchyIndex();
+
+    index.isAncestorOrSelf(myRoot, myProject);
+    index.isAncestorOrSelf(myParent, myProject);
+    index.isAncestorOrSelf(myRoot, myParent);
+
+    verify(myProject, times(1)).getParentProject();
+    verify(myParent, times(1)).getParentProject();
+  }
+
+  public void testInvalidatedWhenProjectMoved() {
+    BuildServerListenerEventDispatcher dispatcher = Mockito.mock(BuildServerListenerEventDispatcher.class);
+    ProjectHierarchyIndex index = new ProjectHierarchyIndex(dispatcher);
+    ArgumentCaptor<BuildServerListener> listener = ArgumentCaptor.forClass(BuildServerListener.class);
+    verify(dispatcher).addListener(listener.capture());
+
+    Assert.assertTrue(index.isAncestorOrSelf(myParent, myProject));
+
+    when(myProject.getParentProject()).thenReturn(myAnotherProject);
+    listener.getValue().projectMoved(myProject, myParent);
+
+    Assert.assertFalse(index.isAncestorOrSelf(myParent, myProject));
+    Assert.assertTrue(index.isAncestorOrSelf(myAnotherProject, myProject));
+  }
+
+  public void testHierarchyComputedDuringChangeNotReused() {
+    ProjectHierarchyIndex index = new ProjectHierarchyIndex();
+    AtomicBoolean moved = new AtomicBoolean();
+    when(myProject.getParentProject()).thenAnswer(invocation -> {
+      if (moved.getAndSet(true)) return myAnotherProject;
+      // the project is moved while its old parent is being returned
+      index.invalidate();
+      return myParent;
+    });
+
+    Assert.assertTrue(index.isAncestorOrSelf(myParent, myProject));
+
+    Assert.assertFalse(index.isAncestorOrSelf(myParent, myProject));
+    Assert.assertTrue(index.isAncestorOrSelf(myAnotherProject, myProject));
+  }
+
+  private static SProject createProject(String projectId, SProject parent) {
+    SProject project = Mockito.mock(SProject.class);
+    when(project.getProjectId()).thenReturn(projectId);
+    when(project.getParentProject()).thenReturn(parent);
+    return project;
+  }
+}